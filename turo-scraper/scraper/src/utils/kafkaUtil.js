@@ -14,7 +14,11 @@ async function sendToKafka(topic, message) {
         await producer.connect();
         await producer.send({
             topic,
-            messages: [{ value: JSON.stringify(message) }],
+            messages: [{
+                value: JSON.stringify(message),
+                // Scrape time, carried through the pipeline for end-to-end latency metrics
+                headers: { 'turtrack-scraped-at': String(Date.now()) },
+            }],
         });
     } catch (error) {
         console.error('Error sending message to Kafka:', error);
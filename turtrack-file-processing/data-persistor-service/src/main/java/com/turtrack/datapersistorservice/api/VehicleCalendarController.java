@@ -0,0 +1,51 @@
+package com.turtrack.datapersistorservice.api;
+
+import com.turtrack.datapersistorservice.service.VehicleCalendar;
+import com.turtrack.datapersistorservice.service.VehicleCalendarCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * {@code GET /api/vehicles/{vehicleId}/calendar?from=2024-07-01&to=2024-07-31}: the persisted daily rates of a
+ * vehicle, both dates inclusive. Without dates, the next {@value #DEFAULT_DAYS} days. Every response carries an
+ * ETag of its content; a request whose If-None-Match matches it gets 304 Not Modified without a body.
+ */
+@RestController
+@RequiredArgsConstructor
+public class VehicleCalendarController {
+
+    static final int DEFAULT_DAYS = 30;
+    static final int MAX_DAYS = 400;
+
+    private final VehicleCalendarCache vehicleCalendarCache;
+
+    @GetMapping("/api/vehicles/{vehicleId}/calendar")
+    public ResponseEntity<VehicleCalendarResponse> calendar(@PathVariable long vehicleId,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate start = from == null ? LocalDate.now() : from;
+        LocalDate end = to == null ? start.plusDays(DEFAULT_DAYS - 1) : to;
+        if (end.isBefore(start) || ChronoUnit.DAYS.between(start, end) >= MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected from <= to, at most " + MAX_DAYS + " days apart");
+        }
+
+        VehicleCalendar calendar = vehicleCalendarCache.get(vehicleId, start);
+        VehicleCalendar.Slice slice = calendar.slice(start, end);
+        // Spring answers a GET whose If-None-Match matches this ETag with 304 and drops the body
+        return ResponseEntity.ok()
+                .eTag(slice.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(VehicleCalendarResponse.of(calendar, start, end, slice));
+    }
+}
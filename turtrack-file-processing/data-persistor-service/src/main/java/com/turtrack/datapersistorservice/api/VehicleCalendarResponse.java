@@ -0,0 +1,24 @@
+package com.turtrack.datapersistorservice.api;
+
+import com.turtrack.datapersistorservice.service.VehicleCalendar;
+
+import java.time.LocalDate;
+
+/**
+ * A vehicle's calendar for {@code [from, to]} in columns: day i is {@code from + dayOffsets[i]} days, priced
+ * {@code prices[i]}. Days never crawled are absent. Dates are ISO strings.
+ */
+public record VehicleCalendarResponse(long vehicleId,
+                                      String from,
+                                      String to,
+                                      String currencyCode,
+                                      int[] dayOffsets,
+                                      double[] prices,
+                                      boolean[] unavailable,
+                                      boolean[] customSetPrice) {
+
+    public static VehicleCalendarResponse of(VehicleCalendar calendar, LocalDate from, LocalDate to, VehicleCalendar.Slice slice) {
+        return new VehicleCalendarResponse(calendar.vehicleId(), from.toString(), to.toString(), calendar.currencyCode(),
+                slice.dayOffsets(), slice.prices(), slice.unavailable(), slice.customSetPrice());
+    }
+}
@@ -0,0 +1,153 @@
+package com.turtrack.datapersistorservice.backfill;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The progress of a backfill, an append-only text file synced after every record so a killed backfill resumes where
+ * it stopped:
+ * <pre>
+ * run &lt;file&gt;      a run file was spilled and synced
+ * input &lt;file&gt;    every day of this input file is in the runs recorded so far
+ * spilled          every input is in the runs, loading started
+ * loaded &lt;key&gt;    rows up to this key are committed
+ * done
+ * </pre>
+ * A record torn by a crash is truncated when the file is opened. Thread-safe.
+ */
+final class BackfillCheckpoint implements Closeable {
+
+    private final FileChannel channel;
+    private final List<Path> runs = new ArrayList<>();
+    private final Set<Path> completedInputs = new HashSet<>();
+    private boolean spilled;
+    private long loadedKey = -1;
+    private boolean done;
+
+    private BackfillCheckpoint(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static BackfillCheckpoint open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        BackfillCheckpoint checkpoint = new BackfillCheckpoint(channel);
+        try {
+            checkpoint.replay(Files.readAllBytes(file));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return checkpoint;
+    }
+
+    private void replay(byte[] content) throws IOException {
+        int complete = 0;
+        for (int newline = indexOf(content, complete); newline >= 0; newline = indexOf(content, complete)) {
+            String record = new String(content, complete, newline - complete, StandardCharsets.UTF_8);
+            int space = record.indexOf(' ');
+            String type = space < 0 ? record : record.substring(0, space);
+            String value = space < 0 ? "" : record.substring(space + 1);
+            switch (type) {
+                case "run" -> runs.add(Path.of(value));
+                case "input" -> completedInputs.add(Path.of(value));
+                case "spilled" -> spilled = true;
+                case "loaded" -> loadedKey = Long.parseLong(value);
+                case "done" -> done = true;
+                default -> throw new IOException("Unexpected checkpoint record: " + record);
+            }
+            complete = newline + 1;
+        }
+        channel.truncate(complete);
+        channel.position(complete);
+    }
+
+    private static int indexOf(byte[] content, int from) {
+        for (int i = from; i < content.length; i++) {
+            if (content[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    synchronized List<Path> runs() {
+        return List.copyOf(runs);
+    }
+
+    synchronized boolean isCompleted(Path input) {
+        return completedInputs.contains(input);
+    }
+
+    synchronized boolean isSpilled() {
+        return spilled;
+    }
+
+    /**
+     * The last key committed, -1 if none.
+     */
+    synchronized long loadedKey() {
+        return loadedKey;
+    }
+
+    synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Records a synced run file, if any, and the inputs it completes, in one write.
+     */
+    synchronized void spilled(Path run, Collection<Path> inputs) throws IOException {
+        StringBuilder records = new StringBuilder();
+        if (run != null) {
+            records.append("run ").append(run).append('\n');
+        }
+        for (Path input : inputs) {
+            records.append("input ").append(input).append('\n');
+        }
+        append(records.toString());
+        if (run != null) {
+            runs.add(run);
+        }
+        completedInputs.addAll(inputs);
+    }
+
+    synchronized void allSpilled() throws IOException {
+        append("spilled\n");
+        spilled = true;
+    }
+
+    synchronized void loaded(long key) throws IOException {
+        append("loaded " + key + "\n");
+        loadedKey = key;
+    }
+
+    synchronized void finished() throws IOException {
+        append("done\n");
+        done = true;
+    }
+
+    private void append(String records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
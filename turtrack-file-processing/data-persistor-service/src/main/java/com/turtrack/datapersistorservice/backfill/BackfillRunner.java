@@ -0,0 +1,402 @@
+package com.turtrack.datapersistorservice.backfill;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.datapersistorservice.model.CurrencyCodeConverter;
+import com.turtrack.datapersistorservice.repository.DailyRateBackfillRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Backfill mode: loads archived raw scraper payloads straight into daily_rate_and_availability, without either Kafka
+ * hop, then exits. Runs instead of the listeners when {@code turtrack.persistor.backfill.input} is set.
+ * <p>
+ * Input files hold one payload per line, as the processor consumes them, optionally gzipped (.gz) and optionally
+ * prefixed with the scrape time and a tab, as recorded by the replay harness. Only calendars are loaded, vehicle
+ * detail messages are skipped.
+ * <ol>
+ * <li>Spill: {@code readers} threads take the input files in turn and parse their calendars into a {@link RunBuffer}
+ * each, spilling it to a sorted run file whenever it holds {@code run-rows} days. Memory stays at
+ * {@code readers x run-rows} days however large the archive.</li>
+ * <li>Load: a {@link RunMerger} merges the runs into (vehicleId, date) order, one row per day with the last
+ * observation in input order (files by name, then lines), which is COPYed in chunks of {@code load-chunk-rows}.</li>
+ * </ol>
+ * Every synced run and committed chunk is recorded in the checkpoint file, so running the same command again after
+ * a failure skips the inputs already spilled and the rows already loaded. The inputs must not change in between.
+ * <p>
+ * Backfilled rows bypass the delta tracker, the rollups and the change log, whose state is rebuilt or refreshed by
+ * the live pipeline as usual. Overwriting existing rows is meant for a stopped pipeline: a running persistor's delta
+ * tracker would not know their new values until restarted.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "turtrack.persistor.backfill.input")
+public class BackfillRunner implements ApplicationRunner {
+
+    private static final String RUN_PREFIX = "run-";
+    private static final String RUN_SUFFIX = ".bin";
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    private final DailyRateBackfillRepository dailyRateBackfillRepository;
+    private final ConfigurableApplicationContext context;
+    private final JsonFactory jsonFactory;
+    private final Path input;
+    private final Path workDir;
+    private final Path checkpointFile;
+    private final int readers;
+    private final int runRows;
+    private final int loadChunkRows;
+    private final boolean overwrite;
+
+    private final LongAdder payloads = new LongAdder();
+    private final LongAdder skippedPayloads = new LongAdder();
+    private final LongAdder malformedPayloads = new LongAdder();
+    private final LongAdder days = new LongAdder();
+    private final LongAdder rejectedDays = new LongAdder();
+    private final LongAdder spilledRows = new LongAdder();
+
+    public BackfillRunner(DailyRateBackfillRepository dailyRateBackfillRepository,
+                          ConfigurableApplicationContext context,
+                          ObjectMapper jsonObjectMapper,
+                          @Value("${turtrack.persistor.backfill.input}") String input,
+                          @Value("${turtrack.persistor.backfill.work-dir:${java.io.tmpdir}/turtrack-backfill}") String workDir,
+                          @Value("${turtrack.persistor.backfill.checkpoint:}") String checkpointFile,
+                          @Value("${turtrack.persistor.backfill.readers:0}") int readers,
+                          @Value("${turtrack.persistor.backfill.run-rows:500000}") int runRows,
+                          @Value("${turtrack.persistor.backfill.load-chunk-rows:1000000}") int loadChunkRows,
+                          @Value("${turtrack.persistor.backfill.overwrite:false}") boolean overwrite) {
+        this.dailyRateBackfillRepository = dailyRateBackfillRepository;
+        this.context = context;
+        this.jsonFactory = jsonObjectMapper.getFactory();
+        this.input = Path.of(input).toAbsolutePath().normalize();
+        this.workDir = Path.of(workDir).toAbsolutePath().normalize();
+        this.checkpointFile = checkpointFile.isEmpty()
+                ? this.workDir.resolve("checkpoint")
+                : Path.of(checkpointFile).toAbsolutePath().normalize();
+        this.readers = readers > 0 ? readers : Runtime.getRuntime().availableProcessors();
+        this.runRows = runRows;
+        this.loadChunkRows = loadChunkRows;
+        this.overwrite = overwrite;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Files.createDirectories(workDir);
+        try (BackfillCheckpoint checkpoint = BackfillCheckpoint.open(checkpointFile)) {
+            if (checkpoint.isDone()) {
+                log.info("Backfill of {} already done, delete {} to run it again", input, checkpointFile);
+            } else {
+                deleteOrphanRuns(checkpoint);
+                if (!checkpoint.isSpilled()) {
+                    spill(checkpoint);
+                }
+                load(checkpoint);
+            }
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+
+    private void spill(BackfillCheckpoint checkpoint) throws Exception {
+        List<Path> inputs = inputFiles();
+        // Sequences must order observations the same way in every attempt, so files are numbered before filtering
+        Map<Path, Integer> fileIndexes = new HashMap<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            fileIndexes.put(inputs.get(i), i);
+        }
+        List<Path> pending = inputs.stream().filter(file -> !checkpoint.isCompleted(file)).toList();
+        log.info("Backfill spilling {} of {} input files under {} with {} readers", pending.size(), inputs.size(),
+                input, readers);
+        long started = System.nanoTime();
+
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                futures.add(executor.submit(() -> {
+                    spillFiles(pending, fileIndexes, next, checkpoint);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // A failed reader stops the others at their next file
+                    next.set(pending.size());
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        checkpoint.allSpilled();
+        log.info("Backfill spilled {} payloads ({} skipped, {} malformed), {} days ({} rejected) to {} rows in {} runs in {} s",
+                payloads.sum(), skippedPayloads.sum(), malformedPayloads.sum(), days.sum(), rejectedDays.sum(),
+                spilledRows.sum(), checkpoint.runs().size(), (System.nanoTime() - started) / 1_000_000_000);
+    }
+
+    /**
+     * One reader: takes the next pending file until none is left. A file counts as completed once the run holding
+     * its last days is recorded.
+     */
+    private void spillFiles(List<Path> pending, Map<Path, Integer> fileIndexes, AtomicInteger next,
+                            BackfillCheckpoint checkpoint) throws IOException {
+        ScrapedCalendarParser parser = new ScrapedCalendarParser(jsonFactory);
+        RunBuffer buffer = new RunBuffer(runRows);
+        List<Path> completed = new ArrayList<>();
+        for (int i = next.getAndIncrement(); i < pending.size(); i = next.getAndIncrement()) {
+            Path file = pending.get(i);
+            long fileSequence = (long) fileIndexes.get(file) << 32;
+            try (PayloadLines lines = new PayloadLines(file)) {
+                for (int line = 1; lines.next(); line++) {
+                    if (lines.length() == 0) {
+                        continue;
+                    }
+                    payloads.increment();
+                    long sequence = fileSequence | line;
+                    int incomplete;
+                    try {
+                        incomplete = parser.parse(lines.bytes(), lines.offset(), lines.length(),
+                                (vehicleId, date, price, currencyCode, customSetPrice, wholeDayUnavailable) -> {
+                                    days.increment();
+                                    long epochDay = date.toEpochDay();
+                                    short currencyId;
+                                    try {
+                                        currencyId = CurrencyCodeConverter.toId(currencyCode);
+                                    } catch (IllegalArgumentException e) {
+                                        rejectedDays.increment();
+                                        return;
+                                    }
+                                    if (!RunBuffer.fits(vehicleId, epochDay)) {
+                                        rejectedDays.increment();
+                                        return;
+                                    }
+                                    buffer.add(RunBuffer.key(vehicleId, epochDay), sequence, price, currencyId,
+                                            (customSetPrice ? RunBuffer.CUSTOM_SET_PRICE : 0)
+                                                    | (wholeDayUnavailable ? RunBuffer.WHOLE_DAY_UNAVAILABLE : 0));
+                                    if (buffer.isFull()) {
+                                        try {
+                                            // The files read before this one have all their days in this run
+                                            spillBuffer(buffer, completed, checkpoint);
+                                            completed.clear();
+                                        } catch (IOException e) {
+                                            throw new UncheckedIOException(e);
+                                        }
+                                    }
+                                });
+                    } catch (UncheckedIOException e) {
+                        // A failed spill, not a bad payload
+                        throw e.getCause();
+                    } catch (IOException | RuntimeException e) {
+                        malformedPayloads.increment();
+                        log.warn("Skipping malformed payload at {}:{}: {}", file, line, e.toString());
+                        continue;
+                    }
+                    if (incomplete < 0) {
+                        skippedPayloads.increment();
+                    } else {
+                        rejectedDays.add(incomplete);
+                    }
+                }
+            }
+            completed.add(file);
+        }
+        spillBuffer(buffer, completed, checkpoint);
+    }
+
+    private void spillBuffer(RunBuffer buffer, List<Path> completed, BackfillCheckpoint checkpoint) throws IOException {
+        Path run = null;
+        if (!buffer.isEmpty()) {
+            run = Files.createTempFile(workDir, RUN_PREFIX, RUN_SUFFIX);
+            int rows = buffer.spill(run);
+            spilledRows.add(rows);
+            log.debug("Spilled {} rows to {}", rows, run);
+        }
+        if (run != null || !completed.isEmpty()) {
+            checkpoint.spilled(run, completed);
+        }
+    }
+
+    private void load(BackfillCheckpoint checkpoint) throws IOException {
+        List<Path> runs = checkpoint.runs();
+        long loadedKey = checkpoint.loadedKey();
+        log.info("Backfill loading {} runs{}", runs.size(), loadedKey < 0 ? ""
+                : " from vehicle " + RunBuffer.vehicleId(loadedKey));
+        long started = System.nanoTime();
+        long rows = 0;
+        long written = 0;
+        long pastRetention = 0;
+        try (RunMerger merger = new RunMerger(runs, loadedKey)) {
+            for (DailyRateBackfillRepository.Chunk chunk = dailyRateBackfillRepository.loadChunk(merger, loadChunkRows, overwrite);
+                 chunk.rows() > 0;
+                 chunk = dailyRateBackfillRepository.loadChunk(merger, loadChunkRows, overwrite)) {
+                checkpoint.loaded(merger.key());
+                rows += chunk.rows();
+                written += chunk.written();
+                pastRetention += chunk.pastRetention();
+                log.info("Backfill loaded {} rows, {} written, up to vehicle {}", rows, written,
+                        RunBuffer.vehicleId(merger.key()));
+            }
+        }
+        checkpoint.finished();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        log.info("Backfill done: {} rows, {} written, {} {}, {} past partition retention, in {} s", rows, written,
+                rows - written - pastRetention, overwrite ? "unchanged" : "kept as they were", pastRetention,
+                (System.nanoTime() - started) / 1_000_000_000);
+    }
+
+    /**
+     * Run files of a killed attempt that the checkpoint never recorded.
+     */
+    private void deleteOrphanRuns(BackfillCheckpoint checkpoint) throws IOException {
+        List<Path> runs = checkpoint.runs();
+        try (Stream<Path> files = Files.list(workDir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(RUN_PREFIX) && name.endsWith(RUN_SUFFIX) && !runs.contains(file.toAbsolutePath().normalize())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * The input file, or the regular files under the input directory in name order.
+     */
+    private List<Path> inputFiles() throws IOException {
+        if (!Files.isDirectory(input)) {
+            return List.of(input);
+        }
+        try (Stream<Path> files = Files.walk(input)) {
+            return files.filter(Files::isRegularFile).map(file -> file.toAbsolutePath().normalize()).sorted().toList();
+        }
+    }
+
+    /**
+     * The payloads of an input file, one per line, read as bytes without decoding: {@link #bytes} holds the current
+     * one from {@link #offset} for {@link #length} bytes, with any time prefix and line terminator stripped.
+     */
+    private static final class PayloadLines implements Closeable {
+
+        private final InputStream in;
+        private byte[] buffer = new byte[READ_BUFFER_BYTES];
+        private int limit;
+        private int position;
+        private int scanned;
+        private boolean eof;
+        private int offset;
+        private int length;
+
+        PayloadLines(Path file) throws IOException {
+            InputStream fileIn = Files.newInputStream(file);
+            try {
+                in = file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(fileIn, READ_BUFFER_BYTES) : fileIn;
+            } catch (IOException e) {
+                fileIn.close();
+                throw e;
+            }
+        }
+
+        boolean next() throws IOException {
+            while (true) {
+                for (int i = scanned; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        take(i);
+                        position = i + 1;
+                        scanned = position;
+                        return true;
+                    }
+                }
+                if (eof) {
+                    if (position == limit) {
+                        return false;
+                    }
+                    take(limit);
+                    position = limit;
+                    scanned = limit;
+                    return true;
+                }
+                // Keep the partial line at the front, growing the buffer for a line longer than it
+                int partial = limit - position;
+                if (position > 0) {
+                    System.arraycopy(buffer, position, buffer, 0, partial);
+                } else if (partial == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                position = 0;
+                limit = partial;
+                scanned = partial;
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    limit += read;
+                }
+            }
+        }
+
+        private void take(int end) {
+            int start = position;
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            if (start < end && buffer[start] != '{') {
+                // Skips a "<scrape time>\t" prefix
+                for (int i = start; i < end; i++) {
+                    if (buffer[i] == '\t') {
+                        start = i + 1;
+                        break;
+                    }
+                }
+            }
+            offset = start;
+            length = end - start;
+        }
+
+        byte[] bytes() {
+            return buffer;
+        }
+
+        int offset() {
+            return offset;
+        }
+
+        int length() {
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
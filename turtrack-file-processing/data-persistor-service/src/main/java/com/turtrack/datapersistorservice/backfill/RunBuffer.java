@@ -0,0 +1,117 @@
+package com.turtrack.datapersistorservice.backfill;
+
+import com.turtrack.datapersistorservice.util.LongLongHashMap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Collects up to {@code capacity} daily rates of one reader in primitive arrays, one per (vehicleId, date): a later
+ * observation of a day replaces an earlier one. {@link #spill} writes them to a run file sorted by (vehicleId, date)
+ * for {@link RunMerger}.
+ * <p>
+ * Keys pack vehicleId into the upper 40 bits and the epoch day into the lower 24, as in {@code DailyRateDeltaTracker},
+ * so sorting keys sorts by (vehicleId, date). Observations are ordered by {@code sequence}, their position in the input.
+ * <p>
+ * Run file: the row count as a long, then per row key (long), sequence (long), price (double), currency id (short)
+ * and flags (byte), {@value #ROW_BYTES} bytes.
+ */
+final class RunBuffer {
+
+    static final int ROW_BYTES = 8 + 8 + 8 + 2 + 1;
+    static final int CUSTOM_SET_PRICE = 1;
+    static final int WHOLE_DAY_UNAVAILABLE = 1 << 1;
+
+    private static final int EPOCH_DAY_BITS = 24;
+    private static final long MAX_VEHICLE_ID = (1L << (63 - EPOCH_DAY_BITS)) - 1;
+    private static final long MAX_EPOCH_DAY = (1L << EPOCH_DAY_BITS) - 1;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private final int capacity;
+    private final LongLongHashMap rowsByKey;
+    private final long[] sequences;
+    private final double[] prices;
+    private final short[] currencyIds;
+    private final byte[] flags;
+    private int size;
+
+    RunBuffer(int capacity) {
+        this.capacity = capacity;
+        this.rowsByKey = new LongLongHashMap(capacity);
+        this.sequences = new long[capacity];
+        this.prices = new double[capacity];
+        this.currencyIds = new short[capacity];
+        this.flags = new byte[capacity];
+    }
+
+    /**
+     * Whether a day can be keyed: vehicle ids below 2^39, dates from 1970 on.
+     */
+    static boolean fits(long vehicleId, long epochDay) {
+        return vehicleId >= 0 && vehicleId <= MAX_VEHICLE_ID && epochDay >= 0 && epochDay <= MAX_EPOCH_DAY;
+    }
+
+    static long key(long vehicleId, long epochDay) {
+        return vehicleId << EPOCH_DAY_BITS | epochDay;
+    }
+
+    static long vehicleId(long key) {
+        return key >>> EPOCH_DAY_BITS;
+    }
+
+    static int epochDay(long key) {
+        return (int) (key & MAX_EPOCH_DAY);
+    }
+
+    void add(long key, long sequence, double price, short currencyId, int rowFlags) {
+        int row = (int) rowsByKey.get(key, -1);
+        if (row < 0) {
+            row = size++;
+            rowsByKey.put(key, row);
+        } else if (sequence < sequences[row]) {
+            return;
+        }
+        sequences[row] = sequence;
+        prices[row] = price;
+        currencyIds[row] = currencyId;
+        flags[row] = (byte) rowFlags;
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Writes the rows to {@code file} in key order and syncs it, empties the buffer and returns the number of rows written.
+     */
+    int spill(Path file) throws IOException {
+        long[] keys = rowsByKey.keys();
+        Arrays.sort(keys);
+        try (FileOutputStream fileOut = new FileOutputStream(file.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, WRITE_BUFFER_BYTES))) {
+            out.writeLong(keys.length);
+            for (long key : keys) {
+                int row = (int) rowsByKey.get(key, -1);
+                out.writeLong(key);
+                out.writeLong(sequences[row]);
+                out.writeDouble(prices[row]);
+                out.writeShort(currencyIds[row]);
+                out.writeByte(flags[row]);
+            }
+            // On disk before the checkpoint names the run
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        rowsByKey.clear();
+        size = 0;
+        return keys.length;
+    }
+}
@@ -0,0 +1,166 @@
+package com.turtrack.datapersistorservice.backfill;
+
+import com.turtrack.datapersistorservice.repository.DailyRateBackfillRepository;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges the sorted run files written by {@link RunBuffer} into one stream in (vehicleId, date) order with one row per
+ * key: where runs hold the same day, the observation with the highest sequence wins. Every run is open at once with a
+ * 64 KiB read buffer, so memory grows with the number of runs, not with the rows.
+ */
+final class RunMerger implements DailyRateBackfillRepository.SortedRows, Closeable {
+
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+    private static final Comparator<Run> MERGE_ORDER = Comparator.comparingLong((Run run) -> run.key)
+            .thenComparing(Comparator.comparingLong((Run run) -> run.sequence).reversed());
+
+    private final List<Run> runs = new ArrayList<>();
+    private final PriorityQueue<Run> queue = new PriorityQueue<>(MERGE_ORDER);
+    private final long resumeAfterKey;
+
+    private long key = -1;
+    private double price;
+    private short currencyId;
+    private int flags;
+
+    /**
+     * @param resumeAfterKey skip every key up to this one, already loaded by an earlier attempt; -1 for none
+     */
+    RunMerger(List<Path> files, long resumeAfterKey) throws IOException {
+        this.resumeAfterKey = resumeAfterKey;
+        try {
+            for (Path file : files) {
+                Run run = new Run(file);
+                runs.add(run);
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean next() {
+        try {
+            while (!queue.isEmpty()) {
+                Run first = queue.poll();
+                key = first.key;
+                price = first.price;
+                currencyId = first.currencyId;
+                flags = first.flags;
+                if (first.advance()) {
+                    queue.add(first);
+                }
+                // Older observations of the same day, in other runs
+                while (!queue.isEmpty() && queue.peek().key == key) {
+                    Run older = queue.poll();
+                    if (older.advance()) {
+                        queue.add(older);
+                    }
+                }
+                if (key > resumeAfterKey) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The key of the current row, see {@link RunBuffer}.
+     */
+    long key() {
+        return key;
+    }
+
+    @Override
+    public long vehicleId() {
+        return RunBuffer.vehicleId(key);
+    }
+
+    @Override
+    public int epochDay() {
+        return RunBuffer.epochDay(key);
+    }
+
+    @Override
+    public double price() {
+        return price;
+    }
+
+    @Override
+    public short currencyId() {
+        return currencyId;
+    }
+
+    @Override
+    public boolean customSetPrice() {
+        return (flags & RunBuffer.CUSTOM_SET_PRICE) != 0;
+    }
+
+    @Override
+    public boolean wholeDayUnavailable() {
+        return (flags & RunBuffer.WHOLE_DAY_UNAVAILABLE) != 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Run run : runs) {
+            try {
+                run.in.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Run {
+
+        private final DataInputStream in;
+        private long remaining;
+
+        private long key;
+        private long sequence;
+        private double price;
+        private short currencyId;
+        private int flags;
+
+        Run(Path file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_BYTES));
+            remaining = in.readLong();
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            key = in.readLong();
+            sequence = in.readLong();
+            price = in.readDouble();
+            currencyId = in.readShort();
+            flags = in.readByte();
+            return true;
+        }
+    }
+}
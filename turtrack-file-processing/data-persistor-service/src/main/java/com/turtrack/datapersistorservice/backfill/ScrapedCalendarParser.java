@@ -0,0 +1,79 @@
+package com.turtrack.datapersistorservice.backfill;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.turtrack.common.json.ScrapedCalendarReader;
+import com.turtrack.common.json.ScrapedDay;
+import com.turtrack.common.util.StringPool;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Reads the days of a raw scraper calendar payload through the {@link ScrapedCalendarReader} the processor uses for
+ * the daily pricing topic. The complete days are buffered in primitive arrays until the payload's vehicleId is
+ * known, which the scraper appends after the pricing array. Not thread-safe, one per reader thread.
+ */
+final class ScrapedCalendarParser {
+
+    @FunctionalInterface
+    interface DayHandler {
+        void accept(long vehicleId, LocalDate date, double price, String currencyCode, boolean customSetPrice,
+                    boolean wholeDayUnavailable);
+    }
+
+    private final ScrapedCalendarReader calendarReader;
+
+    private LocalDate[] dates = new LocalDate[64];
+    private double[] prices = new double[64];
+    private String[] currencyCodes = new String[64];
+    private boolean[] customSetPrices = new boolean[64];
+    private boolean[] wholeDayUnavailables = new boolean[64];
+    private int days;
+    private int incomplete;
+
+    ScrapedCalendarParser(JsonFactory jsonFactory) {
+        this.calendarReader = new ScrapedCalendarReader(jsonFactory, new StringPool(256));
+    }
+
+    /**
+     * Hands every complete day of the payload to {@code handler} and returns the number of incomplete days, which
+     * the persistor could not store either; -1 if the payload is not a calendar (a vehicle detail message).
+     *
+     * @throws IOException              if the payload is not JSON
+     * @throws IllegalArgumentException if a calendar has no vehicleId or a field has an unexpected type
+     */
+    int parse(byte[] payload, int offset, int length, DayHandler handler) throws IOException {
+        days = 0;
+        incomplete = 0;
+        Long vehicleId = calendarReader.read(payload, offset, length, this::buffer);
+        if (vehicleId == null) {
+            return -1;
+        }
+        for (int day = 0; day < days; day++) {
+            handler.accept(vehicleId, dates[day], prices[day], currencyCodes[day], customSetPrices[day], wholeDayUnavailables[day]);
+        }
+        return incomplete;
+    }
+
+    private void buffer(ScrapedDay day) {
+        if (!day.isComplete()) {
+            incomplete++;
+            return;
+        }
+        if (days == dates.length) {
+            int capacity = days * 2;
+            dates = Arrays.copyOf(dates, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            currencyCodes = Arrays.copyOf(currencyCodes, capacity);
+            customSetPrices = Arrays.copyOf(customSetPrices, capacity);
+            wholeDayUnavailables = Arrays.copyOf(wholeDayUnavailables, capacity);
+        }
+        dates[days] = day.getDate();
+        prices[days] = day.getPrice();
+        currencyCodes[days] = day.getCurrencyCode();
+        customSetPrices[days] = day.getCustom();
+        wholeDayUnavailables[days] = day.getWholeDayUnavailable();
+        days++;
+    }
+}
@@ -0,0 +1,57 @@
+package com.turtrack.datapersistorservice.config;
+
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.model.Vehicle;
+import com.turtrack.datapersistorservice.service.AdaptiveBatcher;
+import com.turtrack.datapersistorservice.service.DailyRateAndAvailabilityPersistenceService;
+import com.turtrack.datapersistorservice.service.PartitionedWriteExecutor;
+import com.turtrack.datapersistorservice.service.VehiclePersistenceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class BatchingConfig {
+
+    @Value("${turtrack.persistor.batching.coalesce.enabled:true}")
+    private boolean coalesce;
+
+    @Bean
+    public AdaptiveBatcher.Settings batchingSettings(
+            @Value("${turtrack.persistor.batching.min-rows:500}") int minRows,
+            @Value("${turtrack.persistor.batching.max-rows:20000}") int maxRows,
+            @Value("${turtrack.persistor.batching.initial-rows:2000}") int initialRows,
+            @Value("${turtrack.persistor.batching.max-delay-ms:1000}") long maxDelayMs,
+            @Value("${turtrack.persistor.batching.latency-slo-ms:500}") long latencySloMs,
+            @Value("${turtrack.persistor.batching.coalesce.window-ms:250}") long coalesceWindowMs) {
+        return new AdaptiveBatcher.Settings(minRows, maxRows, initialRows,
+                Duration.ofMillis(maxDelayMs), Duration.ofMillis(latencySloMs), Duration.ofMillis(coalesceWindowMs));
+    }
+
+    @Bean
+    public AdaptiveBatcher<DailyRateAndAvailability> dailyRateBatcher(AdaptiveBatcher.Settings batchingSettings,
+                                                                      PartitionedWriteExecutor partitionedWriteExecutor,
+                                                                      DailyRateAndAvailabilityPersistenceService persistenceService,
+                                                                      MeterRegistry meterRegistry) {
+        return new AdaptiveBatcher<>("daily-rate", batchingSettings,
+                coalesce ? DailyRateAndAvailability::getId : null,
+                dailyRates -> partitionedWriteExecutor.writeGrouped(dailyRates, dailyRate -> dailyRate.getId().getVehicleId(),
+                        persistenceService::saveOrUpdateDailyRates),
+                meterRegistry);
+    }
+
+    @Bean
+    public AdaptiveBatcher<Vehicle> vehicleBatcher(AdaptiveBatcher.Settings batchingSettings,
+                                                   PartitionedWriteExecutor partitionedWriteExecutor,
+                                                   VehiclePersistenceService persistenceService,
+                                                   MeterRegistry meterRegistry) {
+        return new AdaptiveBatcher<>("vehicle", batchingSettings,
+                coalesce ? Vehicle::getId : null,
+                vehicles -> partitionedWriteExecutor.writeGrouped(vehicles, vehicle -> vehicle.getId() == null ? 0 : vehicle.getId(),
+                        persistenceService::saveOrUpdateVehicles),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,13 @@
+package com.turtrack.datapersistorservice.config;
+
+/**
+ * How batches of daily rates are written to {@code daily_rate_and_availability}.
+ * <ul>
+ *     <li>{@code BULK} - multi-row {@code INSERT ... ON CONFLICT DO UPDATE} over plain JDBC, bypassing the persistence context.</li>
+ *     <li>{@code JPA} - {@code EntityManager.merge} per row (a SELECT before every INSERT or UPDATE).</li>
+ * </ul>
+ */
+public enum DailyRateWriteMode {
+    BULK,
+    JPA
+}
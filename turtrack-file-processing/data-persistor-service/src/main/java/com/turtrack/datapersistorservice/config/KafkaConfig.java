@@ -1,20 +1,143 @@
 package com.turtrack.datapersistorservice.config;
 
+import com.turtrack.common.deadletter.DeadLetterReplayEndpoint;
+import com.turtrack.common.deadletter.DeadLetterRouter;
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
+import com.turtrack.datapersistorservice.service.PartitionRevocationListener;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
 
 @Configuration
 public class KafkaConfig {
 
+    @Value("${turtrack.persistor.listener.concurrency:1}")
+    private int listenerConcurrency;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${turtrack.persistor.retry.max-retries:5}")
+    private int retryMaxRetries;
+
+    @Value("${turtrack.persistor.retry.initial-interval-ms:500}")
+    private long retryInitialIntervalMs;
+
+    @Value("${turtrack.persistor.retry.multiplier:2.0}")
+    private double retryMultiplier;
+
+    @Value("${turtrack.persistor.retry.max-interval-ms:30000}")
+    private long retryMaxIntervalMs;
+
+    @Value("${turtrack.persistor.backfill.input:}")
+    private String backfillInput;
+
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory(
-            ConsumerFactory<String, String> consumerFactory) {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> kafkaListenerContainerFactory(
+            ConsumerFactory<String, byte[]> consumerFactory, DeadLetterRouter deadLetterRouter,
+            PartitionRevocationListener partitionRevocationListener) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory);
         factory.setBatchListener(true);
+        factory.setCommonErrorHandler(errorHandler(deadLetterRouter));
+        // One consumer thread per partition at most. Records are keyed by vehicleId, so no two threads
+        // ever write the same vehicle's rows.
+        factory.setConcurrency(listenerConcurrency);
+        // Polls are acknowledged by AdaptiveBatcher once the flush that wrote them has committed
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // ... and flushed before their partitions are revoked
+        factory.getContainerProperties().setConsumerRebalanceListener(partitionRevocationListener);
+        // A backfill (BackfillRunner) loads the archive and exits without consuming
+        factory.setAutoStartup(backfillInput.isEmpty());
+        if (virtualThreads) {
+            // Consumer threads of the containers become virtual threads (Java 21)
+            SimpleAsyncTaskExecutor listenerTaskExecutor = new SimpleAsyncTaskExecutor("persistor-listener-");
+            listenerTaskExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor);
+        }
         return factory;
     }
-}
\ No newline at end of file
+
+    /**
+     * Undecodable payloads never get here: they are dead-lettered by the listeners and the rest of the poll goes on.
+     * Anything else is retried with exponential backoff, then its records are dead-lettered so the partition can
+     * move on.
+     */
+    private DefaultErrorHandler errorHandler(DeadLetterRouter deadLetterRouter) {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(retryMaxRetries);
+        backOff.setInitialInterval(retryInitialIntervalMs);
+        backOff.setMultiplier(retryMultiplier);
+        backOff.setMaxInterval(retryMaxIntervalMs);
+        return new DefaultErrorHandler(deadLetterRouter::deadLetter, backOff);
+    }
+
+    /**
+     * The persistor only produces dead letters and their replays, which carry the original payload bytes untouched.
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> deadLetterProducerFactory(KafkaProperties kafkaProperties) {
+        return new DefaultKafkaProducerFactory<>(kafkaProperties.buildProducerProperties(null),
+                new StringSerializer(), new ByteArraySerializer());
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> deadLetterKafkaTemplate(ProducerFactory<String, byte[]> deadLetterProducerFactory) {
+        return new KafkaTemplate<>(deadLetterProducerFactory);
+    }
+
+    /**
+     * Publishes to {@code <topic>.DLT}, letting the key pick the partition so dead-letter topics need not mirror
+     * the partition count of their source.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(KafkaTemplate<String, byte[]> deadLetterKafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(deadLetterKafkaTemplate,
+                (record, exception) -> new TopicPartition(DeadLetterRouter.deadLetterTopic(record.topic()), -1));
+    }
+
+    @Bean
+    public DeadLetterRouter deadLetterRouter(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                             PipelineMetrics pipelineMetrics) {
+        return new DeadLetterRouter(deadLetterPublishingRecoverer, pipelineMetrics::deserializationFailed);
+    }
+
+    @Bean
+    public DeadLetterReplayEndpoint deadLetterReplayEndpoint(ConsumerFactory<String, byte[]> consumerFactory,
+                                                             KafkaTemplate<String, byte[]> deadLetterKafkaTemplate) {
+        return new DeadLetterReplayEndpoint(consumerFactory, deadLetterKafkaTemplate, "data-persistor-dead-letter-replay");
+    }
+
+    // Dead-letter topics of the processed topics, see DeadLetterRouter
+
+    @Bean
+    public NewTopic cleanedVehicleDeadLetterTopic() {
+        return TopicBuilder.name(DeadLetterRouter.deadLetterTopic("cleaned-vehicle-topic")).partitions(1).build();
+    }
+
+    @Bean
+    public NewTopic processedDailyRateDeadLetterTopic() {
+        return TopicBuilder.name(DeadLetterRouter.deadLetterTopic("processed-vehicle-daily-rate-and-availability-topic")).partitions(1).build();
+    }
+
+    @Bean
+    public NewTopic processedDailyRateCalendarDeadLetterTopic() {
+        return TopicBuilder.name(DeadLetterRouter.deadLetterTopic("processed-vehicle-daily-rate-calendar-topic")).partitions(1).build();
+    }
+}
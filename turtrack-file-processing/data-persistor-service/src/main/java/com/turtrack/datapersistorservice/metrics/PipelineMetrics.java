@@ -0,0 +1,122 @@
+package com.turtrack.datapersistorservice.metrics;
+
+import com.turtrack.common.metrics.PipelineHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the persistor stages. Stage timers are recorded once per poll or write, not per record; only the
+ * end-to-end timer is recorded per record, with a plain clock read and no allocation.
+ * <ul>
+ *     <li>{@code turtrack.persistor.records{topic}} - records consumed</li>
+ *     <li>{@code turtrack.persistor.poll.size{topic}} - records per poll</li>
+ *     <li>{@code turtrack.persistor.deserialize{topic}} - deserialization of a poll</li>
+ *     <li>{@code turtrack.persistor.deserialize.failures{topic}} - records that could not be deserialized, dead-lettered</li>
+ *     <li>{@code turtrack.persistor.db.write{table}} - one bulk write statement group</li>
+ *     <li>{@code turtrack.pipeline.end-to-end} - scrape time ({@code turtrack-scraped-at} header) until the row is committed</li>
+ * </ul>
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TopicMeters> topicMeters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> dbWriteTimers = new ConcurrentHashMap<>();
+    private final Timer endToEnd;
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.endToEnd = Timer.builder("turtrack.pipeline.end-to-end")
+                .description("From scrape to committed row")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(100))
+                .maximumExpectedValue(Duration.ofHours(6))
+                .register(meterRegistry);
+    }
+
+    public void recordPoll(String topic, int records) {
+        TopicMeters meters = meters(topic);
+        meters.records.increment(records);
+        meters.pollSize.record(records);
+    }
+
+    public <T> T timeDeserialize(String topic, Supplier<T> deserialization) {
+        Timer timer = meters(topic).deserialize;
+        long start = System.nanoTime();
+        try {
+            return deserialization.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void deserializationFailed(String topic) {
+        meters(topic).deserializeFailures.increment();
+    }
+
+    public <T> T timeDbWrite(String table, Supplier<T> write) {
+        Timer timer = dbWriteTimers.computeIfAbsent(table, t -> Timer.builder("turtrack.persistor.db.write").tag("table", t)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        long start = System.nanoTime();
+        try {
+            return write.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Scrape times of a poll's records, in epoch milliseconds; 0 where the header is missing.
+     */
+    public static long[] scrapedAt(List<? extends ConsumerRecord<?, ?>> records) {
+        long[] scrapedAt = new long[records.size()];
+        for (int i = 0; i < scrapedAt.length; i++) {
+            scrapedAt[i] = PipelineHeaders.readScrapedAt(records.get(i).headers());
+        }
+        return scrapedAt;
+    }
+
+    /**
+     * Records end-to-end latency of committed records. Call once their rows are committed.
+     */
+    public void recordEndToEnd(long[] scrapedAt) {
+        long now = System.currentTimeMillis();
+        for (long scraped : scrapedAt) {
+            if (scraped > 0) {
+                endToEnd.record(Math.max(0, now - scraped), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private TopicMeters meters(String topic) {
+        return topicMeters.computeIfAbsent(topic, t -> new TopicMeters(t, meterRegistry));
+    }
+
+    private static final class TopicMeters {
+        private final Counter records;
+        private final DistributionSummary pollSize;
+        private final Timer deserialize;
+        private final Counter deserializeFailures;
+
+        private TopicMeters(String topic, MeterRegistry meterRegistry) {
+            records = Counter.builder("turtrack.persistor.records").tag("topic", topic).register(meterRegistry);
+            pollSize = DistributionSummary.builder("turtrack.persistor.poll.size").tag("topic", topic)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            deserialize = Timer.builder("turtrack.persistor.deserialize").tag("topic", topic).register(meterRegistry);
+            deserializeFailures = Counter.builder("turtrack.persistor.deserialize.failures").tag("topic", topic).register(meterRegistry);
+        }
+    }
+}
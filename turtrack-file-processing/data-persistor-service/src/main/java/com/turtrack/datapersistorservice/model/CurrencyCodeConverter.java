@@ -0,0 +1,62 @@
+package com.turtrack.datapersistorservice.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores a currency code as its ISO 4217 numeric code, the id of the currency lookup table: a smallint per
+ * daily rate instead of a three-letter string.
+ */
+@Converter
+public class CurrencyCodeConverter implements AttributeConverter<String, Short> {
+
+    private static final Map<Short, String> CODES_BY_ID = new HashMap<>();
+
+    static {
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            if (currency.getNumericCode() > 0) {
+                CODES_BY_ID.putIfAbsent((short) currency.getNumericCode(), currency.getCurrencyCode());
+            }
+        }
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(String currencyCode) {
+        return currencyCode == null ? null : toId(currencyCode);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short id) {
+        return id == null ? null : fromId(id);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the code is not an ISO 4217 currency with a numeric code
+     */
+    public static short toId(String currencyCode) {
+        int numericCode = Currency.getInstance(currencyCode).getNumericCode();
+        if (numericCode <= 0) {
+            throw new IllegalArgumentException("Currency " + currencyCode + " has no numeric code");
+        }
+        return (short) numericCode;
+    }
+
+    public static String fromId(short id) {
+        String currencyCode = CODES_BY_ID.get(id);
+        if (currencyCode == null) {
+            throw new IllegalArgumentException("Unknown currency id " + id);
+        }
+        return currencyCode;
+    }
+
+    /**
+     * Every (id, code) pair, to fill the currency lookup table.
+     */
+    public static Map<Short, String> currencies() {
+        return Map.copyOf(CODES_BY_ID);
+    }
+}
@@ -3,8 +3,14 @@ package com.turtrack.datapersistorservice.model;
 import jakarta.persistence.*;
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.Locale;
 import lombok.*;
 
+/**
+ * One day of a vehicle's calendar. The day-of-week name is not stored: it follows from the date, and the currency
+ * is stored as its numeric id (see {@link CurrencyCodeConverter}).
+ */
 @Entity
 @Table(name = "daily_rate_and_availability")
 @Getter
@@ -24,18 +30,31 @@ public class DailyRateAndAvailability {
     @Column(name = "custom_set_price", nullable = false)
     private Boolean customSetPrice;
 
-    @Column(name = "localizedDayOfWeek", nullable = false)
+    @Transient
+    @Getter(AccessLevel.NONE)
     private String localizedDayOfWeek;
 
     @Column(name = "price", nullable = false)
     private Double price;
 
-    @Column(name = "currency_code", nullable = false, length = 3)
+    @Convert(converter = CurrencyCodeConverter.class)
+    @Column(name = "currency_id", nullable = false)
     private String currencyCode;
 
     @Column(name = "whole_day_unavailable", nullable = false)
     private Boolean wholeDayUnavailable;
 
+    /**
+     * The name set on this instance, or for a loaded row the English name of its date's day ("Monday"),
+     * as the scraper reports it.
+     */
+    public String getLocalizedDayOfWeek() {
+        if (localizedDayOfWeek == null && id != null && id.getDate() != null) {
+            return id.getDate().getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.US);
+        }
+        return localizedDayOfWeek;
+    }
+
     @Embeddable
     @Data
     @AllArgsConstructor
@@ -0,0 +1,40 @@
+package com.turtrack.datapersistorservice.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import lombok.*;
+
+/**
+ * One row per observed change of a vehicle's price or availability for a given day; the price history series.
+ */
+@Entity
+@Table(name = "daily_rate_change_log", indexes = @Index(name = "idx_daily_rate_change_log_vehicle_date", columnList = "vehicle_id, date"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyRateChangeLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "vehicle_id", nullable = false)
+    private Long vehicleId;
+
+    @Column(name = "date", nullable = false)
+    private LocalDate date;
+
+    @Column(name = "price", nullable = false)
+    private Double price;
+
+    @Column(name = "whole_day_unavailable", nullable = false)
+    private Boolean wholeDayUnavailable;
+
+    @Column(name = "custom_set_price", nullable = false)
+    private Boolean customSetPrice;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
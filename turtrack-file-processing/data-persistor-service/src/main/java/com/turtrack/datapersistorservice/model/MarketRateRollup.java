@@ -0,0 +1,57 @@
+package com.turtrack.datapersistorservice.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import lombok.*;
+
+/**
+ * Price and occupancy outlook of all vehicles of one market (city and state of the vehicle) over the next
+ * {@code windowDays} days, maintained by DailyRateRollups. Every known vehicle day of the window weighs the same.
+ */
+@Entity
+@Table(name = "market_rate_rollup")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarketRateRollup {
+
+    @EmbeddedId
+    private MarketRateRollupId id;
+
+    @Column(name = "vehicles", nullable = false)
+    private Integer vehicles;
+
+    @Column(name = "days", nullable = false)
+    private Integer days;
+
+    @Column(name = "avg_price")
+    private Double avgPrice;
+
+    @Column(name = "price_stddev")
+    private Double priceStddev;
+
+    @Column(name = "utilization")
+    private Double utilization;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Embeddable
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class MarketRateRollupId implements Serializable {
+
+        // Empty, not null, when the vehicle has no city or state: both are part of the primary key
+        @Column(name = "city")
+        private String city;
+
+        @Column(name = "state")
+        private String state;
+
+        @Column(name = "window_days")
+        private Integer windowDays;
+    }
+}
@@ -0,0 +1,50 @@
+package com.turtrack.datapersistorservice.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import lombok.*;
+
+/**
+ * Price and occupancy outlook of one vehicle over the next {@code windowDays} days, maintained by DailyRateRollups.
+ * Averages and the standard deviation are null while no day of the window is known.
+ */
+@Entity
+@Table(name = "vehicle_rate_rollup")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleRateRollup {
+
+    @EmbeddedId
+    private VehicleRateRollupId id;
+
+    @Column(name = "days", nullable = false)
+    private Integer days;
+
+    @Column(name = "avg_price")
+    private Double avgPrice;
+
+    @Column(name = "price_stddev")
+    private Double priceStddev;
+
+    @Column(name = "utilization")
+    private Double utilization;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Embeddable
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class VehicleRateRollupId implements Serializable {
+
+        @Column(name = "vehicle_id")
+        private Long vehicleId;
+
+        @Column(name = "window_days")
+        private Integer windowDays;
+    }
+}
@@ -0,0 +1,216 @@
+package com.turtrack.datapersistorservice.repository;
+
+import com.turtrack.datapersistorservice.model.CurrencyCodeConverter;
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes daily rates with multi-row {@code INSERT ... ON CONFLICT (vehicle_id, date) DO UPDATE} statements.
+ * Rows never enter the JPA persistence context, so there is no SELECT per row and nothing to flush or clear.
+ */
+@Slf4j
+@Repository
+public class DailyRateAndAvailabilityBulkRepository {
+
+    private static final String INSERT_COLUMNS = " AS existing "
+            + "(vehicle_id, date, custom_set_price, price, currency_id, whole_day_unavailable) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?)";
+    static final String ON_CONFLICT = " ON CONFLICT (vehicle_id, date) DO UPDATE SET "
+            + "custom_set_price = EXCLUDED.custom_set_price, "
+            + "price = EXCLUDED.price, "
+            + "currency_id = EXCLUDED.currency_id, "
+            + "whole_day_unavailable = EXCLUDED.whole_day_unavailable "
+            // Skip rewriting rows that did not change, so re-crawled calendars don't produce dead tuples
+            + "WHERE (existing.custom_set_price, existing.price, existing.currency_id, existing.whole_day_unavailable) "
+            + "IS DISTINCT FROM (EXCLUDED.custom_set_price, EXCLUDED.price, EXCLUDED.currency_id, EXCLUDED.whole_day_unavailable)";
+
+    private static final String CHANGE_LOG_INSERT_PREFIX = "INSERT INTO daily_rate_change_log "
+            + "(vehicle_id, date, price, whole_day_unavailable, custom_set_price, changed_at) VALUES ";
+    private static final String CHANGE_LOG_ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?)";
+
+    private static final Comparator<DailyRateAndAvailability> LOCK_ORDER = Comparator
+            .comparing((DailyRateAndAvailability dailyRate) -> dailyRate.getId().getVehicleId())
+            .thenComparing(dailyRate -> dailyRate.getId().getDate());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DailyRatePartitionManager partitionManager;
+    private final int rowsPerStatement;
+    private final Map<String, String> fullStatementSqlByTable = new ConcurrentHashMap<>();
+
+    /**
+     * A repository writing the unpartitioned table.
+     */
+    public DailyRateAndAvailabilityBulkRepository(JdbcTemplate jdbcTemplate, int rowsPerStatement) {
+        this(jdbcTemplate, null, rowsPerStatement);
+    }
+
+    @Autowired
+    public DailyRateAndAvailabilityBulkRepository(JdbcTemplate jdbcTemplate,
+                                                  DailyRatePartitionManager partitionManager,
+                                                  @Value("${turtrack.persistor.bulk.rows-per-statement:1000}") int rowsPerStatement) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionManager = partitionManager;
+        this.rowsPerStatement = rowsPerStatement;
+    }
+
+    /**
+     * Upserts the given rates and returns the number of rows that were inserted or actually changed.
+     * With a partitioned table each month is written straight into its partition, skipping tuple routing through
+     * the parent, months in ascending order. Rates of months past partition retention are dropped.
+     */
+    public int upsert(List<DailyRateAndAvailability> dailyRates) {
+        List<DailyRateAndAvailability> rows = latestPerId(dailyRates);
+        if (partitionManager == null || !partitionManager.isActive()) {
+            return upsertInto(DailyRatePartitionManager.TABLE, rows);
+        }
+
+        Map<YearMonth, List<DailyRateAndAvailability>> rowsByMonth = new TreeMap<>();
+        for (DailyRateAndAvailability dailyRate : rows) {
+            rowsByMonth.computeIfAbsent(YearMonth.from(dailyRate.getId().getDate()), month -> new ArrayList<>()).add(dailyRate);
+        }
+        int written = 0;
+        for (Map.Entry<YearMonth, List<DailyRateAndAvailability>> month : rowsByMonth.entrySet()) {
+            String partition = partitionManager.partitionFor(month.getKey());
+            if (partition == null) {
+                log.warn("Dropping {} daily rates of {}, past partition retention", month.getValue().size(), month.getKey());
+                continue;
+            }
+            written += upsertInto(partition, month.getValue());
+        }
+        return written;
+    }
+
+    private int upsertInto(String table, List<DailyRateAndAvailability> rows) {
+        String fullStatementSql = fullStatementSqlByTable.computeIfAbsent(table, t -> upsertSql(t, rowsPerStatement));
+        int written = 0;
+        for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+            List<DailyRateAndAvailability> chunk = rows.subList(from, Math.min(from + rowsPerStatement, rows.size()));
+            String sql = chunk.size() == rowsPerStatement ? fullStatementSql : upsertSql(table, chunk.size());
+            written += jdbcTemplate.update(sql, ps -> bind(ps, chunk));
+        }
+        return written;
+    }
+
+    /**
+     * Appends one change log row per given rate, all stamped with {@code changedAt}.
+     */
+    public void appendChangeLog(List<DailyRateAndAvailability> changed, Instant changedAt) {
+        Timestamp timestamp = Timestamp.from(changedAt);
+        for (int from = 0; from < changed.size(); from += rowsPerStatement) {
+            List<DailyRateAndAvailability> chunk = changed.subList(from, Math.min(from + rowsPerStatement, changed.size()));
+            jdbcTemplate.update(multiRowSql(CHANGE_LOG_INSERT_PREFIX, CHANGE_LOG_ROW_PLACEHOLDERS, chunk.size(), ""), ps -> {
+                int index = 1;
+                for (DailyRateAndAvailability dailyRate : chunk) {
+                    ps.setLong(index++, dailyRate.getId().getVehicleId());
+                    ps.setObject(index++, dailyRate.getId().getDate());
+                    ps.setDouble(index++, dailyRate.getPrice());
+                    ps.setBoolean(index++, dailyRate.getWholeDayUnavailable());
+                    ps.setBoolean(index++, dailyRate.getCustomSetPrice());
+                    ps.setTimestamp(index++, timestamp);
+                }
+            });
+        }
+    }
+
+    /**
+     * Streams the persisted state of every day on or after {@code from}, without creating entities.
+     * Runs in a read-only transaction so the driver honours the fetch size instead of buffering the whole result.
+     */
+    @Transactional(readOnly = true)
+    public void forEachRateSince(LocalDate from, DailyRateStateHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT vehicle_id, date, price, whole_day_unavailable, custom_set_price "
+                    + "FROM daily_rate_and_availability WHERE date >= ?");
+            ps.setObject(1, from);
+            ps.setFetchSize(10_000);
+            return ps;
+        }, rs -> {
+            handler.accept(rs.getLong(1), rs.getObject(2, LocalDate.class), rs.getDouble(3), rs.getBoolean(4), rs.getBoolean(5));
+        });
+    }
+
+    @FunctionalInterface
+    public interface DailyRateStateHandler {
+        void accept(long vehicleId, LocalDate date, double price, boolean wholeDayUnavailable, boolean customSetPrice);
+    }
+
+    /**
+     * Streams the persisted days of one vehicle on or after {@code from}, in date order.
+     */
+    public void forEachDayOfVehicle(long vehicleId, LocalDate from, CalendarDayHandler handler) {
+        jdbcTemplate.query("SELECT date, price, whole_day_unavailable, custom_set_price, currency_id "
+                        + "FROM daily_rate_and_availability WHERE vehicle_id = ? AND date >= ? ORDER BY date",
+                rs -> {
+                    handler.accept(rs.getObject(1, LocalDate.class), rs.getDouble(2), rs.getBoolean(3), rs.getBoolean(4),
+                            CurrencyCodeConverter.fromId(rs.getShort(5)));
+                }, vehicleId, from);
+    }
+
+    @FunctionalInterface
+    public interface CalendarDayHandler {
+        void accept(LocalDate date, double price, boolean wholeDayUnavailable, boolean customSetPrice, String currencyCode);
+    }
+
+    /**
+     * Keeps the last rate per id, in (vehicle_id, date) order. Postgres rejects a statement that touches the same
+     * conflict target twice ("ON CONFLICT DO UPDATE command cannot affect row a second time"); batches from the
+     * consumers are already coalesced, but callers writing directly are not. Concurrent consumers always lock rows in
+     * the same order, so overlapping batches (e.g. around a rebalance) wait instead of deadlocking.
+     */
+    private static List<DailyRateAndAvailability> latestPerId(List<DailyRateAndAvailability> dailyRates) {
+        Map<DailyRateAndAvailability.DailyRateAndAvailabilityId, DailyRateAndAvailability> latest = new LinkedHashMap<>();
+        for (DailyRateAndAvailability dailyRate : dailyRates) {
+            latest.put(dailyRate.getId(), dailyRate);
+        }
+        List<DailyRateAndAvailability> rows = new ArrayList<>(latest.values());
+        rows.sort(LOCK_ORDER);
+        return rows;
+    }
+
+    private static void bind(PreparedStatement ps, List<DailyRateAndAvailability> chunk) throws SQLException {
+        int index = 1;
+        for (DailyRateAndAvailability dailyRate : chunk) {
+            ps.setLong(index++, dailyRate.getId().getVehicleId());
+            ps.setObject(index++, dailyRate.getId().getDate());
+            ps.setBoolean(index++, dailyRate.getCustomSetPrice());
+            ps.setDouble(index++, dailyRate.getPrice());
+            ps.setShort(index++, CurrencyCodeConverter.toId(dailyRate.getCurrencyCode()));
+            ps.setBoolean(index++, dailyRate.getWholeDayUnavailable());
+        }
+    }
+
+    private static String upsertSql(String table, int rows) {
+        return multiRowSql("INSERT INTO " + table + INSERT_COLUMNS, ROW_PLACEHOLDERS, rows, ON_CONFLICT);
+    }
+
+    private static String multiRowSql(String prefix, String rowPlaceholders, int rows, String suffix) {
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * (rowPlaceholders.length() + 2) + suffix.length());
+        sql.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(rowPlaceholders);
+        }
+        return sql.append(suffix).toString();
+    }
+}
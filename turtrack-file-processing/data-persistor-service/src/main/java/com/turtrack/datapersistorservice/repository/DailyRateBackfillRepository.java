@@ -0,0 +1,163 @@
+package com.turtrack.datapersistorservice.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Loads daily rates in bulk through binary {@code COPY}, for backfills. Each chunk is copied into an unindexed
+ * temporary staging table and moved into daily_rate_and_availability with one {@code INSERT ... SELECT} in the same
+ * transaction: the COPY maintains no index at all, and the table's primary key is filled in key order as the rows
+ * come sorted by (vehicle_id, date). With a partitioned table the partitions a chunk needs are created on the way;
+ * rows of months past partition retention are skipped.
+ */
+@Repository
+public class DailyRateBackfillRepository {
+
+    private static final String STAGE_TABLE = "daily_rate_backfill_stage";
+    private static final String COLUMNS = "vehicle_id, date, custom_set_price, price, currency_id, whole_day_unavailable";
+    private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    // Binary COPY dates count days from 2000-01-01
+    private static final int POSTGRES_EPOCH_DAY = (int) LocalDate.of(2000, 1, 1).toEpochDay();
+    private static final int COPY_BUFFER_BYTES = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DailyRatePartitionManager partitionManager;
+
+    /**
+     * A repository loading the unpartitioned table.
+     */
+    public DailyRateBackfillRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this(jdbcTemplate, transactionManager, null);
+    }
+
+    @Autowired
+    public DailyRateBackfillRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                       DailyRatePartitionManager partitionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitionManager = partitionManager;
+    }
+
+    /**
+     * A cursor over daily rates with one row per (vehicleId, date), positioned before the first row.
+     */
+    public interface SortedRows {
+
+        boolean next();
+
+        long vehicleId();
+
+        int epochDay();
+
+        double price();
+
+        short currencyId();
+
+        boolean customSetPrice();
+
+        boolean wholeDayUnavailable();
+    }
+
+    /**
+     * @param rows          rows taken from the cursor
+     * @param written       rows inserted, or inserted and changed when overwriting
+     * @param pastRetention rows skipped as their month is past partition retention
+     */
+    public record Chunk(int rows, int written, int pastRetention) {
+    }
+
+    /**
+     * Loads up to {@code maxRows} rows of the cursor in one transaction; a chunk of 0 rows means the cursor is done.
+     *
+     * @param overwrite replace rows that exist with different values; otherwise existing rows are kept, they come
+     *                  from later scrapes than a backfill's when the live pipeline already wrote them
+     */
+    public Chunk loadChunk(SortedRows rows, int maxRows, boolean overwrite) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute(
+                (ConnectionCallback<Chunk>) connection -> copyChunk(connection, rows, maxRows, overwrite)));
+    }
+
+    private Chunk copyChunk(Connection connection, SortedRows rows, int maxRows, boolean overwrite) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY TABLE IF NOT EXISTS " + STAGE_TABLE + " (vehicle_id bigint, date date, "
+                    + "custom_set_price boolean, price float(53), currency_id smallint, whole_day_unavailable boolean) "
+                    + "ON COMMIT DELETE ROWS");
+        }
+
+        int taken = 0;
+        int pastRetention = 0;
+        PGCopyOutputStream copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class),
+                "COPY " + STAGE_TABLE + " (" + COLUMNS + ") FROM STDIN (FORMAT binary)", COPY_BUFFER_BYTES);
+        try {
+            DataOutputStream out = new DataOutputStream(copy);
+            out.write(COPY_SIGNATURE);
+            out.writeInt(0);
+            out.writeInt(0);
+            // Rows come sorted by vehicle then date, so consecutive rows mostly share a month
+            long monthStart = 0;
+            long monthEnd = 0;
+            boolean monthRetained = true;
+            while (taken < maxRows && rows.next()) {
+                taken++;
+                int epochDay = rows.epochDay();
+                if (epochDay < monthStart || epochDay >= monthEnd) {
+                    YearMonth month = YearMonth.from(LocalDate.ofEpochDay(epochDay));
+                    monthStart = month.atDay(1).toEpochDay();
+                    monthEnd = month.plusMonths(1).atDay(1).toEpochDay();
+                    monthRetained = partitionManager == null || !partitionManager.isActive()
+                            || partitionManager.partitionFor(month) != null;
+                }
+                if (!monthRetained) {
+                    pastRetention++;
+                    continue;
+                }
+                out.writeShort(6);
+                out.writeInt(8);
+                out.writeLong(rows.vehicleId());
+                out.writeInt(4);
+                out.writeInt(epochDay - POSTGRES_EPOCH_DAY);
+                out.writeInt(1);
+                out.writeBoolean(rows.customSetPrice());
+                out.writeInt(8);
+                out.writeDouble(rows.price());
+                out.writeInt(2);
+                out.writeShort(rows.currencyId());
+                out.writeInt(1);
+                out.writeBoolean(rows.wholeDayUnavailable());
+            }
+            out.writeShort(-1);
+            out.flush();
+            copy.endCopy();
+        } catch (IOException e) {
+            throw new UncheckedIOException("COPY into " + STAGE_TABLE + " failed", e);
+        } finally {
+            // Leaves the connection usable for the rollback when a row source or the COPY failed
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            int written = statement.executeUpdate("INSERT INTO " + DailyRatePartitionManager.TABLE + " AS existing (" + COLUMNS
+                    + ") SELECT " + COLUMNS + " FROM " + STAGE_TABLE
+                    + (overwrite ? DailyRateAndAvailabilityBulkRepository.ON_CONFLICT : " ON CONFLICT (vehicle_id, date) DO NOTHING"));
+            return new Chunk(taken, written, pastRetention);
+        }
+    }
+}
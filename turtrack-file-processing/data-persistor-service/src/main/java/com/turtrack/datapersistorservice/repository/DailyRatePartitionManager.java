@@ -0,0 +1,222 @@
+package com.turtrack.datapersistorservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps daily_rate_and_availability range-partitioned by month on {@code date}, one
+ * {@code daily_rate_and_availability_pYYYYMM} partition per month with its own (vehicle_id, date) primary key.
+ * <p>
+ * Partitions are created {@code months-ahead} months in advance, and on demand for a month a write needs.
+ * Partitions that ended more than {@code retention-months} months ago are detached, and dropped if
+ * {@code drop-detached} is set; a detached partition is a plain table that can be archived on its own.
+ * <p>
+ * Hibernate's {@code ddl-auto} runs before this, as the transaction manager needs the entity manager factory, so on a
+ * fresh database the table already exists unpartitioned. An empty one is simply replaced by the partitioned table.
+ * A table holding rows is converted at startup only when {@code convert-existing} is set, since the conversion locks
+ * the table for the whole copy: it is renamed to daily_rate_and_availability_unpartitioned and
+ * its retained months are copied into the new partitioned table, in one transaction. The old table is left for the
+ * operator to drop once the copy is verified.
+ */
+@Slf4j
+@Component
+public class DailyRatePartitionManager implements InitializingBean {
+
+    static final String TABLE = "daily_rate_and_availability";
+    private static final String UNPARTITIONED_TABLE = TABLE + "_unpartitioned";
+    private static final String COLUMNS = "date, vehicle_id, custom_set_price, price, currency_id, whole_day_unavailable";
+    // Widest first, so no alignment padding: 24 bytes of data per row
+    private static final String COLUMN_DEFINITIONS = "vehicle_id bigint NOT NULL, price float(53) NOT NULL, date date NOT NULL, "
+            + "currency_id smallint NOT NULL, custom_set_price boolean NOT NULL, whole_day_unavailable boolean NOT NULL, "
+            + "PRIMARY KEY (vehicle_id, date)";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_p(\\d{6})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate ddlTransaction;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean dropDetached;
+    private final boolean convertExisting;
+
+    private final Set<YearMonth> attached = ConcurrentHashMap.newKeySet();
+    private volatile boolean active;
+
+    /**
+     * Takes the schema migration so that a table of the old layout is migrated before it is converted.
+     */
+    public DailyRatePartitionManager(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     DailyRateSchemaMigration schemaMigration,
+                                     @Value("${turtrack.persistor.partitioning.enabled:false}") boolean enabled,
+                                     @Value("${turtrack.persistor.partitioning.months-ahead:13}") int monthsAhead,
+                                     @Value("${turtrack.persistor.partitioning.retention-months:24}") int retentionMonths,
+                                     @Value("${turtrack.persistor.partitioning.drop-detached:false}") boolean dropDetached,
+                                     @Value("${turtrack.persistor.partitioning.convert-existing:false}") boolean convertExisting) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Partition DDL locks the parent table; it commits on its own instead of holding the lock for a whole write
+        this.ddlTransaction = new TransactionTemplate(transactionManager);
+        this.ddlTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.dropDetached = dropDetached;
+        this.convertExisting = convertExisting;
+    }
+
+    /**
+     * Whether the table is partitioned and writes should go to the month partitions.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Returns the partition holding {@code month}, creating it if needed, or null for a month past retention.
+     */
+    public String partitionFor(YearMonth month) {
+        if (month.isBefore(oldestRetainedMonth())) {
+            return null;
+        }
+        if (!attached.contains(month)) {
+            createPartition(month);
+        }
+        return partitionName(month);
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * Runs before any bean that reads the table (delta tracker and rollup warm-up), as they depend on the bulk repository.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        ddlTransaction.executeWithoutResult(status -> prepareTable());
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${turtrack.persistor.partitioning.maintenance-cron:0 30 0 * * *}")
+    public void maintainPartitions() {
+        if (!active) {
+            return;
+        }
+        YearMonth oldestRetained = oldestRetainedMonth();
+        for (String partition : jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = to_regclass(?)", String.class, TABLE)) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.parse(matcher.group(1), PARTITION_SUFFIX);
+            if (month.isBefore(oldestRetained)) {
+                detach(month, partition);
+            } else {
+                attached.add(month);
+            }
+        }
+
+        YearMonth current = YearMonth.now();
+        for (int ahead = 0; ahead <= monthsAhead; ahead++) {
+            if (!attached.contains(current.plusMonths(ahead))) {
+                createPartition(current.plusMonths(ahead));
+            }
+        }
+        log.info("{} has {} monthly partitions, {} through {}", TABLE, attached.size(), oldestRetained, current.plusMonths(monthsAhead));
+    }
+
+    private void prepareTable() {
+        String relkind = jdbcTemplate.queryForList("SELECT relkind FROM pg_class WHERE oid = to_regclass(?)", String.class, TABLE)
+                .stream().findFirst().orElse(null);
+        if ("r".equals(relkind) && isEmpty()) {
+            jdbcTemplate.execute("DROP TABLE " + TABLE);
+            relkind = null;
+        }
+        if (relkind == null) {
+            jdbcTemplate.execute("CREATE TABLE " + TABLE + " (" + COLUMN_DEFINITIONS + ") PARTITION BY RANGE (date)");
+            log.info("Created {} partitioned by month", TABLE);
+        } else if ("r".equals(relkind)) {
+            if (!convertExisting) {
+                log.warn("{} is not partitioned and turtrack.persistor.partitioning.convert-existing is off, writing to it "
+                        + "unpartitioned; set it for one startup in a maintenance window to convert the table", TABLE);
+                return;
+            }
+            convert();
+        }
+        active = true;
+    }
+
+    private boolean isEmpty() {
+        return !jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + TABLE + ")", Boolean.class);
+    }
+
+    private void convert() {
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + UNPARTITIONED_TABLE);
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS " + TABLE + "_pkey RENAME TO " + UNPARTITIONED_TABLE + "_pkey");
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (" + COLUMN_DEFINITIONS + ") PARTITION BY RANGE (date)");
+
+        LocalDate from = oldestRetainedMonth().atDay(1);
+        LocalDate first = jdbcTemplate.queryForObject("SELECT min(date) FROM " + UNPARTITIONED_TABLE + " WHERE date >= ?", LocalDate.class, from);
+        LocalDate last = jdbcTemplate.queryForObject("SELECT max(date) FROM " + UNPARTITIONED_TABLE + " WHERE date >= ?", LocalDate.class, from);
+        int copied = 0;
+        if (first != null) {
+            for (YearMonth month = YearMonth.from(first); !month.isAfter(YearMonth.from(last)); month = month.plusMonths(1)) {
+                jdbcTemplate.execute(createPartitionSql(month));
+                attached.add(month);
+            }
+            copied = jdbcTemplate.update("INSERT INTO " + TABLE + " (" + COLUMNS + ") SELECT " + COLUMNS
+                    + " FROM " + UNPARTITIONED_TABLE + " WHERE date >= ?", from);
+        }
+        log.warn("Converted {} to monthly partitions, copied {} rows since {}. The old table is kept as {}, drop it once verified",
+                TABLE, copied, from, UNPARTITIONED_TABLE);
+    }
+
+    private synchronized void createPartition(YearMonth month) {
+        if (attached.contains(month)) {
+            return;
+        }
+        ddlTransaction.executeWithoutResult(status -> jdbcTemplate.execute(createPartitionSql(month)));
+        attached.add(month);
+        log.info("Created partition {}", partitionName(month));
+    }
+
+    private synchronized void detach(YearMonth month, String partition) {
+        ddlTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+            if (dropDetached) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            }
+        });
+        attached.remove(month);
+        log.info("{} partition {} past retention", dropDetached ? "Dropped" : "Detached", partition);
+    }
+
+    private static String createPartitionSql(YearMonth month) {
+        return "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    private YearMonth oldestRetainedMonth() {
+        return YearMonth.now().minusMonths(retentionMonths);
+    }
+}
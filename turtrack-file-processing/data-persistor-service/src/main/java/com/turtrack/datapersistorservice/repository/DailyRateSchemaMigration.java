@@ -0,0 +1,73 @@
+package com.turtrack.datapersistorservice.repository;
+
+import com.turtrack.datapersistorservice.model.CurrencyCodeConverter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the currency lookup table filled and moves a daily_rate_and_availability of the old layout to the current
+ * one: the localized_day_of_week column is dropped (the name follows from the date) and currency_code becomes a
+ * smallint currency_id referencing the lookup table. Idempotent, and run at startup before the table is partitioned
+ * or read, in one transaction that rewrites the table once.
+ */
+@Slf4j
+@Component
+public class DailyRateSchemaMigration implements InitializingBean {
+
+    static final String CURRENCY_TABLE = "currency";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public DailyRateSchemaMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        transactionTemplate.executeWithoutResult(status -> {
+            fillCurrencies();
+            migrateDailyRates();
+        });
+    }
+
+    private void fillCurrencies() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + CURRENCY_TABLE
+                + " (id smallint PRIMARY KEY, code varchar(3) NOT NULL UNIQUE)");
+        List<Object[]> currencies = new ArrayList<>();
+        for (Map.Entry<Short, String> currency : CurrencyCodeConverter.currencies().entrySet()) {
+            currencies.add(new Object[]{currency.getKey(), currency.getValue()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO " + CURRENCY_TABLE + " (id, code) VALUES (?, ?) ON CONFLICT DO NOTHING", currencies);
+    }
+
+    private void migrateDailyRates() {
+        String table = DailyRatePartitionManager.TABLE;
+        List<String> columns = jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns "
+                + "WHERE table_schema = current_schema() AND table_name = ?", String.class, table);
+        if (columns.contains("currency_code")) {
+            // ddl-auto may already have added currency_id, nullable or not, if it ran first
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS currency_id smallint");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN currency_id DROP NOT NULL");
+            int migrated = jdbcTemplate.update("UPDATE " + table + " d SET currency_id = c.id FROM " + CURRENCY_TABLE
+                    + " c WHERE c.code = d.currency_code");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN currency_id SET NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN currency_code");
+            log.warn("Moved {} rows of {} from currency_code to currency_id, run VACUUM FULL {} to reclaim the space",
+                    migrated, table, table);
+        }
+        if (columns.contains("localized_day_of_week")) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN localized_day_of_week");
+            log.info("Dropped localized_day_of_week from {}, it is derived from the date", table);
+        }
+    }
+}
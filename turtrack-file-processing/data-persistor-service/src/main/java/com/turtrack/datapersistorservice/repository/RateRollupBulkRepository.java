@@ -0,0 +1,105 @@
+package com.turtrack.datapersistorservice.repository;
+
+import com.turtrack.datapersistorservice.model.MarketRateRollup;
+import com.turtrack.datapersistorservice.model.VehicleRateRollup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Upserts rollups with multi-row {@code INSERT ... ON CONFLICT DO UPDATE} statements, like
+ * {@link DailyRateAndAvailabilityBulkRepository}. Each rollup key appears at most once per call.
+ */
+@Repository
+public class RateRollupBulkRepository {
+
+    private static final String VEHICLE_INSERT_PREFIX = "INSERT INTO vehicle_rate_rollup "
+            + "(vehicle_id, window_days, days, avg_price, price_stddev, utilization, updated_at) VALUES ";
+    private static final String VEHICLE_ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final String VEHICLE_ON_CONFLICT = " ON CONFLICT (vehicle_id, window_days) DO UPDATE SET "
+            + "days = EXCLUDED.days, avg_price = EXCLUDED.avg_price, price_stddev = EXCLUDED.price_stddev, "
+            + "utilization = EXCLUDED.utilization, updated_at = EXCLUDED.updated_at";
+
+    private static final String MARKET_INSERT_PREFIX = "INSERT INTO market_rate_rollup "
+            + "(city, state, window_days, vehicles, days, avg_price, price_stddev, utilization, updated_at) VALUES ";
+    private static final String MARKET_ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String MARKET_ON_CONFLICT = " ON CONFLICT (city, state, window_days) DO UPDATE SET "
+            + "vehicles = EXCLUDED.vehicles, days = EXCLUDED.days, avg_price = EXCLUDED.avg_price, "
+            + "price_stddev = EXCLUDED.price_stddev, utilization = EXCLUDED.utilization, updated_at = EXCLUDED.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int rowsPerStatement;
+
+    public RateRollupBulkRepository(JdbcTemplate jdbcTemplate,
+                                    @Value("${turtrack.persistor.bulk.rows-per-statement:1000}") int rowsPerStatement) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowsPerStatement = rowsPerStatement;
+    }
+
+    public int upsertVehicleRollups(List<VehicleRateRollup> rollups) {
+        int written = 0;
+        for (int from = 0; from < rollups.size(); from += rowsPerStatement) {
+            List<VehicleRateRollup> chunk = rollups.subList(from, Math.min(from + rowsPerStatement, rollups.size()));
+            written += jdbcTemplate.update(multiRowSql(VEHICLE_INSERT_PREFIX, VEHICLE_ROW_PLACEHOLDERS, chunk.size(), VEHICLE_ON_CONFLICT), ps -> {
+                int index = 1;
+                for (VehicleRateRollup rollup : chunk) {
+                    ps.setLong(index++, rollup.getId().getVehicleId());
+                    ps.setInt(index++, rollup.getId().getWindowDays());
+                    ps.setInt(index++, rollup.getDays());
+                    index = bindStats(ps, index, rollup.getAvgPrice(), rollup.getPriceStddev(), rollup.getUtilization());
+                    ps.setTimestamp(index++, Timestamp.from(rollup.getUpdatedAt()));
+                }
+            });
+        }
+        return written;
+    }
+
+    public int upsertMarketRollups(List<MarketRateRollup> rollups) {
+        int written = 0;
+        for (int from = 0; from < rollups.size(); from += rowsPerStatement) {
+            List<MarketRateRollup> chunk = rollups.subList(from, Math.min(from + rowsPerStatement, rollups.size()));
+            written += jdbcTemplate.update(multiRowSql(MARKET_INSERT_PREFIX, MARKET_ROW_PLACEHOLDERS, chunk.size(), MARKET_ON_CONFLICT), ps -> {
+                int index = 1;
+                for (MarketRateRollup rollup : chunk) {
+                    ps.setString(index++, rollup.getId().getCity());
+                    ps.setString(index++, rollup.getId().getState());
+                    ps.setInt(index++, rollup.getId().getWindowDays());
+                    ps.setInt(index++, rollup.getVehicles());
+                    ps.setInt(index++, rollup.getDays());
+                    index = bindStats(ps, index, rollup.getAvgPrice(), rollup.getPriceStddev(), rollup.getUtilization());
+                    ps.setTimestamp(index++, Timestamp.from(rollup.getUpdatedAt()));
+                }
+            });
+        }
+        return written;
+    }
+
+    private static int bindStats(PreparedStatement ps, int index, Double avgPrice, Double priceStddev, Double utilization) throws SQLException {
+        for (Double value : new Double[]{avgPrice, priceStddev, utilization}) {
+            if (value == null) {
+                ps.setNull(index++, Types.DOUBLE);
+            } else {
+                ps.setDouble(index++, value);
+            }
+        }
+        return index;
+    }
+
+    private static String multiRowSql(String prefix, String rowPlaceholders, int rows, String suffix) {
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * (rowPlaceholders.length() + 2) + suffix.length());
+        sql.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(rowPlaceholders);
+        }
+        return sql.append(suffix).toString();
+    }
+}
@@ -0,0 +1,112 @@
+package com.turtrack.datapersistorservice.repository;
+
+import com.turtrack.datapersistorservice.model.Vehicle;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes vehicles with multi-row {@code INSERT ... ON CONFLICT (id) DO UPDATE} statements, outside the persistence context.
+ */
+@Repository
+public class VehicleBulkRepository {
+
+    private static final String COLUMNS = "id, make, model, year, trim, type, registration_state, city, state, average_daily_price";
+    private static final String INSERT_PREFIX = "INSERT INTO vehicle (" + COLUMNS + ") VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ON_CONFLICT = " ON CONFLICT (id) DO UPDATE SET "
+            + "make = EXCLUDED.make, "
+            + "model = EXCLUDED.model, "
+            + "year = EXCLUDED.year, "
+            + "trim = EXCLUDED.trim, "
+            + "type = EXCLUDED.type, "
+            + "registration_state = EXCLUDED.registration_state, "
+            + "city = EXCLUDED.city, "
+            + "state = EXCLUDED.state, "
+            + "average_daily_price = EXCLUDED.average_daily_price";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int rowsPerStatement;
+
+    public VehicleBulkRepository(JdbcTemplate jdbcTemplate,
+                                 @Value("${turtrack.persistor.bulk.rows-per-statement:1000}") int rowsPerStatement) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowsPerStatement = rowsPerStatement;
+    }
+
+    /**
+     * Upserts the given vehicles. Callers must not pass the same id twice.
+     * Rows are written in id order, so concurrent consumers lock them in the same order.
+     */
+    public int upsert(List<Vehicle> vehicles) {
+        vehicles = new ArrayList<>(vehicles);
+        vehicles.sort(Comparator.comparing(Vehicle::getId));
+        int written = 0;
+        for (int from = 0; from < vehicles.size(); from += rowsPerStatement) {
+            List<Vehicle> chunk = vehicles.subList(from, Math.min(from + rowsPerStatement, vehicles.size()));
+            written += jdbcTemplate.update(upsertSql(chunk.size()), ps -> bind(ps, chunk));
+        }
+        return written;
+    }
+
+    /**
+     * Streams up to {@code limit} persisted vehicles without loading them into the persistence context.
+     */
+    public void forEachVehicle(int limit, Consumer<Vehicle> action) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT " + COLUMNS + " FROM vehicle LIMIT ?");
+            ps.setInt(1, limit);
+            ps.setFetchSize(1000);
+            return ps;
+        }, rs -> {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setId(rs.getInt("id"));
+            vehicle.setMake(rs.getString("make"));
+            vehicle.setModel(rs.getString("model"));
+            vehicle.setYear(rs.getObject("year", Integer.class));
+            vehicle.setTrim(rs.getString("trim"));
+            vehicle.setType(rs.getString("type"));
+            vehicle.setRegistrationState(rs.getString("registration_state"));
+            vehicle.setCity(rs.getString("city"));
+            vehicle.setState(rs.getString("state"));
+            vehicle.setAverageDailyPrice(rs.getObject("average_daily_price", Double.class));
+            action.accept(vehicle);
+        });
+    }
+
+    private static void bind(PreparedStatement ps, List<Vehicle> chunk) throws SQLException {
+        int index = 1;
+        for (Vehicle vehicle : chunk) {
+            ps.setInt(index++, vehicle.getId());
+            ps.setString(index++, vehicle.getMake());
+            ps.setString(index++, vehicle.getModel());
+            ps.setObject(index++, vehicle.getYear(), Types.INTEGER);
+            ps.setString(index++, vehicle.getTrim());
+            ps.setString(index++, vehicle.getType());
+            ps.setString(index++, vehicle.getRegistrationState());
+            ps.setString(index++, vehicle.getCity());
+            ps.setString(index++, vehicle.getState());
+            ps.setObject(index++, vehicle.getAverageDailyPrice(), Types.DOUBLE);
+        }
+    }
+
+    private static String upsertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDERS.length() + 2) + ON_CONFLICT.length());
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.append(ON_CONFLICT).toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.turtrack.datapersistorservice.serialization;
+
+import com.turtrack.common.wire.DailyRateWire;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.common.wire.WireReader;
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+
+import java.time.LocalDate;
+
+import static com.turtrack.common.wire.DailyRateWire.*;
+
+/**
+ * Decodes {@link WireFormat#SCHEMA_DAILY_RATE} records (see {@link DailyRateWire}) into entities. Fields the persistor
+ * does not store are read and dropped.
+ */
+public final class DailyRateAndAvailabilityWireDecoder {
+
+    private static final int REQUIRED = HAS_VEHICLE_ID | HAS_DATE | HAS_PRICE | HAS_CUSTOM | HAS_WHOLE_DAY_UNAVAILABLE;
+
+    private DailyRateAndAvailabilityWireDecoder() {
+    }
+
+    public static DailyRateAndAvailability decode(byte[] payload) {
+        WireReader reader = new WireReader(payload);
+        DailyRateWire.readHeader(reader);
+        int presence = reader.readByte();
+        int flags = reader.readByte();
+        if ((presence & REQUIRED) != REQUIRED) {
+            throw new IllegalArgumentException("Daily rate record is missing required fields, presence bits " + presence);
+        }
+
+        long vehicleId = reader.readVarLong();
+        LocalDate date = LocalDate.ofEpochDay(reader.readZigZagLong());
+        double price = WireFormat.fromCents(reader.readZigZagLong());
+        String localizedDayOfWeek = reader.readDictionaryString(WireFormat.DAYS_OF_WEEK);
+        reader.readDictionaryString(WireFormat.SHORT_DAYS_OF_WEEK);
+        String currencyCode = reader.readDictionaryString(WireFormat.CURRENCY_CODES);
+
+        DailyRateAndAvailability dailyRate = new DailyRateAndAvailability();
+        dailyRate.setId(new DailyRateAndAvailability.DailyRateAndAvailabilityId(vehicleId, date));
+        dailyRate.setCustomSetPrice((flags & CUSTOM) != 0);
+        dailyRate.setLocalizedDayOfWeek(localizedDayOfWeek);
+        dailyRate.setPrice(price);
+        dailyRate.setCurrencyCode(currencyCode);
+        dailyRate.setWholeDayUnavailable((flags & WHOLE_DAY_UNAVAILABLE) != 0);
+        return dailyRate;
+    }
+}
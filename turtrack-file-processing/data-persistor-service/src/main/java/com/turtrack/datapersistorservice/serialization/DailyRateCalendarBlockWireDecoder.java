@@ -0,0 +1,61 @@
+package com.turtrack.datapersistorservice.serialization;
+
+import com.turtrack.common.wire.DailyRateCalendarBlockWire;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.common.wire.WireReader;
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static com.turtrack.common.wire.DailyRateCalendarBlockWire.CUSTOM;
+import static com.turtrack.common.wire.DailyRateCalendarBlockWire.WHOLE_DAY_UNAVAILABLE;
+
+/**
+ * Decodes {@link WireFormat#SCHEMA_DAILY_RATE_CALENDAR_BLOCK} records (see {@link DailyRateCalendarBlockWire})
+ * straight into one entity per day.
+ */
+public final class DailyRateCalendarBlockWireDecoder {
+
+    private DailyRateCalendarBlockWireDecoder() {
+    }
+
+    public static List<DailyRateAndAvailability> decode(byte[] payload) {
+        WireReader reader = new WireReader(payload);
+        DailyRateCalendarBlockWire.readHeader(reader);
+        long vehicleId = reader.readVarLong();
+        LocalDate startDate = LocalDate.ofEpochDay(reader.readZigZagLong());
+        int days = DailyRateCalendarBlockWire.readDayCount(reader, payload.length);
+
+        List<DailyRateAndAvailability> dailyRates = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            double price = WireFormat.fromCents(reader.readZigZagLong());
+            int flags = reader.readByte();
+            String currencyCode = reader.readDictionaryString(WireFormat.CURRENCY_CODES);
+            dailyRates.add(toDailyRate(vehicleId, startDate.plusDays(i), price, flags, currencyCode));
+        }
+        return dailyRates;
+    }
+
+    /**
+     * Blocks carry no day-of-week name, so it is derived from the date in the scraper's form ("Monday").
+     */
+    public static DailyRateAndAvailability toDailyRate(long vehicleId, LocalDate date, double price, int flags, String currencyCode) {
+        DailyRateAndAvailability dailyRate = new DailyRateAndAvailability();
+        dailyRate.setId(new DailyRateAndAvailability.DailyRateAndAvailabilityId(vehicleId, date));
+        dailyRate.setCustomSetPrice((flags & CUSTOM) != 0);
+        dailyRate.setLocalizedDayOfWeek(dayOfWeek(date.getDayOfWeek()));
+        dailyRate.setPrice(price);
+        dailyRate.setCurrencyCode(currencyCode);
+        dailyRate.setWholeDayUnavailable((flags & WHOLE_DAY_UNAVAILABLE) != 0);
+        return dailyRate;
+    }
+
+    private static String dayOfWeek(DayOfWeek dayOfWeek) {
+        return dayOfWeek.getDisplayName(TextStyle.FULL, Locale.US);
+    }
+}
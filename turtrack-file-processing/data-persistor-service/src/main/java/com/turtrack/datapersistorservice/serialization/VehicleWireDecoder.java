@@ -0,0 +1,45 @@
+package com.turtrack.datapersistorservice.serialization;
+
+import com.turtrack.common.util.StringPool;
+import com.turtrack.common.wire.VehicleWire;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.common.wire.WireReader;
+import com.turtrack.datapersistorservice.model.Vehicle;
+
+import static com.turtrack.common.wire.VehicleWire.HAS_AVERAGE_DAILY_PRICE;
+import static com.turtrack.common.wire.VehicleWire.HAS_ID;
+
+/**
+ * Decodes {@link WireFormat#SCHEMA_VEHICLE} records (see {@link VehicleWire}) into entities. Literal strings are
+ * canonicalized, so buffered batches share one instance per distinct make, model or city.
+ */
+public final class VehicleWireDecoder {
+
+    private static final StringPool STRING_POOL = new StringPool(16_384);
+
+    private VehicleWireDecoder() {
+    }
+
+    public static Vehicle decode(byte[] payload) {
+        WireReader reader = new WireReader(payload);
+        VehicleWire.readHeader(reader);
+        int presence = reader.readByte();
+
+        Vehicle vehicle = new Vehicle();
+        if ((presence & HAS_ID) != 0) {
+            vehicle.setId((int) reader.readZigZagLong());
+        }
+        vehicle.setYear((int) reader.readZigZagLong());
+        if ((presence & HAS_AVERAGE_DAILY_PRICE) != 0) {
+            vehicle.setAverageDailyPrice(WireFormat.fromCents(reader.readZigZagLong()));
+        }
+        vehicle.setMake(STRING_POOL.intern(reader.readDictionaryString(WireFormat.NO_DICTIONARY)));
+        vehicle.setModel(STRING_POOL.intern(reader.readDictionaryString(WireFormat.NO_DICTIONARY)));
+        vehicle.setTrim(STRING_POOL.intern(reader.readDictionaryString(WireFormat.NO_DICTIONARY)));
+        vehicle.setType(reader.readDictionaryString(WireFormat.VEHICLE_TYPES));
+        vehicle.setRegistrationState(STRING_POOL.intern(reader.readDictionaryString(WireFormat.NO_DICTIONARY)));
+        vehicle.setCity(STRING_POOL.intern(reader.readDictionaryString(WireFormat.NO_DICTIONARY)));
+        vehicle.setState(STRING_POOL.intern(reader.readDictionaryString(WireFormat.NO_DICTIONARY)));
+        return vehicle;
+    }
+}
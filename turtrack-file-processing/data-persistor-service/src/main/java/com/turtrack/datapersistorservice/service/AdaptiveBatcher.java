@@ -0,0 +1,343 @@
+package com.turtrack.datapersistorservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Accumulates the records of consecutive polls and writes them with a single flush once {@link #targetRows()} rows
+ * are buffered, or once the oldest buffered poll has waited {@code maxDelay}. A poll is acknowledged only after the
+ * flush that wrote it, so delivery stays at-least-once. Before a consumer gives up partitions its buffer is flushed
+ * (see {@link #flushBeforeRevocation}), so no poll is written or acknowledged once another consumer owns it.
+ * <p>
+ * A flush that fails on the listener thread drops the buffer and rewinds the consumer to its committed offsets. Its
+ * polls are consumed again and written one by one, each failure thrown to the container, until a write succeeds: the
+ * error handler's backoff, retries and dead-lettering apply to them as to any failed poll, and a dead-lettered poll is
+ * never written later from the buffer.
+ * <p>
+ * Every listener thread (one per consumer) has its own buffer, so consumers keep writing in parallel and never
+ * acknowledge each other's offsets. The target is shared and tuned after each flush: halved when the flush exceeded
+ * the latency SLO, grown by {@code minRows} when a full flush stayed within the SLO while the consumer still lags
+ * behind by more than the target.
+ * <p>
+ * With a coalescing key, a buffer keeps only the latest record per key: a record replaces the one buffered for its
+ * key, whether it came earlier in the same poll or in an earlier poll. Records are keyed by vehicleId on the topics,
+ * so a key always comes from one partition and the latest record is the one at the highest offset. The target then
+ * counts distinct keys, and a buffer that reaches it is held until its oldest poll is {@code coalesceWindow} old (up to
+ * {@code maxRows}), so repeats in the next polls are merged instead of written again. Meters:
+ * <ul>
+ *     <li>{@code turtrack.persistor.coalesce.records{batcher}} - records offered</li>
+ *     <li>{@code turtrack.persistor.coalesce.superseded{batcher,scope}} - records replaced by a later one of the same
+ *     key, in the same poll ({@code scope=poll}) or in a later poll of the window ({@code scope=window})</li>
+ *     <li>{@code turtrack.persistor.coalesce.ratio{batcher}} - share of a flush's offered records that were superseded</li>
+ * </ul>
+ */
+@Slf4j
+public class AdaptiveBatcher<T> {
+
+    public record Settings(int minRows, int maxRows, int initialRows, Duration maxDelay, Duration latencySlo,
+                           Duration coalesceWindow) {
+
+        public Settings(int minRows, int maxRows, int initialRows, Duration maxDelay, Duration latencySlo) {
+            this(minRows, maxRows, initialRows, maxDelay, latencySlo, Duration.ZERO);
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final Consumer<List<T>> writer;
+    private final Function<T, ?> coalesceKey;
+    private final Map<String, Buffer<T>> buffers = new ConcurrentHashMap<>();
+    private final AtomicInteger targetRows;
+
+    private final Timer flushTimer;
+    private final DistributionSummary flushRows;
+    private final Counter coalesceRecords;
+    private final Counter supersededInPoll;
+    private final Counter supersededInWindow;
+    private final DistributionSummary coalesceRatio;
+
+    public AdaptiveBatcher(String name, Settings settings, Consumer<List<T>> writer, MeterRegistry meterRegistry) {
+        this(name, settings, null, writer, meterRegistry);
+    }
+
+    /**
+     * @param coalesceKey the key records are coalesced by, null to buffer every record; records whose key is null
+     *                    are never coalesced
+     */
+    public AdaptiveBatcher(String name, Settings settings, Function<T, ?> coalesceKey, Consumer<List<T>> writer,
+                           MeterRegistry meterRegistry) {
+        this.name = name;
+        this.settings = settings;
+        this.writer = writer;
+        this.coalesceKey = coalesceKey;
+        this.targetRows = new AtomicInteger(Math.max(settings.minRows(), Math.min(settings.maxRows(), settings.initialRows())));
+
+        this.flushTimer = Timer.builder("turtrack.persistor.batch.flush").tag("batcher", name).register(meterRegistry);
+        this.flushRows = DistributionSummary.builder("turtrack.persistor.batch.rows").tag("batcher", name).register(meterRegistry);
+        Gauge.builder("turtrack.persistor.batch.target-rows", targetRows, AtomicInteger::get)
+                .tag("batcher", name)
+                .register(meterRegistry);
+        Gauge.builder("turtrack.persistor.batch.buffered-rows", this, AdaptiveBatcher::bufferedRows)
+                .tag("batcher", name)
+                .register(meterRegistry);
+        if (coalesceKey != null) {
+            this.coalesceRecords = Counter.builder("turtrack.persistor.coalesce.records").tag("batcher", name).register(meterRegistry);
+            this.supersededInPoll = Counter.builder("turtrack.persistor.coalesce.superseded").tag("batcher", name)
+                    .tag("scope", "poll").register(meterRegistry);
+            this.supersededInWindow = Counter.builder("turtrack.persistor.coalesce.superseded").tag("batcher", name)
+                    .tag("scope", "window").register(meterRegistry);
+            this.coalesceRatio = DistributionSummary.builder("turtrack.persistor.coalesce.ratio").tag("batcher", name)
+                    .register(meterRegistry);
+        } else {
+            this.coalesceRecords = null;
+            this.supersededInPoll = null;
+            this.supersededInWindow = null;
+            this.coalesceRatio = null;
+        }
+    }
+
+    /**
+     * Buffers one poll. Called on the listener thread with the poll's consumer; flushes on that thread when the target
+     * is reached. After a failed flush, writes the poll right away and throws if that fails, see the class comment.
+     */
+    public void offer(List<T> records, Acknowledgment acknowledgment, org.apache.kafka.clients.consumer.Consumer<?, ?> consumer) {
+        Buffer<T> buffer = buffers.computeIfAbsent(Thread.currentThread().getName(), thread -> new Buffer<>());
+        synchronized (buffer) {
+            if (buffer.size() == 0 && records.isEmpty()) {
+                acknowledgment.acknowledge();
+                return;
+            }
+            long now = System.nanoTime();
+            if (buffer.acknowledgments.isEmpty()) {
+                buffer.firstOfferedAt = now;
+            }
+            if (coalesceKey == null) {
+                buffer.rows.addAll(records);
+            } else {
+                coalesce(buffer, records);
+            }
+            buffer.acknowledgments.add(acknowledgment);
+            buffer.lag = currentLag(consumer);
+            if (buffer.writeThrough) {
+                try {
+                    flush(buffer);
+                } catch (RuntimeException e) {
+                    buffer.clear();
+                    throw e;
+                }
+                buffer.writeThrough = false;
+                log.info("Writes of {} rows succeed again, back to buffering", name);
+            } else if (isFull(buffer, now)) {
+                try {
+                    flush(buffer);
+                } catch (RuntimeException e) {
+                    log.warn("Flush of {} buffered {} rows failed, rewinding {} to the committed offsets and writing "
+                            + "poll by poll", buffer.size(), name, consumer.assignment(), e);
+                    buffer.clear();
+                    buffer.writeThrough = true;
+                    rewind(consumer, consumer.assignment());
+                }
+            }
+        }
+    }
+
+    /**
+     * Call on the listener thread before its consumer's partitions are revoked. Flushes the thread's buffer, so none of
+     * its polls is written or acknowledged once another consumer owns the partitions. If the flush fails, the buffer is
+     * dropped unacknowledged and the partitions the consumer keeps are rewound to their committed offsets.
+     */
+    public void flushBeforeRevocation(org.apache.kafka.clients.consumer.Consumer<?, ?> consumer,
+                                      Collection<TopicPartition> revoked) {
+        Buffer<T> buffer = buffers.get(Thread.currentThread().getName());
+        if (buffer == null) {
+            return;
+        }
+        synchronized (buffer) {
+            if (buffer.acknowledgments.isEmpty()) {
+                return;
+            }
+            try {
+                flush(buffer);
+            } catch (RuntimeException e) {
+                Set<TopicPartition> kept = consumer.assignment().stream()
+                        .filter(partition -> !revoked.contains(partition))
+                        .collect(Collectors.toSet());
+                log.warn("Flush of {} buffered {} rows failed before revoking {}, dropping them and rewinding {}",
+                        buffer.size(), name, revoked, kept, e);
+                buffer.clear();
+                buffer.writeThrough = true;
+                rewind(consumer, kept);
+            }
+        }
+    }
+
+    private static void rewind(org.apache.kafka.clients.consumer.Consumer<?, ?> consumer, Set<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(partitions);
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset);
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+    }
+
+    /**
+     * Adds a poll to the buffer's latest record per key, counting what each record superseded.
+     */
+    private void coalesce(Buffer<T> buffer, List<T> records) {
+        Map<Object, T> poll = new LinkedHashMap<>();
+        for (T record : records) {
+            Object key = coalesceKey.apply(record);
+            poll.put(key == null ? new Object() : key, record);
+        }
+        int inWindow = 0;
+        for (Map.Entry<Object, T> latest : poll.entrySet()) {
+            if (buffer.latest.put(latest.getKey(), latest.getValue()) != null) {
+                inWindow++;
+            }
+        }
+        buffer.offered += records.size();
+        coalesceRecords.increment(records.size());
+        supersededInPoll.increment(records.size() - poll.size());
+        supersededInWindow.increment(inWindow);
+    }
+
+    /**
+     * Whether a buffer is due for a flush by size: at the target once held for the coalescing window, or at
+     * {@code maxRows} regardless.
+     */
+    private boolean isFull(Buffer<T> buffer, long now) {
+        int size = buffer.size();
+        return size >= settings.maxRows()
+                || size >= targetRows.get() && now - buffer.firstOfferedAt >= settings.coalesceWindow().toNanos();
+    }
+
+    /**
+     * Flushes buffers whose oldest poll has waited {@code maxDelay}, or that are full and have been held for the
+     * coalescing window. A failed write stays buffered and is retried on the next check, or by the listener thread
+     * once the buffer is full.
+     */
+    @Scheduled(fixedDelayString = "${turtrack.persistor.batching.flush-check-interval-ms:100}")
+    public void flushDue() {
+        long now = System.nanoTime();
+        for (Buffer<T> buffer : buffers.values()) {
+            synchronized (buffer) {
+                if (buffer.acknowledgments.isEmpty()
+                        || now - buffer.firstOfferedAt < settings.maxDelay().toNanos() && !isFull(buffer, now)) {
+                    continue;
+                }
+                try {
+                    flush(buffer);
+                } catch (RuntimeException e) {
+                    log.warn("Flush of {} buffered {} rows failed, retrying on the next flush", buffer.size(), name, e);
+                }
+            }
+        }
+    }
+
+    public int targetRows() {
+        return targetRows.get();
+    }
+
+    private void flush(Buffer<T> buffer) {
+        List<T> rows = coalesceKey == null ? buffer.rows : new ArrayList<>(buffer.latest.values());
+        long start = System.nanoTime();
+        if (!rows.isEmpty()) {
+            writer.accept(rows);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        buffer.acknowledgments.forEach(Acknowledgment::acknowledge);
+        if (coalesceKey != null && buffer.offered > 0) {
+            coalesceRatio.record(1 - (double) rows.size() / buffer.offered);
+        }
+        buffer.clear();
+
+        flushTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        flushRows.record(rows.size());
+        int target = targetRows.updateAndGet(current -> nextTarget(settings, current, rows.size(), elapsed, buffer.lag));
+        log.debug("Flushed {} {} rows in {} ms, lag {}, target now {}", rows.size(), name, elapsed / 1_000_000, buffer.lag, target);
+    }
+
+    static int nextTarget(Settings settings, int target, int flushedRows, long flushNanos, long lag) {
+        if (flushNanos > settings.latencySlo().toNanos()) {
+            return Math.max(settings.minRows(), target / 2);
+        }
+        if (flushedRows >= target && lag > target) {
+            return Math.min(settings.maxRows(), target + settings.minRows());
+        }
+        return target;
+    }
+
+    private int bufferedRows() {
+        int rows = 0;
+        for (Buffer<T> buffer : buffers.values()) {
+            synchronized (buffer) {
+                rows += buffer.size();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Records between the consumer's position and the end of its assigned partitions. Call on the listener thread.
+     */
+    static long currentLag(org.apache.kafka.clients.consumer.Consumer<?, ?> consumer) {
+        long lag = 0;
+        for (TopicPartition partition : consumer.assignment()) {
+            lag += consumer.currentLag(partition).orElse(0);
+        }
+        return lag;
+    }
+
+    private static final class Buffer<T> {
+        // Buffered records, without a coalescing key
+        private List<T> rows = new ArrayList<>();
+        // Latest record per key and the records offered since the last flush, with a coalescing key
+        private Map<Object, T> latest = new LinkedHashMap<>();
+        private long offered;
+        private List<Acknowledgment> acknowledgments = new ArrayList<>();
+        private long firstOfferedAt;
+        private long lag;
+        // Since a failed flush on the listener thread, until a write succeeds
+        private boolean writeThrough;
+
+        private int size() {
+            return rows.size() + latest.size();
+        }
+
+        private void clear() {
+            rows = new ArrayList<>();
+            latest = new LinkedHashMap<>();
+            offered = 0;
+            acknowledgments = new ArrayList<>();
+        }
+    }
+}
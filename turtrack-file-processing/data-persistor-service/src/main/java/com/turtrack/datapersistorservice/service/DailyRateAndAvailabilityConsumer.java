@@ -1,16 +1,25 @@
 package com.turtrack.datapersistorservice.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.common.deadletter.DeadLetterRouter;
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
 import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.serialization.DailyRateAndAvailabilityWireDecoder;
+import com.turtrack.datapersistorservice.serialization.DailyRateCalendarBlockWireDecoder;
+import com.turtrack.common.wire.WireFormat;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,28 +28,102 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class DailyRateAndAvailabilityConsumer {
 
-    private final DailyRateAndAvailabilityPersistenceService persistenceService;
+    static final String DAILY_RATE_TOPIC = "processed-vehicle-daily-rate-and-availability-topic";
+    static final String CALENDAR_BLOCK_TOPIC = "processed-vehicle-daily-rate-calendar-topic";
+
+    private final AdaptiveBatcher<DailyRateAndAvailability> dailyRateBatcher;
     private final ObjectMapper jsonObjectMapper;
+    private final PipelineMetrics pipelineMetrics;
+    private final DeadLetterRouter deadLetterRouter;
 
-    @KafkaListener(topics = "processed-vehicle-daily-rate-and-availability-topic", groupId = "daily-rate-persistence-group")
-    public void consume(List<ConsumerRecord<String, String>> records) {
-        log.info("Received batch of {} daily rate records", records.size());
+    @KafkaListener(topics = DAILY_RATE_TOPIC, groupId = "daily-rate-persistence-group")
+    public void consume(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        log.debug("Received batch of {} daily rate records", records.size());
+        pipelineMetrics.recordPoll(DAILY_RATE_TOPIC, records.size());
 
-        List<DailyRateAndAvailability> dailyRates = records.stream()
-                .map(record -> deserializeDailyRate(record.value()))
+        List<DailyRateAndAvailability> dailyRates = pipelineMetrics.timeDeserialize(DAILY_RATE_TOPIC, () -> records.stream()
+                .map(record -> deadLetterRouter.decodeOrDeadLetter(record, this::deserializeDailyRate))
                 .filter(dr -> dr != null)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+
+        log.debug("Deserialized {} valid daily rates", dailyRates.size());
+
+        dailyRateBatcher.offer(dailyRates, committed(records, acknowledgment), consumer);
+    }
+
+    /**
+     * Calendar blocks hold a run of consecutive days of one vehicle; they are expanded to one row per day
+     * and buffered with the per-day records.
+     */
+    @KafkaListener(topics = CALENDAR_BLOCK_TOPIC, groupId = "daily-rate-persistence-group")
+    public void consumeCalendarBlocks(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        log.debug("Received batch of {} daily rate calendar blocks", records.size());
+        pipelineMetrics.recordPoll(CALENDAR_BLOCK_TOPIC, records.size());
+
+        List<DailyRateAndAvailability> dailyRates = pipelineMetrics.timeDeserialize(CALENDAR_BLOCK_TOPIC, () -> {
+            List<DailyRateAndAvailability> expanded = new ArrayList<>();
+            for (ConsumerRecord<String, byte[]> record : records) {
+                List<DailyRateAndAvailability> block =
+                        deadLetterRouter.decodeOrDeadLetter(record, this::deserializeCalendarBlock);
+                if (block != null) {
+                    expanded.addAll(block);
+                }
+            }
+            return expanded;
+        });
+
+        log.debug("Deserialized {} valid daily rates from calendar blocks", dailyRates.size());
 
-        log.info("Deserialized {} valid daily rates", dailyRates.size());
+        dailyRateBatcher.offer(dailyRates, committed(records, acknowledgment), consumer);
+    }
+
+    /**
+     * Acknowledges the poll and records its end-to-end latency, once the batcher has committed its rows.
+     */
+    private Acknowledgment committed(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment) {
+        long[] scrapedAt = PipelineMetrics.scrapedAt(records);
+        return () -> {
+            acknowledgment.acknowledge();
+            pipelineMetrics.recordEndToEnd(scrapedAt);
+        };
+    }
 
-        if (!dailyRates.isEmpty()) {
-            persistenceService.saveOrUpdateDailyRates(dailyRates);
+    /**
+     * Throws if the payload is not a well-formed calendar block; the listener dead-letters the record.
+     */
+    List<DailyRateAndAvailability> deserializeCalendarBlock(byte[] payload) {
+        if (WireFormat.hasHeader(payload)) {
+            return DailyRateCalendarBlockWireDecoder.decode(payload);
+        }
+        try {
+            JsonNode node = jsonObjectMapper.readTree(payload);
+            long vehicleId = node.get("vehicleId").asLong();
+            JsonNode dateNode = node.get("startDate");
+            LocalDate startDate = LocalDate.of(dateNode.get(0).asInt(), dateNode.get(1).asInt(), dateNode.get(2).asInt());
+            JsonNode prices = node.get("prices");
+            JsonNode flags = node.get("flags");
+            JsonNode currencyCodes = node.get("currencyCodes");
+
+            List<DailyRateAndAvailability> dailyRates = new ArrayList<>(prices.size());
+            for (int i = 0; i < prices.size(); i++) {
+                dailyRates.add(DailyRateCalendarBlockWireDecoder.toDailyRate(vehicleId, startDate.plusDays(i),
+                        prices.get(i).asDouble(), flags.get(i).asInt(), currencyCodes.get(i).asText(null)));
+            }
+            return dailyRates;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed daily rate calendar block", e);
         }
     }
 
-    private DailyRateAndAvailability deserializeDailyRate(String json) {
+    /**
+     * Throws if the payload is not a well-formed daily rate; the listener dead-letters the record.
+     */
+    DailyRateAndAvailability deserializeDailyRate(byte[] payload) {
+        if (WireFormat.hasHeader(payload)) {
+            return DailyRateAndAvailabilityWireDecoder.decode(payload);
+        }
         try {
-            JsonNode node = jsonObjectMapper.readTree(json);
+            JsonNode node = jsonObjectMapper.readTree(payload);
             DailyRateAndAvailability dailyRate = new DailyRateAndAvailability();
 
             // Create and set the composite ID
@@ -58,9 +141,8 @@ public class DailyRateAndAvailabilityConsumer {
             dailyRate.setWholeDayUnavailable(node.get("wholeDayUnavailable").asBoolean());
 
             return dailyRate;
-        } catch (JsonProcessingException e) {
-            log.error("Error deserializing daily rate: {}", json, e);
-            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed daily rate", e);
         }
     }
 }
\ No newline at end of file
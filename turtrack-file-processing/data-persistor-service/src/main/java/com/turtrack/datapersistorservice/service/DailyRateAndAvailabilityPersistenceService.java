@@ -1,15 +1,24 @@
 package com.turtrack.datapersistorservice.service;
 
+import com.turtrack.datapersistorservice.config.DailyRateWriteMode;
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
 import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
 import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -17,24 +26,99 @@ import java.util.List;
 public class DailyRateAndAvailabilityPersistenceService {
 
     private final DailyRateAndAvailabilityRepository dailyRateAndAvailabilityRepository;
+    private final DailyRateAndAvailabilityBulkRepository dailyRateAndAvailabilityBulkRepository;
+    private final DailyRateDeltaTracker dailyRateDeltaTracker;
+    private final DailyRateRollups dailyRateRollups;
+    private final VehicleCalendarCache vehicleCalendarCache;
+    private final PipelineMetrics pipelineMetrics;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Value("${turtrack.persistor.daily-rate.write-mode:BULK}")
+    private DailyRateWriteMode writeMode;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
     @Transactional
     public void saveOrUpdateDailyRates(List<DailyRateAndAvailability> dailyRates) {
-        log.info("Processing batch of {} daily rates", dailyRates.size());
+        log.debug("Processing batch of {} daily rates", dailyRates.size());
+        if (dailyRateDeltaTracker.isEnabled()) {
+            saveChangedDailyRates(dailyRates);
+            return;
+        }
+        write(dailyRates);
+        recordAfterCommit(dailyRates);
+        log.debug("Finished processing batch of daily rates");
+    }
+
+    /**
+     * Delta mode: only days whose price or availability moved are written, and each of them is also
+     * appended to daily_rate_change_log.
+     */
+    private void saveChangedDailyRates(List<DailyRateAndAvailability> dailyRates) {
+        List<DailyRateAndAvailability> changed = dailyRateDeltaTracker.changed(dailyRates);
+        if (!changed.isEmpty()) {
+            write(changed);
+            pipelineMetrics.timeDbWrite("daily_rate_change_log", () -> {
+                dailyRateAndAvailabilityBulkRepository.appendChangeLog(changed, Instant.now());
+                return changed.size();
+            });
+            recordAfterCommit(changed);
+        }
+        log.debug("Finished processing batch of daily rates, {} of {} changed", changed.size(), dailyRates.size());
+    }
+
+    private void write(List<DailyRateAndAvailability> dailyRates) {
+        if (writeMode == DailyRateWriteMode.BULK) {
+            int written = pipelineMetrics.timeDbWrite("daily_rate_and_availability",
+                    () -> dailyRateAndAvailabilityBulkRepository.upsert(dailyRates));
+            log.debug("{} daily rate rows inserted or changed", written);
+        } else {
+            mergeDailyRates(dailyRates);
+        }
+    }
+
+    private void recordAfterCommit(List<DailyRateAndAvailability> persisted) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(persisted);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(persisted);
+            }
+        });
+    }
+
+    private void record(List<DailyRateAndAvailability> persisted) {
+        if (dailyRateDeltaTracker.isEnabled()) {
+            dailyRateDeltaTracker.record(persisted);
+        }
+        dailyRateRollups.record(persisted);
+        Set<Long> vehicleIds = new HashSet<>();
+        for (DailyRateAndAvailability dailyRate : persisted) {
+            vehicleIds.add(dailyRate.getId().getVehicleId());
+        }
+        vehicleCalendarCache.invalidate(vehicleIds);
+    }
+
+    /**
+     * Flushes every {@code hibernate.jdbc.batch_size} merges, so each flush is exactly one JDBC batch.
+     */
+    private void mergeDailyRates(List<DailyRateAndAvailability> dailyRates) {
         for (int i = 0; i < dailyRates.size(); i++) {
             DailyRateAndAvailability dailyRate = dailyRates.get(i);
             entityManager.merge(dailyRate);
-            if (i % 50 == 0 && i > 0) {
+            if ((i + 1) % jdbcBatchSize == 0) {
                 entityManager.flush();
                 entityManager.clear();
             }
         }
         entityManager.flush();
         entityManager.clear();
-        log.info("Finished processing batch of daily rates");
     }
 
     @Transactional
@@ -49,6 +133,7 @@ public class DailyRateAndAvailabilityPersistenceService {
 //            updateDailyRate(existingRate, dailyRate);
 //            dailyRateAndAvailabilityRepository.save(existingRate);
 //        }
+        recordAfterCommit(List.of(dailyRate));
     }
 
     private boolean hasChanged(DailyRateAndAvailability existingRate, DailyRateAndAvailability newRate) {
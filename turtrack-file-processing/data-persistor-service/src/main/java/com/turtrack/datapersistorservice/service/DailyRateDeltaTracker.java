@@ -0,0 +1,161 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
+import com.turtrack.datapersistorservice.util.LongLongHashMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Keeps the last persisted (price, wholeDayUnavailable, customSetPrice) of every tracked (vehicleId, date)
+ * in a primitive long-to-long map, so a re-crawled calendar can be reduced to the days that actually moved.
+ * <p>
+ * Key: vehicleId in the upper 40 bits, epoch day in the lower 24. Value: price in cents shifted left by two,
+ * with the unavailable and custom flags in the low bits. Once {@code max-entries} days are tracked, new days
+ * are no longer remembered and simply always count as changed. The days of a revoked partition's vehicles are
+ * forgotten (see {@link PartitionRevocationListener}), as their next owner may change them.
+ */
+@Slf4j
+@Component
+public class DailyRateDeltaTracker implements SmartInitializingSingleton {
+
+    private static final long MISSING = Long.MIN_VALUE;
+    private static final int EPOCH_DAY_BITS = 24;
+    private static final long MAX_VEHICLE_ID = (1L << (63 - EPOCH_DAY_BITS)) - 1;
+
+    private final DailyRateAndAvailabilityBulkRepository dailyRateAndAvailabilityBulkRepository;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final LongLongHashMap lastKnown;
+
+    private final Counter changedDays;
+    private final Counter unchangedDays;
+
+    public DailyRateDeltaTracker(DailyRateAndAvailabilityBulkRepository dailyRateAndAvailabilityBulkRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${turtrack.persistor.daily-rate.delta.enabled:false}") boolean enabled,
+                                 @Value("${turtrack.persistor.daily-rate.delta.max-entries:4000000}") int maxEntries) {
+        this.dailyRateAndAvailabilityBulkRepository = dailyRateAndAvailabilityBulkRepository;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.lastKnown = new LongLongHashMap(enabled ? Math.min(maxEntries, 1 << 20) : 16);
+
+        this.changedDays = Counter.builder("turtrack.persistor.daily-rate.delta").tag("result", "changed").register(meterRegistry);
+        this.unchangedDays = Counter.builder("turtrack.persistor.daily-rate.delta").tag("result", "unchanged").register(meterRegistry);
+        Gauge.builder("turtrack.persistor.daily-rate.delta.tracked", this, DailyRateDeltaTracker::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the latest rate per (vehicleId, date) of the batch whose state differs from the last persisted one.
+     */
+    public synchronized List<DailyRateAndAvailability> changed(List<DailyRateAndAvailability> dailyRates) {
+        Map<DailyRateAndAvailability.DailyRateAndAvailabilityId, DailyRateAndAvailability> latest = new LinkedHashMap<>();
+        for (DailyRateAndAvailability dailyRate : dailyRates) {
+            latest.put(dailyRate.getId(), dailyRate);
+        }
+
+        List<DailyRateAndAvailability> changed = new ArrayList<>();
+        for (DailyRateAndAvailability dailyRate : latest.values()) {
+            if (lastKnown.get(key(dailyRate), MISSING) != state(dailyRate)) {
+                changed.add(dailyRate);
+            }
+        }
+        changedDays.increment(changed.size());
+        unchangedDays.increment(latest.size() - changed.size());
+        return changed;
+    }
+
+    /**
+     * Records persisted state. Only call this once the write is committed.
+     */
+    public synchronized void record(List<DailyRateAndAvailability> persisted) {
+        for (DailyRateAndAvailability dailyRate : persisted) {
+            remember(key(dailyRate), state(dailyRate));
+        }
+    }
+
+    public synchronized int size() {
+        return lastKnown.size();
+    }
+
+    /**
+     * Drops the tracked days of the matching vehicles and returns how many were dropped.
+     */
+    public synchronized int forget(LongPredicate vehicleIds) {
+        return lastKnown.removeKeysIf(key -> vehicleIds.test(key >>> EPOCH_DAY_BITS));
+    }
+
+    /**
+     * Days in the past are never re-crawled, so they are dropped once a day.
+     */
+    @Scheduled(cron = "${turtrack.persistor.daily-rate.delta.prune-cron:0 15 0 * * *}")
+    public synchronized void prunePastDays() {
+        if (!enabled) {
+            return;
+        }
+        long today = LocalDate.now().toEpochDay();
+        long epochDayMask = (1L << EPOCH_DAY_BITS) - 1;
+        int removed = lastKnown.removeKeysIf(key -> (key & epochDayMask) < today);
+        log.info("Pruned {} past days from the daily rate delta tracker, {} still tracked", removed, lastKnown.size());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            dailyRateAndAvailabilityBulkRepository.forEachRateSince(LocalDate.now(), (vehicleId, date, price, wholeDayUnavailable, customSetPrice) -> {
+                synchronized (this) {
+                    remember(key(vehicleId, date), state(price, wholeDayUnavailable, customSetPrice));
+                }
+            });
+            log.info("Warmed daily rate delta tracker with {} days", size());
+        } catch (DataAccessException e) {
+            log.warn("Could not warm daily rate delta tracker, starting cold", e);
+        }
+    }
+
+    private void remember(long key, long state) {
+        if (lastKnown.size() < maxEntries || lastKnown.containsKey(key)) {
+            lastKnown.put(key, state);
+        }
+    }
+
+    private static long key(DailyRateAndAvailability dailyRate) {
+        return key(dailyRate.getId().getVehicleId(), dailyRate.getId().getDate());
+    }
+
+    static long key(long vehicleId, LocalDate date) {
+        if (vehicleId < 0 || vehicleId > MAX_VEHICLE_ID) {
+            throw new IllegalArgumentException("Vehicle id out of trackable range: " + vehicleId);
+        }
+        return (vehicleId << EPOCH_DAY_BITS) | date.toEpochDay();
+    }
+
+    private static long state(DailyRateAndAvailability dailyRate) {
+        return state(dailyRate.getPrice(), dailyRate.getWholeDayUnavailable(), dailyRate.getCustomSetPrice());
+    }
+
+    static long state(double price, boolean wholeDayUnavailable, boolean customSetPrice) {
+        return (Math.round(price * 100) << 2) | (wholeDayUnavailable ? 2 : 0) | (customSetPrice ? 1 : 0);
+    }
+}
@@ -0,0 +1,334 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.model.MarketRateRollup;
+import com.turtrack.datapersistorservice.model.Vehicle;
+import com.turtrack.datapersistorservice.model.VehicleRateRollup;
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
+import com.turtrack.datapersistorservice.repository.RateRollupBulkRepository;
+import com.turtrack.datapersistorservice.repository.VehicleBulkRepository;
+import com.turtrack.common.util.StringPool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rolling price and occupancy outlook per vehicle and per market (the vehicle's city and state) over the next
+ * {@link #WINDOWS 7 and 30} days, maintained from committed writes and upserted into vehicle_rate_rollup and
+ * market_rate_rollup every {@code flush-interval-ms}, so dashboards never aggregate daily_rate_and_availability.
+ * <p>
+ * Each vehicle keeps a ring of {@value #RING_DAYS} longs indexed by epoch day, one per day from today on:
+ * epoch day in the upper bits, the unavailable flag in bit 35 and the price in cents below. A slot whose day is
+ * not the one asked for is unknown, so days roll out of the windows without any eviction pass. Records only mark
+ * their vehicle and its market dirty; a flush recomputes and writes just the dirty rollups, and all of them once
+ * per day when the windows move.
+ */
+@Slf4j
+@Component
+public class DailyRateRollups implements SmartInitializingSingleton {
+
+    static final int[] WINDOWS = {7, 30};
+
+    private static final int RING_DAYS = 32;
+    private static final int DAY_SHIFT = 36;
+    private static final long UNAVAILABLE = 1L << 35;
+    private static final long CENTS_MASK = UNAVAILABLE - 1;
+
+    private final DailyRateAndAvailabilityBulkRepository dailyRateAndAvailabilityBulkRepository;
+    private final VehicleBulkRepository vehicleBulkRepository;
+    private final RateRollupBulkRepository rateRollupBulkRepository;
+    private final PipelineMetrics pipelineMetrics;
+    private final boolean enabled;
+
+    private final Map<Long, long[]> daysByVehicle = new HashMap<>();
+    private final Map<Long, Market> marketByVehicle = new HashMap<>();
+    private final Map<Market, Set<Long>> vehiclesByMarket = new HashMap<>();
+    private final Set<Long> dirtyVehicles = new HashSet<>();
+    private final Set<Market> dirtyMarkets = new HashSet<>();
+    private long lastComputedDay = Long.MIN_VALUE;
+
+    public DailyRateRollups(DailyRateAndAvailabilityBulkRepository dailyRateAndAvailabilityBulkRepository,
+                            VehicleBulkRepository vehicleBulkRepository,
+                            RateRollupBulkRepository rateRollupBulkRepository,
+                            PipelineMetrics pipelineMetrics,
+                            MeterRegistry meterRegistry,
+                            @Value("${turtrack.persistor.rollup.enabled:false}") boolean enabled) {
+        this.dailyRateAndAvailabilityBulkRepository = dailyRateAndAvailabilityBulkRepository;
+        this.vehicleBulkRepository = vehicleBulkRepository;
+        this.rateRollupBulkRepository = rateRollupBulkRepository;
+        this.pipelineMetrics = pipelineMetrics;
+        this.enabled = enabled;
+
+        Gauge.builder("turtrack.persistor.rollup.vehicles", this, DailyRateRollups::trackedVehicles).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records persisted days. Only call this once the write is committed.
+     */
+    public void record(List<DailyRateAndAvailability> persisted) {
+        if (enabled) {
+            record(persisted, LocalDate.now().toEpochDay());
+        }
+    }
+
+    /**
+     * Records the markets of persisted vehicles. Only call this once the write is committed.
+     */
+    public synchronized void recordVehicles(Collection<Vehicle> persisted) {
+        if (!enabled) {
+            return;
+        }
+        for (Vehicle vehicle : persisted) {
+            rememberMarket(vehicle.getId(), Market.of(vehicle.getCity(), vehicle.getState()));
+        }
+    }
+
+    synchronized void record(List<DailyRateAndAvailability> persisted, long today) {
+        for (DailyRateAndAvailability dailyRate : persisted) {
+            remember(dailyRate.getId().getVehicleId(), dailyRate.getId().getDate().toEpochDay(),
+                    dailyRate.getPrice(), dailyRate.getWholeDayUnavailable(), today);
+        }
+    }
+
+    synchronized void rememberMarket(long vehicleId, Market market) {
+        Market previous = marketByVehicle.put(vehicleId, market);
+        if (market.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            vehiclesByMarket.get(previous).remove(vehicleId);
+            dirtyMarkets.add(previous);
+        }
+        vehiclesByMarket.computeIfAbsent(market, m -> new HashSet<>()).add(vehicleId);
+        dirtyMarkets.add(market);
+    }
+
+    public synchronized int trackedVehicles() {
+        return daysByVehicle.size();
+    }
+
+    @Scheduled(fixedDelayString = "${turtrack.persistor.rollup.flush-interval-ms:60000}",
+            initialDelayString = "${turtrack.persistor.rollup.flush-interval-ms:60000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        Rollups rollups;
+        synchronized (this) {
+            rollups = computeRollups(LocalDate.now().toEpochDay(), Instant.now());
+        }
+        if (rollups.isEmpty()) {
+            return;
+        }
+        try {
+            if (!rollups.vehicles().isEmpty()) {
+                pipelineMetrics.timeDbWrite("vehicle_rate_rollup", () -> rateRollupBulkRepository.upsertVehicleRollups(rollups.vehicles()));
+            }
+            if (!rollups.markets().isEmpty()) {
+                pipelineMetrics.timeDbWrite("market_rate_rollup", () -> rateRollupBulkRepository.upsertMarketRollups(rollups.markets()));
+            }
+            log.debug("Flushed {} vehicle and {} market rollups", rollups.vehicles().size(), rollups.markets().size());
+        } catch (DataAccessException e) {
+            log.warn("Could not flush {} vehicle and {} market rollups, retrying on the next flush",
+                    rollups.vehicles().size(), rollups.markets().size(), e);
+            synchronized (this) {
+                for (VehicleRateRollup rollup : rollups.vehicles()) {
+                    dirtyVehicles.add(rollup.getId().getVehicleId());
+                }
+                for (MarketRateRollup rollup : rollups.markets()) {
+                    dirtyMarkets.add(Market.of(rollup.getId().getCity(), rollup.getId().getState()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the rollups to write and clears the dirty marks. On the first call of a day every rollup is
+     * recomputed, since all windows moved, and vehicles without a day left in the ring are dropped.
+     */
+    synchronized Rollups computeRollups(long today, Instant now) {
+        if (today != lastComputedDay) {
+            dirtyVehicles.addAll(daysByVehicle.keySet());
+            dirtyMarkets.addAll(vehiclesByMarket.keySet());
+        }
+
+        List<VehicleRateRollup> vehicles = new ArrayList<>(dirtyVehicles.size() * WINDOWS.length);
+        for (long vehicleId : dirtyVehicles) {
+            long[] days = daysByVehicle.get(vehicleId);
+            for (int window : WINDOWS) {
+                Stats stats = new Stats();
+                if (days != null) {
+                    stats.add(days, today, window);
+                }
+                vehicles.add(new VehicleRateRollup(new VehicleRateRollup.VehicleRateRollupId(vehicleId, window),
+                        stats.days, stats.avgPrice(), stats.priceStddev(), stats.utilization(), now));
+            }
+        }
+
+        List<MarketRateRollup> markets = new ArrayList<>(dirtyMarkets.size() * WINDOWS.length);
+        for (Market market : dirtyMarkets) {
+            Set<Long> vehicleIds = vehiclesByMarket.getOrDefault(market, Set.of());
+            for (int window : WINDOWS) {
+                Stats stats = new Stats();
+                int vehiclesWithDays = 0;
+                for (long vehicleId : vehicleIds) {
+                    long[] days = daysByVehicle.get(vehicleId);
+                    if (days != null && stats.add(days, today, window) > 0) {
+                        vehiclesWithDays++;
+                    }
+                }
+                markets.add(new MarketRateRollup(new MarketRateRollup.MarketRateRollupId(market.city(), market.state(), window),
+                        vehiclesWithDays, stats.days, stats.avgPrice(), stats.priceStddev(), stats.utilization(), now));
+            }
+        }
+        dirtyVehicles.clear();
+        dirtyMarkets.clear();
+
+        if (today != lastComputedDay) {
+            lastComputedDay = today;
+            Iterator<long[]> iterator = daysByVehicle.values().iterator();
+            while (iterator.hasNext()) {
+                if (!hasDaySince(iterator.next(), today)) {
+                    iterator.remove();
+                }
+            }
+        }
+        return new Rollups(vehicles, markets);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        long today = LocalDate.now().toEpochDay();
+        try {
+            dailyRateAndAvailabilityBulkRepository.forEachRateSince(LocalDate.now(), (vehicleId, date, price, wholeDayUnavailable, customSetPrice) -> {
+                synchronized (this) {
+                    remember(vehicleId, date.toEpochDay(), price, wholeDayUnavailable, today);
+                }
+            });
+            vehicleBulkRepository.forEachVehicle(Integer.MAX_VALUE,
+                    vehicle -> rememberMarket(vehicle.getId(), Market.of(vehicle.getCity(), vehicle.getState())));
+            log.info("Warmed rate rollups with {} vehicles in {} markets", trackedVehicles(), vehiclesByMarket.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not warm rate rollups, they cover only days written from now on", e);
+        }
+    }
+
+    private void remember(long vehicleId, long epochDay, double price, boolean wholeDayUnavailable, long today) {
+        if (epochDay < today || epochDay >= today + WINDOWS[WINDOWS.length - 1]) {
+            return;
+        }
+        long slot = (epochDay << DAY_SHIFT) | (wholeDayUnavailable ? UNAVAILABLE : 0) | (Math.round(price * 100) & CENTS_MASK);
+        long[] days = daysByVehicle.computeIfAbsent(vehicleId, id -> new long[RING_DAYS]);
+        int index = (int) (epochDay & (RING_DAYS - 1));
+        if (days[index] != slot) {
+            days[index] = slot;
+            dirtyVehicles.add(vehicleId);
+            Market market = marketByVehicle.get(vehicleId);
+            if (market != null) {
+                dirtyMarkets.add(market);
+            }
+        }
+    }
+
+    private static boolean hasDaySince(long[] days, long today) {
+        for (long slot : days) {
+            if ((slot >>> DAY_SHIFT) >= today) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Market of a vehicle; a missing city or state is kept as an empty string, as it is part of the primary key.
+     * Names are pooled: every vehicle of a market holds the same two instances.
+     */
+    record Market(String city, String state) {
+
+        private static final StringPool NAMES = new StringPool(16_384);
+
+        static Market of(String city, String state) {
+            return new Market(city == null ? "" : NAMES.intern(city), state == null ? "" : NAMES.intern(state));
+        }
+    }
+
+    record Rollups(List<VehicleRateRollup> vehicles, List<MarketRateRollup> markets) {
+
+        boolean isEmpty() {
+            return vehicles.isEmpty() && markets.isEmpty();
+        }
+    }
+
+    /**
+     * Known days of a window. Prices are summed in cents, so the sums are exact whatever the order of the days.
+     */
+    private static final class Stats {
+
+        private int days;
+        private int unavailable;
+        private long sumCents;
+        private double sumSquaredCents;
+
+        /**
+         * Adds the known days of {@code [today, today + window)}; returns how many there were.
+         */
+        int add(long[] ring, long today, int window) {
+            int added = 0;
+            for (long epochDay = today; epochDay < today + window; epochDay++) {
+                long slot = ring[(int) (epochDay & (RING_DAYS - 1))];
+                if ((slot >>> DAY_SHIFT) != epochDay) {
+                    continue;
+                }
+                long cents = slot & CENTS_MASK;
+                sumCents += cents;
+                sumSquaredCents += (double) cents * cents;
+                if ((slot & UNAVAILABLE) != 0) {
+                    unavailable++;
+                }
+                added++;
+            }
+            days += added;
+            return added;
+        }
+
+        Double avgPrice() {
+            return days == 0 ? null : sumCents / 100.0 / days;
+        }
+
+        Double priceStddev() {
+            if (days == 0) {
+                return null;
+            }
+            double meanCents = (double) sumCents / days;
+            return Math.sqrt(Math.max(0, sumSquaredCents / days - meanCents * meanCents)) / 100.0;
+        }
+
+        Double utilization() {
+            return days == 0 ? null : (double) unavailable / days;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.turtrack.datapersistorservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Settles what a consumer thread holds for its partitions before they are revoked and the pending acknowledgments
+ * are committed: the polls buffered by the batchers are flushed (see {@link AdaptiveBatcher#flushBeforeRevocation}),
+ * then the cached state of the partitions' vehicles is forgotten, since their next owner may change them.
+ * <p>
+ * The processor keys every record by vehicleId with the default partitioner, so the partition of a vehicle follows
+ * from its id and the partition count of the topic.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PartitionRevocationListener implements ConsumerAwareRebalanceListener {
+
+    private final List<AdaptiveBatcher<?>> batchers;
+    private final VehicleFingerprintCache vehicleFingerprintCache;
+    private final DailyRateDeltaTracker dailyRateDeltaTracker;
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        batchers.forEach(batcher -> batcher.flushBeforeRevocation(consumer, partitions));
+
+        LongPredicate vehicles = vehiclesOn(consumer, partitions, VehicleConsumer.VEHICLE_TOPIC);
+        if (vehicles != null) {
+            log.info("Forgot {} vehicle fingerprints of revoked {}", vehicleFingerprintCache.forget(vehicles), partitions);
+        }
+        // Both daily rate topics carry a vehicle's days
+        LongPredicate dailyRates = or(vehiclesOn(consumer, partitions, DailyRateAndAvailabilityConsumer.DAILY_RATE_TOPIC),
+                vehiclesOn(consumer, partitions, DailyRateAndAvailabilityConsumer.CALENDAR_BLOCK_TOPIC));
+        if (dailyRates != null && dailyRateDeltaTracker.isEnabled()) {
+            log.info("Forgot {} tracked days of revoked {}", dailyRateDeltaTracker.forget(dailyRates), partitions);
+        }
+    }
+
+    private static LongPredicate or(LongPredicate first, LongPredicate second) {
+        return first == null ? second : second == null ? first : first.or(second);
+    }
+
+    /**
+     * The vehicles whose records are on the given partitions of a topic, null if none of them is of that topic.
+     */
+    static LongPredicate vehiclesOn(Consumer<?, ?> consumer, Collection<TopicPartition> partitions, String topic) {
+        Set<Integer> revoked = partitions.stream()
+                .filter(partition -> partition.topic().equals(topic))
+                .map(TopicPartition::partition)
+                .collect(Collectors.toSet());
+        if (revoked.isEmpty()) {
+            return null;
+        }
+        int partitionCount = consumer.partitionsFor(topic).size();
+        return vehicleId -> revoked.contains(partition(vehicleId, partitionCount));
+    }
+
+    /**
+     * The partition the default partitioner picks for a record keyed by the vehicle id.
+     */
+    static int partition(long vehicleId, int partitionCount) {
+        byte[] key = String.valueOf(vehicleId).getBytes(StandardCharsets.UTF_8);
+        return Utils.toPositive(Utils.murmur2(key)) % partitionCount;
+    }
+}
@@ -0,0 +1,120 @@
+package com.turtrack.datapersistorservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Virtual-thread mode ({@code spring.threads.virtual.enabled=true}, Java 21): splits a poll batch into groups by
+ * partition key (vehicleId) and writes each group in its own transaction on its own virtual thread. A vehicle always
+ * falls into exactly one group, so groups never touch the same rows.
+ * <p>
+ * In-flight writes across all listeners are capped at the Hikari pool size, so virtual threads wait on the
+ * semaphore rather than on the pool's connection timeout. Without virtual threads the batch is written
+ * as before: one transaction on the listener thread.
+ * <p>
+ * If a group fails the batch fails and is redelivered; groups that already committed are re-applied as no-op upserts.
+ */
+@Slf4j
+@Component
+public class PartitionedWriteExecutor {
+
+    private final AsyncTaskExecutor executor;
+    private final int maxInFlightWrites;
+    private final Semaphore inFlightWrites;
+
+    @Autowired
+    public PartitionedWriteExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                    @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxInFlightWrites) {
+        this(virtualThreads ? virtualThreadExecutor() : null, maxInFlightWrites);
+    }
+
+    /**
+     * Writes groups on {@code executor}, or the whole batch on the calling thread if it is null.
+     */
+    public PartitionedWriteExecutor(AsyncTaskExecutor executor, int maxInFlightWrites) {
+        this.executor = executor;
+        this.maxInFlightWrites = maxInFlightWrites;
+        this.inFlightWrites = new Semaphore(maxInFlightWrites);
+        if (executor != null) {
+            log.info("Writing poll batches in up to {} concurrent partition-key groups", maxInFlightWrites);
+        }
+    }
+
+    /**
+     * Runs {@code write} for every partition-key group of {@code items} and returns once all of them completed.
+     * The first failure is rethrown.
+     */
+    public <T> void writeGrouped(List<T> items, ToLongFunction<T> partitionKey, Consumer<List<T>> write) {
+        if (executor == null || items.size() < 2) {
+            write.accept(items);
+            return;
+        }
+        List<List<T>> groups = group(items, partitionKey, maxInFlightWrites);
+        if (groups.size() == 1) {
+            write.accept(groups.get(0));
+            return;
+        }
+
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[groups.size()];
+        for (int i = 0; i < groups.size(); i++) {
+            List<T> group = groups.get(i);
+            writes[i] = executor.submitCompletable(() -> writeWithPermit(group, write));
+        }
+        try {
+            CompletableFuture.allOf(writes).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Groups by {@code key mod groupCount}, leaving out empty groups. Item order within a group is kept.
+     */
+    static <T> List<List<T>> group(List<T> items, ToLongFunction<T> partitionKey, int groupCount) {
+        List<List<T>> groups = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            groups.get((int) Math.floorMod(partitionKey.applyAsLong(item), (long) groupCount)).add(item);
+        }
+        groups.removeIf(List::isEmpty);
+        return groups;
+    }
+
+    private <T> void writeWithPermit(List<T> group, Consumer<List<T>> write) {
+        try {
+            inFlightWrites.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a database connection slot", e);
+        }
+        try {
+            write.accept(group);
+        } finally {
+            inFlightWrites.release();
+        }
+    }
+
+    private static AsyncTaskExecutor virtualThreadExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("persistor-write-");
+        // Fails fast below Java 21
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
@@ -0,0 +1,125 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Calendars of recently read vehicles, each covering every persisted day from {@code history-days} ago on.
+ * Bounded with least-recently-used eviction, and an entry older than {@code ttl-ms} is reloaded.
+ * <p>
+ * Committed writes invalidate their vehicles. A load that raced such a write may have read the old rows, so a
+ * load is only cached if no vehicle of its stripe was invalidated while it ran; otherwise it is served uncached.
+ */
+@Component
+public class VehicleCalendarCache {
+
+    private static final int STRIPES = 4096;
+
+    private final DailyRateAndAvailabilityBulkRepository dailyRateAndAvailabilityBulkRepository;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final int historyDays;
+    private final Map<Long, Entry> entries;
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypassed;
+
+    public VehicleCalendarCache(DailyRateAndAvailabilityBulkRepository dailyRateAndAvailabilityBulkRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${turtrack.persistor.calendar-cache.max-size:10000}") int maxSize,
+                                @Value("${turtrack.persistor.calendar-cache.ttl-ms:300000}") long ttlMs,
+                                @Value("${turtrack.persistor.calendar-cache.history-days:90}") int historyDays) {
+        this.dailyRateAndAvailabilityBulkRepository = dailyRateAndAvailabilityBulkRepository;
+        this.maxSize = maxSize;
+        this.ttlNanos = Duration.ofMillis(ttlMs).toNanos();
+        this.historyDays = historyDays;
+        this.entries = new LinkedHashMap<>(Math.min(maxSize, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > VehicleCalendarCache.this.maxSize;
+            }
+        };
+
+        this.hits = Counter.builder("turtrack.persistor.calendar.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("turtrack.persistor.calendar.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.bypassed = Counter.builder("turtrack.persistor.calendar.cache.requests").tag("result", "bypass")
+                .description("Reads starting before the cached history, served from the database")
+                .register(meterRegistry);
+        Gauge.builder("turtrack.persistor.calendar.cache.size", this, VehicleCalendarCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns a calendar of the vehicle covering at least every day from {@code from} on.
+     */
+    public VehicleCalendar get(long vehicleId, LocalDate from) {
+        LocalDate cachedFrom = LocalDate.now().minusDays(historyDays);
+        if (from.isBefore(cachedFrom)) {
+            bypassed.increment();
+            return load(vehicleId, from);
+        }
+
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry entry = entries.get(vehicleId);
+            if (entry != null && now - entry.loadedAt() < ttlNanos && !from.isBefore(entry.calendar().from())) {
+                hits.increment();
+                return entry.calendar();
+            }
+        }
+        misses.increment();
+
+        int stripe = stripe(vehicleId);
+        long invalidationsBefore = invalidations.get(stripe);
+        VehicleCalendar calendar = load(vehicleId, cachedFrom);
+        synchronized (this) {
+            if (invalidations.get(stripe) == invalidationsBefore) {
+                entries.put(vehicleId, new Entry(calendar, now));
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * Drops the calendars of written vehicles. Only call this once the write is committed.
+     */
+    public void invalidate(Collection<Long> vehicleIds) {
+        for (long vehicleId : vehicleIds) {
+            invalidations.incrementAndGet(stripe(vehicleId));
+        }
+        synchronized (this) {
+            for (Long vehicleId : vehicleIds) {
+                entries.remove(vehicleId);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private VehicleCalendar load(long vehicleId, LocalDate from) {
+        VehicleCalendar.Builder builder = new VehicleCalendar.Builder(vehicleId, from);
+        dailyRateAndAvailabilityBulkRepository.forEachDayOfVehicle(vehicleId, from, builder::add);
+        return builder.build();
+    }
+
+    private static int stripe(long vehicleId) {
+        return (int) ((vehicleId ^ (vehicleId >>> 32)) * 0x9E3779B9L >>> 20) & (STRIPES - 1);
+    }
+
+    private record Entry(VehicleCalendar calendar, long loadedAt) {
+    }
+}
@@ -1,14 +1,21 @@
 package com.turtrack.datapersistorservice.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.common.deadletter.DeadLetterRouter;
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
 import com.turtrack.datapersistorservice.model.Vehicle;
+import com.turtrack.datapersistorservice.serialization.VehicleWireDecoder;
+import com.turtrack.common.wire.WireFormat;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -17,32 +24,41 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class VehicleConsumer {
 
-    private final VehiclePersistenceService persistenceService;
+    static final String VEHICLE_TOPIC = "cleaned-vehicle-topic";
+
+    private final AdaptiveBatcher<Vehicle> vehicleBatcher;
     private final ObjectMapper jsonObjectMapper;
+    private final PipelineMetrics pipelineMetrics;
+    private final DeadLetterRouter deadLetterRouter;
 
 
-    @KafkaListener(topics = "cleaned-vehicle-topic", groupId = "vehicle-persistence-group")
-    public void consume(List<ConsumerRecord<String, String>> records) {
-        log.info("Received batch of {} records", records.size());
+    @KafkaListener(topics = VEHICLE_TOPIC, groupId = "vehicle-persistence-group")
+    public void consume(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        log.debug("Received batch of {} records", records.size());
+        pipelineMetrics.recordPoll(VEHICLE_TOPIC, records.size());
 
-        List<Vehicle> vehicles = records.stream()
-                .map(record -> deserializeVehicle(record.value()))
+        List<Vehicle> vehicles = pipelineMetrics.timeDeserialize(VEHICLE_TOPIC, () -> records.stream()
+                .map(record -> deadLetterRouter.decodeOrDeadLetter(record, this::deserializeVehicle))
                 .filter(v -> v != null)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
 
-        log.info("Deserialized {} valid vehicles", vehicles.size());
+        log.debug("Deserialized {} valid vehicles", vehicles.size());
 
-        if (!vehicles.isEmpty()) {
-            persistenceService.saveOrUpdateVehicles(vehicles);
-        }
+        long[] scrapedAt = PipelineMetrics.scrapedAt(records);
+        vehicleBatcher.offer(vehicles, () -> {
+            acknowledgment.acknowledge();
+            pipelineMetrics.recordEndToEnd(scrapedAt);
+        }, consumer);
     }
 
-    private Vehicle deserializeVehicle(String json) {
+    private Vehicle deserializeVehicle(byte[] payload) {
+        if (WireFormat.hasHeader(payload)) {
+            return VehicleWireDecoder.decode(payload);
+        }
         try {
-            return jsonObjectMapper.readValue(json, Vehicle.class);
-        } catch (JsonProcessingException e) {
-            log.error("Error deserializing vehicle: {}", json, e);
-            return null;
+            return jsonObjectMapper.readValue(payload, Vehicle.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed vehicle", e);
         }
     }
 }
\ No newline at end of file
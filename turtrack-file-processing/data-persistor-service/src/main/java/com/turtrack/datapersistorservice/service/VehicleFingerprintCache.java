@@ -0,0 +1,148 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.turtrack.datapersistorservice.model.Vehicle;
+import com.turtrack.datapersistorservice.repository.VehicleBulkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Remembers a 64-bit fingerprint of the last persisted state of each vehicle, so vehicles the scraper
+ * re-emits unchanged can be dropped before they reach the database. Bounded, least-recently-used eviction.
+ * The vehicles of a revoked partition are forgotten (see {@link PartitionRevocationListener}): their next owner may
+ * change them, and a fingerprint kept from before would skip a later write back to the old state.
+ */
+@Slf4j
+@Component
+public class VehicleFingerprintCache implements SmartInitializingSingleton {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final VehicleBulkRepository vehicleBulkRepository;
+    private final int maxSize;
+    private final boolean warmOnStartup;
+    private final Map<Integer, Long> fingerprints;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter skipped;
+
+    public VehicleFingerprintCache(VehicleBulkRepository vehicleBulkRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${turtrack.persistor.vehicle-cache.max-size:200000}") int maxSize,
+                                   @Value("${turtrack.persistor.vehicle-cache.warm-on-startup:true}") boolean warmOnStartup) {
+        this.vehicleBulkRepository = vehicleBulkRepository;
+        this.maxSize = maxSize;
+        this.warmOnStartup = warmOnStartup;
+        this.fingerprints = new LinkedHashMap<>(Math.min(maxSize, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                return size() > VehicleFingerprintCache.this.maxSize;
+            }
+        };
+
+        this.hits = Counter.builder("turtrack.persistor.vehicle.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("turtrack.persistor.vehicle.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.skipped = Counter.builder("turtrack.persistor.vehicle.unchanged.skipped")
+                .description("Vehicles dropped before the database because their fingerprint was unchanged")
+                .register(meterRegistry);
+        Gauge.builder("turtrack.persistor.vehicle.cache.size", this, VehicleFingerprintCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns true if the vehicle is known to be persisted exactly as given, and counts it as skipped.
+     */
+    public synchronized boolean isUnchanged(Integer vehicleId, long fingerprint) {
+        Long cached = fingerprints.get(vehicleId);
+        if (cached == null) {
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        if (cached == fingerprint) {
+            skipped.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records persisted state. Only call this once the write is committed.
+     */
+    public synchronized void putAll(Map<Integer, Long> persisted) {
+        fingerprints.putAll(persisted);
+    }
+
+    public synchronized int size() {
+        return fingerprints.size();
+    }
+
+    /**
+     * Drops the fingerprints of the matching vehicles and returns how many were dropped.
+     */
+    public synchronized int forget(LongPredicate vehicleIds) {
+        int before = fingerprints.size();
+        fingerprints.keySet().removeIf(vehicleIds::test);
+        return before - fingerprints.size();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!warmOnStartup) {
+            return;
+        }
+        try {
+            Map<Integer, Long> warm = new LinkedHashMap<>();
+            vehicleBulkRepository.forEachVehicle(maxSize, vehicle -> warm.put(vehicle.getId(), fingerprint(vehicle)));
+            putAll(warm);
+            log.info("Warmed vehicle fingerprint cache with {} vehicles", warm.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not warm vehicle fingerprint cache, starting cold", e);
+        }
+    }
+
+    /**
+     * FNV-1a over every persisted field. Strings are hashed char by char so the result is a real 64-bit hash.
+     */
+    public static long fingerprint(Vehicle vehicle) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = mix(hash, vehicle.getMake());
+        hash = mix(hash, vehicle.getModel());
+        hash = mix(hash, vehicle.getYear() == null ? Long.MIN_VALUE : vehicle.getYear());
+        hash = mix(hash, vehicle.getTrim());
+        hash = mix(hash, vehicle.getType());
+        hash = mix(hash, vehicle.getRegistrationState());
+        hash = mix(hash, vehicle.getCity());
+        hash = mix(hash, vehicle.getState());
+        hash = mix(hash, vehicle.getAverageDailyPrice() == null ? Long.MIN_VALUE : Double.doubleToLongBits(vehicle.getAverageDailyPrice()));
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, Long.MIN_VALUE);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // Field separator, so ("ab", "c") and ("a", "bc") hash differently
+        return (hash ^ 0xff) * FNV_PRIME;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -1,15 +1,22 @@
 package com.turtrack.datapersistorservice.service;
 
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
 import com.turtrack.datapersistorservice.model.Vehicle;
+import com.turtrack.datapersistorservice.repository.VehicleBulkRepository;
 import com.turtrack.datapersistorservice.repository.VehicleRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.time.LocalDateTime;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -17,25 +24,58 @@ import java.util.List;
 public class VehiclePersistenceService {
 
     private final VehicleRepository vehicleRepository;
+    private final VehicleBulkRepository vehicleBulkRepository;
+    private final VehicleFingerprintCache vehicleFingerprintCache;
+    private final DailyRateRollups dailyRateRollups;
+    private final PipelineMetrics pipelineMetrics;
 
-    @PersistenceContext
-    private EntityManager entityManager;
-
-
+    /**
+     * Drops vehicles whose persisted state is already known to match, and writes the rest as one batched upsert.
+     */
     @Transactional
     public void saveOrUpdateVehicles(List<Vehicle> vehicles) {
-        log.info("Processing batch of {} vehicles", vehicles.size());
-        for (int i = 0; i < vehicles.size(); i++) {
-            Vehicle vehicle = vehicles.get(i);
-            entityManager.merge(vehicle);
-            if (i % 50 == 0 && i > 0) {
-                entityManager.flush();
-                entityManager.clear();
+        log.debug("Processing batch of {} vehicles", vehicles.size());
+
+        Map<Integer, Vehicle> latest = new LinkedHashMap<>();
+        for (Vehicle vehicle : vehicles) {
+            if (vehicle.getId() == null) {
+                log.warn("Dropping vehicle without id: {}", vehicle);
+                continue;
+            }
+            latest.put(vehicle.getId(), vehicle);
+        }
+
+        List<Vehicle> changed = new ArrayList<>(latest.size());
+        Map<Integer, Long> fingerprints = new HashMap<>();
+        for (Vehicle vehicle : latest.values()) {
+            long fingerprint = VehicleFingerprintCache.fingerprint(vehicle);
+            if (!vehicleFingerprintCache.isUnchanged(vehicle.getId(), fingerprint)) {
+                changed.add(vehicle);
+                fingerprints.put(vehicle.getId(), fingerprint);
             }
         }
-        entityManager.flush();
-        entityManager.clear();
-        log.info("Finished processing batch of vehicles");
+
+        if (!changed.isEmpty()) {
+            pipelineMetrics.timeDbWrite("vehicle", () -> vehicleBulkRepository.upsert(changed));
+            rememberAfterCommit(fingerprints, changed);
+        }
+        log.debug("Finished processing batch of vehicles, {} changed, {} unchanged", changed.size(), latest.size() - changed.size());
+    }
+
+    private void rememberAfterCommit(Map<Integer, Long> fingerprints, List<Vehicle> persisted) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            vehicleFingerprintCache.putAll(fingerprints);
+            dailyRateRollups.recordVehicles(persisted);
+            return;
+        }
+        // A rolled back write must not be remembered, or the retried batch would be skipped as unchanged
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                vehicleFingerprintCache.putAll(fingerprints);
+                dailyRateRollups.recordVehicles(persisted);
+            }
+        });
     }
 
 
@@ -56,15 +96,15 @@ public class VehiclePersistenceService {
     }
 
     private boolean hasChanged(Vehicle existingVehicle, Vehicle newVehicle) {
-        return !existingVehicle.getMake().equals(newVehicle.getMake())
-                || !existingVehicle.getModel().equals(newVehicle.getModel())
-                || !existingVehicle.getYear().equals(newVehicle.getYear())
-                || !existingVehicle.getTrim().equals(newVehicle.getTrim())
-                || !existingVehicle.getType().equals(newVehicle.getType())
-                || !existingVehicle.getRegistrationState().equals(newVehicle.getRegistrationState())
-                || !existingVehicle.getCity().equals(newVehicle.getCity())
-                || !existingVehicle.getState().equals(newVehicle.getState())
-                || !existingVehicle.getAverageDailyPrice().equals(newVehicle.getAverageDailyPrice());
+        return !Objects.equals(existingVehicle.getMake(), newVehicle.getMake())
+                || !Objects.equals(existingVehicle.getModel(), newVehicle.getModel())
+                || !Objects.equals(existingVehicle.getYear(), newVehicle.getYear())
+                || !Objects.equals(existingVehicle.getTrim(), newVehicle.getTrim())
+                || !Objects.equals(existingVehicle.getType(), newVehicle.getType())
+                || !Objects.equals(existingVehicle.getRegistrationState(), newVehicle.getRegistrationState())
+                || !Objects.equals(existingVehicle.getCity(), newVehicle.getCity())
+                || !Objects.equals(existingVehicle.getState(), newVehicle.getState())
+                || !Objects.equals(existingVehicle.getAverageDailyPrice(), newVehicle.getAverageDailyPrice());
     }
 
     private void updateVehicle(Vehicle existingVehicle, Vehicle newVehicle) {
@@ -0,0 +1,150 @@
+package com.turtrack.datapersistorservice.util;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash map from {@code long} to {@code long} with linear probing.
+ * Two flat arrays and no boxing: 16 bytes per slot, about 21-32 bytes per entry depending on fill.
+ * Not thread-safe; {@link Long#MIN_VALUE} is reserved and cannot be used as a key.
+ */
+public class LongLongHashMap {
+
+    private static final long FREE = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(tableSizeFor((int) Math.min(MAX_CAPACITY, (long) (expectedSize / LOAD_FACTOR) + 1)));
+    }
+
+    public long get(long key, long missingValue) {
+        int slot = slot(key);
+        while (true) {
+            long existing = keys[slot];
+            if (existing == FREE) {
+                return missingValue;
+            }
+            if (existing == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        int slot = slot(key);
+        while (true) {
+            long existing = keys[slot];
+            if (existing == FREE) {
+                return false;
+            }
+            if (existing == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public void put(long key, long value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Long.MIN_VALUE is reserved and cannot be used as a key");
+        }
+        int slot = slot(key);
+        while (true) {
+            long existing = keys[slot];
+            if (existing == FREE) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeAt) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+            if (existing == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes every entry whose key matches and returns how many were removed.
+     * Rebuilds the table in place, which also clears the probe chains left behind by removed keys.
+     */
+    public int removeKeysIf(LongPredicate predicate) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        int oldSize = size;
+        allocate(oldKeys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE && !predicate.test(oldKeys[i])) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+        return oldSize - size;
+    }
+
+    /**
+     * A copy of the keys, in no particular order.
+     */
+    public long[] keys() {
+        long[] present = new long[size];
+        int next = 0;
+        for (long key : keys) {
+            if (key != FREE) {
+                present[next++] = key;
+            }
+        }
+        return present;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("LongLongHashMap cannot grow beyond " + MAX_CAPACITY + " slots");
+        }
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSlots) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSlots) - 1) << 1;
+        return Math.min(capacity, MAX_CAPACITY);
+    }
+}
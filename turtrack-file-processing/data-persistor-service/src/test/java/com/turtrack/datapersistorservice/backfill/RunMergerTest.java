@@ -0,0 +1,77 @@
+package com.turtrack.datapersistorservice.backfill;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunMergerTest {
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void mergesRunsInKeyOrderKeepingTheLatestObservationPerDay() throws IOException {
+        RunBuffer first = new RunBuffer(16);
+        first.add(RunBuffer.key(2, 100), 1, 50.0, (short) 840, 0);
+        first.add(RunBuffer.key(1, 101), 2, 40.0, (short) 840, 0);
+        // Replaced by the later observation of the same day in the same buffer
+        first.add(RunBuffer.key(1, 100), 3, 41.0, (short) 840, 0);
+        first.add(RunBuffer.key(1, 100), 4, 42.0, (short) 840, RunBuffer.CUSTOM_SET_PRICE);
+        Path firstRun = workDir.resolve("run-1.bin");
+        assertEquals(3, first.spill(firstRun));
+        assertTrue(first.isEmpty());
+
+        RunBuffer second = new RunBuffer(16);
+        second.add(RunBuffer.key(1, 100), 5, 43.0, (short) 124, RunBuffer.WHOLE_DAY_UNAVAILABLE);
+        // Older than what the first run holds for this day
+        second.add(RunBuffer.key(1, 101), 1, 39.0, (short) 840, 0);
+        second.add(RunBuffer.key(3, 100), 6, 60.0, (short) 840, 0);
+        Path secondRun = workDir.resolve("run-2.bin");
+        second.spill(secondRun);
+
+        List<String> rows = new ArrayList<>();
+        try (RunMerger merger = new RunMerger(List.of(firstRun, secondRun), -1)) {
+            while (merger.next()) {
+                rows.add(merger.vehicleId() + "/" + merger.epochDay() + " " + merger.price() + " " + merger.currencyId()
+                        + " " + merger.customSetPrice() + " " + merger.wholeDayUnavailable());
+            }
+        }
+
+        assertEquals(List.of("1/100 43.0 124 false true", "1/101 40.0 840 false false", "2/100 50.0 840 false false",
+                "3/100 60.0 840 false false"), rows);
+    }
+
+    @Test
+    void resumesAfterTheLastLoadedKey() throws IOException {
+        RunBuffer buffer = new RunBuffer(16);
+        for (long vehicleId = 1; vehicleId <= 5; vehicleId++) {
+            buffer.add(RunBuffer.key(vehicleId, 100), vehicleId, 50.0, (short) 840, 0);
+        }
+        Path run = workDir.resolve("run-1.bin");
+        buffer.spill(run);
+
+        List<Long> vehicleIds = new ArrayList<>();
+        try (RunMerger merger = new RunMerger(List.of(run), RunBuffer.key(3, 100))) {
+            while (merger.next()) {
+                vehicleIds.add(merger.vehicleId());
+            }
+        }
+
+        assertEquals(List.of(4L, 5L), vehicleIds);
+    }
+
+    @Test
+    void onlyKeysDaysFromTheEpochWithinTheVehicleIdBits() {
+        assertTrue(RunBuffer.fits(1L << 38, 20_000));
+        assertFalse(RunBuffer.fits(1L << 39, 20_000));
+        assertFalse(RunBuffer.fits(1, -1));
+        assertEquals(20_000, RunBuffer.epochDay(RunBuffer.key(1L << 38, 20_000)));
+        assertEquals(1L << 38, RunBuffer.vehicleId(RunBuffer.key(1L << 38, 20_000)));
+    }
+}
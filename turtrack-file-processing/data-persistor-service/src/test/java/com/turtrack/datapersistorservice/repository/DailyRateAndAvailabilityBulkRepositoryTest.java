@@ -0,0 +1,137 @@
+package com.turtrack.datapersistorservice.repository;
+
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the bulk writer against a real (embedded) Postgres. Its throughput against the row-by-row baseline is
+ * measured by {@code PersistenceBenchmark} in turtrack-benchmarks.
+ */
+class DailyRateAndAvailabilityBulkRepositoryTest {
+
+    private static final int VEHICLES = 100;
+    private static final int DAYS = 100;
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+
+    private final DailyRateAndAvailabilityBulkRepository repository = new DailyRateAndAvailabilityBulkRepository(jdbcTemplate, 1000);
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(postgres.getPostgresDatabase()));
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void createTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS daily_rate_and_availability");
+        jdbcTemplate.execute("CREATE TABLE daily_rate_and_availability ("
+                + "date date NOT NULL, vehicle_id bigint NOT NULL, custom_set_price boolean NOT NULL, "
+                + "price float(53) NOT NULL, currency_id smallint NOT NULL, whole_day_unavailable boolean NOT NULL, "
+                + "PRIMARY KEY (date, vehicle_id))");
+    }
+
+    @Test
+    void insertsThenUpdatesOnlyChangedRows() {
+        List<DailyRateAndAvailability> calendar = calendar(50.0);
+        assertEquals(calendar.size(), repository.upsert(calendar));
+
+        List<DailyRateAndAvailability> recrawl = calendar(50.0);
+        recrawl.get(0).setPrice(75.0);
+        assertEquals(1, repository.upsert(recrawl));
+
+        assertEquals(calendar.size(), jdbcTemplate.queryForObject("SELECT count(*) FROM daily_rate_and_availability", Integer.class));
+        assertEquals(75.0, jdbcTemplate.queryForObject(
+                "SELECT price FROM daily_rate_and_availability WHERE vehicle_id = 0 AND date = ?", Double.class, LocalDate.of(2024, 1, 1)));
+    }
+
+    @Test
+    void keepsLastValueWhenBatchRepeatsAKey() {
+        List<DailyRateAndAvailability> batch = new ArrayList<>();
+        batch.add(dailyRate(1L, LocalDate.of(2024, 1, 1), 40.0));
+        batch.add(dailyRate(1L, LocalDate.of(2024, 1, 1), 45.0));
+
+        repository.upsert(batch);
+
+        assertEquals(45.0, jdbcTemplate.queryForObject(
+                "SELECT price FROM daily_rate_and_availability WHERE vehicle_id = 1", Double.class));
+    }
+
+    /**
+     * Around a rebalance two consumers can briefly write the same vehicles. Batches arriving in opposite
+     * order must still be applied without a deadlock, because rows are always written in key order.
+     */
+    @Test
+    void overlappingBatchesInOppositeOrderDoNotDeadlock() throws Exception {
+        List<DailyRateAndAvailability> forward = calendar(50.0);
+        List<DailyRateAndAvailability> backward = calendar(60.0);
+        Collections.reverse(backward);
+
+        for (int round = 0; round < 5; round++) {
+            runConcurrently(List.of(forward, backward));
+        }
+
+        assertEquals(forward.size(), jdbcTemplate.queryForObject("SELECT count(*) FROM daily_rate_and_availability", Integer.class));
+    }
+
+    /**
+     * Writes each batch in its own transaction on its own thread.
+     */
+    private void runConcurrently(List<List<DailyRateAndAvailability>> batches) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(batches.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<DailyRateAndAvailability> batch : batches) {
+                futures.add(executor.submit(
+                        () -> transactionTemplate.executeWithoutResult(status -> repository.upsert(batch))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<DailyRateAndAvailability> calendar(double price) {
+        List<DailyRateAndAvailability> dailyRates = new ArrayList<>(VEHICLES * DAYS);
+        for (long vehicleId = 0; vehicleId < VEHICLES; vehicleId++) {
+            for (int day = 0; day < DAYS; day++) {
+                dailyRates.add(dailyRate(vehicleId, LocalDate.of(2024, 1, 1).plusDays(day), price));
+            }
+        }
+        return dailyRates;
+    }
+
+    private static DailyRateAndAvailability dailyRate(Long vehicleId, LocalDate date, double price) {
+        return new DailyRateAndAvailability(
+                new DailyRateAndAvailability.DailyRateAndAvailabilityId(vehicleId, date),
+                false, date.getDayOfWeek().name(), price, "USD", false);
+    }
+}
@@ -0,0 +1,141 @@
+package com.turtrack.datapersistorservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyRateBackfillRepositoryTest {
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static DataSourceTransactionManager transactionManager;
+
+    private DailyRateBackfillRepository repository;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        // One DataSource for both, so the repository's statements join its transactions
+        DataSource dataSource = postgres.getPostgresDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void createPartitionedTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS daily_rate_and_availability CASCADE");
+        DailyRateSchemaMigration schemaMigration = new DailyRateSchemaMigration(jdbcTemplate, transactionManager);
+        schemaMigration.afterPropertiesSet();
+        DailyRatePartitionManager partitionManager = new DailyRatePartitionManager(jdbcTemplate, transactionManager,
+                schemaMigration, true, 0, 12, true, true);
+        partitionManager.afterPropertiesSet();
+        repository = new DailyRateBackfillRepository(jdbcTemplate, transactionManager, partitionManager);
+    }
+
+    @Test
+    void copiesChunksCreatingPartitionsAndSkippingMonthsPastRetention() {
+        LocalDate today = LocalDate.now();
+        Rows rows = new Rows(List.of(
+                new Row(1, today.minusMonths(13), 30.0),
+                new Row(1, today.minusMonths(3), 40.0),
+                new Row(1, today, 50.0),
+                new Row(2, today, 60.0)));
+
+        assertEquals(new DailyRateBackfillRepository.Chunk(3, 2, 1), repository.loadChunk(rows, 3, false));
+        assertEquals(new DailyRateBackfillRepository.Chunk(1, 1, 0), repository.loadChunk(rows, 3, false));
+        assertEquals(new DailyRateBackfillRepository.Chunk(0, 0, 0), repository.loadChunk(rows, 3, false));
+
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT count(*) FROM daily_rate_and_availability", Integer.class));
+        assertEquals(40.0, jdbcTemplate.queryForObject("SELECT price FROM " + DailyRatePartitionManager.partitionName(
+                YearMonth.from(today.minusMonths(3))) + " WHERE vehicle_id = 1", Double.class));
+        assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject("SELECT custom_set_price AND NOT whole_day_unavailable "
+                + "FROM daily_rate_and_availability WHERE vehicle_id = 2", Boolean.class));
+    }
+
+    @Test
+    void keepsExistingRowsUnlessOverwriting() {
+        LocalDate today = LocalDate.now();
+        repository.loadChunk(new Rows(List.of(new Row(1, today, 50.0))), 10, false);
+
+        assertEquals(0, repository.loadChunk(new Rows(List.of(new Row(1, today, 45.0))), 10, false).written());
+        assertEquals(50.0, price(1, today));
+
+        assertEquals(1, repository.loadChunk(new Rows(List.of(new Row(1, today, 45.0))), 10, true).written());
+        assertEquals(45.0, price(1, today));
+    }
+
+    private static Double price(long vehicleId, LocalDate date) {
+        return jdbcTemplate.queryForObject("SELECT price FROM daily_rate_and_availability WHERE vehicle_id = ? AND date = ?",
+                Double.class, vehicleId, date);
+    }
+
+    private record Row(long vehicleId, LocalDate date, double price) {
+    }
+
+    private static final class Rows implements DailyRateBackfillRepository.SortedRows {
+
+        private final List<Row> rows;
+        private int next;
+        private Row row;
+
+        Rows(List<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean next() {
+            if (next == rows.size()) {
+                return false;
+            }
+            row = rows.get(next++);
+            return true;
+        }
+
+        @Override
+        public long vehicleId() {
+            return row.vehicleId();
+        }
+
+        @Override
+        public int epochDay() {
+            return (int) row.date().toEpochDay();
+        }
+
+        @Override
+        public double price() {
+            return row.price();
+        }
+
+        @Override
+        public short currencyId() {
+            return 840;
+        }
+
+        @Override
+        public boolean customSetPrice() {
+            return true;
+        }
+
+        @Override
+        public boolean wholeDayUnavailable() {
+            return false;
+        }
+    }
+}
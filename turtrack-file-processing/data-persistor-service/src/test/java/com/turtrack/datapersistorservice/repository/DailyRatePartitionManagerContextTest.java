@@ -0,0 +1,56 @@
+package com.turtrack.datapersistorservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the manager the way the service does on a fresh database: with the JPA transaction manager, so after
+ * Hibernate's {@code ddl-auto=update} has created the table unpartitioned.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=update")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DailyRateSchemaMigration.class, DailyRatePartitionManager.class})
+class DailyRatePartitionManagerContextTest {
+
+    @Autowired
+    private DailyRatePartitionManager partitionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void partitionsTheTableHibernateCreatedOnAFreshDatabase() {
+        assertTrue(partitionManager.isActive());
+        assertEquals("p", jdbcTemplate.queryForObject(
+                "SELECT relkind FROM pg_class WHERE oid = 'daily_rate_and_availability'::regclass", String.class));
+        assertTrue(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_inherits WHERE inhparent = 'daily_rate_and_availability'::regclass", Integer.class) > 0);
+    }
+
+    @TestConfiguration
+    static class EmbeddedPostgresConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+            return embeddedPostgres.getPostgresDatabase();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.turtrack.datapersistorservice.repository;
+
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyRatePartitionManagerTest {
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static DataSourceTransactionManager transactionManager;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        transactionManager = new DataSourceTransactionManager(postgres.getPostgresDatabase());
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS daily_rate_and_availability, daily_rate_and_availability_unpartitioned CASCADE");
+        jdbcTemplate.queryForList("SELECT tablename FROM pg_tables WHERE tablename LIKE 'daily_rate_and_availability_p%'", String.class)
+                .forEach(table -> jdbcTemplate.execute("DROP TABLE " + table));
+    }
+
+    @Test
+    void createsMonthlyPartitionsAheadAndRoutesWritesToThem() {
+        DailyRatePartitionManager partitionManager = partitionManager(2, 12);
+        DailyRateAndAvailabilityBulkRepository repository = new DailyRateAndAvailabilityBulkRepository(jdbcTemplate, partitionManager, 1000);
+        LocalDate today = LocalDate.now();
+
+        assertTrue(partitionManager.isActive());
+        assertEquals(3, partitionCount());
+
+        LocalDate farAhead = today.plusMonths(6);
+        assertEquals(3, (int) new TransactionTemplate(transactionManager).execute(status -> repository.upsert(List.of(
+                dailyRate(1L, today, 50.0), dailyRate(1L, today.plusMonths(1), 55.0), dailyRate(1L, farAhead, 60.0)))));
+
+        assertEquals(4, partitionCount());
+        assertEquals(60.0, jdbcTemplate.queryForObject("SELECT price FROM "
+                + DailyRatePartitionManager.partitionName(YearMonth.from(farAhead)) + " WHERE vehicle_id = 1", Double.class));
+        assertEquals(1, repository.upsert(List.of(dailyRate(1L, today, 52.0))));
+        assertEquals(0, repository.upsert(List.of(dailyRate(1L, today.minusMonths(13), 40.0))));
+    }
+
+    @Test
+    void convertsAnUnpartitionedTableKeepingRetainedMonths() {
+        // The layout Hibernate created before the schema migration
+        jdbcTemplate.execute("CREATE TABLE daily_rate_and_availability ("
+                + "date date NOT NULL, vehicle_id bigint NOT NULL, custom_set_price boolean NOT NULL, "
+                + "localized_day_of_week varchar(255) NOT NULL, price float(53) NOT NULL, "
+                + "currency_code varchar(3) NOT NULL, whole_day_unavailable boolean NOT NULL, "
+                + "PRIMARY KEY (date, vehicle_id))");
+        LocalDate today = LocalDate.now();
+        for (Object[] row : List.of(new Object[]{1L, today.minusMonths(3), 45.0}, new Object[]{1L, today.minusMonths(1), 50.0},
+                new Object[]{2L, today, 55.0})) {
+            jdbcTemplate.update("INSERT INTO daily_rate_and_availability VALUES (?, ?, false, 'Monday', ?, 'CAD', false)",
+                    row[1], row[0], row[2]);
+        }
+
+        DailyRatePartitionManager partitionManager = partitionManager(1, 2);
+
+        assertTrue(partitionManager.isActive());
+        assertEquals("p", jdbcTemplate.queryForObject("SELECT relkind FROM pg_class WHERE oid = 'daily_rate_and_availability'::regclass", String.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM daily_rate_and_availability", Integer.class));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT count(*) FROM daily_rate_and_availability_unpartitioned", Integer.class));
+        assertEquals(List.of("CAD"), jdbcTemplate.queryForList("SELECT DISTINCT c.code FROM daily_rate_and_availability d "
+                + "JOIN currency c ON c.id = d.currency_id", String.class));
+    }
+
+    @Test
+    void detachesPartitionsPastRetention() {
+        DailyRatePartitionManager wide = partitionManager(0, 12);
+        wide.partitionFor(YearMonth.now().minusMonths(6));
+        assertEquals(2, partitionCount());
+
+        partitionManager(0, 3);
+
+        assertEquals(1, partitionCount());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM pg_tables WHERE tablename = ?", Integer.class,
+                DailyRatePartitionManager.partitionName(YearMonth.now().minusMonths(6))));
+    }
+
+    private static DailyRatePartitionManager partitionManager(int monthsAhead, int retentionMonths) {
+        DailyRateSchemaMigration schemaMigration = new DailyRateSchemaMigration(jdbcTemplate, transactionManager);
+        schemaMigration.afterPropertiesSet();
+        DailyRatePartitionManager partitionManager = new DailyRatePartitionManager(jdbcTemplate, transactionManager,
+                schemaMigration, true, monthsAhead, retentionMonths, false, true);
+        partitionManager.afterPropertiesSet();
+        return partitionManager;
+    }
+
+    private static int partitionCount() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM pg_inherits WHERE inhparent = 'daily_rate_and_availability'::regclass", Integer.class);
+    }
+
+    private static DailyRateAndAvailability dailyRate(Long vehicleId, LocalDate date, double price) {
+        return new DailyRateAndAvailability(
+                new DailyRateAndAvailability.DailyRateAndAvailabilityId(vehicleId, date),
+                false, date.getDayOfWeek().name(), price, "USD", false);
+    }
+}
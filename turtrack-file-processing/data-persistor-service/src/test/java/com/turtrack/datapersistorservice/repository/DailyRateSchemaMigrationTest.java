@@ -0,0 +1,86 @@
+package com.turtrack.datapersistorservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Migrates a table of the old layout and prints its size before and after.
+ */
+class DailyRateSchemaMigrationTest {
+
+    private static final int VEHICLES = 200;
+    private static final int DAYS = 365;
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static DataSourceTransactionManager transactionManager;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        transactionManager = new DataSourceTransactionManager(postgres.getPostgresDatabase());
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS daily_rate_and_availability, currency");
+    }
+
+    @Test
+    void movesCurrencyCodesToIdsAndDropsDayNames() {
+        jdbcTemplate.execute("CREATE TABLE daily_rate_and_availability ("
+                + "date date NOT NULL, vehicle_id bigint NOT NULL, custom_set_price boolean NOT NULL, "
+                + "localized_day_of_week varchar(255) NOT NULL, price float(53) NOT NULL, "
+                + "currency_code varchar(3) NOT NULL, whole_day_unavailable boolean NOT NULL, "
+                + "PRIMARY KEY (date, vehicle_id))");
+        jdbcTemplate.update("INSERT INTO daily_rate_and_availability "
+                + "SELECT d::date, v, false, trim(to_char(d, 'Day')), 40 + v % 60, CASE WHEN v % 2 = 0 THEN 'USD' ELSE 'CAD' END, false "
+                + "FROM generate_series(1, ?) v, generate_series(?::date, ?::date, interval '1 day') d",
+                VEHICLES, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 1).plusDays(DAYS - 1));
+        long before = tableSize();
+
+        new DailyRateSchemaMigration(jdbcTemplate, transactionManager).afterPropertiesSet();
+        jdbcTemplate.execute("VACUUM FULL daily_rate_and_availability");
+        long after = tableSize();
+
+        assertTrue(after < before, before + " bytes before, " + after + " bytes after");
+        assertEquals(List.of("CAD", "USD"), jdbcTemplate.queryForList("SELECT DISTINCT c.code FROM daily_rate_and_availability d "
+                + "JOIN currency c ON c.id = d.currency_id ORDER BY 1", String.class));
+        assertEquals(List.of("currency_id", "custom_set_price", "date", "price", "vehicle_id", "whole_day_unavailable"),
+                jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns "
+                        + "WHERE table_name = 'daily_rate_and_availability' ORDER BY 1", String.class));
+    }
+
+    @Test
+    void isIdempotent() {
+        new DailyRateSchemaMigration(jdbcTemplate, transactionManager).afterPropertiesSet();
+        int currencies = jdbcTemplate.queryForObject("SELECT count(*) FROM currency", Integer.class);
+
+        new DailyRateSchemaMigration(jdbcTemplate, transactionManager).afterPropertiesSet();
+
+        assertTrue(currencies > 100);
+        assertEquals(currencies, jdbcTemplate.queryForObject("SELECT count(*) FROM currency", Integer.class));
+        assertEquals(840, jdbcTemplate.queryForObject("SELECT id FROM currency WHERE code = 'USD'", Integer.class));
+    }
+
+    private static long tableSize() {
+        return jdbcTemplate.queryForObject("SELECT pg_total_relation_size('daily_rate_and_availability')", Long.class);
+    }
+}
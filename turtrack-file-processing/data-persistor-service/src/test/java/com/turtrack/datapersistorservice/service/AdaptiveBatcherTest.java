@@ -0,0 +1,214 @@
+package com.turtrack.datapersistorservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBatcherTest {
+
+    private static final AdaptiveBatcher.Settings SETTINGS =
+            new AdaptiveBatcher.Settings(100, 1000, 300, Duration.ZERO, Duration.ofMillis(500));
+
+    private static final TopicPartition PARTITION = new TopicPartition("cleaned-vehicle-topic", 0);
+    private static final TopicPartition REVOKED = new TopicPartition("cleaned-vehicle-topic", 1);
+
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final List<List<Integer>> flushes = new ArrayList<>();
+    private final List<String> acknowledged = new ArrayList<>();
+
+    @Test
+    void acknowledgesBufferedPollsOnlyAfterTheFlushThatWroteThem() {
+        AdaptiveBatcher<Integer> batcher = new AdaptiveBatcher<>("test",
+                new AdaptiveBatcher.Settings(100, 1000, 300, Duration.ofHours(1), Duration.ofMillis(500)),
+                flushes::add, new SimpleMeterRegistry());
+
+        batcher.offer(rows(0, 200), acknowledgment("poll-1"), consumer);
+        assertTrue(flushes.isEmpty());
+        assertTrue(acknowledged.isEmpty());
+
+        batcher.offer(rows(200, 150), acknowledgment("poll-2"), consumer);
+        assertEquals(1, flushes.size());
+        assertEquals(350, flushes.get(0).size());
+        assertEquals(List.of("poll-1", "poll-2"), acknowledged);
+    }
+
+    @Test
+    void flushesOnMaxDelay() {
+        AdaptiveBatcher<Integer> batcher = new AdaptiveBatcher<>("test", SETTINGS, flushes::add, new SimpleMeterRegistry());
+
+        batcher.offer(rows(0, 10), acknowledgment("poll-1"), consumer);
+        batcher.flushDue();
+
+        assertEquals(List.of(rows(0, 10)), flushes);
+        assertEquals(List.of("poll-1"), acknowledged);
+    }
+
+    @Test
+    void keepsFailedFlushBufferedAndUnacknowledged() {
+        List<Integer> attempts = new ArrayList<>();
+        AdaptiveBatcher<Integer> batcher = new AdaptiveBatcher<>("test", SETTINGS, rows -> {
+            attempts.add(rows.size());
+            if (attempts.size() == 1) {
+                throw new IllegalStateException("database down");
+            }
+        }, new SimpleMeterRegistry());
+
+        batcher.offer(rows(0, 10), acknowledgment("poll-1"), consumer);
+        batcher.flushDue();
+        assertTrue(acknowledged.isEmpty());
+
+        batcher.flushDue();
+        assertEquals(List.of(10, 10), attempts);
+        assertEquals(List.of("poll-1"), acknowledged);
+    }
+
+    @Test
+    void dropsTheBufferAndWritesPollByPollAfterAFailedListenerFlush() {
+        assignAndCommit(5);
+        consumer.seek(PARTITION, 20);
+        List<Integer> attempts = new ArrayList<>();
+        AdaptiveBatcher<Integer> batcher = new AdaptiveBatcher<>("test",
+                new AdaptiveBatcher.Settings(100, 1000, 300, Duration.ofHours(1), Duration.ofMillis(500)), rows -> {
+            attempts.add(rows.size());
+            if (attempts.size() <= 2) {
+                throw new IllegalStateException("database down");
+            }
+        }, new SimpleMeterRegistry());
+
+        batcher.offer(rows(0, 200), acknowledgment("poll-1"), consumer);
+        batcher.offer(rows(200, 150), acknowledgment("poll-2"), consumer);
+        assertEquals(5, consumer.position(PARTITION));
+        batcher.flushDue();
+        assertEquals(List.of(350), attempts);
+
+        // Consumed again from the committed offset: written right away, a failure goes to the error handler
+        assertThrows(IllegalStateException.class, () -> batcher.offer(rows(0, 10), acknowledgment("poll-1"), consumer));
+        batcher.flushDue();
+        batcher.offer(rows(0, 10), acknowledgment("poll-1"), consumer);
+        assertEquals(List.of(350, 10, 10), attempts);
+        assertEquals(List.of("poll-1"), acknowledged);
+
+        batcher.offer(rows(10, 10), acknowledgment("poll-2"), consumer);
+        assertEquals(List.of("poll-1"), acknowledged);
+    }
+
+    @Test
+    void flushesTheBufferBeforeRevocation() {
+        AdaptiveBatcher<Integer> batcher = new AdaptiveBatcher<>("test",
+                new AdaptiveBatcher.Settings(100, 1000, 300, Duration.ofHours(1), Duration.ofMillis(500)),
+                flushes::add, new SimpleMeterRegistry());
+
+        batcher.offer(rows(0, 10), acknowledgment("poll-1"), consumer);
+        batcher.flushBeforeRevocation(consumer, List.of(REVOKED));
+
+        assertEquals(List.of(rows(0, 10)), flushes);
+        assertEquals(List.of("poll-1"), acknowledged);
+    }
+
+    @Test
+    void dropsTheBufferAndRewindsTheKeptPartitionsWhenTheFlushBeforeRevocationFails() {
+        assignAndCommit(5);
+        consumer.seek(PARTITION, 20);
+        List<Integer> attempts = new ArrayList<>();
+        AdaptiveBatcher<Integer> batcher = new AdaptiveBatcher<>("test", SETTINGS, rows -> {
+            attempts.add(rows.size());
+            throw new IllegalStateException("database down");
+        }, new SimpleMeterRegistry());
+
+        batcher.offer(rows(0, 10), acknowledgment("poll-1"), consumer);
+        batcher.flushBeforeRevocation(consumer, List.of(REVOKED));
+        batcher.flushDue();
+
+        assertEquals(List.of(10), attempts);
+        assertTrue(acknowledged.isEmpty());
+        assertEquals(5, consumer.position(PARTITION));
+    }
+
+    @Test
+    void acknowledgesEmptyPollRightAwayWhenNothingIsBuffered() {
+        AdaptiveBatcher<Integer> batcher = new AdaptiveBatcher<>("test", SETTINGS, flushes::add, new SimpleMeterRegistry());
+
+        batcher.offer(List.of(), acknowledgment("poll-1"), consumer);
+
+        assertTrue(flushes.isEmpty());
+        assertEquals(List.of("poll-1"), acknowledged);
+    }
+
+    @Test
+    void coalescesWithinAndAcrossPollsKeepingTheLatestRecordPerKey() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AdaptiveBatcher<Integer> batcher = new AdaptiveBatcher<>("test", SETTINGS, row -> row % 100, flushes::add, meterRegistry);
+
+        batcher.offer(rows(0, 150), acknowledgment("poll-1"), consumer);
+        batcher.offer(rows(150, 100), acknowledgment("poll-2"), consumer);
+        batcher.flushDue();
+
+        List<Integer> expected = new ArrayList<>(rows(200, 50));
+        expected.addAll(rows(150, 50));
+        assertEquals(List.of(expected), flushes);
+        assertEquals(List.of("poll-1", "poll-2"), acknowledged);
+        assertEquals(250, meterRegistry.get("turtrack.persistor.coalesce.records").counter().count());
+        assertEquals(50, meterRegistry.get("turtrack.persistor.coalesce.superseded").tag("scope", "poll").counter().count());
+        assertEquals(100, meterRegistry.get("turtrack.persistor.coalesce.superseded").tag("scope", "window").counter().count());
+        assertEquals(0.6, meterRegistry.get("turtrack.persistor.coalesce.ratio").summary().mean(), 1e-9);
+    }
+
+    @Test
+    void holdsAFullBufferForTheCoalescingWindowUpToMaxRows() {
+        AdaptiveBatcher<Integer> batcher = new AdaptiveBatcher<>("test",
+                new AdaptiveBatcher.Settings(100, 1000, 100, Duration.ofHours(1), Duration.ofMillis(500), Duration.ofHours(1)),
+                row -> row, flushes::add, new SimpleMeterRegistry());
+
+        batcher.offer(rows(0, 150), acknowledgment("poll-1"), consumer);
+        batcher.offer(rows(0, 150), acknowledgment("poll-2"), consumer);
+        batcher.flushDue();
+        assertTrue(flushes.isEmpty());
+
+        batcher.offer(rows(100, 900), acknowledgment("poll-3"), consumer);
+        assertEquals(1, flushes.size());
+        assertEquals(1000, flushes.get(0).size());
+        assertEquals(List.of("poll-1", "poll-2", "poll-3"), acknowledged);
+    }
+
+    @Test
+    void halvesTargetOverSloAndGrowsItWhileLagging() {
+        long fast = Duration.ofMillis(100).toNanos();
+        long slow = Duration.ofSeconds(1).toNanos();
+
+        assertEquals(150, AdaptiveBatcher.nextTarget(SETTINGS, 300, 300, slow, 10_000));
+        assertEquals(100, AdaptiveBatcher.nextTarget(SETTINGS, 150, 150, slow, 10_000));
+        assertEquals(400, AdaptiveBatcher.nextTarget(SETTINGS, 300, 300, fast, 10_000));
+        assertEquals(1000, AdaptiveBatcher.nextTarget(SETTINGS, 950, 950, fast, 10_000));
+        assertEquals(300, AdaptiveBatcher.nextTarget(SETTINGS, 300, 300, fast, 0));
+        assertEquals(300, AdaptiveBatcher.nextTarget(SETTINGS, 300, 40, fast, 10_000));
+    }
+
+    private void assignAndCommit(long offset) {
+        consumer.assign(List.of(PARTITION, REVOKED));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L, REVOKED, 0L));
+        consumer.commitSync(Map.of(PARTITION, new OffsetAndMetadata(offset)));
+    }
+
+    private Acknowledgment acknowledgment(String poll) {
+        return () -> acknowledged.add(poll);
+    }
+
+    private static List<Integer> rows(int from, int count) {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            rows.add(i);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,143 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.turtrack.datapersistorservice.config.DailyRateWriteMode;
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs delta mode against a real (embedded) Postgres: {@link DailyRateDeltaTracker#changed} decides which days are
+ * written, and each of them is appended to daily_rate_change_log by
+ * {@link DailyRateAndAvailabilityBulkRepository#appendChangeLog}. A day the tracker drops is never sent, which the
+ * tests see by editing its row behind the service's back.
+ */
+class DailyRateAndAvailabilityPersistenceServiceTest {
+
+    private static final long VEHICLE_ID = 1852463L;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 7, 1);
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics(meterRegistry);
+    private final DailyRateAndAvailabilityBulkRepository bulkRepository = new DailyRateAndAvailabilityBulkRepository(jdbcTemplate, 1000);
+    private final DailyRateDeltaTracker deltaTracker = new DailyRateDeltaTracker(bulkRepository, meterRegistry, true, 1000);
+    private final DailyRateAndAvailabilityPersistenceService service = new DailyRateAndAvailabilityPersistenceService(null, bulkRepository,
+            deltaTracker, new DailyRateRollups(null, null, null, pipelineMetrics, meterRegistry, false),
+            new VehicleCalendarCache(bulkRepository, meterRegistry, 10, 300_000, 90), pipelineMetrics);
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        // One DataSource for both, so the template's statements join the transaction
+        DataSource dataSource = postgres.getPostgresDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void createTables() {
+        ReflectionTestUtils.setField(service, "writeMode", DailyRateWriteMode.BULK);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS daily_rate_and_availability");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS daily_rate_change_log");
+        jdbcTemplate.execute("CREATE TABLE daily_rate_and_availability ("
+                + "date date NOT NULL, vehicle_id bigint NOT NULL, custom_set_price boolean NOT NULL, "
+                + "price float(53) NOT NULL, currency_id smallint NOT NULL, whole_day_unavailable boolean NOT NULL, "
+                + "PRIMARY KEY (date, vehicle_id))");
+        jdbcTemplate.execute("CREATE TABLE daily_rate_change_log ("
+                + "id bigserial PRIMARY KEY, vehicle_id bigint NOT NULL, date date NOT NULL, price float(53) NOT NULL, "
+                + "whole_day_unavailable boolean NOT NULL, custom_set_price boolean NOT NULL, "
+                + "changed_at timestamp(6) with time zone NOT NULL)");
+    }
+
+    @Test
+    void writesNothingForAnUnchangedCalendar() {
+        save(calendar(50.0));
+        assertEquals(3, rows("daily_rate_change_log"));
+
+        jdbcTemplate.update("UPDATE daily_rate_and_availability SET price = 1");
+        save(calendar(50.0));
+
+        assertEquals(3, rows("daily_rate_change_log"));
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM daily_rate_and_availability WHERE price = 1", Integer.class));
+    }
+
+    @Test
+    void writesAndLogsOnlyTheDayWhosePriceMoved() {
+        save(calendar(50.0));
+        jdbcTemplate.update("UPDATE daily_rate_and_availability SET price = 1");
+
+        List<DailyRateAndAvailability> recrawl = calendar(50.0);
+        recrawl.get(1).setPrice(64.0);
+        save(recrawl);
+
+        assertEquals(List.of(1.0, 64.0, 1.0), jdbcTemplate.queryForList(
+                "SELECT price FROM daily_rate_and_availability ORDER BY date", Double.class));
+        assertEquals(4, rows("daily_rate_change_log"));
+        assertEquals(List.of(FIRST_DAY.plusDays(1)), jdbcTemplate.queryForList(
+                "SELECT date FROM daily_rate_change_log WHERE price = 64", LocalDate.class));
+    }
+
+    @Test
+    void recordsStateOnlyOnceTheWriteCommits() {
+        transactionTemplate.executeWithoutResult(status -> {
+            service.saveOrUpdateDailyRates(calendar(50.0));
+            assertEquals(0, deltaTracker.size());
+            status.setRollbackOnly();
+        });
+        assertEquals(0, deltaTracker.size());
+        assertEquals(0, rows("daily_rate_change_log"));
+
+        save(calendar(50.0));
+
+        assertEquals(3, deltaTracker.size());
+        assertEquals(3, rows("daily_rate_and_availability"));
+        assertEquals(3, rows("daily_rate_change_log"));
+    }
+
+    private void save(List<DailyRateAndAvailability> dailyRates) {
+        transactionTemplate.executeWithoutResult(status -> service.saveOrUpdateDailyRates(dailyRates));
+    }
+
+    private static int rows(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+    }
+
+    private static List<DailyRateAndAvailability> calendar(double price) {
+        List<DailyRateAndAvailability> dailyRates = new ArrayList<>();
+        for (int day = 0; day < 3; day++) {
+            LocalDate date = FIRST_DAY.plusDays(day);
+            dailyRates.add(new DailyRateAndAvailability(
+                    new DailyRateAndAvailability.DailyRateAndAvailabilityId(VEHICLE_ID, date),
+                    false, date.getDayOfWeek().name(), price, "USD", false));
+        }
+        return dailyRates;
+    }
+}
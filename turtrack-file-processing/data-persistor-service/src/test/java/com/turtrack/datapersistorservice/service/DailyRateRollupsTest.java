@@ -0,0 +1,89 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.model.MarketRateRollup;
+import com.turtrack.datapersistorservice.model.VehicleRateRollup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyRateRollupsTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 7, 1);
+    private static final Instant NOW = Instant.parse("2024-07-01T10:00:00Z");
+
+    private final DailyRateRollups rollups = new DailyRateRollups(null, null, null,
+            new PipelineMetrics(new SimpleMeterRegistry()), new SimpleMeterRegistry(), true);
+
+    @Test
+    void computesPriceAndUtilizationPerWindow() {
+        rollups.record(List.of(
+                day(1, 0, 100.0, false),
+                day(1, 1, 120.0, true),
+                day(1, 10, 200.0, true),
+                day(1, -1, 999.0, false),
+                day(1, 30, 999.0, false)), TODAY.toEpochDay());
+
+        DailyRateRollups.Rollups computed = rollups.computeRollups(TODAY.toEpochDay(), NOW);
+
+        VehicleRateRollup week = vehicleRollup(computed, 1, 7);
+        assertEquals(2, week.getDays());
+        assertEquals(110.0, week.getAvgPrice(), 1e-9);
+        assertEquals(10.0, week.getPriceStddev(), 1e-9);
+        assertEquals(0.5, week.getUtilization(), 1e-9);
+
+        VehicleRateRollup month = vehicleRollup(computed, 1, 30);
+        assertEquals(3, month.getDays());
+        assertEquals(140.0, month.getAvgPrice(), 1e-9);
+        assertEquals(2.0 / 3, month.getUtilization(), 1e-9);
+    }
+
+    @Test
+    void writesOnlyDirtyRollupsUntilTheWindowsMove() {
+        rollups.rememberMarket(1, DailyRateRollups.Market.of("Austin", "TX"));
+        rollups.rememberMarket(2, DailyRateRollups.Market.of("Austin", "TX"));
+        rollups.record(List.of(day(1, 0, 100.0, false), day(2, 0, 50.0, true)), TODAY.toEpochDay());
+        DailyRateRollups.Rollups first = rollups.computeRollups(TODAY.toEpochDay(), NOW);
+        assertEquals(4, first.vehicles().size());
+        MarketRateRollup austin = first.markets().stream()
+                .filter(rollup -> rollup.getId().getWindowDays() == 7).findFirst().orElseThrow();
+        assertEquals(2, austin.getVehicles());
+        assertEquals(75.0, austin.getAvgPrice(), 1e-9);
+        assertEquals(0.5, austin.getUtilization(), 1e-9);
+
+        rollups.record(List.of(day(1, 0, 100.0, false)), TODAY.toEpochDay());
+        assertTrue(rollups.computeRollups(TODAY.toEpochDay(), NOW).isEmpty());
+
+        rollups.record(List.of(day(2, 3, 80.0, false)), TODAY.toEpochDay());
+        DailyRateRollups.Rollups repriced = rollups.computeRollups(TODAY.toEpochDay(), NOW);
+        assertEquals(2, repriced.vehicles().size());
+        assertEquals(2, repriced.markets().size());
+
+        DailyRateRollups.Rollups tomorrow = rollups.computeRollups(TODAY.plusDays(1).toEpochDay(), NOW);
+        VehicleRateRollup expired = vehicleRollup(tomorrow, 1, 30);
+        assertEquals(0, expired.getDays());
+        assertNull(expired.getAvgPrice());
+        assertEquals(1, rollups.trackedVehicles());
+    }
+
+    private static VehicleRateRollup vehicleRollup(DailyRateRollups.Rollups rollups, long vehicleId, int window) {
+        return rollups.vehicles().stream()
+                .filter(rollup -> rollup.getId().getVehicleId() == vehicleId && rollup.getId().getWindowDays() == window)
+                .findFirst().orElseThrow();
+    }
+
+    private static DailyRateAndAvailability day(long vehicleId, int daysFromToday, double price, boolean wholeDayUnavailable) {
+        DailyRateAndAvailability dailyRate = new DailyRateAndAvailability();
+        dailyRate.setId(new DailyRateAndAvailability.DailyRateAndAvailabilityId(vehicleId, TODAY.plusDays(daysFromToday)));
+        dailyRate.setPrice(price);
+        dailyRate.setWholeDayUnavailable(wholeDayUnavailable);
+        dailyRate.setCustomSetPrice(false);
+        return dailyRate;
+    }
+}
@@ -0,0 +1,104 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.internals.BuiltInPartitioner;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionRevocationListenerTest {
+
+    private static final int PARTITIONS = 12;
+
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final VehicleFingerprintCache vehicleFingerprintCache =
+            new VehicleFingerprintCache(null, new SimpleMeterRegistry(), 1000, false);
+    private final DailyRateDeltaTracker dailyRateDeltaTracker = new DailyRateDeltaTracker(null, new SimpleMeterRegistry(), true, 1000);
+
+    @Test
+    void mapsVehiclesToPartitionsLikeTheProducer() {
+        StringSerializer serializer = new StringSerializer();
+        for (long vehicleId : new long[]{0, 1, 58, 1852463, Integer.MAX_VALUE + 7L}) {
+            assertEquals(BuiltInPartitioner.partitionForKey(serializer.serialize(VehicleConsumer.VEHICLE_TOPIC,
+                            String.valueOf(vehicleId)), PARTITIONS),
+                    PartitionRevocationListener.partition(vehicleId, PARTITIONS));
+        }
+    }
+
+    @Test
+    void forgetsTheCachedVehiclesOfRevokedPartitionsOnly() {
+        declare(VehicleConsumer.VEHICLE_TOPIC);
+        Map<Integer, Long> fingerprints = new HashMap<>();
+        IntStream.range(0, 200).forEach(vehicleId -> fingerprints.put(vehicleId, (long) vehicleId));
+        vehicleFingerprintCache.putAll(fingerprints);
+        PartitionRevocationListener listener = listener();
+
+        listener.onPartitionsRevokedBeforeCommit(consumer, List.of(new TopicPartition("other-topic", 3)));
+        assertEquals(200, vehicleFingerprintCache.size());
+
+        listener.onPartitionsRevokedBeforeCommit(consumer, List.of(new TopicPartition(VehicleConsumer.VEHICLE_TOPIC, 3)));
+        for (int vehicleId = 0; vehicleId < 200; vehicleId++) {
+            boolean revoked = PartitionRevocationListener.partition(vehicleId, PARTITIONS) == 3;
+            assertEquals(revoked, !vehicleFingerprintCache.isUnchanged(vehicleId, vehicleId), "vehicle " + vehicleId);
+        }
+        assertTrue(vehicleFingerprintCache.size() < 200);
+    }
+
+    @Test
+    void forgetsTheTrackedDaysOfVehiclesOnRevokedCalendarPartitions() {
+        declare(DailyRateAndAvailabilityConsumer.DAILY_RATE_TOPIC);
+        declare(DailyRateAndAvailabilityConsumer.CALENDAR_BLOCK_TOPIC);
+        LocalDate today = LocalDate.now();
+        List<DailyRateAndAvailability> days = IntStream.range(0, 200)
+                .mapToObj(vehicleId -> day(vehicleId, today))
+                .toList();
+        dailyRateDeltaTracker.record(days);
+
+        listener().onPartitionsRevokedBeforeCommit(consumer,
+                List.of(new TopicPartition(DailyRateAndAvailabilityConsumer.CALENDAR_BLOCK_TOPIC, 5)));
+
+        List<Long> changed = dailyRateDeltaTracker.changed(days).stream()
+                .map(day -> day.getId().getVehicleId())
+                .toList();
+        List<Long> revoked = IntStream.range(0, 200)
+                .filter(vehicleId -> PartitionRevocationListener.partition(vehicleId, PARTITIONS) == 5)
+                .mapToObj(vehicleId -> (long) vehicleId)
+                .toList();
+        assertFalse(revoked.isEmpty());
+        assertEquals(revoked, changed);
+    }
+
+    private PartitionRevocationListener listener() {
+        return new PartitionRevocationListener(List.of(), vehicleFingerprintCache, dailyRateDeltaTracker);
+    }
+
+    private static DailyRateAndAvailability day(long vehicleId, LocalDate date) {
+        DailyRateAndAvailability.DailyRateAndAvailabilityId id = new DailyRateAndAvailability.DailyRateAndAvailabilityId();
+        id.setVehicleId(vehicleId);
+        id.setDate(date);
+        DailyRateAndAvailability day = new DailyRateAndAvailability();
+        day.setId(id);
+        day.setPrice(50.0);
+        day.setWholeDayUnavailable(false);
+        day.setCustomSetPrice(false);
+        return day;
+    }
+
+    private void declare(String topic) {
+        consumer.updatePartitions(topic, IntStream.range(0, PARTITIONS)
+                .mapToObj(partition -> new PartitionInfo(topic, partition, null, null, null))
+                .toList());
+    }
+}
@@ -0,0 +1,57 @@
+package com.turtrack.datapersistorservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedWriteExecutorTest {
+
+    @Test
+    void writesEveryKeyInExactlyOneGroupWithinTheInFlightLimit() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Set<Long> written = ConcurrentHashMap.newKeySet();
+        PartitionedWriteExecutor executor = new PartitionedWriteExecutor(new SimpleAsyncTaskExecutor(), 3);
+        List<Long> vehicleIds = LongStream.range(0, 100).boxed().collect(Collectors.toList());
+
+        executor.writeGrouped(vehicleIds, Long::longValue, group -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            group.forEach(vehicleId -> assertTrue(written.add(vehicleId), "vehicle written twice: " + vehicleId));
+            inFlight.decrementAndGet();
+        });
+
+        assertEquals(100, written.size());
+        assertTrue(maxInFlight.get() <= 3);
+    }
+
+    @Test
+    void keepsAVehicleInOneGroup() {
+        List<List<Long>> groups = PartitionedWriteExecutor.group(List.of(1L, 2L, 1L, 4L, 1L), Long::longValue, 3);
+
+        assertEquals(List.of(List.of(1L, 1L, 4L, 1L), List.of(2L)), groups);
+    }
+
+    @Test
+    void rethrowsTheFailureOfAGroup() {
+        PartitionedWriteExecutor executor = new PartitionedWriteExecutor(new SimpleAsyncTaskExecutor(), 2);
+
+        assertThrows(IllegalStateException.class, () -> executor.writeGrouped(List.of(1L, 2L), Long::longValue, group -> {
+            if (group.contains(2L)) {
+                throw new IllegalStateException("write failed");
+            }
+        }));
+    }
+}
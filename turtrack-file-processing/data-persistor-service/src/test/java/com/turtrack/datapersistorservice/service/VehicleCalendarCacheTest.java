@@ -0,0 +1,78 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleCalendarCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final List<Long> loads = new ArrayList<>();
+    private double price = 50.0;
+    private Runnable duringLoad = () -> { };
+
+    private final DailyRateAndAvailabilityBulkRepository repository = new DailyRateAndAvailabilityBulkRepository(null, 1000) {
+        @Override
+        public void forEachDayOfVehicle(long vehicleId, LocalDate from, CalendarDayHandler handler) {
+            loads.add(vehicleId);
+            duringLoad.run();
+            handler.accept(TODAY, price, false, false, "USD");
+            handler.accept(TODAY.plusDays(2), price + 10, true, false, "USD");
+        }
+    };
+
+    private final VehicleCalendarCache cache = new VehicleCalendarCache(repository, new SimpleMeterRegistry(), 100, 60_000, 30);
+
+    @Test
+    void servesRepeatedReadsFromCacheUntilTheVehicleIsWritten() {
+        VehicleCalendar.Slice first = cache.get(7, TODAY).slice(TODAY, TODAY.plusDays(6));
+        VehicleCalendar.Slice second = cache.get(7, TODAY.plusDays(1)).slice(TODAY, TODAY.plusDays(6));
+        assertEquals(List.of(7L), loads);
+        assertEquals(first.etag(), second.etag());
+        assertArrayEquals(new int[]{0, 2}, first.dayOffsets());
+        assertArrayEquals(new boolean[]{false, true}, first.unavailable());
+
+        price = 55.0;
+        cache.invalidate(Set.of(7L));
+        VehicleCalendar.Slice written = cache.get(7, TODAY).slice(TODAY, TODAY.plusDays(6));
+        assertEquals(List.of(7L, 7L), loads);
+        assertEquals(55.0, written.prices()[0]);
+        assertNotEquals(first.etag(), written.etag());
+    }
+
+    @Test
+    void doesNotCacheALoadThatRacedAWrite() {
+        duringLoad = () -> cache.invalidate(Set.of(7L));
+        cache.get(7, TODAY);
+        duringLoad = () -> { };
+        cache.get(7, TODAY);
+        cache.get(7, TODAY);
+
+        assertEquals(List.of(7L, 7L), loads);
+    }
+
+    @Test
+    void readsBeforeTheCachedHistoryBypassTheCache() {
+        cache.get(7, TODAY.minusDays(60));
+        cache.get(7, TODAY.minusDays(60));
+
+        assertEquals(List.of(7L, 7L), loads);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void etagDependsOnTheRequestedRange() {
+        VehicleCalendar calendar = cache.get(7, TODAY);
+
+        assertNotEquals(calendar.slice(TODAY, TODAY.plusDays(6)).etag(), calendar.slice(TODAY, TODAY.plusDays(7)).etag());
+        assertEquals(0, calendar.slice(TODAY.plusDays(3), TODAY.plusDays(9)).dayOffsets().length);
+    }
+}
@@ -0,0 +1,144 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
+import com.turtrack.datapersistorservice.model.Vehicle;
+import com.turtrack.datapersistorservice.repository.VehicleBulkRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the vehicle write path against a real (embedded) Postgres: the multi-row {@code ON CONFLICT (id)} upsert of
+ * {@link VehicleBulkRepository} behind the {@link VehicleFingerprintCache}. A vehicle the cache skips is never sent,
+ * which the tests see by editing its row behind the service's back.
+ */
+class VehiclePersistenceServiceTest {
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics(meterRegistry);
+    private final VehicleBulkRepository vehicleBulkRepository = new VehicleBulkRepository(jdbcTemplate, 2);
+    private final VehicleFingerprintCache vehicleFingerprintCache = new VehicleFingerprintCache(vehicleBulkRepository, meterRegistry, 100, true);
+    private final VehiclePersistenceService service = new VehiclePersistenceService(null, vehicleBulkRepository, vehicleFingerprintCache,
+            new DailyRateRollups(null, null, null, pipelineMetrics, meterRegistry, false), pipelineMetrics);
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        // One DataSource for both, so the template's statements join the transaction
+        DataSource dataSource = postgres.getPostgresDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void createTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS vehicle");
+        jdbcTemplate.execute("CREATE TABLE vehicle (id integer PRIMARY KEY, make varchar(255), model varchar(255), "
+                + "year integer, trim varchar(255), type varchar(255), registration_state varchar(255), "
+                + "city varchar(255), state varchar(255), average_daily_price float(53))");
+    }
+
+    @Test
+    void skipsUnchangedVehiclesAndWritesChangedOnes() {
+        save(vehicle(1, "Miami", 62.5), vehicle(2, "Tampa", 48.0), vehicle(3, "Orlando", null));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT count(*) FROM vehicle", Integer.class));
+
+        jdbcTemplate.update("UPDATE vehicle SET make = 'Edited' WHERE id IN (1, 3)");
+        save(vehicle(1, "Miami", 62.5), vehicle(2, "Tampa", 55.0), vehicle(3, "Orlando", null));
+
+        assertEquals(2, skipped());
+        assertEquals("Edited", make(1));
+        assertEquals("Tesla", make(2));
+        assertEquals(55.0, jdbcTemplate.queryForObject("SELECT average_daily_price FROM vehicle WHERE id = 2", Double.class));
+        assertEquals("Edited", make(3));
+    }
+
+    @Test
+    void updatesExistingRowsOnConflict() {
+        jdbcTemplate.update("INSERT INTO vehicle (id, make, city) VALUES (1, 'Stale', 'Nowhere')");
+
+        save(vehicle(1, "Miami", 62.5), vehicle(4, "Tampa", 48.0));
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM vehicle", Integer.class));
+        assertEquals("Tesla", make(1));
+        assertEquals("Miami", jdbcTemplate.queryForObject("SELECT city FROM vehicle WHERE id = 1", String.class));
+    }
+
+    @Test
+    void remembersVehiclesOnlyOnceTheWriteCommits() {
+        transactionTemplate.executeWithoutResult(status -> {
+            service.saveOrUpdateVehicles(List.of(vehicle(1, "Miami", 62.5)));
+            status.setRollbackOnly();
+        });
+        assertEquals(0, vehicleFingerprintCache.size());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM vehicle", Integer.class));
+
+        save(vehicle(1, "Miami", 62.5));
+
+        assertEquals(0, skipped());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM vehicle", Integer.class));
+        assertEquals(1, vehicleFingerprintCache.size());
+    }
+
+    @Test
+    void warmsFromPersistedVehicles() {
+        save(vehicle(1, "Miami", 62.5), vehicle(2, "Tampa", null));
+        VehicleFingerprintCache restarted = new VehicleFingerprintCache(vehicleBulkRepository, new SimpleMeterRegistry(), 100, true);
+
+        restarted.afterSingletonsInstantiated();
+
+        assertEquals(2, restarted.size());
+        assertTrue(restarted.isUnchanged(1, VehicleFingerprintCache.fingerprint(vehicle(1, "Miami", 62.5))));
+        assertTrue(restarted.isUnchanged(2, VehicleFingerprintCache.fingerprint(vehicle(2, "Tampa", null))));
+    }
+
+    private void save(Vehicle... vehicles) {
+        transactionTemplate.executeWithoutResult(status -> service.saveOrUpdateVehicles(List.of(vehicles)));
+    }
+
+    private long skipped() {
+        return (long) meterRegistry.get("turtrack.persistor.vehicle.unchanged.skipped").counter().count();
+    }
+
+    private static String make(int id) {
+        return jdbcTemplate.queryForObject("SELECT make FROM vehicle WHERE id = ?", String.class, id);
+    }
+
+    private static Vehicle vehicle(int id, String city, Double averageDailyPrice) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setMake("Tesla");
+        vehicle.setModel("Model 3");
+        vehicle.setYear(2022);
+        vehicle.setTrim("Long Range");
+        vehicle.setType("CAR");
+        vehicle.setRegistrationState("FL");
+        vehicle.setCity(city);
+        vehicle.setState("FL");
+        vehicle.setAverageDailyPrice(averageDailyPrice);
+        return vehicle;
+    }
+}
@@ -0,0 +1,61 @@
+package com.turtrack.datapersistorservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTest {
+
+    @Test
+    void putGetAndOverwriteAcrossGrowth() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key << 24, key * 3);
+        }
+        map.put(5L << 24, -1);
+
+        assertEquals(10_000, map.size());
+        assertEquals(-1, map.get(5L << 24, 42));
+        assertEquals(9_999 * 3, map.get(9_999L << 24, 42));
+        assertEquals(42, map.get(10_000L << 24, 42));
+    }
+
+    @Test
+    void removeKeysIfKeepsRemainingEntriesReachable() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        for (long key = 1; key <= 1_000; key++) {
+            map.put(key, key);
+        }
+
+        int removed = map.removeKeysIf(key -> key % 2 == 0);
+
+        assertEquals(500, removed);
+        assertEquals(500, map.size());
+        assertFalse(map.containsKey(2));
+        assertEquals(999, map.get(999, 0));
+    }
+
+    @Test
+    void keysAreACopyOfEveryKey() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        for (long key = 1; key <= 100; key++) {
+            map.put(key << 24, key);
+        }
+
+        long[] keys = map.keys();
+        map.clear();
+
+        Arrays.sort(keys);
+        assertEquals(100, keys.length);
+        assertEquals(1L << 24, keys[0]);
+        assertEquals(100L << 24, keys[99]);
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void rejectsReservedKey() {
+        assertThrows(IllegalArgumentException.class, () -> new LongLongHashMap(16).put(Long.MIN_VALUE, 1));
+    }
+}
@@ -0,0 +1,13 @@
+package com.turtrack.dataprocessorservice.config;
+
+/**
+ * Shape of the processed daily rate records.
+ * <ul>
+ *     <li>{@code PER_DAY} - one {@code DailyRateAndAvailability} record per vehicle and day.</li>
+ *     <li>{@code CALENDAR_BLOCK} - one {@code DailyRateCalendarBlock} record per run of consecutive days of a crawled calendar.</li>
+ * </ul>
+ */
+public enum DailyRateOutput {
+    PER_DAY,
+    CALENDAR_BLOCK
+}
@@ -0,0 +1,16 @@
+package com.turtrack.dataprocessorservice.config;
+
+/**
+ * Delivery guarantee of the processor's read-process-write loop.
+ * <ul>
+ *     <li>{@code AT_LEAST_ONCE} - offsets are committed once every output record of the poll is acked. A crash or
+ *     rebalance in between re-processes the poll and its output records are sent again.</li>
+ *     <li>{@code EXACTLY_ONCE} - each poll runs in a Kafka transaction: its output records, dead letters and input
+ *     offsets (sendOffsetsToTransaction) commit or abort together. Consumers reading with
+ *     {@code isolation.level=read_committed} never see the output of an aborted poll.</li>
+ * </ul>
+ */
+public enum DeliveryMode {
+    AT_LEAST_ONCE,
+    EXACTLY_ONCE
+}
@@ -0,0 +1,13 @@
+package com.turtrack.dataprocessorservice.config;
+
+/**
+ * How raw scraper payloads are turned into model objects.
+ * <ul>
+ *     <li>{@code MAP} - bind the whole payload to a {@code Map<String, Object>} tree and walk it.</li>
+ *     <li>{@code STREAMING} - pull the needed fields straight off a {@code JsonParser}, skipping everything else.</li>
+ * </ul>
+ */
+public enum ExtractionMode {
+    MAP,
+    STREAMING
+}
@@ -1,23 +1,44 @@
 package com.turtrack.dataprocessorservice.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.common.deadletter.DeadLetterReplayEndpoint;
+import com.turtrack.common.deadletter.DeadLetterRouter;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
 import com.turtrack.dataprocessorservice.model.Vehicle;
 import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.model.DailyRateCalendarBlock;
+import com.turtrack.dataprocessorservice.serialization.DailyRateAndAvailabilityWireSerializer;
+import com.turtrack.dataprocessorservice.serialization.DailyRateCalendarBlockWireSerializer;
+import com.turtrack.dataprocessorservice.serialization.VehicleWireSerializer;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Configuration
@@ -27,54 +48,233 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${turtrack.processor.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${turtrack.processor.producer.linger-ms:20}")
+    private int lingerMs;
+
+    @Value("${turtrack.processor.producer.batch-size:131072}")
+    private int batchSize;
+
+    @Value("${turtrack.processor.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${turtrack.processor.producer.wire-format:JSON}")
+    private PayloadFormat wireFormat;
+
+    @Value("${turtrack.processor.delivery:AT_LEAST_ONCE}")
+    private DeliveryMode deliveryMode;
+
+    @Value("${turtrack.processor.transactions.id-prefix:data-processor-tx-}")
+    private String transactionIdPrefix;
+
+    @Value("${turtrack.processor.listener.concurrency:1}")
+    private int listenerConcurrency;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${turtrack.processor.topics.partitions:12}")
+    private int topicPartitions;
+
+    @Value("${turtrack.processor.topics.replicas:1}")
+    private int topicReplicas;
+
+    @Value("${turtrack.processor.retry.max-retries:5}")
+    private int retryMaxRetries;
+
+    @Value("${turtrack.processor.retry.initial-interval-ms:500}")
+    private long retryInitialIntervalMs;
+
+    @Value("${turtrack.processor.retry.multiplier:2.0}")
+    private double retryMultiplier;
+
+    @Value("${turtrack.processor.retry.max-interval-ms:30000}")
+    private long retryMaxIntervalMs;
+
     private final ObjectMapper jsonObjectMapper;
 
     @Bean
-    public ConsumerFactory<String, Map<String, Object>> consumerFactory() {
+    public ConsumerFactory<String, byte[]> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "turtrack-group");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Dead letters sent in an aborted transaction must not be replayed from the .DLT topics
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "java.util.Map");
+        // Payloads stay raw here; the processing services decode them according to turtrack.processor.extraction-mode
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
+    /**
+     * One producer factory for every output record type, so all sends of a poll go through one producer and, in
+     * EXACTLY_ONCE mode, one transaction. The value serializer picks the encoding by the runtime type of the value.
+     */
     @Bean
-    public ProducerFactory<String, Vehicle> vehicleProducerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+    public ProducerFactory<String, Object> outputProducerFactory() {
+        Map<Class<?>, Serializer<?>> valueSerializers = new LinkedHashMap<>();
+        if (wireFormat == PayloadFormat.BINARY) {
+            valueSerializers.put(Vehicle.class, new VehicleWireSerializer());
+            valueSerializers.put(DailyRateAndAvailability.class, new DailyRateAndAvailabilityWireSerializer());
+            valueSerializers.put(DailyRateCalendarBlock.class, new DailyRateCalendarBlockWireSerializer());
+        } else {
+            valueSerializers.put(Vehicle.class, new JsonSerializer<>());
+            valueSerializers.put(DailyRateAndAvailability.class, new JsonSerializer<>(jsonObjectMapper));
+            valueSerializers.put(DailyRateCalendarBlock.class, new JsonSerializer<>(jsonObjectMapper));
+        }
+        // Dead letters and replays carry the original payload bytes untouched
+        valueSerializers.put(byte[].class, new ByteArraySerializer());
+
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(producerConfigs(),
+                new StringSerializer(), new DelegatingByTypeSerializer(valueSerializers));
+        if (deliveryMode == DeliveryMode.EXACTLY_ONCE) {
+            factory.setTransactionIdPrefix(transactionIdPrefix);
+        }
+        return factory;
     }
 
-    @Bean
-    public ProducerFactory<String, DailyRateAndAvailability> dailyRateProducerFactory() {
+    /**
+     * Each poll batch is sent as one burst, so the producer is tuned to coalesce it into few, large, compressed requests.
+     */
+    private Map<String, Object> producerConfigs() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), new JsonSerializer<>(jsonObjectMapper));
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        return configProps;
     }
 
     @Bean
     public KafkaTemplate<String, Vehicle> vehicleDetailsKafkaTemplate() {
-        return new KafkaTemplate<>(vehicleProducerFactory());
+        return outputTemplate();
     }
 
     @Bean
     public KafkaTemplate<String, DailyRateAndAvailability> dailyRateAndAvailabilityKafkaTemplate() {
-        return new KafkaTemplate<>(dailyRateProducerFactory());
+        return outputTemplate();
+    }
+
+    @Bean
+    public KafkaTemplate<String, DailyRateCalendarBlock> dailyRateCalendarBlockKafkaTemplate() {
+        return outputTemplate();
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> deadLetterKafkaTemplate() {
+        KafkaTemplate<String, byte[]> template = outputTemplate();
+        // Inside a listener transaction dead letters join it; recovery after a rollback and replays run outside one
+        template.setAllowNonTransactional(true);
+        return template;
+    }
+
+    /**
+     * A template over the shared output producer factory. The value type only documents what the caller sends.
+     */
+    @SuppressWarnings("unchecked")
+    private <V> KafkaTemplate<String, V> outputTemplate() {
+        return new KafkaTemplate<>((ProducerFactory<String, V>) (ProducerFactory<String, ?>) outputProducerFactory());
     }
 
+    /**
+     * Publishes to {@code <topic>.DLT}, letting the key pick the partition so dead-letter topics need not mirror
+     * the partition count of their source.
+     */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Map<String, Object>> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, Map<String, Object>> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer() {
+        return new DeadLetterPublishingRecoverer(deadLetterKafkaTemplate(),
+                (record, exception) -> new TopicPartition(DeadLetterRouter.deadLetterTopic(record.topic()), -1));
+    }
+
+    @Bean
+    public DeadLetterRouter deadLetterRouter(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                             PipelineMetrics pipelineMetrics) {
+        return new DeadLetterRouter(deadLetterPublishingRecoverer, pipelineMetrics::extractFailed);
+    }
+
+    @Bean
+    public DeadLetterReplayEndpoint deadLetterReplayEndpoint() {
+        return new DeadLetterReplayEndpoint(consumerFactory(), deadLetterKafkaTemplate(), "data-processor-dead-letter-replay");
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> kafkaListenerContainerFactory(DeadLetterRouter deadLetterRouter) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        if (deliveryMode == DeliveryMode.EXACTLY_ONCE) {
+            // One transaction per poll: the container sends the acknowledged offsets to it, then commits
+            factory.getContainerProperties().setKafkaAwareTransactionManager(
+                    new KafkaTransactionManager<>(outputProducerFactory()));
+            factory.setAfterRollbackProcessor(new DefaultAfterRollbackProcessor<>(deadLetterRouter::deadLetter, backOff(),
+                    deadLetterKafkaTemplate(), true));
+        } else {
+            factory.setCommonErrorHandler(new DefaultErrorHandler(deadLetterRouter::deadLetter, backOff()));
+        }
+        // Threads beyond the partition count of the input topics stay idle
+        factory.setConcurrency(listenerConcurrency);
+        if (virtualThreads) {
+            // Consumer threads of the containers become virtual threads (Java 21)
+            SimpleAsyncTaskExecutor listenerTaskExecutor = new SimpleAsyncTaskExecutor("processor-listener-");
+            listenerTaskExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor);
+        }
+        // Offsets are acknowledged once every send of the batch has been acked by the broker, from a producer thread when
+        // the send window is on (the container queues the ack and commits it on the consumer thread), see SendWindow.
+        // In EXACTLY_ONCE mode they go into the poll's transaction and are committed with it.
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         return factory;
     }
-}
\ No newline at end of file
+
+    /**
+     * Malformed payloads never get here: they are dead-lettered by the listeners and the rest of the poll goes on.
+     * What does get here (e.g. the broker rejecting sends) is transient. The poll is retried with exponential
+     * backoff (after rolling back its transaction in EXACTLY_ONCE mode), and after max-retries its records are
+     * dead-lettered so the partition can move on.
+     */
+    private ExponentialBackOffWithMaxRetries backOff() {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(retryMaxRetries);
+        backOff.setInitialInterval(retryInitialIntervalMs);
+        backOff.setMultiplier(retryMultiplier);
+        backOff.setMaxInterval(retryMaxIntervalMs);
+        return backOff;
+    }
+
+    /*
+     * Output topics. Every record is keyed by vehicleId, so the partition count is the upper bound on persistor
+     * consumer threads per topic. Partitions can be added later (KafkaAdmin does so on startup when this count grows),
+     * but that remaps keys: records of a vehicle written before and after the change may be consumed out of order.
+     */
+
+    @Bean
+    public NewTopic cleanedVehicleTopic() {
+        return TopicBuilder.name("cleaned-vehicle-topic").partitions(topicPartitions).replicas(topicReplicas).build();
+    }
+
+    @Bean
+    public NewTopic processedDailyRateTopic() {
+        return TopicBuilder.name("processed-vehicle-daily-rate-and-availability-topic").partitions(topicPartitions).replicas(topicReplicas).build();
+    }
+
+    @Bean
+    public NewTopic processedDailyRateCalendarTopic() {
+        return TopicBuilder.name("processed-vehicle-daily-rate-calendar-topic").partitions(topicPartitions).replicas(topicReplicas).build();
+    }
+
+    // Dead-letter topics of the input topics, see DeadLetterRouter
+
+    @Bean
+    public NewTopic vehicleDetailDeadLetterTopic() {
+        return TopicBuilder.name(DeadLetterRouter.deadLetterTopic("vehicle-detail-topic")).partitions(1).replicas(topicReplicas).build();
+    }
+
+    @Bean
+    public NewTopic dailyPricingDeadLetterTopic() {
+        return TopicBuilder.name(DeadLetterRouter.deadLetterTopic("vehicle-daily-rate-and-availability-topic")).partitions(1).replicas(topicReplicas).build();
+    }
+}
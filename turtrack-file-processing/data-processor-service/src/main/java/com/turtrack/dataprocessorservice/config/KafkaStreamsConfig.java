@@ -0,0 +1,121 @@
+package com.turtrack.dataprocessorservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.serialization.DailyRateAndAvailabilityWireDeserializer;
+import com.turtrack.dataprocessorservice.serialization.DailyRateAndAvailabilityWireSerializer;
+import com.turtrack.dataprocessorservice.service.DailyRateProcessingService;
+import com.turtrack.dataprocessorservice.service.DailyRateTopology;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.KStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
+import org.springframework.kafka.config.KafkaStreamsConfiguration;
+import org.springframework.kafka.support.serializer.JsonSerde;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The STREAMS processing engine ({@code turtrack.processor.engine=STREAMS}), see {@link DailyRateTopology}.
+ * Stream threads and producer tuning follow the listener path settings. The processing guarantee is always
+ * exactly-once: the change filter's store is updated before the forward of a changed day is committed, so under
+ * at-least-once a store restored from its changelog can be ahead of the committed offsets, and the reprocessed
+ * changes would be filtered out as unchanged.
+ */
+@Slf4j
+@Configuration
+@EnableKafkaStreams
+@ConditionalOnProperty(name = "turtrack.processor.engine", havingValue = "STREAMS")
+@RequiredArgsConstructor
+public class KafkaStreamsConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${turtrack.processor.streams.application-id:data-processor-streams}")
+    private String applicationId;
+
+    @Value("${turtrack.processor.streams.state-dir:${java.io.tmpdir}/kafka-streams}")
+    private String stateDir;
+
+    @Value("${turtrack.processor.listener.concurrency:1}")
+    private int streamThreads;
+
+    @Value("${turtrack.processor.delivery:AT_LEAST_ONCE}")
+    private DeliveryMode deliveryMode;
+
+    @Value("${turtrack.processor.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${turtrack.processor.producer.linger-ms:20}")
+    private int lingerMs;
+
+    @Value("${turtrack.processor.producer.batch-size:131072}")
+    private int batchSize;
+
+    @Value("${turtrack.processor.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${turtrack.processor.producer.wire-format:JSON}")
+    private PayloadFormat wireFormat;
+
+    @Value("${turtrack.processor.topics.replicas:1}")
+    private int topicReplicas;
+
+    private final ObjectMapper jsonObjectMapper;
+
+    @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
+    public KafkaStreamsConfiguration kafkaStreamsConfiguration() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, streamThreads);
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+        if (deliveryMode != DeliveryMode.EXACTLY_ONCE) {
+            log.warn("turtrack.processor.delivery={} is ignored by the STREAMS engine, which runs exactly-once",
+                    deliveryMode);
+        }
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
+        // Repartition and changelog topics
+        props.put(StreamsConfig.REPLICATION_FACTOR_CONFIG, topicReplicas);
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.ByteArraySerde.class);
+        props.put(StreamsConfig.consumerPrefix(ConsumerConfig.MAX_POLL_RECORDS_CONFIG), maxPollRecords);
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.LINGER_MS_CONFIG), lingerMs);
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.BATCH_SIZE_CONFIG), batchSize);
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.COMPRESSION_TYPE_CONFIG), compressionType);
+        return new KafkaStreamsConfiguration(props);
+    }
+
+    @Bean
+    public KStream<String, DailyRateAndAvailability> dailyRateStream(StreamsBuilder streamsBuilder,
+                                                                     DailyRateProcessingService dailyRateProcessingService,
+                                                                     PipelineMetrics pipelineMetrics,
+                                                                     MeterRegistry meterRegistry) {
+        return new DailyRateTopology(dailyRateProcessingService, pipelineMetrics, meterRegistry, outputSerde())
+                .build(streamsBuilder);
+    }
+
+    /**
+     * The daily rates written to the processed topic, encoded like the listener path does.
+     */
+    private Serde<DailyRateAndAvailability> outputSerde() {
+        return wireFormat == PayloadFormat.BINARY
+                ? Serdes.serdeFrom(new DailyRateAndAvailabilityWireSerializer(), new DailyRateAndAvailabilityWireDeserializer())
+                : new JsonSerde<>(DailyRateAndAvailability.class, jsonObjectMapper);
+    }
+}
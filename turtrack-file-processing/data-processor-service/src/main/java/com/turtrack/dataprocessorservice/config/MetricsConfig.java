@@ -0,0 +1,16 @@
+package com.turtrack.dataprocessorservice.config;
+
+import com.turtrack.common.metrics.PipelineSummaryLogger;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public PipelineSummaryLogger pipelineSummaryLogger(MeterRegistry meterRegistry, Environment environment) {
+        return new PipelineSummaryLogger(meterRegistry, environment, "turtrack.processor");
+    }
+}
@@ -0,0 +1,13 @@
+package com.turtrack.dataprocessorservice.config;
+
+/**
+ * Encoding of the records the processor produces.
+ * <ul>
+ *     <li>{@code JSON} - Jackson {@code JsonSerializer}, as consumed by every persistor version.</li>
+ *     <li>{@code BINARY} - the compact, versioned encoding in {@code com.turtrack.common.wire.WireFormat}.</li>
+ * </ul>
+ */
+public enum PayloadFormat {
+    JSON,
+    BINARY
+}
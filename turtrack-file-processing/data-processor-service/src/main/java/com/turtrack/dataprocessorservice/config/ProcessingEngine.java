@@ -0,0 +1,16 @@
+package com.turtrack.dataprocessorservice.config;
+
+/**
+ * What processes the raw daily pricing topic.
+ * <ul>
+ *     <li>{@code LISTENER} - the {@code @KafkaListener} batch path: every day of every crawled calendar is forwarded
+ *     and the persistor works out which days changed.</li>
+ *     <li>{@code STREAMS} - the Kafka Streams topology of {@code DailyRateTopology}: days are re-keyed by vehicle and
+ *     compared against local state, only changed days are forwarded.</li>
+ * </ul>
+ * Vehicle details are processed by the listener path either way.
+ */
+public enum ProcessingEngine {
+    LISTENER,
+    STREAMS
+}
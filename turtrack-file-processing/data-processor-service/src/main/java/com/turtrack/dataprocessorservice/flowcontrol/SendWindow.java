@@ -0,0 +1,233 @@
+package com.turtrack.dataprocessorservice.flowcontrol;
+
+import com.turtrack.dataprocessorservice.config.DeliveryMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the output records handed to the producer but not yet acked by the broker, across all listeners. Listeners
+ * return as soon as a poll's output is sent instead of waiting for its acks; once {@code max-in-flight} records are
+ * unacked the listener containers are paused, and resumed when the acks bring it down to {@code resume-in-flight}.
+ * A paused container keeps polling, so a slow broker never holds a listener past {@code max.poll.interval.ms}.
+ * <p>
+ * A poll is acknowledged once its output and the output of every earlier poll of the same consumer are acked, so
+ * committed offsets never pass an unacked record. If a send fails, the consumer's later polls are not acknowledged
+ * either, and its next listener call rewinds it to the committed offsets (see {@link #rewindIfFailed}). The consumer
+ * then waits for the acks of each poll on its own thread until one succeeds: a send failing again fails the listener
+ * call, so the container's error handler retries the poll with backoff and dead-letters it after the last retry,
+ * exactly as with the window off.
+ * <p>
+ * AT_LEAST_ONCE only: in EXACTLY_ONCE mode the poll's transaction holds its sends and listeners wait for them.
+ * <ul>
+ *     <li>{@code turtrack.processor.send-window.in-flight} - output records sent and not yet acked</li>
+ *     <li>{@code turtrack.processor.send-window.paused} - time the listener containers spent paused on a full window</li>
+ *     <li>{@code turtrack.processor.send-window.rewinds} - consumers rewound after a failed send</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class SendWindow {
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final MeterRegistry meterRegistry;
+    private final long maxInFlight;
+    private final long resumeInFlight;
+    private final boolean enabled;
+
+    private final AtomicLong inFlight = new AtomicLong();
+    private final Map<Consumer<?, ?>, Lane> lanes = new ConcurrentHashMap<>();
+    private final List<MessageListenerContainer> pausedContainers = new ArrayList<>();
+    private Timer.Sample pausedSince;
+
+    private final Timer paused;
+    private final Counter rewinds;
+
+    public SendWindow(KafkaListenerEndpointRegistry listenerRegistry,
+                      MeterRegistry meterRegistry,
+                      @Value("${turtrack.processor.send-window.max-in-flight:0}") long maxInFlight,
+                      @Value("${turtrack.processor.send-window.resume-in-flight:0}") long resumeInFlight,
+                      @Value("${turtrack.processor.delivery:AT_LEAST_ONCE}") DeliveryMode deliveryMode) {
+        if (maxInFlight > 0 && resumeInFlight >= maxInFlight) {
+            throw new IllegalArgumentException("send-window.resume-in-flight must be below max-in-flight");
+        }
+        this.listenerRegistry = listenerRegistry;
+        this.meterRegistry = meterRegistry;
+        this.maxInFlight = maxInFlight;
+        this.resumeInFlight = resumeInFlight;
+        this.enabled = maxInFlight > 0 && deliveryMode == DeliveryMode.AT_LEAST_ONCE;
+        if (maxInFlight > 0 && !enabled) {
+            log.info("Send window disabled in {} mode, listeners wait for the acks of each poll", deliveryMode);
+        }
+
+        this.paused = Timer.builder("turtrack.processor.send-window.paused")
+                .description("Time the listener containers spent paused on a full send window")
+                .register(meterRegistry);
+        this.rewinds = Counter.builder("turtrack.processor.send-window.rewinds").register(meterRegistry);
+        Gauge.builder("turtrack.processor.send-window.in-flight", inFlight, AtomicLong::get).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    public synchronized boolean isPaused() {
+        return pausedSince != null;
+    }
+
+    /**
+     * Acknowledges a poll once its output is acked: through the window, or by waiting for the acks on the consumer
+     * thread when the window is off or the consumer is recovering from a failed send. Waiting throws if a send
+     * failed, for the container's error handler. Call on the consumer thread, in poll order.
+     */
+    public void acknowledgeWhenAcked(Consumer<?, ?> consumer, int records, CompletableFuture<Void> acked,
+                                     Acknowledgment acknowledgment) {
+        Lane lane = enabled ? lanes.get(consumer) : null;
+        if (enabled && (lane == null || !lane.recovering)) {
+            track(consumer, records, acked, acknowledgment);
+            return;
+        }
+        acked.join();
+        acknowledgment.acknowledge();
+        if (lane != null && lane.recovering) {
+            lane.recovering = false;
+            log.info("Sends of {} succeed again, back to the send window", consumer.assignment());
+        }
+    }
+
+    /**
+     * Takes a poll's output into the window. The poll is acknowledged once {@code acked} and every earlier poll of
+     * the same consumer have completed. Call on the consumer thread, in poll order.
+     */
+    public void track(Consumer<?, ?> consumer, int records, CompletableFuture<Void> acked, Acknowledgment acknowledgment) {
+        inFlight.addAndGet(records);
+        acked.whenComplete((result, error) -> release(records));
+
+        Lane lane = lanes.computeIfAbsent(consumer, c -> new Lane());
+        long generation = lane.generation;
+        lane.tail = lane.tail.thenCombine(acked, (previous, current) -> null);
+        lane.tail.whenComplete((result, error) -> {
+            if (error == null) {
+                // Queued by the container and committed on the consumer thread before its next poll
+                acknowledgment.acknowledge();
+            } else {
+                lane.fail(generation, error);
+            }
+        });
+        pauseIfFull();
+    }
+
+    /**
+     * Call first in a listener. If a send of an earlier poll of this consumer failed, seeks the consumer's partitions
+     * back to their committed offsets and returns true: the current poll must then be dropped unacknowledged, it is
+     * consumed again after the failed ones. Until a poll succeeds, {@link #acknowledgeWhenAcked} then waits for acks
+     * on the consumer thread, so the failed polls go through the container's error handler.
+     */
+    public boolean rewindIfFailed(Consumer<?, ?> consumer) {
+        Lane lane = lanes.get(consumer);
+        Throwable failure = lane == null ? null : lane.reset();
+        if (failure == null) {
+            return false;
+        }
+        Set<TopicPartition> assignment = consumer.assignment();
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(assignment);
+        for (TopicPartition partition : assignment) {
+            OffsetAndMetadata offset = committed.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset);
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+        lane.recovering = true;
+        rewinds.increment();
+        log.warn("A send failed, rewinding {} to the committed offsets and waiting for acks until sends succeed",
+                assignment, failure);
+        return true;
+    }
+
+    private void release(int records) {
+        if (inFlight.addAndGet(-records) <= resumeInFlight) {
+            resumeIfDrained();
+        }
+    }
+
+    private synchronized void pauseIfFull() {
+        if (pausedSince != null || inFlight.get() < maxInFlight) {
+            return;
+        }
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            if (container.isRunning()) {
+                container.pause();
+                pausedContainers.add(container);
+            }
+        }
+        pausedSince = Timer.start(meterRegistry);
+        log.debug("Send window full at {} records, paused {} listener containers", inFlight.get(), pausedContainers.size());
+    }
+
+    private synchronized void resumeIfDrained() {
+        if (pausedSince == null || inFlight.get() > resumeInFlight) {
+            return;
+        }
+        pausedContainers.forEach(MessageListenerContainer::resume);
+        pausedContainers.clear();
+        long pausedNanos = pausedSince.stop(paused);
+        pausedSince = null;
+        log.debug("Send window drained to {} records after {} ms, resumed", inFlight.get(), pausedNanos / 1_000_000);
+    }
+
+    /**
+     * The acknowledgment chain of one consumer. {@link #tail} and {@link #recovering} are only touched on the consumer
+     * thread; a failure is reported from producer threads and tagged with the generation it belongs to, so failures
+     * of polls sent before a rewind do not trigger another one.
+     */
+    private static final class Lane {
+
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private long generation;
+        private Throwable failure;
+        private boolean recovering;
+
+        synchronized void fail(long failedGeneration, Throwable error) {
+            if (failedGeneration == generation && failure == null) {
+                failure = error;
+            }
+        }
+
+        /**
+         * Starts a new generation if this lane failed, returning the failure.
+         */
+        synchronized Throwable reset() {
+            Throwable failed = failure;
+            if (failed != null) {
+                failure = null;
+                generation++;
+                tail = CompletableFuture.completedFuture(null);
+            }
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.turtrack.dataprocessorservice.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-record payload logging, kept off the listener hot path. With DEBUG enabled for this logger every payload is
+ * logged; otherwise only a {@code payload-sample-rate} fraction of records is, at INFO. At the default rate of 0 and
+ * production log levels nothing is built per record. Payloads are cut to {@code payload-max-chars}.
+ */
+@Slf4j
+@Component
+public class PayloadLogger {
+
+    private final double sampleRate;
+    private final int maxChars;
+
+    public PayloadLogger(@Value("${turtrack.processor.logging.payload-sample-rate:0}") double sampleRate,
+                         @Value("${turtrack.processor.logging.payload-max-chars:2048}") int maxChars) {
+        this.sampleRate = sampleRate;
+        this.maxChars = maxChars;
+    }
+
+    public void log(String topic, List<ConsumerRecord<String, byte[]>> records) {
+        if (log.isDebugEnabled()) {
+            for (ConsumerRecord<String, byte[]> record : records) {
+                log.debug("payload topic={} partition={} offset={} key={} bytes={} value={}", topic, record.partition(),
+                        record.offset(), record.key(), length(record.value()), truncate(record.value()));
+            }
+            return;
+        }
+        if (sampleRate <= 0 || !log.isInfoEnabled()) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            if (random.nextDouble() < sampleRate) {
+                log.info("sampled payload topic={} partition={} offset={} key={} bytes={} value={}", topic, record.partition(),
+                        record.offset(), record.key(), length(record.value()), truncate(record.value()));
+            }
+        }
+    }
+
+    String truncate(byte[] value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value.length <= maxChars) {
+            return new String(value, StandardCharsets.UTF_8);
+        }
+        return new String(value, 0, maxChars, StandardCharsets.UTF_8) + "...";
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+}
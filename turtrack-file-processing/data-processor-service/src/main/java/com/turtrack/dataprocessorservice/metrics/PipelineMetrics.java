@@ -0,0 +1,96 @@
+package com.turtrack.dataprocessorservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the processor stages, tagged by topic. Everything is recorded once per poll batch, never per record,
+ * so the overhead stays constant however large the batches get.
+ * <ul>
+ *     <li>{@code turtrack.processor.records{topic, direction}} - records consumed ({@code in}) and produced ({@code out})</li>
+ *     <li>{@code turtrack.processor.batch.size{topic}} - records per poll</li>
+ *     <li>{@code turtrack.processor.extract{topic}} - extraction of a poll batch</li>
+ *     <li>{@code turtrack.processor.extract.failures{topic}} - records whose payload could not be extracted, dead-lettered</li>
+ *     <li>{@code turtrack.processor.produce.ack{topic}} - first send of a batch until the broker acked all of them</li>
+ * </ul>
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TopicMeters> topicMeters = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordPoll(String topic, int records) {
+        TopicMeters meters = meters(topic);
+        meters.recordsIn.increment(records);
+        meters.batchSize.record(records);
+    }
+
+    /**
+     * Times the extraction of one poll batch.
+     */
+    public <T> T timeExtract(String topic, Supplier<T> extraction) {
+        TopicMeters meters = meters(topic);
+        long start = System.nanoTime();
+        try {
+            return extraction.get();
+        } finally {
+            meters.extract.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void extractFailed(String topic) {
+        meters(topic).extractFailures.increment();
+    }
+
+    /**
+     * Records {@code records} produced to {@code topic} and times {@code sends} until the last ack.
+     */
+    public CompletableFuture<Void> timeProduceAck(String topic, int records, CompletableFuture<Void> sends) {
+        TopicMeters meters = meters(topic);
+        meters.recordsOut.increment(records);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return sends.whenComplete((result, error) -> sample.stop(meters.produceAck));
+    }
+
+    private TopicMeters meters(String topic) {
+        return topicMeters.computeIfAbsent(topic, t -> new TopicMeters(t, meterRegistry));
+    }
+
+    private static final class TopicMeters {
+        private final Counter recordsIn;
+        private final Counter recordsOut;
+        private final DistributionSummary batchSize;
+        private final Timer extract;
+        private final Counter extractFailures;
+        private final Timer produceAck;
+
+        private TopicMeters(String topic, MeterRegistry meterRegistry) {
+            recordsIn = Counter.builder("turtrack.processor.records").tags("topic", topic, "direction", "in").register(meterRegistry);
+            recordsOut = Counter.builder("turtrack.processor.records").tags("topic", topic, "direction", "out").register(meterRegistry);
+            batchSize = DistributionSummary.builder("turtrack.processor.batch.size").tag("topic", topic)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            extract = Timer.builder("turtrack.processor.extract").tag("topic", topic)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            extractFailures = Counter.builder("turtrack.processor.extract.failures").tag("topic", topic).register(meterRegistry);
+            produceAck = Timer.builder("turtrack.processor.produce.ack").tag("topic", topic)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.turtrack.dataprocessorservice.model;
+
+import com.turtrack.common.wire.DailyRateCalendarBlockWire;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * A run of consecutive days of one vehicle's calendar, stored column-wise: day {@code i} is
+ * {@code startDate + i} and its values are at index {@code i} of every array.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyRateCalendarBlock {
+
+    // Flag bits of a day, as on the wire
+    public static final int CUSTOM = DailyRateCalendarBlockWire.CUSTOM;
+    public static final int PRICE_EDITABLE = DailyRateCalendarBlockWire.PRICE_EDITABLE;
+    public static final int WHOLE_DAY_UNAVAILABLE = DailyRateCalendarBlockWire.WHOLE_DAY_UNAVAILABLE;
+
+    private Long vehicleId;
+    private LocalDate startDate;
+    private double[] prices;
+    private int[] flags;
+    private String[] currencyCodes;
+}
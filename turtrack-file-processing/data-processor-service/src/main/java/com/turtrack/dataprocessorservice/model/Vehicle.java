@@ -14,23 +14,4 @@ public class Vehicle {
     private String city;
     private String state;
     private Double averageDailyPrice;
-
-    // Getters and setters for all fields
-    // ...
-
-    @Override
-    public String toString() {
-        return "Vehicle{" +
-                "id='" + id + '\'' +
-                ", make='" + make + '\'' +
-                ", model='" + model + '\'' +
-                ", year=" + year +
-                ", trim='" + trim + '\'' +
-                ", type='" + type + '\'' +
-                ", registrationState='" + registrationState + '\'' +
-                ", city='" + city + '\'' +
-                ", state='" + state + '\'' +
-                ", averageDailyPrice=" + averageDailyPrice +
-                '}';
-    }
-}
\ No newline at end of file
+}
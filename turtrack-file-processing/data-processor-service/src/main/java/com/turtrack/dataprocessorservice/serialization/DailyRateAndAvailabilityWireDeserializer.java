@@ -0,0 +1,54 @@
+package com.turtrack.dataprocessorservice.serialization;
+
+import com.turtrack.common.wire.DailyRateWire;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.common.wire.WireReader;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.time.LocalDate;
+
+import static com.turtrack.common.wire.DailyRateWire.*;
+
+/**
+ * Decodes {@link WireFormat#SCHEMA_DAILY_RATE} records written by {@link DailyRateAndAvailabilityWireSerializer}.
+ */
+public class DailyRateAndAvailabilityWireDeserializer implements Deserializer<DailyRateAndAvailability> {
+
+    @Override
+    public DailyRateAndAvailability deserialize(String topic, byte[] data) {
+        return data == null ? null : decode(data);
+    }
+
+    public static DailyRateAndAvailability decode(byte[] payload) {
+        WireReader reader = new WireReader(payload);
+        DailyRateWire.readHeader(reader);
+        int presence = reader.readByte();
+        int flags = reader.readByte();
+
+        DailyRateAndAvailability dailyRate = new DailyRateAndAvailability();
+        if ((presence & HAS_VEHICLE_ID) != 0) {
+            dailyRate.setVehicleId(reader.readVarLong());
+        }
+        if ((presence & HAS_DATE) != 0) {
+            dailyRate.setDate(LocalDate.ofEpochDay(reader.readZigZagLong()));
+        }
+        if ((presence & HAS_PRICE) != 0) {
+            dailyRate.setPrice(WireFormat.fromCents(reader.readZigZagLong()));
+        }
+        if ((presence & HAS_CUSTOM) != 0) {
+            dailyRate.setCustom((flags & CUSTOM) != 0);
+        }
+        if ((presence & HAS_PRICE_EDITABLE) != 0) {
+            dailyRate.setPriceEditable((flags & PRICE_EDITABLE) != 0);
+        }
+        if ((presence & HAS_WHOLE_DAY_UNAVAILABLE) != 0) {
+            dailyRate.setWholeDayUnavailable((flags & WHOLE_DAY_UNAVAILABLE) != 0);
+        }
+        dailyRate.setLocalizedDayOfWeek(reader.readDictionaryString(WireFormat.DAYS_OF_WEEK));
+        dailyRate.setLocalizedShortDayOfWeek(reader.readDictionaryString(WireFormat.SHORT_DAYS_OF_WEEK));
+        dailyRate.setCurrencyCode(reader.readDictionaryString(WireFormat.CURRENCY_CODES));
+        dailyRate.setSource(reader.readDictionaryString(WireFormat.NO_DICTIONARY));
+        return dailyRate;
+    }
+}
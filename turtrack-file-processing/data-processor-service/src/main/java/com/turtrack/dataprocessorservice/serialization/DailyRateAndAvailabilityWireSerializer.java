@@ -0,0 +1,66 @@
+package com.turtrack.dataprocessorservice.serialization;
+
+import com.turtrack.common.wire.DailyRateWire;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.common.wire.WireWriter;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import org.apache.kafka.common.serialization.Serializer;
+
+import static com.turtrack.common.wire.DailyRateWire.*;
+
+/**
+ * Encodes a {@link DailyRateAndAvailability} as a {@link WireFormat#SCHEMA_DAILY_RATE} record, see {@link DailyRateWire}.
+ */
+public class DailyRateAndAvailabilityWireSerializer implements Serializer<DailyRateAndAvailability> {
+
+    @Override
+    public byte[] serialize(String topic, DailyRateAndAvailability dailyRate) {
+        return dailyRate == null ? null : encode(dailyRate);
+    }
+
+    public static byte[] encode(DailyRateAndAvailability dailyRate) {
+        int presence = 0;
+        int flags = 0;
+        if (dailyRate.getVehicleId() != null) {
+            presence |= HAS_VEHICLE_ID;
+        }
+        if (dailyRate.getDate() != null) {
+            presence |= HAS_DATE;
+        }
+        if (dailyRate.getPrice() != null) {
+            presence |= HAS_PRICE;
+        }
+        if (dailyRate.getCustom() != null) {
+            presence |= HAS_CUSTOM;
+            flags |= dailyRate.getCustom() ? CUSTOM : 0;
+        }
+        if (dailyRate.getPriceEditable() != null) {
+            presence |= HAS_PRICE_EDITABLE;
+            flags |= dailyRate.getPriceEditable() ? PRICE_EDITABLE : 0;
+        }
+        if (dailyRate.getWholeDayUnavailable() != null) {
+            presence |= HAS_WHOLE_DAY_UNAVAILABLE;
+            flags |= dailyRate.getWholeDayUnavailable() ? WHOLE_DAY_UNAVAILABLE : 0;
+        }
+
+        WireWriter writer = new WireWriter(32)
+                .header(WireFormat.SCHEMA_DAILY_RATE)
+                .writeByte(presence)
+                .writeByte(flags);
+        if (dailyRate.getVehicleId() != null) {
+            writer.writeVarLong(dailyRate.getVehicleId());
+        }
+        if (dailyRate.getDate() != null) {
+            writer.writeZigZagLong(dailyRate.getDate().toEpochDay());
+        }
+        if (dailyRate.getPrice() != null) {
+            writer.writeZigZagLong(WireFormat.toCents(dailyRate.getPrice()));
+        }
+        return writer
+                .writeDictionaryString(WireFormat.DAYS_OF_WEEK, dailyRate.getLocalizedDayOfWeek())
+                .writeDictionaryString(WireFormat.SHORT_DAYS_OF_WEEK, dailyRate.getLocalizedShortDayOfWeek())
+                .writeDictionaryString(WireFormat.CURRENCY_CODES, dailyRate.getCurrencyCode())
+                .writeDictionaryString(WireFormat.NO_DICTIONARY, dailyRate.getSource())
+                .toByteArray();
+    }
+}
@@ -0,0 +1,38 @@
+package com.turtrack.dataprocessorservice.serialization;
+
+import com.turtrack.common.wire.DailyRateCalendarBlockWire;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.common.wire.WireReader;
+import com.turtrack.dataprocessorservice.model.DailyRateCalendarBlock;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.time.LocalDate;
+
+/**
+ * Decodes {@link WireFormat#SCHEMA_DAILY_RATE_CALENDAR_BLOCK} records written by {@link DailyRateCalendarBlockWireSerializer}.
+ */
+public class DailyRateCalendarBlockWireDeserializer implements Deserializer<DailyRateCalendarBlock> {
+
+    @Override
+    public DailyRateCalendarBlock deserialize(String topic, byte[] data) {
+        return data == null ? null : decode(data);
+    }
+
+    public static DailyRateCalendarBlock decode(byte[] payload) {
+        WireReader reader = new WireReader(payload);
+        DailyRateCalendarBlockWire.readHeader(reader);
+        long vehicleId = reader.readVarLong();
+        LocalDate startDate = LocalDate.ofEpochDay(reader.readZigZagLong());
+        int days = DailyRateCalendarBlockWire.readDayCount(reader, payload.length);
+
+        double[] prices = new double[days];
+        int[] flags = new int[days];
+        String[] currencyCodes = new String[days];
+        for (int i = 0; i < days; i++) {
+            prices[i] = WireFormat.fromCents(reader.readZigZagLong());
+            flags[i] = reader.readByte();
+            currencyCodes[i] = reader.readDictionaryString(WireFormat.CURRENCY_CODES);
+        }
+        return new DailyRateCalendarBlock(vehicleId, startDate, prices, flags, currencyCodes);
+    }
+}
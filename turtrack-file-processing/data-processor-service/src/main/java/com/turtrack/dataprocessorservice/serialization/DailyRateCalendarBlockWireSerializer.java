@@ -0,0 +1,34 @@
+package com.turtrack.dataprocessorservice.serialization;
+
+import com.turtrack.common.wire.DailyRateCalendarBlockWire;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.common.wire.WireWriter;
+import com.turtrack.dataprocessorservice.model.DailyRateCalendarBlock;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Encodes a {@link DailyRateCalendarBlock} as a {@link WireFormat#SCHEMA_DAILY_RATE_CALENDAR_BLOCK} record, see
+ * {@link DailyRateCalendarBlockWire}.
+ */
+public class DailyRateCalendarBlockWireSerializer implements Serializer<DailyRateCalendarBlock> {
+
+    @Override
+    public byte[] serialize(String topic, DailyRateCalendarBlock block) {
+        return block == null ? null : encode(block);
+    }
+
+    public static byte[] encode(DailyRateCalendarBlock block) {
+        int days = block.getPrices().length;
+        WireWriter writer = new WireWriter(16 + days * 4)
+                .header(WireFormat.SCHEMA_DAILY_RATE_CALENDAR_BLOCK)
+                .writeVarLong(block.getVehicleId())
+                .writeZigZagLong(block.getStartDate().toEpochDay())
+                .writeVarLong(days);
+        for (int i = 0; i < days; i++) {
+            writer.writeZigZagLong(WireFormat.toCents(block.getPrices()[i]))
+                    .writeByte(block.getFlags()[i])
+                    .writeDictionaryString(WireFormat.CURRENCY_CODES, block.getCurrencyCodes()[i]);
+        }
+        return writer.toByteArray();
+    }
+}
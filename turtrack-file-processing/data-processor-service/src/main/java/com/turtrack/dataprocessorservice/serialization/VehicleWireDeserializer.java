@@ -0,0 +1,44 @@
+package com.turtrack.dataprocessorservice.serialization;
+
+import com.turtrack.common.wire.VehicleWire;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.common.wire.WireReader;
+import com.turtrack.dataprocessorservice.model.Vehicle;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import static com.turtrack.common.wire.VehicleWire.HAS_AVERAGE_DAILY_PRICE;
+import static com.turtrack.common.wire.VehicleWire.HAS_ID;
+
+/**
+ * Decodes {@link WireFormat#SCHEMA_VEHICLE} records written by {@link VehicleWireSerializer}.
+ */
+public class VehicleWireDeserializer implements Deserializer<Vehicle> {
+
+    @Override
+    public Vehicle deserialize(String topic, byte[] data) {
+        return data == null ? null : decode(data);
+    }
+
+    public static Vehicle decode(byte[] payload) {
+        WireReader reader = new WireReader(payload);
+        VehicleWire.readHeader(reader);
+        int presence = reader.readByte();
+
+        Vehicle vehicle = new Vehicle();
+        if ((presence & HAS_ID) != 0) {
+            vehicle.setId((int) reader.readZigZagLong());
+        }
+        vehicle.setYear((int) reader.readZigZagLong());
+        if ((presence & HAS_AVERAGE_DAILY_PRICE) != 0) {
+            vehicle.setAverageDailyPrice(WireFormat.fromCents(reader.readZigZagLong()));
+        }
+        vehicle.setMake(reader.readDictionaryString(WireFormat.NO_DICTIONARY));
+        vehicle.setModel(reader.readDictionaryString(WireFormat.NO_DICTIONARY));
+        vehicle.setTrim(reader.readDictionaryString(WireFormat.NO_DICTIONARY));
+        vehicle.setType(reader.readDictionaryString(WireFormat.VEHICLE_TYPES));
+        vehicle.setRegistrationState(reader.readDictionaryString(WireFormat.NO_DICTIONARY));
+        vehicle.setCity(reader.readDictionaryString(WireFormat.NO_DICTIONARY));
+        vehicle.setState(reader.readDictionaryString(WireFormat.NO_DICTIONARY));
+        return vehicle;
+    }
+}
@@ -0,0 +1,51 @@
+package com.turtrack.dataprocessorservice.serialization;
+
+import com.turtrack.common.wire.VehicleWire;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.common.wire.WireWriter;
+import com.turtrack.dataprocessorservice.model.Vehicle;
+import org.apache.kafka.common.serialization.Serializer;
+
+import static com.turtrack.common.wire.VehicleWire.HAS_AVERAGE_DAILY_PRICE;
+import static com.turtrack.common.wire.VehicleWire.HAS_ID;
+
+/**
+ * Encodes a {@link Vehicle} as a {@link WireFormat#SCHEMA_VEHICLE} record, see {@link VehicleWire}.
+ */
+public class VehicleWireSerializer implements Serializer<Vehicle> {
+
+    @Override
+    public byte[] serialize(String topic, Vehicle vehicle) {
+        return vehicle == null ? null : encode(vehicle);
+    }
+
+    public static byte[] encode(Vehicle vehicle) {
+        int presence = 0;
+        if (vehicle.getId() != null) {
+            presence |= HAS_ID;
+        }
+        if (vehicle.getAverageDailyPrice() != null) {
+            presence |= HAS_AVERAGE_DAILY_PRICE;
+        }
+
+        WireWriter writer = new WireWriter(64)
+                .header(WireFormat.SCHEMA_VEHICLE)
+                .writeByte(presence);
+        if (vehicle.getId() != null) {
+            writer.writeZigZagLong(vehicle.getId());
+        }
+        writer.writeZigZagLong(vehicle.getYear());
+        if (vehicle.getAverageDailyPrice() != null) {
+            writer.writeZigZagLong(WireFormat.toCents(vehicle.getAverageDailyPrice()));
+        }
+        return writer
+                .writeDictionaryString(WireFormat.NO_DICTIONARY, vehicle.getMake())
+                .writeDictionaryString(WireFormat.NO_DICTIONARY, vehicle.getModel())
+                .writeDictionaryString(WireFormat.NO_DICTIONARY, vehicle.getTrim())
+                .writeDictionaryString(WireFormat.VEHICLE_TYPES, vehicle.getType())
+                .writeDictionaryString(WireFormat.NO_DICTIONARY, vehicle.getRegistrationState())
+                .writeDictionaryString(WireFormat.NO_DICTIONARY, vehicle.getCity())
+                .writeDictionaryString(WireFormat.NO_DICTIONARY, vehicle.getState())
+                .toByteArray();
+    }
+}
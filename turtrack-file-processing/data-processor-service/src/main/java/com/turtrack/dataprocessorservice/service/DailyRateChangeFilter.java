@@ -0,0 +1,102 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.turtrack.common.metrics.PipelineHeaders;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Forwards a day only if its state differs from the last one seen for the same (vehicleId, date), and remembers it.
+ * <p>
+ * Store key: vehicleId in the upper 40 bits, epoch day in the lower 24. Store value: price in cents shifted left by
+ * two, with the unavailable and custom flags in the low bits. The encoding is the one of the persistor's
+ * DailyRateDeltaTracker, so both detect the same changes. Past days are never re-crawled and are deleted once a day.
+ */
+@Slf4j
+class DailyRateChangeFilter implements FixedKeyProcessor<String, DailyRateAndAvailability, DailyRateAndAvailability> {
+
+    private static final int EPOCH_DAY_BITS = 24;
+    private static final long MAX_VEHICLE_ID = (1L << (63 - EPOCH_DAY_BITS)) - 1;
+    private static final Duration PRUNE_INTERVAL = Duration.ofDays(1);
+
+    private final String storeName;
+    private final Counter changedDays;
+    private final Counter unchangedDays;
+
+    private FixedKeyProcessorContext<String, DailyRateAndAvailability> context;
+    private KeyValueStore<Long, Long> lastSeen;
+
+    DailyRateChangeFilter(String storeName, MeterRegistry meterRegistry) {
+        this.storeName = storeName;
+        this.changedDays = Counter.builder("turtrack.processor.daily-rate.delta").tag("result", "changed").register(meterRegistry);
+        this.unchangedDays = Counter.builder("turtrack.processor.daily-rate.delta").tag("result", "unchanged").register(meterRegistry);
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, DailyRateAndAvailability> context) {
+        this.context = context;
+        this.lastSeen = context.getStateStore(storeName);
+        context.schedule(PRUNE_INTERVAL, PunctuationType.WALL_CLOCK_TIME, timestamp -> prunePastDays());
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, DailyRateAndAvailability> record) {
+        DailyRateAndAvailability day = record.value();
+        // Vehicle ids beyond the key range are not tracked, their days always count as changed
+        if (day.getVehicleId() >= 0 && day.getVehicleId() <= MAX_VEHICLE_ID) {
+            long key = key(day.getVehicleId(), day.getDate());
+            long state = state(day);
+            Long previous = lastSeen.get(key);
+            if (previous != null && previous == state) {
+                unchangedDays.increment();
+                return;
+            }
+            lastSeen.put(key, state);
+        }
+        changedDays.increment();
+
+        long scrapedAt = PipelineHeaders.readScrapedAt(record.headers());
+        context.forward(record.withHeaders(PipelineHeaders.scrapedAtHeaders(scrapedAt > 0 ? scrapedAt : record.timestamp())));
+    }
+
+    void prunePastDays() {
+        long today = LocalDate.now().toEpochDay();
+        long epochDayMask = (1L << EPOCH_DAY_BITS) - 1;
+        long pruned = 0;
+        // Deleting while iterating is safe: the iterator reads a snapshot of the store
+        try (KeyValueIterator<Long, Long> all = lastSeen.all()) {
+            while (all.hasNext()) {
+                KeyValue<Long, Long> entry = all.next();
+                if ((entry.key & epochDayMask) < today) {
+                    lastSeen.delete(entry.key);
+                    pruned++;
+                }
+            }
+        }
+        log.info("Pruned {} past days from {}", pruned, storeName);
+    }
+
+    static long key(long vehicleId, LocalDate date) {
+        if (vehicleId < 0 || vehicleId > MAX_VEHICLE_ID) {
+            throw new IllegalArgumentException("Vehicle id out of trackable range: " + vehicleId);
+        }
+        return (vehicleId << EPOCH_DAY_BITS) | date.toEpochDay();
+    }
+
+    static long state(DailyRateAndAvailability day) {
+        return (Math.round(day.getPrice() * 100) << 2)
+                | (Boolean.TRUE.equals(day.getWholeDayUnavailable()) ? 2 : 0)
+                | (Boolean.TRUE.equals(day.getCustom()) ? 1 : 0);
+    }
+}
@@ -1,54 +1,178 @@
 package com.turtrack.dataprocessorservice.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.dataprocessorservice.config.DailyRateOutput;
+import com.turtrack.dataprocessorservice.config.ExtractionMode;
+import com.turtrack.common.deadletter.DeadLetterRouter;
+import com.turtrack.common.metrics.PipelineHeaders;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
 import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.model.DailyRateCalendarBlock;
+import com.turtrack.common.util.IsoDates;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class DailyRateProcessingService {
 
+    private static final TypeReference<Map<String, Object>> MESSAGE_TYPE = new TypeReference<>() {
+    };
+
+    static final String SOURCE_TOPIC = "vehicle-daily-rate-and-availability-topic";
+    static final String OUTPUT_TOPIC = "processed-vehicle-daily-rate-and-availability-topic";
+    static final String CALENDAR_OUTPUT_TOPIC = "processed-vehicle-daily-rate-calendar-topic";
+
     private final KafkaTemplate<String, DailyRateAndAvailability> dailyRateAndAvailabilityKafkaTemplate;
+    private final ObjectMapper jsonObjectMapper;
+    private final StreamingPayloadExtractor streamingPayloadExtractor;
+    private final KafkaTemplate<String, DailyRateCalendarBlock> dailyRateCalendarBlockKafkaTemplate;
+    private final PipelineMetrics pipelineMetrics;
+    private final DeadLetterRouter deadLetterRouter;
+    private final ParallelDayMapper parallelDayMapper;
+
+    @Value("${turtrack.processor.extraction-mode:MAP}")
+    private ExtractionMode extractionMode;
+
+    @Value("${turtrack.processor.daily-rate-output:PER_DAY}")
+    private DailyRateOutput dailyRateOutput;
 
-    public void processAndForwardDailyRates(Map<String, Object> message) {
-        Long vehicleId = extractVehicleId(message);
-        List<DailyRateAndAvailability> dailyRates = extractDailyRates(message, vehicleId);
-        for (DailyRateAndAvailability dailyRate : dailyRates) {
-            forwardDailyRate(dailyRate);
+    /**
+     * Extracts every calendar in the poll batch before sending anything, then sends all records as one burst.
+     * Records whose payload cannot be extracted are dead-lettered and the rest of the batch is forwarded.
+     */
+    public ForwardedBatch processAndForwardDailyRates(List<ConsumerRecord<String, byte[]>> records) {
+        List<List<DailyRateAndAvailability>> calendars = pipelineMetrics.timeExtract(SOURCE_TOPIC, () -> {
+            List<List<DailyRateAndAvailability>> extracted = new ArrayList<>(records.size());
+            for (ConsumerRecord<String, byte[]> record : records) {
+                List<DailyRateAndAvailability> calendar = deadLetterRouter.decodeOrDeadLetter(record, this::extractDailyRates);
+                extracted.add(calendar == null ? List.of() : calendar);
+            }
+            return extracted;
+        });
+
+        if (dailyRateOutput == DailyRateOutput.CALENDAR_BLOCK) {
+            return forwardCalendarBlocks(records, calendars);
+        }
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        for (int i = 0; i < calendars.size(); i++) {
+            long scrapedAt = PipelineHeaders.scrapedAt(records.get(i));
+            for (DailyRateAndAvailability dailyRate : calendars.get(i)) {
+                sends.add(forwardDailyRate(dailyRate, scrapedAt));
+            }
         }
+        return new ForwardedBatch(sends.size(), pipelineMetrics.timeProduceAck(OUTPUT_TOPIC, sends.size(), allOf(sends)));
     }
 
-    private List<DailyRateAndAvailability> extractDailyRates(Map<String, Object> message, Long vehicleId) {
-        List<DailyRateAndAvailability> dailyRates = new ArrayList<>();
-        List<Map<String, Object>> dailyPricingResponses = (List<Map<String, Object>>) message.get("dailyPricingResponses");
+    private ForwardedBatch forwardCalendarBlocks(List<ConsumerRecord<String, byte[]>> records,
+                                                          List<List<DailyRateAndAvailability>> calendars) {
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        for (int i = 0; i < calendars.size(); i++) {
+            long scrapedAt = PipelineHeaders.scrapedAt(records.get(i));
+            for (DailyRateCalendarBlock block : toCalendarBlocks(calendars.get(i))) {
+                sends.add(forwardCalendarBlock(block, scrapedAt));
+            }
+        }
+        return new ForwardedBatch(sends.size(), pipelineMetrics.timeProduceAck(CALENDAR_OUTPUT_TOPIC, sends.size(), allOf(sends)));
+    }
+
+    private static CompletableFuture<Void> allOf(List<CompletableFuture<?>> sends) {
+        return CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Packs one vehicle's calendar into blocks of consecutive days. A missing day (or a day without a date
+     * or price) ends the current block. Unset flags are written as false, as the persistor stores them.
+     */
+    static List<DailyRateCalendarBlock> toCalendarBlocks(List<DailyRateAndAvailability> calendar) {
+        List<DailyRateAndAvailability> days = calendar.stream()
+                .filter(day -> day.getVehicleId() != null && day.getDate() != null && day.getPrice() != null)
+                .sorted(Comparator.comparing(DailyRateAndAvailability::getVehicleId)
+                        .thenComparing(DailyRateAndAvailability::getDate))
+                .toList();
+
+        List<DailyRateCalendarBlock> blocks = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= days.size(); i++) {
+            if (i == days.size() || !continuesBlock(days.get(i - 1), days.get(i))) {
+                blocks.add(toCalendarBlock(days.subList(start, i)));
+                start = i;
+            }
+        }
+        return blocks;
+    }
+
+    private static boolean continuesBlock(DailyRateAndAvailability previous, DailyRateAndAvailability day) {
+        return previous.getVehicleId().equals(day.getVehicleId())
+                && previous.getDate().plusDays(1).equals(day.getDate());
+    }
 
-        for (Map<String, Object> dailyPricing : dailyPricingResponses) {
-            DailyRateAndAvailability dailyRate = new DailyRateAndAvailability();
-            dailyRate.setVehicleId(vehicleId);
-            dailyRate.setDate(LocalDate.parse((String) dailyPricing.get("date")));
-            dailyRate.setCustom((Boolean) dailyPricing.get("custom"));
-            dailyRate.setLocalizedDayOfWeek((String) dailyPricing.get("localizedDayOfWeek"));
-            dailyRate.setLocalizedShortDayOfWeek((String) dailyPricing.get("localizedShortDayOfWeek"));
-            dailyRate.setPrice(convertToDouble(dailyPricing.get("price")));
-            dailyRate.setPriceEditable((Boolean) dailyPricing.get("priceEditable"));
-            Map<String, Object> priceWithCurrency = (Map<String, Object>) dailyPricing.get("priceWithCurrency");
-            dailyRate.setCurrencyCode((String) priceWithCurrency.get("currencyCode"));
-            dailyRate.setSource((String) dailyPricing.get("source"));
-            dailyRate.setWholeDayUnavailable((Boolean) dailyPricing.get("wholeDayUnavailable"));
-
-            dailyRates.add(dailyRate);
+    private static DailyRateCalendarBlock toCalendarBlock(List<DailyRateAndAvailability> days) {
+        double[] prices = new double[days.size()];
+        int[] flags = new int[days.size()];
+        String[] currencyCodes = new String[days.size()];
+        for (int i = 0; i < days.size(); i++) {
+            DailyRateAndAvailability day = days.get(i);
+            prices[i] = day.getPrice();
+            flags[i] = (Boolean.TRUE.equals(day.getCustom()) ? DailyRateCalendarBlock.CUSTOM : 0)
+                    | (Boolean.TRUE.equals(day.getPriceEditable()) ? DailyRateCalendarBlock.PRICE_EDITABLE : 0)
+                    | (Boolean.TRUE.equals(day.getWholeDayUnavailable()) ? DailyRateCalendarBlock.WHOLE_DAY_UNAVAILABLE : 0);
+            currencyCodes[i] = day.getCurrencyCode();
         }
+        DailyRateAndAvailability first = days.get(0);
+        return new DailyRateCalendarBlock(first.getVehicleId(), first.getDate(), prices, flags, currencyCodes);
+    }
 
-        return dailyRates;
+    List<DailyRateAndAvailability> extractDailyRates(byte[] payload) {
+        try {
+            if (extractionMode == ExtractionMode.STREAMING) {
+                return streamingPayloadExtractor.extractDailyRates(payload);
+            }
+            Map<String, Object> message = jsonObjectMapper.readValue(payload, MESSAGE_TYPE);
+            return extractDailyRates(message, extractVehicleId(message));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed daily pricing payload", e);
+        }
+    }
+
+    /**
+     * Maps the days in payload order; large calendars are fanned out over the {@link ParallelDayMapper}.
+     */
+    List<DailyRateAndAvailability> extractDailyRates(Map<String, Object> message, Long vehicleId) {
+        List<Map<String, Object>> dailyPricingResponses = (List<Map<String, Object>>) message.get("dailyPricingResponses");
+        return parallelDayMapper.map(dailyPricingResponses, dailyPricing -> toDailyRate(dailyPricing, vehicleId));
+    }
+
+    private DailyRateAndAvailability toDailyRate(Map<String, Object> dailyPricing, Long vehicleId) {
+        DailyRateAndAvailability dailyRate = new DailyRateAndAvailability();
+        dailyRate.setVehicleId(vehicleId);
+        dailyRate.setDate(IsoDates.parse((String) dailyPricing.get("date")));
+        dailyRate.setCustom((Boolean) dailyPricing.get("custom"));
+        dailyRate.setLocalizedDayOfWeek((String) dailyPricing.get("localizedDayOfWeek"));
+        dailyRate.setLocalizedShortDayOfWeek((String) dailyPricing.get("localizedShortDayOfWeek"));
+        dailyRate.setPrice(convertToDouble(dailyPricing.get("price")));
+        dailyRate.setPriceEditable((Boolean) dailyPricing.get("priceEditable"));
+        Map<String, Object> priceWithCurrency = (Map<String, Object>) dailyPricing.get("priceWithCurrency");
+        dailyRate.setCurrencyCode((String) priceWithCurrency.get("currencyCode"));
+        dailyRate.setSource((String) dailyPricing.get("source"));
+        dailyRate.setWholeDayUnavailable((Boolean) dailyPricing.get("wholeDayUnavailable"));
+        return dailyRate;
     }
 
 
@@ -77,7 +201,13 @@ public class DailyRateProcessingService {
         throw new IllegalArgumentException("Cannot convert " + value + " to Double");
     }
 
-    private void forwardDailyRate(DailyRateAndAvailability dailyRate) {
-        dailyRateAndAvailabilityKafkaTemplate.send("processed-vehicle-daily-rate-and-availability-topic", dailyRate);
+    private CompletableFuture<SendResult<String, DailyRateAndAvailability>> forwardDailyRate(DailyRateAndAvailability dailyRate, long scrapedAt) {
+        return dailyRateAndAvailabilityKafkaTemplate.send(new ProducerRecord<>(OUTPUT_TOPIC, null,
+                String.valueOf(dailyRate.getVehicleId()), dailyRate, PipelineHeaders.scrapedAtHeaders(scrapedAt)));
+    }
+
+    private CompletableFuture<SendResult<String, DailyRateCalendarBlock>> forwardCalendarBlock(DailyRateCalendarBlock block, long scrapedAt) {
+        return dailyRateCalendarBlockKafkaTemplate.send(new ProducerRecord<>(CALENDAR_OUTPUT_TOPIC, null,
+                String.valueOf(block.getVehicleId()), block, PipelineHeaders.scrapedAtHeaders(scrapedAt)));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.turtrack.common.deadletter.DeadLetterRouter;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.serialization.DailyRateAndAvailabilityWireDeserializer;
+import com.turtrack.dataprocessorservice.serialization.DailyRateAndAvailabilityWireSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Branched;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.kstream.Repartitioned;
+import org.apache.kafka.streams.state.Stores;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The STREAMS processing engine for daily pricing: raw calendars in, changed days out.
+ * <ol>
+ *     <li>Each pricing payload is extracted into its calendar as on the listener path; payloads that cannot be
+ *     extracted go to the {@code .DLT} topic unchanged.</li>
+ *     <li>Days are re-keyed by vehicleId and repartitioned, so all days of a vehicle land in the same task.</li>
+ *     <li>{@link DailyRateChangeFilter} drops every day whose (price, availability, custom) matches the last one seen
+ *     for that vehicle and date in the task's RocksDB store, and forwards the rest to the processed topic.</li>
+ * </ol>
+ * Change detection thus moves off Postgres onto state that is sharded with the input partitions and restored from its
+ * changelog topic on rebalance.
+ */
+@Slf4j
+public class DailyRateTopology {
+
+    static final String STATE_STORE = "daily-rate-last-seen";
+    static final String REPARTITION = "daily-rate-by-vehicle";
+
+    private final DailyRateProcessingService dailyRateProcessingService;
+    private final PipelineMetrics pipelineMetrics;
+    private final MeterRegistry meterRegistry;
+    private final Serde<DailyRateAndAvailability> outputSerde;
+
+    public DailyRateTopology(DailyRateProcessingService dailyRateProcessingService, PipelineMetrics pipelineMetrics,
+                             MeterRegistry meterRegistry, Serde<DailyRateAndAvailability> outputSerde) {
+        this.dailyRateProcessingService = dailyRateProcessingService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.meterRegistry = meterRegistry;
+        this.outputSerde = outputSerde;
+    }
+
+    public KStream<String, DailyRateAndAvailability> build(StreamsBuilder builder) {
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(STATE_STORE), Serdes.Long(), Serdes.Long()));
+
+        Map<String, KStream<String, Extraction>> extracted = builder
+                .stream(DailyRateProcessingService.SOURCE_TOPIC, Consumed.with(Serdes.String(), Serdes.ByteArray()))
+                .mapValues(this::extract, Named.as("extract-calendar"))
+                .split(Named.as("extraction-"))
+                .branch((key, extraction) -> extraction.calendar() == null, Branched.as("failed"))
+                .defaultBranch(Branched.as("succeeded"));
+
+        extracted.get("extraction-failed")
+                .mapValues(Extraction::payload)
+                .to(DeadLetterRouter.deadLetterTopic(DailyRateProcessingService.SOURCE_TOPIC),
+                        Produced.with(Serdes.String(), Serdes.ByteArray()));
+
+        KStream<String, DailyRateAndAvailability> changed = extracted.get("extraction-succeeded")
+                .flatMap((key, extraction) -> byVehicle(extraction.calendar()), Named.as("key-by-vehicle"))
+                .repartition(Repartitioned.with(Serdes.String(), Serdes.serdeFrom(
+                        new DailyRateAndAvailabilityWireSerializer(), new DailyRateAndAvailabilityWireDeserializer()))
+                        .withName(REPARTITION))
+                .processValues(() -> new DailyRateChangeFilter(STATE_STORE, meterRegistry), Named.as("drop-unchanged-days"),
+                        STATE_STORE);
+        changed.to(DailyRateProcessingService.OUTPUT_TOPIC, Produced.with(Serdes.String(), outputSerde));
+        return changed;
+    }
+
+    private Extraction extract(byte[] payload) {
+        try {
+            return new Extraction(payload, dailyRateProcessingService.extractDailyRates(payload));
+        } catch (RuntimeException e) {
+            log.warn("Dead-lettering daily pricing payload of {} bytes: {}", payload == null ? 0 : payload.length, e.toString());
+            pipelineMetrics.extractFailed(DailyRateProcessingService.SOURCE_TOPIC);
+            return new Extraction(payload, null);
+        }
+    }
+
+    /**
+     * Days without vehicleId, date or price cannot be compared or persisted and are dropped.
+     */
+    private static List<KeyValue<String, DailyRateAndAvailability>> byVehicle(List<DailyRateAndAvailability> calendar) {
+        return calendar.stream()
+                .filter(day -> day.getVehicleId() != null && day.getDate() != null && day.getPrice() != null)
+                .map(day -> KeyValue.pair(String.valueOf(day.getVehicleId()), day))
+                .toList();
+    }
+
+    /**
+     * A pricing payload with its calendar, or a null calendar if it could not be extracted.
+     */
+    record Extraction(byte[] payload, List<DailyRateAndAvailability> calendar) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.turtrack.dataprocessorservice.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The output of one poll batch on its way to the broker: how many records were sent, and a future completing
+ * once the broker has acked every one of them (exceptionally if any send failed).
+ */
+public record ForwardedBatch(int records, CompletableFuture<Void> acked) {
+}
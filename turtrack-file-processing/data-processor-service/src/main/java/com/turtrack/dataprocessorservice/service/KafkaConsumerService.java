@@ -1,10 +1,16 @@
 package com.turtrack.dataprocessorservice.service;
 
+import com.turtrack.dataprocessorservice.flowcontrol.SendWindow;
+import com.turtrack.dataprocessorservice.metrics.PayloadLogger;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -12,16 +18,35 @@ public class KafkaConsumerService {
 
     private final VehicleProcessingService vehicleProcessingService;
     private final DailyRateProcessingService dailyRateProcessingService;
+    private final PipelineMetrics pipelineMetrics;
+    private final PayloadLogger payloadLogger;
+    private final SendWindow sendWindow;
 
-    @KafkaListener(topics = "vehicle-detail-topic", groupId = "turtrack-group")
-    public void consumeVehicles(Map<String, Object> message) {
-        System.out.println("Received vehicle message: " + message);
-        vehicleProcessingService.processAndForwardVehicle(message);
+    @KafkaListener(topics = VehicleProcessingService.SOURCE_TOPIC, groupId = "turtrack-group")
+    public void consumeVehicles(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment,
+                                Consumer<?, ?> consumer) {
+        if (sendWindow.rewindIfFailed(consumer)) {
+            return;
+        }
+        pipelineMetrics.recordPoll(VehicleProcessingService.SOURCE_TOPIC, records.size());
+        payloadLogger.log(VehicleProcessingService.SOURCE_TOPIC, records);
+        ForwardedBatch batch = vehicleProcessingService.processAndForwardVehicles(records);
+        sendWindow.acknowledgeWhenAcked(consumer, batch.records(), batch.acked(), acknowledgment);
     }
 
-    @KafkaListener(topics = "vehicle-daily-rate-and-availability-topic", groupId = "turtrack-group")
-    public void consumePricing(Map<String, Object> message) {
-        System.out.println("Received pricing message: " + message);
-        dailyRateProcessingService.processAndForwardDailyRates(message);
+    /**
+     * Stays stopped when the STREAMS engine processes the pricing topic instead, see DailyRateTopology.
+     */
+    @KafkaListener(topics = DailyRateProcessingService.SOURCE_TOPIC, groupId = "turtrack-group",
+            autoStartup = "#{'${turtrack.processor.engine:LISTENER}' != 'STREAMS'}")
+    public void consumePricing(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment,
+                               Consumer<?, ?> consumer) {
+        if (sendWindow.rewindIfFailed(consumer)) {
+            return;
+        }
+        pipelineMetrics.recordPoll(DailyRateProcessingService.SOURCE_TOPIC, records.size());
+        payloadLogger.log(DailyRateProcessingService.SOURCE_TOPIC, records);
+        ForwardedBatch batch = dailyRateProcessingService.processAndForwardDailyRates(records);
+        sendWindow.acknowledgeWhenAcked(consumer, batch.records(), batch.acked(), acknowledgment);
     }
-}
\ No newline at end of file
+}
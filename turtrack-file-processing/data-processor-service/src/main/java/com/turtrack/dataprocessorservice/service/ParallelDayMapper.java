@@ -0,0 +1,85 @@
+package com.turtrack.dataprocessorservice.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Maps the days of one payload, fanned out in chunks of {@code chunk-days} over a bounded fork/join pool once the
+ * payload has at least {@code threshold-days} days. Smaller payloads are mapped on the calling thread, as the fan-out
+ * costs more than it saves on them. The result keeps the order of the input either way: the calling thread maps the
+ * first chunk itself, then joins the others in order.
+ */
+@Component
+public class ParallelDayMapper implements DisposableBean {
+
+    private final int thresholdDays;
+    private final int chunkDays;
+    private final ForkJoinPool pool;
+
+    /**
+     * A mapper that always stays on the calling thread.
+     */
+    public static ParallelDayMapper serial() {
+        return new ParallelDayMapper(0, Integer.MAX_VALUE, null);
+    }
+
+    @Autowired
+    public ParallelDayMapper(@Value("${turtrack.processor.parallel-extraction.threshold-days:0}") int thresholdDays,
+                             @Value("${turtrack.processor.parallel-extraction.chunk-days:256}") int chunkDays,
+                             @Value("${turtrack.processor.parallel-extraction.parallelism:0}") int parallelism) {
+        this(thresholdDays, chunkDays, thresholdDays > 0
+                ? new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors())
+                : null);
+    }
+
+    ParallelDayMapper(int thresholdDays, int chunkDays, ForkJoinPool pool) {
+        this.thresholdDays = thresholdDays;
+        this.chunkDays = chunkDays;
+        this.pool = pool;
+    }
+
+    public <S, T> List<T> map(List<S> days, Function<S, T> mapping) {
+        if (pool == null || days.size() < thresholdDays || days.size() <= chunkDays) {
+            return mapChunk(days, mapping);
+        }
+        List<ForkJoinTask<List<T>>> chunks = new ArrayList<>();
+        for (int from = chunkDays; from < days.size(); from += chunkDays) {
+            List<S> chunk = days.subList(from, Math.min(from + chunkDays, days.size()));
+            chunks.add(pool.submit(() -> mapChunk(chunk, mapping)));
+        }
+        List<T> mapped = new ArrayList<>(days.size());
+        try {
+            mapped.addAll(mapChunk(days.subList(0, chunkDays), mapping));
+            for (ForkJoinTask<List<T>> chunk : chunks) {
+                // Rethrows a chunk's RuntimeException, so a malformed day fails the payload as in serial mode
+                mapped.addAll(chunk.join());
+            }
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(false));
+        }
+        return mapped;
+    }
+
+    private static <S, T> List<T> mapChunk(List<S> days, Function<S, T> mapping) {
+        List<T> mapped = new ArrayList<>(days.size());
+        for (S day : days) {
+            mapped.add(mapping.apply(day));
+        }
+        return mapped;
+    }
+
+    @Override
+    public void destroy() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
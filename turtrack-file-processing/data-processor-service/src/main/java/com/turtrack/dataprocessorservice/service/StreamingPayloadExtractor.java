@@ -0,0 +1,141 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.common.json.ScrapedCalendarReader;
+import com.turtrack.common.util.StringPool;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.model.Vehicle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.turtrack.common.json.JsonValues.expectStartObject;
+import static com.turtrack.common.json.JsonValues.readDouble;
+import static com.turtrack.common.json.JsonValues.readInteger;
+import static com.turtrack.common.json.JsonValues.readNestedString;
+import static com.turtrack.common.json.JsonValues.readPooledString;
+
+/**
+ * Reads scraper payloads with a {@link JsonParser} and fills the model objects directly.
+ * Only the fields we actually keep are materialized; every other subtree is skipped
+ * without being bound to a {@code Map}. Strings that repeat across payloads are canonicalized through a
+ * {@link StringPool}, so batches of extracted records share one instance per distinct make, city or day name.
+ * Calendars are read by the {@link ScrapedCalendarReader} the persistor's backfill shares.
+ */
+@Component
+public class StreamingPayloadExtractor {
+
+    private static final int STRING_POOL_SIZE = 16_384;
+
+    private final JsonFactory jsonFactory;
+    private final StringPool stringPool = new StringPool(STRING_POOL_SIZE);
+    private final ScrapedCalendarReader calendarReader;
+
+    public StreamingPayloadExtractor(ObjectMapper jsonObjectMapper) {
+        this.jsonFactory = jsonObjectMapper.getFactory();
+        this.calendarReader = new ScrapedCalendarReader(jsonFactory, stringPool);
+    }
+
+    public Vehicle extractVehicle(byte[] payload) throws IOException {
+        Vehicle vehicle = new Vehicle();
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            expectStartObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "vehicle" -> readVehicleSection(parser, vehicle);
+                    case "location" -> readLocationSection(parser, vehicle);
+                    case "rate" -> readRateSection(parser, vehicle);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return vehicle;
+    }
+
+    public List<DailyRateAndAvailability> extractDailyRates(byte[] payload) throws IOException {
+        List<DailyRateAndAvailability> dailyRates = new ArrayList<>();
+        Long vehicleId = calendarReader.read(payload, 0, payload.length, day -> {
+            DailyRateAndAvailability dailyRate = new DailyRateAndAvailability();
+            dailyRate.setDate(day.getDate());
+            dailyRate.setCustom(day.getCustom());
+            dailyRate.setLocalizedDayOfWeek(day.getLocalizedDayOfWeek());
+            dailyRate.setLocalizedShortDayOfWeek(day.getLocalizedShortDayOfWeek());
+            dailyRate.setPrice(day.getPrice());
+            dailyRate.setPriceEditable(day.getPriceEditable());
+            dailyRate.setCurrencyCode(day.getCurrencyCode());
+            dailyRate.setSource(day.getSource());
+            dailyRate.setWholeDayUnavailable(day.getWholeDayUnavailable());
+            dailyRates.add(dailyRate);
+        });
+        if (vehicleId == null) {
+            throw new IllegalArgumentException("Expected a dailyPricingResponses array in a daily pricing payload");
+        }
+        for (DailyRateAndAvailability dailyRate : dailyRates) {
+            dailyRate.setVehicleId(vehicleId);
+        }
+        return dailyRates;
+    }
+
+    private void readVehicleSection(JsonParser parser, Vehicle vehicle) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "id" -> vehicle.setId(readInteger(parser));
+                case "make" -> vehicle.setMake(readPooledString(parser, stringPool));
+                case "model" -> vehicle.setModel(readPooledString(parser, stringPool));
+                case "year" -> {
+                    Integer year = readInteger(parser);
+                    if (year != null) {
+                        vehicle.setYear(year);
+                    }
+                }
+                case "trim" -> vehicle.setTrim(readPooledString(parser, stringPool));
+                case "type" -> vehicle.setType(readPooledString(parser, stringPool));
+                case "registration" -> {
+                    if (token == JsonToken.START_OBJECT) {
+                        vehicle.setRegistrationState(readNestedString(parser, "state", stringPool));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readLocationSection(JsonParser parser, Vehicle vehicle) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "city" -> vehicle.setCity(readPooledString(parser, stringPool));
+                case "state" -> vehicle.setState(readPooledString(parser, stringPool));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readRateSection(JsonParser parser, Vehicle vehicle) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("averageDailyPrice".equals(field)) {
+                vehicle.setAverageDailyPrice(readDouble(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -1,30 +1,84 @@
 package com.turtrack.dataprocessorservice.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.dataprocessorservice.config.ExtractionMode;
+import com.turtrack.common.deadletter.DeadLetterRouter;
+import com.turtrack.common.metrics.PipelineHeaders;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
 import com.turtrack.dataprocessorservice.model.Vehicle;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class VehicleProcessingService {
 
+    private static final TypeReference<Map<String, Object>> MESSAGE_TYPE = new TypeReference<>() {
+    };
+
+    static final String SOURCE_TOPIC = "vehicle-detail-topic";
+    static final String OUTPUT_TOPIC = "cleaned-vehicle-topic";
+
     private final KafkaTemplate<String, Vehicle> vehicleKafkaTemplate;
+    private final ObjectMapper jsonObjectMapper;
+    private final StreamingPayloadExtractor streamingPayloadExtractor;
+    private final PipelineMetrics pipelineMetrics;
+    private final DeadLetterRouter deadLetterRouter;
+
+    @Value("${turtrack.processor.extraction-mode:MAP}")
+    private ExtractionMode extractionMode;
+
+    /**
+     * Extracts the whole poll batch before sending anything, then sends it as one burst. Records whose payload
+     * cannot be extracted are dead-lettered and the rest of the batch is forwarded.
+     */
+    public ForwardedBatch processAndForwardVehicles(List<ConsumerRecord<String, byte[]>> records) {
+        List<Vehicle> cleanedVehicles = pipelineMetrics.timeExtract(SOURCE_TOPIC, () -> {
+            List<Vehicle> vehicles = new ArrayList<>(records.size());
+            for (ConsumerRecord<String, byte[]> record : records) {
+                Vehicle vehicle = deadLetterRouter.decodeOrDeadLetter(record, this::extractVehicle);
+                vehicles.add(vehicle == null ? null : cleanVehicle(vehicle));
+            }
+            return vehicles;
+        });
 
+        List<CompletableFuture<?>> sends = new ArrayList<>(cleanedVehicles.size());
+        for (int i = 0; i < cleanedVehicles.size(); i++) {
+            if (cleanedVehicles.get(i) != null) {
+                sends.add(forwardVehicle(cleanedVehicles.get(i), PipelineHeaders.scrapedAt(records.get(i))));
+            }
+        }
+        return new ForwardedBatch(sends.size(),
+                pipelineMetrics.timeProduceAck(OUTPUT_TOPIC, sends.size(), CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0]))));
+    }
 
-    public void processAndForwardVehicle(Map<String, Object> message) {
-        Vehicle vehicle = extractVehicle(message);
-        Vehicle cleanedVehicle = cleanVehicle(vehicle);
-        log.info("Cleaned Vehicle: {}", vehicle);
-        forwardVehicle(cleanedVehicle);
+    Vehicle extractVehicle(byte[] payload) {
+        try {
+            if (extractionMode == ExtractionMode.STREAMING) {
+                return streamingPayloadExtractor.extractVehicle(payload);
+            }
+            return extractVehicle(jsonObjectMapper.readValue(payload, MESSAGE_TYPE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed vehicle payload", e);
+        }
     }
 
-    private Vehicle extractVehicle(Map<String, Object> message) {
+    Vehicle extractVehicle(Map<String, Object> message) {
         Vehicle vehicle = new Vehicle();
 
         if (message.containsKey("vehicle")) {
@@ -88,7 +142,8 @@ public class VehicleProcessingService {
         return vehicle;
     }
 
-    private void forwardVehicle(Vehicle vehicle) {
-        vehicleKafkaTemplate.send("cleaned-vehicle-topic", vehicle);
+    private CompletableFuture<SendResult<String, Vehicle>> forwardVehicle(Vehicle vehicle, long scrapedAt) {
+        String key = vehicle.getId() == null ? null : String.valueOf(vehicle.getId());
+        return vehicleKafkaTemplate.send(new ProducerRecord<>(OUTPUT_TOPIC, null, key, vehicle, PipelineHeaders.scrapedAtHeaders(scrapedAt)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.turtrack.dataprocessorservice.config;
+
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.common.wire.WireFormat;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KafkaConfigTest {
+
+    @Test
+    void exactlyOnceSharesOneTransactionalProducerFactoryAcrossTemplates() {
+        try (AnnotationConfigApplicationContext context = context(DeliveryMode.EXACTLY_ONCE, PayloadFormat.JSON)) {
+            ProducerFactory<?, ?> producerFactory = context.getBean("outputProducerFactory", ProducerFactory.class);
+            assertTrue(producerFactory.transactionCapable());
+            for (String template : new String[]{"vehicleDetailsKafkaTemplate", "dailyRateAndAvailabilityKafkaTemplate",
+                    "dailyRateCalendarBlockKafkaTemplate", "deadLetterKafkaTemplate"}) {
+                assertSame(producerFactory, context.getBean(template, KafkaTemplate.class).getProducerFactory(), template);
+            }
+        }
+    }
+
+    @Test
+    void atLeastOnceProducerFactoryIsNotTransactional() {
+        try (AnnotationConfigApplicationContext context = context(DeliveryMode.AT_LEAST_ONCE, PayloadFormat.JSON)) {
+            assertFalse(context.getBean("outputProducerFactory", ProducerFactory.class).transactionCapable());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void valueSerializerDispatchesOnValueType() {
+        try (AnnotationConfigApplicationContext context = context(DeliveryMode.EXACTLY_ONCE, PayloadFormat.BINARY)) {
+            Serializer<Object> serializer = context.getBean("outputProducerFactory", ProducerFactory.class).getValueSerializer();
+
+            byte[] deadLetter = "{\"not\":\"extractable\"".getBytes();
+            assertArrayEquals(deadLetter, serializer.serialize("vehicle-detail-topic.DLT", deadLetter));
+
+            DailyRateAndAvailability dailyRate = new DailyRateAndAvailability();
+            dailyRate.setVehicleId(42L);
+            dailyRate.setDate(LocalDate.of(2024, 7, 1));
+            dailyRate.setPrice(99.0);
+            assertTrue(WireFormat.hasHeader(serializer.serialize("processed-vehicle-daily-rate-and-availability-topic", dailyRate)));
+        }
+    }
+
+    private static AnnotationConfigApplicationContext context(DeliveryMode delivery, PayloadFormat wireFormat) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "spring.kafka.bootstrap-servers", "localhost:9092",
+                "turtrack.processor.delivery", delivery.name(),
+                "turtrack.processor.producer.wire-format", wireFormat.name())));
+        context.registerBean(SimpleMeterRegistry.class);
+        context.register(JacksonConfig.class, KafkaConfig.class, PipelineMetrics.class);
+        context.refresh();
+        return context;
+    }
+}
@@ -0,0 +1,169 @@
+package com.turtrack.dataprocessorservice.flowcontrol;
+
+import com.turtrack.dataprocessorservice.config.DeliveryMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SendWindowTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("vehicle-detail-topic", 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    @Test
+    void acknowledgesPollsInPollOrder() {
+        SendWindow window = window(1000, 500);
+        List<String> acknowledged = new ArrayList<>();
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        window.track(consumer, 10, first, () -> acknowledged.add("first"));
+        window.track(consumer, 10, second, () -> acknowledged.add("second"));
+
+        second.complete(null);
+        assertEquals(List.of(), acknowledged);
+        assertEquals(10, window.inFlight());
+
+        first.complete(null);
+        assertEquals(List.of("first", "second"), acknowledged);
+        assertEquals(0, window.inFlight());
+    }
+
+    @Test
+    void pausesWhenFullAndResumesAtTheResumeThreshold() {
+        SendWindow window = window(100, 50);
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        window.track(consumer, 60, first, () -> {
+        });
+        assertFalse(window.isPaused());
+
+        window.track(consumer, 50, second, () -> {
+        });
+        assertTrue(window.isPaused());
+
+        first.complete(null);
+        assertFalse(window.isPaused());
+        assertEquals(1, meterRegistry.get("turtrack.processor.send-window.paused").timer().count());
+    }
+
+    @Test
+    void rewindsToTheCommittedOffsetsAfterAFailedSend() {
+        SendWindow window = window(1000, 500);
+        consumer.assign(List.of(PARTITION));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.commitSync(Map.of(PARTITION, new OffsetAndMetadata(5)));
+        consumer.seek(PARTITION, 20);
+
+        List<String> acknowledged = new ArrayList<>();
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        CompletableFuture<Void> later = new CompletableFuture<>();
+        window.track(consumer, 10, failed, () -> acknowledged.add("failed"));
+        window.track(consumer, 10, later, () -> acknowledged.add("later"));
+        assertFalse(window.rewindIfFailed(consumer));
+
+        later.complete(null);
+        failed.completeExceptionally(new IllegalStateException("Broker unavailable"));
+
+        assertTrue(window.rewindIfFailed(consumer));
+        assertEquals(5, consumer.position(PARTITION));
+        assertEquals(List.of(), acknowledged);
+        assertEquals(0, window.inFlight());
+        assertFalse(window.rewindIfFailed(consumer));
+    }
+
+    @Test
+    void deadLettersAPermanentlyFailingSendThroughTheErrorHandler() {
+        SendWindow window = window(1000, 500);
+        consumer.assign(List.of(PARTITION));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.commitSync(Map.of(PARTITION, new OffsetAndMetadata(0)));
+        List<Long> deadLettered = new ArrayList<>();
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
+                (record, cause) -> deadLettered.add(record.offset()), new FixedBackOff(0, 2));
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.isRunning()).thenReturn(true);
+        // Sends of offset 1 always fail
+        List<Long> sent = new ArrayList<>();
+        List<Long> acknowledged = new ArrayList<>();
+        ListenerCall listener = records -> {
+            if (window.rewindIfFailed(consumer)) {
+                return;
+            }
+            records.forEach(record -> sent.add(record.offset()));
+            CompletableFuture<Void> acked = records.records(PARTITION).stream().anyMatch(record -> record.offset() == 1)
+                    ? CompletableFuture.failedFuture(new RecordTooLargeException("Output too large"))
+                    : CompletableFuture.completedFuture(null);
+            window.acknowledgeWhenAcked(consumer, records.count(), acked,
+                    () -> records.forEach(record -> acknowledged.add(record.offset())));
+        };
+
+        // Windowed: the failure is only recorded, the next poll is dropped and the consumer rewound
+        listener.poll(records(0, 2));
+        listener.poll(records(2, 4));
+        assertEquals(0, consumer.position(PARTITION));
+        assertEquals(List.of(), acknowledged);
+
+        // Redelivered: the failure is thrown on the consumer thread, as the container would hand it to its error handler
+        ConsumerRecords<String, byte[]> redelivered = records(0, 2);
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> listener.poll(redelivered));
+        errorHandler.handleBatch(thrown, redelivered, consumer, container, () -> listener.poll(redelivered));
+
+        assertEquals(List.of(0L, 1L), deadLettered);
+        // Sent windowed, redelivered, then retried twice by the error handler
+        assertEquals(List.of(0L, 1L, 0L, 1L, 0L, 1L, 0L, 1L), sent);
+        assertEquals(1, meterRegistry.get("turtrack.processor.send-window.rewinds").counter().count());
+
+        // Sends succeed again: acknowledged synchronously once, then back to the window
+        listener.poll(records(2, 4));
+        assertEquals(List.of(2L, 3L), acknowledged);
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        window.acknowledgeWhenAcked(consumer, 2, pending, () -> acknowledged.add(-1L));
+        assertEquals(2, window.inFlight());
+    }
+
+    @Test
+    void staysOffInExactlyOnceMode() {
+        SendWindow window = new SendWindow(new KafkaListenerEndpointRegistry(), meterRegistry, 1000, 500, DeliveryMode.EXACTLY_ONCE);
+
+        assertFalse(window.isEnabled());
+        assertTrue(window(1000, 500).isEnabled());
+    }
+
+    private static ConsumerRecords<String, byte[]> records(long fromOffset, long toOffset) {
+        return new ConsumerRecords<>(Map.of(PARTITION, LongStream.range(fromOffset, toOffset)
+                .mapToObj(offset -> new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "1", new byte[0]))
+                .toList()));
+    }
+
+    private SendWindow window(long maxInFlight, long resumeInFlight) {
+        return new SendWindow(new KafkaListenerEndpointRegistry(), meterRegistry, maxInFlight, resumeInFlight, DeliveryMode.AT_LEAST_ONCE);
+    }
+
+    @FunctionalInterface
+    private interface ListenerCall {
+
+        void poll(ConsumerRecords<String, byte[]> records);
+    }
+}
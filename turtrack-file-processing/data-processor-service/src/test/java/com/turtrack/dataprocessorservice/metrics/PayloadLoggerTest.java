@@ -0,0 +1,93 @@
+package com.turtrack.dataprocessorservice.metrics;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.read.ListAppender;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The logging cost per poll is measured by {@code PayloadLoggingBenchmark} in turtrack-benchmarks.
+ */
+class PayloadLoggerTest {
+
+    private static final String TOPIC = "vehicle-detail-topic";
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(PayloadLogger.class);
+    private final ListAppender<ILoggingEvent> events = new ListAppender<>();
+    private final List<Appender<ILoggingEvent>> appenders = new ArrayList<>();
+    private Level level;
+    private boolean additive;
+
+    @BeforeEach
+    void captureLogger() {
+        for (Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders(); it.hasNext(); ) {
+            appenders.add(it.next());
+        }
+        level = logger.getLevel();
+        additive = logger.isAdditive();
+
+        // Detached, not stopped, so they work again once restored
+        appenders.forEach(logger::detachAppender);
+        events.start();
+        logger.addAppender(events);
+        logger.setAdditive(false);
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    void restoreLogger() {
+        logger.detachAppender(events);
+        events.stop();
+        appenders.forEach(logger::addAppender);
+        logger.setLevel(level);
+        logger.setAdditive(additive);
+    }
+
+    @Test
+    void logsNothingAtTheDefaultRate() {
+        new PayloadLogger(0, 2048).log(TOPIC, poll(10, "{}"));
+
+        assertTrue(events.list.isEmpty());
+    }
+
+    @Test
+    void logsEverySampledRecordCutToTheMaximumLength() {
+        new PayloadLogger(1, 4).log(TOPIC, poll(3, "{\"id\":1}"));
+
+        assertEquals(3, events.list.size());
+        assertEquals("sampled payload topic=vehicle-detail-topic partition=0 offset=2 key=null bytes=8 value={\"id...",
+                events.list.get(2).getFormattedMessage());
+    }
+
+    @Test
+    void logsEveryRecordAtDebug() {
+        logger.setLevel(Level.DEBUG);
+
+        new PayloadLogger(0, 2048).log(TOPIC, poll(2, "{}"));
+
+        assertEquals(2, events.list.size());
+        assertEquals(Level.DEBUG, events.list.get(0).getLevel());
+    }
+
+    private static List<ConsumerRecord<String, byte[]>> poll(int records, String payload) {
+        List<ConsumerRecord<String, byte[]>> poll = new ArrayList<>(records);
+        for (int offset = 0; offset < records; offset++) {
+            poll.add(new ConsumerRecord<>(TOPIC, 0, offset, null, payload.getBytes(StandardCharsets.UTF_8)));
+        }
+        return poll;
+    }
+}
@@ -0,0 +1,81 @@
+package com.turtrack.dataprocessorservice.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.common.wire.WireFormat;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.model.DailyRateCalendarBlock;
+import com.turtrack.dataprocessorservice.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireFormatTest {
+
+    private final ObjectMapper jsonObjectMapper = new JacksonConfig().jsonObjectMapper();
+
+    @Test
+    void roundTripsDailyRate() {
+        DailyRateAndAvailability dailyRate = new DailyRateAndAvailability(1852463L, LocalDate.of(2024, 7, 2), false,
+                "Tuesday", "Tue", 61.75, true, "USD", "AUTOMATIC", false);
+
+        byte[] encoded = DailyRateAndAvailabilityWireSerializer.encode(dailyRate);
+
+        assertTrue(WireFormat.hasHeader(encoded));
+        assertEquals(dailyRate, DailyRateAndAvailabilityWireDeserializer.decode(encoded));
+    }
+
+    @Test
+    void roundTripsNullsAndValuesOutsideTheDictionaries() {
+        DailyRateAndAvailability dailyRate = new DailyRateAndAvailability(7L, LocalDate.of(2024, 7, 2), null,
+                "Dienstag", null, null, null, "CHF", null, true);
+
+        assertEquals(dailyRate, DailyRateAndAvailabilityWireDeserializer.decode(DailyRateAndAvailabilityWireSerializer.encode(dailyRate)));
+    }
+
+    @Test
+    void roundTripsVehicle() {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(1852463);
+        vehicle.setMake("Tesla");
+        vehicle.setModel("Model 3");
+        vehicle.setYear(2021);
+        vehicle.setType("CAR");
+        vehicle.setRegistrationState("FL");
+        vehicle.setCity("Miami");
+        vehicle.setState("FL");
+        vehicle.setAverageDailyPrice(62.5);
+
+        assertEquals(vehicle, VehicleWireDeserializer.decode(VehicleWireSerializer.encode(vehicle)));
+    }
+
+    @Test
+    void roundTripsCalendarBlock() {
+        DailyRateCalendarBlock block = new DailyRateCalendarBlock(1852463L, LocalDate.of(2024, 7, 1),
+                new double[]{58, 61.75, 61.75}, new int[]{DailyRateCalendarBlock.PRICE_EDITABLE, DailyRateCalendarBlock.CUSTOM, DailyRateCalendarBlock.WHOLE_DAY_UNAVAILABLE},
+                new String[]{"USD", "USD", "CHF"});
+
+        assertEquals(block, DailyRateCalendarBlockWireDeserializer.decode(DailyRateCalendarBlockWireSerializer.encode(block)));
+    }
+
+    @Test
+    void dailyRateIsAFractionOfItsJsonSize() throws Exception {
+        DailyRateAndAvailability dailyRate = new DailyRateAndAvailability(1852463L, LocalDate.of(2024, 7, 2), false,
+                "Tuesday", "Tue", 61.75, true, "USD", "AUTOMATIC", false);
+
+        int binary = DailyRateAndAvailabilityWireSerializer.encode(dailyRate).length;
+        int json = jsonObjectMapper.writeValueAsBytes(dailyRate).length;
+
+        assertTrue(binary * 4 < json, "JSON " + json + " bytes, binary " + binary + " bytes");
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] encoded = VehicleWireSerializer.encode(new Vehicle());
+        encoded[1] = (byte) (WireFormat.VERSION + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> VehicleWireDeserializer.decode(encoded));
+    }
+}
@@ -0,0 +1,47 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.model.DailyRateCalendarBlock;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyRateProcessingServiceTest {
+
+    @Test
+    void packsConsecutiveDaysIntoOneBlockAndSplitsOnGaps() {
+        List<DailyRateAndAvailability> calendar = List.of(
+                day(LocalDate.of(2024, 7, 2), 61.75, true),
+                day(LocalDate.of(2024, 7, 1), 58.0, false),
+                day(LocalDate.of(2024, 7, 5), 70.0, false));
+
+        List<DailyRateCalendarBlock> blocks = DailyRateProcessingService.toCalendarBlocks(calendar);
+
+        assertEquals(2, blocks.size());
+        assertEquals(LocalDate.of(2024, 7, 1), blocks.get(0).getStartDate());
+        assertArrayEquals(new double[]{58.0, 61.75}, blocks.get(0).getPrices());
+        assertArrayEquals(new int[]{0, DailyRateCalendarBlock.WHOLE_DAY_UNAVAILABLE}, blocks.get(0).getFlags());
+        assertEquals(LocalDate.of(2024, 7, 5), blocks.get(1).getStartDate());
+        assertEquals(1, blocks.get(1).getPrices().length);
+    }
+
+    @Test
+    void leavesOutDaysWithoutPrice() {
+        List<DailyRateAndAvailability> calendar = List.of(
+                day(LocalDate.of(2024, 7, 1), 58.0, false),
+                day(LocalDate.of(2024, 7, 2), null, false));
+
+        List<DailyRateCalendarBlock> blocks = DailyRateProcessingService.toCalendarBlocks(calendar);
+
+        assertEquals(1, blocks.size());
+        assertArrayEquals(new double[]{58.0}, blocks.get(0).getPrices());
+    }
+
+    private static DailyRateAndAvailability day(LocalDate date, Double price, boolean wholeDayUnavailable) {
+        return new DailyRateAndAvailability(1852463L, date, null, date.getDayOfWeek().name(), null,
+                price, null, "USD", "AUTOMATIC", wholeDayUnavailable);
+    }
+}
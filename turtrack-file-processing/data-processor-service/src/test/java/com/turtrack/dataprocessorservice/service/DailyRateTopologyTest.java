@@ -0,0 +1,156 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.common.deadletter.DeadLetterRouter;
+import com.turtrack.common.metrics.PipelineHeaders;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.serialization.DailyRateAndAvailabilityWireDeserializer;
+import com.turtrack.dataprocessorservice.serialization.DailyRateAndAvailabilityWireSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyRateTopologyTest {
+
+    private static final Instant SCRAPED_AT = Instant.parse("2024-06-30T08:00:00Z");
+
+    @TempDir
+    Path stateDir;
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, byte[]> pricing;
+    private TestOutputTopic<String, DailyRateAndAvailability> processed;
+    private TestOutputTopic<String, byte[]> deadLetters;
+
+    @BeforeEach
+    void setUp() {
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        DailyRateProcessingService dailyRateProcessingService = new DailyRateProcessingService(null,
+                new JacksonConfig().jsonObjectMapper(), null, null, pipelineMetrics, null, ParallelDayMapper.serial());
+        StreamsBuilder builder = new StreamsBuilder();
+        new DailyRateTopology(dailyRateProcessingService, pipelineMetrics, new SimpleMeterRegistry(),
+                Serdes.serdeFrom(new DailyRateAndAvailabilityWireSerializer(), new DailyRateAndAvailabilityWireDeserializer()))
+                .build(builder);
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "daily-rate-topology-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
+        driver = new TopologyTestDriver(builder.build(), props);
+
+        pricing = driver.createInputTopic(DailyRateProcessingService.SOURCE_TOPIC,
+                new StringSerializer(), new ByteArraySerializer());
+        processed = driver.createOutputTopic(DailyRateProcessingService.OUTPUT_TOPIC,
+                new StringDeserializer(), new DailyRateAndAvailabilityWireDeserializer());
+        deadLetters = driver.createOutputTopic(DeadLetterRouter.deadLetterTopic(DailyRateProcessingService.SOURCE_TOPIC),
+                new StringDeserializer(), new ByteArrayDeserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void forwardsEveryDayOfAFirstCalendarKeyedByVehicleWithScrapeTime() {
+        pricing.pipeInput(null, calendar(58, 61.75, false), SCRAPED_AT);
+
+        List<TestRecord<String, DailyRateAndAvailability>> days = processed.readRecordsToList();
+        assertEquals(2, days.size());
+        assertEquals("1852463", days.get(0).key());
+        assertEquals(LocalDate.of(2024, 7, 1), days.get(0).value().getDate());
+        assertEquals(61.75, days.get(1).value().getPrice());
+        assertEquals(SCRAPED_AT.toEpochMilli(), PipelineHeaders.readScrapedAt(days.get(0).headers()));
+    }
+
+    @Test
+    void forwardsOnlyDaysThatChangedSinceTheLastCrawl() {
+        pricing.pipeInput(null, calendar(58, 61.75, false), SCRAPED_AT);
+        processed.readRecordsToList();
+
+        pricing.pipeInput(null, calendar(58, 61.75, false), SCRAPED_AT.plusSeconds(3600));
+        assertTrue(processed.isEmpty());
+
+        pricing.pipeInput(null, calendar(58, 64.0, false), SCRAPED_AT.plusSeconds(7200));
+        pricing.pipeInput(null, calendar(58, 64.0, true), SCRAPED_AT.plusSeconds(10800));
+
+        List<DailyRateAndAvailability> changed = processed.readValuesToList();
+        assertEquals(2, changed.size());
+        assertEquals(64.0, changed.get(0).getPrice());
+        assertFalse(changed.get(0).getWholeDayUnavailable());
+        assertTrue(changed.get(1).getWholeDayUnavailable());
+    }
+
+    @Test
+    void prunesPastDaysOnceADay() {
+        pricing.pipeInput(null, calendar(58, 61.75, false), SCRAPED_AT);
+        processed.readRecordsToList();
+        assertEquals(2, trackedDays());
+
+        driver.advanceWallClockTime(Duration.ofDays(1));
+
+        assertEquals(0, trackedDays());
+        pricing.pipeInput(null, calendar(58, 61.75, false), SCRAPED_AT.plusSeconds(3600));
+        assertEquals(2, processed.readRecordsToList().size());
+    }
+
+    @Test
+    void deadLettersPayloadsThatCannotBeExtracted() {
+        byte[] malformed = "{\"dailyPricingResponses\": [".getBytes(StandardCharsets.UTF_8);
+        pricing.pipeInput("1852463", malformed);
+
+        assertTrue(processed.isEmpty());
+        TestRecord<String, byte[]> deadLetter = deadLetters.readRecord();
+        assertEquals("1852463", deadLetter.key());
+        assertArrayEquals(malformed, deadLetter.value());
+    }
+
+    private long trackedDays() {
+        try (KeyValueIterator<Long, Long> all = driver.<Long, Long>getKeyValueStore(DailyRateTopology.STATE_STORE).all()) {
+            long days = 0;
+            for (; all.hasNext(); all.next()) {
+                days++;
+            }
+            return days;
+        }
+    }
+
+    private static byte[] calendar(double firstPrice, double secondPrice, boolean secondUnavailable) {
+        return ("{\"vehicleId\": 1852463, \"dailyPricingResponses\": ["
+                + day("2024-07-01", "Monday", firstPrice, false) + ", "
+                + day("2024-07-02", "Tuesday", secondPrice, secondUnavailable) + "]}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String day(String date, String dayOfWeek, double price, boolean wholeDayUnavailable) {
+        return "{\"custom\": false, \"date\": \"" + date + "\", \"localizedDayOfWeek\": \"" + dayOfWeek + "\", "
+                + "\"localizedShortDayOfWeek\": \"" + dayOfWeek.substring(0, 3) + "\", \"price\": " + price + ", "
+                + "\"priceEditable\": true, \"priceWithCurrency\": {\"amount\": " + price + ", \"currencyCode\": \"USD\"}, "
+                + "\"source\": \"AUTOMATIC\", \"wholeDayUnavailable\": " + wholeDayUnavailable + "}";
+    }
+}
@@ -0,0 +1,62 @@
+package com.turtrack.dataprocessorservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelDayMapperTest {
+
+    @Test
+    void keepsInputOrderAcrossChunks() {
+        ParallelDayMapper mapper = new ParallelDayMapper(100, 16, 4);
+        try {
+            List<Integer> days = IntStream.range(0, 1000).boxed().toList();
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+
+            List<Integer> mapped = mapper.map(days, day -> {
+                threads.add(Thread.currentThread().getName());
+                return day * 2;
+            });
+
+            assertEquals(IntStream.range(0, 1000).map(day -> day * 2).boxed().toList(), mapped);
+            assertTrue(threads.size() > 1);
+        } finally {
+            mapper.destroy();
+        }
+    }
+
+    @Test
+    void staysOnTheCallingThreadBelowTheThreshold() {
+        ParallelDayMapper mapper = new ParallelDayMapper(100, 16, 4);
+        try {
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            mapper.map(IntStream.range(0, 99).boxed().toList(), day -> threads.add(Thread.currentThread()));
+
+            assertEquals(Set.of(Thread.currentThread()), threads);
+        } finally {
+            mapper.destroy();
+        }
+    }
+
+    @Test
+    void failsThePayloadWhenAnyChunkFails() {
+        ParallelDayMapper mapper = new ParallelDayMapper(100, 16, 4);
+        try {
+            List<Integer> days = IntStream.range(0, 1000).boxed().toList();
+
+            assertThrows(IllegalArgumentException.class, () -> mapper.map(days, day -> {
+                if (day == 777) {
+                    throw new IllegalArgumentException("Malformed day " + day);
+                }
+                return day;
+            }));
+        } finally {
+            mapper.destroy();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingPayloadExtractorTest {
+
+    private final ObjectMapper jsonObjectMapper = new JacksonConfig().jsonObjectMapper();
+    private final StreamingPayloadExtractor extractor = new StreamingPayloadExtractor(jsonObjectMapper);
+
+    @Test
+    void extractsVehicleLikeTheMapPath() throws IOException {
+        byte[] payload = load("payloads/vehicle-detail.json");
+        VehicleProcessingService mapPath = new VehicleProcessingService(null, jsonObjectMapper, extractor, null, null);
+
+        Vehicle streamed = extractor.extractVehicle(payload);
+
+        assertEquals(mapPath.extractVehicle(payload), streamed);
+        assertEquals(1852463, streamed.getId());
+        assertEquals("Model 3", streamed.getModel());
+        assertEquals("FL", streamed.getRegistrationState());
+        assertEquals("Miami", streamed.getCity());
+        assertEquals(62.5, streamed.getAverageDailyPrice());
+    }
+
+    @Test
+    void extractsDailyRatesLikeTheMapPath() throws IOException {
+        byte[] payload = load("payloads/daily-pricing.json");
+        DailyRateProcessingService mapPath = new DailyRateProcessingService(null, jsonObjectMapper, extractor, null, null, null,
+                ParallelDayMapper.serial());
+
+        List<DailyRateAndAvailability> streamed = extractor.extractDailyRates(payload);
+
+        assertEquals(mapPath.extractDailyRates(payload), streamed);
+        assertEquals(3, streamed.size());
+        assertEquals(1852463L, streamed.get(0).getVehicleId());
+        assertEquals(LocalDate.of(2024, 7, 2), streamed.get(1).getDate());
+        assertEquals(61.75, streamed.get(1).getPrice());
+        assertEquals("USD", streamed.get(2).getCurrencyCode());
+        assertTrue(streamed.get(2).getWholeDayUnavailable());
+    }
+
+    @Test
+    void sharesOneInstancePerDistinctStringAcrossPayloads() throws IOException {
+        byte[] vehiclePayload = load("payloads/vehicle-detail.json");
+        byte[] pricingPayload = load("payloads/daily-pricing.json");
+
+        Vehicle first = extractor.extractVehicle(vehiclePayload);
+        Vehicle second = extractor.extractVehicle(vehiclePayload);
+        assertSame(first.getMake(), second.getMake());
+        assertSame(first.getCity(), second.getCity());
+        assertSame(extractor.extractDailyRates(pricingPayload).get(0).getCurrencyCode(),
+                extractor.extractDailyRates(pricingPayload).get(0).getCurrencyCode());
+
+        Set<String> pooled = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 100; i++) {
+            addStrings(pooled, extractor.extractVehicle(vehiclePayload));
+        }
+        assertTrue(pooled.size() <= 7);
+    }
+
+    @Test
+    void rejectsPricingWithoutVehicleId() {
+        byte[] payload = "{\"dailyPricingResponses\":[]}".getBytes();
+
+        assertThrows(IllegalArgumentException.class, () -> extractor.extractDailyRates(payload));
+    }
+
+    private static void addStrings(Set<String> strings, Vehicle vehicle) {
+        for (String value : new String[]{vehicle.getMake(), vehicle.getModel(), vehicle.getTrim(), vehicle.getType(),
+                vehicle.getRegistrationState(), vehicle.getCity(), vehicle.getState()}) {
+            if (value != null) {
+                strings.add(value);
+            }
+        }
+    }
+
+    private static byte[] load(String resource) throws IOException {
+        try (InputStream in = StreamingPayloadExtractorTest.class.getClassLoader().getResourceAsStream(resource)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.turtrack.benchmarks;
+
+import com.turtrack.dataprocessorservice.DataProcessorServiceApplication;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per second through the processor's batch listener for the daily pricing topic, against an embedded
+ * broker: the service runs as deployed (one listener thread, polls of {@code maxPollRecords}, pipelined sends, each
+ * poll acknowledged once all its sends are acked). Each invocation drains a backlog of {@value #BACKLOG} corpus
+ * calendars, loaded while the listener is paused, and ends when the processor has committed past all of them.
+ * <p>
+ * The broker shares the machine, so the {@code recordsPerCoreSecond} counter takes the processor's share out: each
+ * drain's records are scaled by its wall time over the CPU time the listener and producer threads spent on it,
+ * which makes it the listener's records per second of one fully busy core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class BatchListenerBenchmark {
+
+    private static final int BACKLOG = 2000;
+    private static final String SOURCE_TOPIC = "vehicle-daily-rate-and-availability-topic";
+    private static final String GROUP = "turtrack-group";
+    private static final String LOADER_CLIENT_ID = "batch-listener-benchmark-loader";
+
+    @Param({"500"})
+    public int maxPollRecords;
+
+    @Param({"STREAMING"})
+    public String extractionMode;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Cores {
+        public double recordsPerCoreSecond;
+    }
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private EmbeddedKafkaKraftBroker broker;
+    private ConfigurableApplicationContext processor;
+    private MessageListenerContainer container;
+    private Admin admin;
+    private KafkaProducer<String, byte[]> loader;
+    private List<byte[]> payloads;
+    private long loaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, SOURCE_TOPIC);
+        broker.brokerProperties(Map.of("offsets.topic.replication.factor", "1"));
+        broker.afterPropertiesSet();
+
+        processor = new SpringApplicationBuilder(DataProcessorServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run("--spring.config.location=classpath:/replay/processor.properties",
+                        "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "--turtrack.processor.consumer.max-poll-records=" + maxPollRecords,
+                        "--turtrack.processor.extraction-mode=" + extractionMode,
+                        "--logging.level.com.turtrack.dataprocessorservice=WARN");
+        container = processor.getBean(KafkaListenerEndpointRegistry.class).getListenerContainers().stream()
+                .filter(candidate -> Arrays.asList(candidate.getContainerProperties().getTopics()).contains(SOURCE_TOPIC))
+                .findFirst()
+                .orElseThrow();
+
+        admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+        loader = new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.CLIENT_ID_CONFIG, LOADER_CLIENT_ID,
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class,
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                ProducerConfig.MAX_REQUEST_SIZE_CONFIG, 16 * 1024 * 1024));
+        payloads = Corpus.dailyPricing();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loader.close();
+        admin.close();
+        processor.close();
+        broker.destroy();
+    }
+
+    /**
+     * Pauses the listener and queues the next backlog behind it.
+     */
+    @Setup(Level.Invocation)
+    public void loadBacklog() throws Exception {
+        container.pause();
+        while (!container.isContainerPaused()) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        for (int i = 0; i < BACKLOG; i++) {
+            loader.send(new ProducerRecord<>(SOURCE_TOPIC, payloads.get(i % payloads.size())));
+        }
+        loader.flush();
+        loaded += BACKLOG;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BACKLOG)
+    public void drainBacklog(Cores cores) throws Exception {
+        long cpuBefore = processorCpuNanos();
+        long started = System.nanoTime();
+        container.resume();
+        while (committed() < loaded) {
+            TimeUnit.MILLISECONDS.sleep(2);
+        }
+        long wallNanos = System.nanoTime() - started;
+        cores.recordsPerCoreSecond += (double) BACKLOG * wallNanos / Math.max(1, processorCpuNanos() - cpuBefore);
+    }
+
+    private long committed() throws ExecutionException, InterruptedException {
+        long committed = 0;
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> offset
+                : admin.listConsumerGroupOffsets(GROUP).partitionsToOffsetAndMetadata().get().entrySet()) {
+            if (offset.getValue() != null && offset.getKey().topic().equals(SOURCE_TOPIC)) {
+                committed += offset.getValue().offset();
+            }
+        }
+        return committed;
+    }
+
+    /**
+     * CPU time of the processor's daily pricing listener thread and of its producers' network threads.
+     */
+    private long processorCpuNanos() {
+        String listenerThreads = container.getListenerId() + "-";
+        long cpuNanos = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            if (name.startsWith(listenerThreads)
+                    || name.startsWith("kafka-producer-network-thread") && !name.endsWith(LOADER_CLIENT_ID)) {
+                cpuNanos += Math.max(0, threads.getThreadCpuTime(thread.getId()));
+            }
+        }
+        return cpuNanos;
+    }
+}
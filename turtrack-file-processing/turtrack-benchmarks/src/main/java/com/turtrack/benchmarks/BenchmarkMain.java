@@ -0,0 +1,32 @@
+package com.turtrack.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs JMH with JSON results written to {@code jmh-result.json} by default, so runs of different releases can be
+ * compared by tooling. Any JMH command line option is passed through; {@code -rf}/{@code -rff} override the default.
+ */
+public final class BenchmarkMain {
+
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "json");
+            options.add(0, "-rf");
+        }
+        if (!options.contains("-rff")) {
+            options.add(0, DEFAULT_RESULT_FILE);
+            options.add(0, "-rff");
+        }
+        Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,101 @@
+package com.turtrack.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.datapersistorservice.api.VehicleCalendarResponse;
+import com.turtrack.datapersistorservice.config.JsonObjectMapperConfig;
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
+import com.turtrack.datapersistorservice.service.VehicleCalendar;
+import com.turtrack.datapersistorservice.service.VehicleCalendarCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one calendar read as the endpoint serves it (calendar lookup, 30-day slice with its ETag, JSON body)
+ * over {@value #VEHICLES} vehicles of 180 persisted days each. Run in sample mode, so JMH reports p50 and p99.
+ * {@code COLD} reads with a cache that holds nothing, i.e. one database query per read; {@code WARM} with every
+ * vehicle cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CalendarReadBenchmark {
+
+    private static final int VEHICLES = 2000;
+
+    public enum Cache {
+        COLD,
+        WARM
+    }
+
+    @Param({"COLD", "WARM"})
+    public Cache cache;
+
+    private EmbeddedPostgres postgres;
+    private VehicleCalendarCache calendarCache;
+    private ObjectMapper objectMapper;
+    private LocalDate today;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        jdbcTemplate.execute("CREATE TABLE daily_rate_and_availability ("
+                + "date date NOT NULL, vehicle_id bigint NOT NULL, custom_set_price boolean NOT NULL, "
+                + "price float(53) NOT NULL, currency_id smallint NOT NULL, whole_day_unavailable boolean NOT NULL, "
+                + "PRIMARY KEY (date, vehicle_id))");
+        today = LocalDate.now();
+        jdbcTemplate.update("INSERT INTO daily_rate_and_availability "
+                + "(date, vehicle_id, custom_set_price, price, currency_id, whole_day_unavailable) "
+                + "SELECT d::date, v, false, 40 + v % 60, 840, (v + extract(doy FROM d)::int) % 3 = 0 "
+                + "FROM generate_series(1, ?) v, generate_series(?::date, ?::date, interval '1 day') d",
+                VEHICLES, today.minusDays(90), today.plusDays(89));
+        jdbcTemplate.execute("VACUUM ANALYZE daily_rate_and_availability");
+
+        calendarCache = new VehicleCalendarCache(new DailyRateAndAvailabilityBulkRepository(jdbcTemplate, 1000),
+                new SimpleMeterRegistry(), cache == Cache.WARM ? VEHICLES : 0, TimeUnit.HOURS.toMillis(1), 90);
+        if (cache == Cache.WARM) {
+            for (long vehicleId = 1; vehicleId <= VEHICLES; vehicleId++) {
+                calendarCache.get(vehicleId, today);
+            }
+        }
+        objectMapper = new JsonObjectMapperConfig().jsonObjectMapper();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        postgres.close();
+    }
+
+    @Benchmark
+    public byte[] readCalendar() throws IOException {
+        long vehicleId = 1 + random.nextInt(VEHICLES);
+        VehicleCalendar calendar = calendarCache.get(vehicleId, today);
+        LocalDate to = today.plusDays(29);
+        VehicleCalendar.Slice slice = calendar.slice(today, to);
+        slice.etag();
+        return objectMapper.writeValueAsBytes(VehicleCalendarResponse.of(calendar, today, to, slice));
+    }
+}
@@ -0,0 +1,77 @@
+package com.turtrack.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The recorded scraper payloads bundled under {@code corpus/}, as the raw bytes the processor listeners receive.
+ */
+public final class Corpus {
+
+    private static final String ROOT = "corpus/";
+
+    private Corpus() {
+    }
+
+    /** Payloads of vehicle-detail-topic. */
+    public static List<byte[]> vehicleDetails() {
+        return load("vehicle-detail/");
+    }
+
+    /** Payloads of vehicle-daily-rate-and-availability-topic. */
+    public static List<byte[]> dailyPricing() {
+        return load("daily-pricing/");
+    }
+
+    private static List<byte[]> load(String directory) {
+        List<byte[]> payloads = new ArrayList<>();
+        for (String file : index()) {
+            if (file.startsWith(directory)) {
+                payloads.add(read(ROOT + file));
+            }
+        }
+        if (payloads.isEmpty()) {
+            throw new IllegalStateException("No payloads under " + ROOT + directory);
+        }
+        return payloads;
+    }
+
+    private static List<String> index() {
+        List<String> files = new ArrayList<>();
+        try (InputStream in = open(ROOT + "index.txt");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    files.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return files;
+    }
+
+    private static byte[] read(String resource) {
+        try (InputStream in = open(resource)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream open(String resource) throws IOException {
+        InputStream in = Corpus.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("Missing corpus resource " + resource);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,137 @@
+package com.turtrack.benchmarks;
+
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
+import com.turtrack.datapersistorservice.repository.DailyRatePartitionManager;
+import com.turtrack.datapersistorservice.repository.DailyRateSchemaMigration;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upsert latency of one re-crawl flush against a daily_rate_and_availability holding {@value #HISTORY_DAYS} days
+ * of history and {@value #FUTURE_DAYS} days ahead for {@value #VEHICLES} vehicles (about 2.5 million rows), as one
+ * table or partitioned by month. Each flush rewrites the next 30 days of {@code rows / 30} vehicles with moved prices,
+ * so it always crosses a month boundary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PartitionBenchmark {
+
+    private static final int VEHICLES = 5000;
+    private static final int HISTORY_DAYS = 400;
+    private static final int FUTURE_DAYS = 90;
+    private static final int CRAWL_DAYS = 30;
+
+    public enum Layout {
+        UNPARTITIONED,
+        MONTHLY
+    }
+
+    @Param({"UNPARTITIONED", "MONTHLY"})
+    public Layout layout;
+
+    @Param({"2000", "20000"})
+    public int rows;
+
+    private EmbeddedPostgres postgres;
+    private TransactionTemplate transactionTemplate;
+    private DailyRateAndAvailabilityBulkRepository repository;
+
+    private List<DailyRateAndAvailability> dailyRates;
+    private List<DailyRateAndAvailability> repricedDailyRates;
+    private boolean repriced;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(postgres.getPostgresDatabase());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        LocalDate today = LocalDate.now();
+        LocalDate first = today.minusDays(HISTORY_DAYS);
+        LocalDate last = today.plusDays(FUTURE_DAYS);
+        if (layout == Layout.MONTHLY) {
+            DailyRateSchemaMigration schemaMigration = new DailyRateSchemaMigration(jdbcTemplate, transactionManager);
+            DailyRatePartitionManager partitionManager = new DailyRatePartitionManager(jdbcTemplate, transactionManager,
+                    schemaMigration, true, 4, 24, false, false);
+            partitionManager.afterPropertiesSet();
+            for (YearMonth month = YearMonth.from(first); month.isBefore(YearMonth.now()); month = month.plusMonths(1)) {
+                partitionManager.partitionFor(month);
+            }
+            repository = new DailyRateAndAvailabilityBulkRepository(jdbcTemplate, partitionManager, 1000);
+        } else {
+            // As Hibernate creates it
+            jdbcTemplate.execute("CREATE TABLE daily_rate_and_availability ("
+                    + "date date NOT NULL, vehicle_id bigint NOT NULL, custom_set_price boolean NOT NULL, "
+                    + "price float(53) NOT NULL, currency_id smallint NOT NULL, whole_day_unavailable boolean NOT NULL, "
+                    + "PRIMARY KEY (date, vehicle_id))");
+            repository = new DailyRateAndAvailabilityBulkRepository(jdbcTemplate, 1000);
+        }
+
+        jdbcTemplate.update("INSERT INTO daily_rate_and_availability "
+                + "(date, vehicle_id, custom_set_price, price, currency_id, whole_day_unavailable) "
+                + "SELECT d::date, v, false, 40 + v % 60, 840, (v + extract(doy FROM d)::int) % 3 = 0 "
+                + "FROM generate_series(1, ?) v, generate_series(?::date, ?::date, interval '1 day') d", VEHICLES, first, last);
+        jdbcTemplate.execute("VACUUM ANALYZE daily_rate_and_availability");
+
+        dailyRates = crawl(today, 0);
+        repricedDailyRates = crawl(today, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        postgres.close();
+    }
+
+    /** Re-crawl where every day moved: every row of the flush is rewritten. */
+    @Benchmark
+    public Integer upsertChangedDailyRates() {
+        repriced = !repriced;
+        List<DailyRateAndAvailability> batch = repriced ? repricedDailyRates : dailyRates;
+        return transactionTemplate.execute(status -> repository.upsert(batch));
+    }
+
+    /**
+     * The next {@value #CRAWL_DAYS} days of {@code rows / CRAWL_DAYS} vehicles spread over the whole fleet.
+     */
+    private List<DailyRateAndAvailability> crawl(LocalDate today, double priceOffset) {
+        int vehicles = rows / CRAWL_DAYS;
+        List<DailyRateAndAvailability> crawl = new ArrayList<>(vehicles * CRAWL_DAYS);
+        for (int i = 0; i < vehicles; i++) {
+            long vehicleId = 1 + (long) i * VEHICLES / vehicles;
+            for (int day = 0; day < CRAWL_DAYS; day++) {
+                LocalDate date = today.plusDays(day);
+                crawl.add(new DailyRateAndAvailability(new DailyRateAndAvailability.DailyRateAndAvailabilityId(vehicleId, date),
+                        false, date.getDayOfWeek().name(), 40 + vehicleId % 60 + 0.5 + priceOffset, "USD", false));
+            }
+        }
+        return crawl;
+    }
+}
@@ -0,0 +1,113 @@
+package com.turtrack.benchmarks;
+
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
+import com.turtrack.datapersistorservice.service.PartitionedWriteExecutor;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.service.ProcessedCorpus;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One daily rate flush through {@link PartitionedWriteExecutor} against an embedded Postgres behind a Hikari pool of
+ * {@value #POOL_SIZE}, per thread mode: {@code LISTENER} writes the flush in one transaction on the calling thread (the
+ * default), {@code PLATFORM} and {@code VIRTUAL} write its vehicleId groups concurrently on new platform or virtual
+ * threads. Reports flushes per second and the flush latency distribution (p99 under {@code SampleTime}).
+ * <p>
+ * {@code VIRTUAL} needs Java 21; below that its trial fails at setup and the other modes still run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PartitionedWriteBenchmark {
+
+    private static final int POOL_SIZE = 10;
+
+    @Param({"2000", "20000"})
+    public int rows;
+
+    @Param({"LISTENER", "PLATFORM", "VIRTUAL"})
+    public String threads;
+
+    private EmbeddedPostgres postgres;
+    private HikariDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private DailyRateAndAvailabilityBulkRepository dailyRateRepository;
+    private PartitionedWriteExecutor partitionedWriteExecutor;
+
+    private List<DailyRateAndAvailability> dailyRates;
+    private List<DailyRateAndAvailability> repricedDailyRates;
+    private boolean repriced;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        partitionedWriteExecutor = switch (threads) {
+            case "LISTENER" -> new PartitionedWriteExecutor(null, POOL_SIZE);
+            case "PLATFORM" -> new PartitionedWriteExecutor(new SimpleAsyncTaskExecutor("persistor-write-"), POOL_SIZE);
+            case "VIRTUAL" -> {
+                if (Runtime.version().feature() < 21) {
+                    throw new IllegalStateException("VIRTUAL needs Java 21, running on " + Runtime.version());
+                }
+                yield new PartitionedWriteExecutor(true, POOL_SIZE);
+            }
+            default -> throw new IllegalArgumentException("Unknown thread mode: " + threads);
+        };
+
+        postgres = EmbeddedPostgres.start();
+        dataSource = new HikariDataSource();
+        dataSource.setDataSource(postgres.getPostgresDatabase());
+        dataSource.setMaximumPoolSize(POOL_SIZE);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        PersistenceBenchmark.createTables(jdbcTemplate);
+        dailyRateRepository = new DailyRateAndAvailabilityBulkRepository(jdbcTemplate, 1000);
+
+        ProcessedCorpus processed = ProcessedCorpus.extract(new JacksonConfig().jsonObjectMapper());
+        dailyRates = PersistenceBenchmark.replicateDailyRates(processed, rows, 0);
+        repricedDailyRates = PersistenceBenchmark.replicateDailyRates(processed, rows, 1);
+        transactionTemplate.executeWithoutResult(status -> dailyRateRepository.upsert(dailyRates));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    /** Re-crawl where every day moved, written as the daily rate batcher writes a flush. */
+    @Benchmark
+    public void writeChangedDailyRates() {
+        repriced = !repriced;
+        List<DailyRateAndAvailability> batch = repriced ? repricedDailyRates : dailyRates;
+        partitionedWriteExecutor.writeGrouped(batch, dailyRate -> dailyRate.getId().getVehicleId(),
+                group -> transactionTemplate.executeWithoutResult(status -> dailyRateRepository.upsert(group)));
+    }
+}
@@ -0,0 +1,112 @@
+package com.turtrack.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.metrics.PayloadLogger;
+import com.turtrack.dataprocessorservice.model.Vehicle;
+import com.turtrack.dataprocessorservice.service.StreamingPayloadExtractor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener logging cost of one poll of vehicle-detail-topic at production log levels (INFO, output encoded but
+ * discarded): the former println of every payload plus an INFO line per cleaned vehicle, against {@link PayloadLogger}
+ * at the given sample rate. The poll cycles through the corpus payloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadLoggingBenchmark {
+
+    private static final String TOPIC = "vehicle-detail-topic";
+
+    @Param({"500"})
+    public int records;
+
+    @Param({"0.01"})
+    public double sampleRate;
+
+    private List<ConsumerRecord<String, byte[]>> poll;
+    private Vehicle vehicle;
+    private Logger legacyLogger;
+    private PrintStream stdout;
+    private PayloadLogger payloadLogger;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<byte[]> payloads = Corpus.vehicleDetails();
+        poll = new ArrayList<>(records);
+        for (int offset = 0; offset < records; offset++) {
+            poll.add(new ConsumerRecord<>(TOPIC, 0, offset, null, payloads.get(offset % payloads.size())));
+        }
+        ObjectMapper jsonObjectMapper = new JacksonConfig().jsonObjectMapper();
+        vehicle = new StreamingPayloadExtractor(jsonObjectMapper).extractVehicle(payloads.get(0));
+
+        legacyLogger = discardingLogger("legacy-payload-logging");
+        discardingLogger(PayloadLogger.class.getName());
+        stdout = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+        payloadLogger = new PayloadLogger(sampleRate, 2048);
+    }
+
+    @Benchmark
+    public void fullPayloads() {
+        for (ConsumerRecord<String, byte[]> record : poll) {
+            stdout.println("Received vehicle message: " + new String(record.value(), StandardCharsets.UTF_8));
+            legacyLogger.info("Cleaned Vehicle: {}", vehicle);
+        }
+    }
+
+    @Benchmark
+    public void sampledPayloads() {
+        payloadLogger.log(TOPIC, poll);
+    }
+
+    private static Logger discardingLogger(String name) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        Logger logger = context.getLogger(name);
+        logger.detachAndStopAllAppenders();
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+        logger.setLevel(Level.INFO);
+        return logger;
+    }
+}
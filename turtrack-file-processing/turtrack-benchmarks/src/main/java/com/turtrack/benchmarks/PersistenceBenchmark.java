@@ -0,0 +1,283 @@
+package com.turtrack.benchmarks;
+
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
+import com.turtrack.datapersistorservice.model.CurrencyCodeConverter;
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.datapersistorservice.model.Vehicle;
+import com.turtrack.datapersistorservice.repository.DailyRateAndAvailabilityBulkRepository;
+import com.turtrack.datapersistorservice.repository.VehicleBulkRepository;
+import com.turtrack.datapersistorservice.serialization.DailyRateAndAvailabilityWireDecoder;
+import com.turtrack.datapersistorservice.serialization.VehicleWireDecoder;
+import com.turtrack.datapersistorservice.service.DailyRateRollups;
+import com.turtrack.datapersistorservice.service.VehicleFingerprintCache;
+import com.turtrack.datapersistorservice.service.VehiclePersistenceService;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.serialization.DailyRateAndAvailabilityWireSerializer;
+import com.turtrack.dataprocessorservice.serialization.VehicleWireSerializer;
+import com.turtrack.dataprocessorservice.service.ProcessedCorpus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One flush of the persistor write paths against an embedded Postgres, per flush size of the adaptive batcher
+ * (min, initial and max rows). The corpus calendars and vehicles are replicated under new vehicle ids up to the
+ * flush size. Each operation is one transaction, as in the persistence services. {@link #mergeChangedDailyRatesRowByRow}
+ * is the baseline the bulk upsert replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    private static final long VEHICLE_ID_STRIDE = 10_000_000L;
+    private static final long CONSUMER_VEHICLE_ID_STRIDE = 1_000_000_000_000L;
+
+    @Param({"500", "2000", "20000"})
+    public int rows;
+
+    private EmbeddedPostgres postgres;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private DailyRateAndAvailabilityBulkRepository dailyRateRepository;
+    private VehicleBulkRepository vehicleRepository;
+    private VehiclePersistenceService vehiclePersistenceService;
+
+    private List<DailyRateAndAvailability> dailyRates;
+    private List<DailyRateAndAvailability> repricedDailyRates;
+    private List<Vehicle> vehicles;
+    private List<Vehicle> repricedVehicles;
+    private boolean repriced;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(postgres.getPostgresDatabase()));
+        createTables(jdbcTemplate);
+
+        dailyRateRepository = new DailyRateAndAvailabilityBulkRepository(jdbcTemplate, 1000);
+        vehicleRepository = new VehicleBulkRepository(jdbcTemplate, 1000);
+        VehicleFingerprintCache fingerprintCache = new VehicleFingerprintCache(vehicleRepository, new SimpleMeterRegistry(), rows, false);
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        DailyRateRollups rollups = new DailyRateRollups(null, null, null, pipelineMetrics, new SimpleMeterRegistry(), false);
+        vehiclePersistenceService = new VehiclePersistenceService(null, vehicleRepository, fingerprintCache, rollups, pipelineMetrics);
+
+        ProcessedCorpus processed = ProcessedCorpus.extract(new JacksonConfig().jsonObjectMapper());
+        dailyRates = replicateDailyRates(processed, rows, 0);
+        repricedDailyRates = replicateDailyRates(processed, rows, 1);
+        vehicles = replicateVehicles(processed, 0);
+        repricedVehicles = replicateVehicles(processed, 1);
+
+        transactionTemplate.executeWithoutResult(status -> dailyRateRepository.upsert(dailyRates));
+        vehiclePersistenceService.saveOrUpdateVehicles(vehicles);
+    }
+
+    @Setup(Level.Iteration)
+    public void truncateChangeLog() {
+        jdbcTemplate.execute("TRUNCATE daily_rate_change_log");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        postgres.close();
+    }
+
+    /** Re-crawl where every day moved: every row is rewritten. */
+    @Benchmark
+    public Integer upsertChangedDailyRates() {
+        repriced = !repriced;
+        List<DailyRateAndAvailability> batch = repriced ? repricedDailyRates : dailyRates;
+        return transactionTemplate.execute(status -> dailyRateRepository.upsert(batch));
+    }
+
+    /**
+     * The re-crawl of {@link #upsertChangedDailyRates} written the way {@code EntityManager.merge} does it: a SELECT,
+     * then an INSERT or UPDATE, per row.
+     */
+    @Benchmark
+    public void mergeChangedDailyRatesRowByRow() {
+        repriced = !repriced;
+        List<DailyRateAndAvailability> batch = repriced ? repricedDailyRates : dailyRates;
+        transactionTemplate.executeWithoutResult(status -> batch.forEach(this::mergeRowByRow));
+    }
+
+    /**
+     * The re-crawl of {@link #upsertChangedDailyRates} by each of several consumers over vehicles no other consumer
+     * writes, as partitioning by vehicleId guarantees. Run with -t 1, 2 and 4: the score is flushes per second over
+     * all threads, so it grows with the thread count for as long as writes scale.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Integer upsertChangedDailyRatesPerConsumer(Consumer consumer) {
+        List<DailyRateAndAvailability> batch = consumer.nextBatch();
+        return transactionTemplate.execute(status -> dailyRateRepository.upsert(batch));
+    }
+
+    /** Re-crawl where nothing moved: the conflict clause skips every row. */
+    @Benchmark
+    public Integer upsertUnchangedDailyRates() {
+        return transactionTemplate.execute(status -> dailyRateRepository.upsert(dailyRates));
+    }
+
+    @Benchmark
+    public void appendChangeLog() {
+        transactionTemplate.executeWithoutResult(status -> dailyRateRepository.appendChangeLog(dailyRates, Instant.now()));
+    }
+
+    @Benchmark
+    public Integer upsertChangedVehicles() {
+        repriced = !repriced;
+        List<Vehicle> batch = repriced ? repricedVehicles : vehicles;
+        return transactionTemplate.execute(status -> vehicleRepository.upsert(batch));
+    }
+
+    /** The full vehicle batch path when every vehicle is already persisted as given: dropped by fingerprint. */
+    @Benchmark
+    public void saveUnchangedVehicles() {
+        vehiclePersistenceService.saveOrUpdateVehicles(vehicles);
+    }
+
+    /**
+     * One persistor consumer thread with its own copy of the calendars, under vehicle ids of its own.
+     */
+    @State(Scope.Thread)
+    public static class Consumer {
+
+        private List<DailyRateAndAvailability> dailyRates;
+        private List<DailyRateAndAvailability> repricedDailyRates;
+        private boolean repriced;
+
+        @Setup(Level.Trial)
+        public void setUp(PersistenceBenchmark benchmark, ThreadParams threadParams) {
+            long vehicleIdOffset = (threadParams.getThreadIndex() + 1) * CONSUMER_VEHICLE_ID_STRIDE;
+            dailyRates = withVehicleIdOffset(benchmark.dailyRates, vehicleIdOffset);
+            repricedDailyRates = withVehicleIdOffset(benchmark.repricedDailyRates, vehicleIdOffset);
+        }
+
+        List<DailyRateAndAvailability> nextBatch() {
+            repriced = !repriced;
+            return repriced ? repricedDailyRates : dailyRates;
+        }
+
+        private static List<DailyRateAndAvailability> withVehicleIdOffset(List<DailyRateAndAvailability> dailyRates,
+                                                                        long vehicleIdOffset) {
+            List<DailyRateAndAvailability> copies = new ArrayList<>(dailyRates.size());
+            for (DailyRateAndAvailability dailyRate : dailyRates) {
+                copies.add(copy(dailyRate, dailyRate.getId().getVehicleId() + vehicleIdOffset, dailyRate.getPrice()));
+            }
+            return copies;
+        }
+    }
+
+    private void mergeRowByRow(DailyRateAndAvailability dailyRate) {
+        Long vehicleId = dailyRate.getId().getVehicleId();
+        LocalDate date = dailyRate.getId().getDate();
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM daily_rate_and_availability WHERE vehicle_id = ? AND date = ?", Integer.class, vehicleId, date);
+        if (existing == 0) {
+            jdbcTemplate.update("INSERT INTO daily_rate_and_availability VALUES (?, ?, ?, ?, ?, ?)",
+                    date, vehicleId, dailyRate.getCustomSetPrice(), dailyRate.getPrice(),
+                    CurrencyCodeConverter.toId(dailyRate.getCurrencyCode()), dailyRate.getWholeDayUnavailable());
+        } else {
+            jdbcTemplate.update("UPDATE daily_rate_and_availability SET price = ? WHERE vehicle_id = ? AND date = ?",
+                    dailyRate.getPrice(), vehicleId, date);
+        }
+    }
+
+    static void createTables(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE daily_rate_and_availability ("
+                + "date date NOT NULL, vehicle_id bigint NOT NULL, custom_set_price boolean NOT NULL, "
+                + "price float(53) NOT NULL, currency_id smallint NOT NULL, whole_day_unavailable boolean NOT NULL, "
+                + "PRIMARY KEY (date, vehicle_id))");
+        jdbcTemplate.execute("CREATE TABLE daily_rate_change_log ("
+                + "id bigserial PRIMARY KEY, vehicle_id bigint NOT NULL, date date NOT NULL, price float(53) NOT NULL, "
+                + "whole_day_unavailable boolean NOT NULL, custom_set_price boolean NOT NULL, "
+                + "changed_at timestamp(6) with time zone NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX idx_daily_rate_change_log_vehicle_date ON daily_rate_change_log (vehicle_id, date)");
+        jdbcTemplate.execute("CREATE TABLE vehicle ("
+                + "id integer PRIMARY KEY, make varchar(255), model varchar(255), year integer, trim varchar(255), "
+                + "type varchar(255), registration_state varchar(255), city varchar(255), state varchar(255), "
+                + "average_daily_price float(53))");
+    }
+
+    /**
+     * The corpus daily rates as the persistor decodes them, copied under new vehicle ids until {@code rows} rows.
+     */
+    static List<DailyRateAndAvailability> replicateDailyRates(ProcessedCorpus processed, int rows, double priceOffset) {
+        List<DailyRateAndAvailability> decoded = new ArrayList<>();
+        for (com.turtrack.dataprocessorservice.model.DailyRateAndAvailability dailyRate : processed.dailyRates()) {
+            decoded.add(DailyRateAndAvailabilityWireDecoder.decode(DailyRateAndAvailabilityWireSerializer.encode(dailyRate)));
+        }
+        List<DailyRateAndAvailability> replicated = new ArrayList<>(rows);
+        for (int copy = 0; replicated.size() < rows; copy++) {
+            for (int i = 0; i < decoded.size() && replicated.size() < rows; i++) {
+                DailyRateAndAvailability dailyRate = decoded.get(i);
+                replicated.add(copy(dailyRate, dailyRate.getId().getVehicleId() + copy * VEHICLE_ID_STRIDE,
+                        dailyRate.getPrice() + priceOffset));
+            }
+        }
+        return replicated;
+    }
+
+    private static DailyRateAndAvailability copy(DailyRateAndAvailability dailyRate, long vehicleId, double price) {
+        return new DailyRateAndAvailability(
+                new DailyRateAndAvailability.DailyRateAndAvailabilityId(vehicleId, dailyRate.getId().getDate()),
+                dailyRate.getCustomSetPrice(), dailyRate.getLocalizedDayOfWeek(), price,
+                dailyRate.getCurrencyCode(), dailyRate.getWholeDayUnavailable());
+    }
+
+    /**
+     * The corpus vehicles as the persistor decodes them, copied under new ids until {@code rows} vehicles.
+     */
+    private List<Vehicle> replicateVehicles(ProcessedCorpus processed, double priceOffset) {
+        List<Vehicle> decoded = new ArrayList<>();
+        for (com.turtrack.dataprocessorservice.model.Vehicle vehicle : processed.vehicles()) {
+            decoded.add(VehicleWireDecoder.decode(VehicleWireSerializer.encode(vehicle)));
+        }
+        List<Vehicle> replicated = new ArrayList<>(rows);
+        for (int id = 1; replicated.size() < rows; id++) {
+            Vehicle source = decoded.get(id % decoded.size());
+            Vehicle vehicle = new Vehicle();
+            vehicle.setId(id);
+            vehicle.setMake(source.getMake());
+            vehicle.setModel(source.getModel());
+            vehicle.setYear(source.getYear());
+            vehicle.setTrim(source.getTrim());
+            vehicle.setType(source.getType());
+            vehicle.setRegistrationState(source.getRegistrationState());
+            vehicle.setCity(source.getCity());
+            vehicle.setState(source.getState());
+            vehicle.setAverageDailyPrice(source.getAverageDailyPrice() + priceOffset);
+            replicated.add(vehicle);
+        }
+        return replicated;
+    }
+}
@@ -0,0 +1,353 @@
+package com.turtrack.benchmarks.replay;
+
+import com.turtrack.datapersistorservice.DataPersistorServiceApplication;
+import com.turtrack.dataprocessorservice.DataProcessorServiceApplication;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Replays recorded scraper messages through the whole pipeline on one machine: an embedded Kafka broker and an
+ * embedded Postgres stand in for the real ones, and both services run in this JVM as they are deployed, listeners,
+ * processing and persistence services included. Once every message is persisted (no consumer group has lag left)
+ * it prints the throughput and the latencies of every {@code turtrack.*} timer of both services.
+ * <pre>
+ * java -cp turtrack-benchmarks/target/benchmarks.jar com.turtrack.benchmarks.replay.ReplayHarness [options]
+ *
+ *   --input=&lt;file&gt;           NDJSON recording, plain or .gz (see {@link ReplaySource}); the bundled corpus if absent
+ *   --corpus-copies=&lt;n&gt;      times the corpus is replayed without --input (200)
+ *   --io=mmap|stream         how a plain file is read (mmap)
+ *   --speed=max|realtime|&lt;n&gt;x as fast as possible, at the recorded pace, or n times it (max)
+ *   --interval-ms=&lt;ms&gt;       recorded gap between lines without a timestamp (100)
+ *   --partitions=&lt;n&gt;         partitions of the source topics (12)
+ *   --drain-timeout-s=&lt;s&gt;    how long to wait for the pipeline to drain after the last send (600)
+ *   --processor.&lt;key&gt;=&lt;v&gt;   a data-processor-service setting, e.g. --processor.turtrack.processor.delivery=EXACTLY_ONCE
+ *   --persistor.&lt;key&gt;=&lt;v&gt;   a data-persistor-service setting
+ * </pre>
+ * The services read {@code replay/processor.properties} and {@code replay/persistor.properties} instead of their own
+ * {@code application.properties}, which share one classpath location here.
+ */
+public final class ReplayHarness {
+
+    private static final String PROCESSOR_GROUP = "turtrack-group";
+    private static final Map<String, List<String>> GROUP_TOPICS = Map.of(
+            PROCESSOR_GROUP, List.of(ReplayMessage.VEHICLE_DETAIL_TOPIC, ReplayMessage.DAILY_PRICING_TOPIC),
+            "vehicle-persistence-group", List.of("cleaned-vehicle-topic"),
+            "daily-rate-persistence-group", List.of("processed-vehicle-daily-rate-and-availability-topic",
+                    "processed-vehicle-daily-rate-calendar-topic"));
+    private static final long DRAIN_CHECK_MS = 500;
+
+    private ReplayHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        boolean drained;
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, options.partitions,
+                    ReplayMessage.VEHICLE_DETAIL_TOPIC, ReplayMessage.DAILY_PRICING_TOPIC);
+            broker.brokerProperties(Map.of(
+                    "transaction.state.log.replication.factor", "1",
+                    "transaction.state.log.min.isr", "1",
+                    "offsets.topic.replication.factor", "1"));
+            broker.afterPropertiesSet();
+            ConfigurableApplicationContext processor = null;
+            ConfigurableApplicationContext persistor = null;
+            try {
+                // The processor first: it creates the topics the persistor listens to
+                processor = start(DataProcessorServiceApplication.class, "processor", broker, options.processorArgs);
+                List<String> persistorArgs = new ArrayList<>(List.of(
+                        "--spring.datasource.url=jdbc:postgresql://localhost:" + postgres.getPort() + "/postgres",
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password="));
+                persistorArgs.addAll(options.persistorArgs);
+                persistor = start(DataPersistorServiceApplication.class, "persistor", broker, persistorArgs);
+                boolean exactlyOnce = "EXACTLY_ONCE".equals(processor.getEnvironment().getProperty("turtrack.processor.delivery"));
+
+                try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+                     ReplaySource source = options.input == null
+                             ? ReplaySource.corpus(options.corpusCopies)
+                             : ReplaySource.open(options.input, options.mapped)) {
+                    long started = System.nanoTime();
+                    Replayed replayed = replay(source, broker.getBrokersAsString(), options);
+                    long sent = System.nanoTime();
+                    drained = awaitDrained(admin, exactlyOnce, TimeUnit.SECONDS.toNanos(options.drainTimeoutSeconds));
+                    long finished = System.nanoTime();
+
+                    report(replayed, sent - started, finished - started, drained,
+                            persistor.getBean(JdbcTemplate.class), processor.getBean(MeterRegistry.class),
+                            persistor.getBean(MeterRegistry.class));
+                }
+            } finally {
+                if (persistor != null) {
+                    persistor.close();
+                }
+                if (processor != null) {
+                    processor.close();
+                }
+                broker.destroy();
+            }
+        }
+        // Client threads of the closed services may linger; the run is over either way
+        System.exit(drained ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext start(Class<?> application, String name, EmbeddedKafkaKraftBroker broker,
+                                                        List<String> overrides) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.config.location=classpath:/replay/" + name + ".properties",
+                "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                "--management.metrics.distribution.percentiles.turtrack=0.5,0.99"));
+        args.addAll(overrides);
+        return new SpringApplicationBuilder(application)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run(args.toArray(new String[0]));
+    }
+
+    private record Replayed(long messages, long bytes, long failed) {
+    }
+
+    /**
+     * Sends every message of the source to its topic, paced by the speed. Record timestamps are the send times, which
+     * the pipeline's end-to-end latency is measured from.
+     */
+    private static Replayed replay(ReplaySource source, String bootstrapServers, Options options) throws Exception {
+        Map<String, Object> config = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class,
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                ProducerConfig.MAX_REQUEST_SIZE_CONFIG, 16 * 1024 * 1024);
+        long messages = 0;
+        long bytes = 0;
+        AtomicLong failed = new AtomicLong();
+        AtomicReference<Exception> firstFailure = new AtomicReference<>();
+        try (KafkaProducer<String, byte[]> producer = new KafkaProducer<>(config)) {
+            long start = System.nanoTime();
+            long firstScrapedAt = -1;
+            long recordedMs = 0;
+            ReplayMessage message;
+            while ((message = source.next()) != null) {
+                if (message.scrapedAt() >= 0 && firstScrapedAt >= 0) {
+                    recordedMs = message.scrapedAt() - firstScrapedAt;
+                } else if (messages > 0) {
+                    recordedMs += options.intervalMs;
+                }
+                if (message.scrapedAt() >= 0 && firstScrapedAt < 0) {
+                    firstScrapedAt = message.scrapedAt() - recordedMs;
+                }
+                if (options.speed.paced()) {
+                    long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(recordedMs) / options.speed.factor());
+                    for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                producer.send(new ProducerRecord<>(message.topic(), message.payload()), (metadata, error) -> {
+                    if (error != null && failed.getAndIncrement() == 0) {
+                        firstFailure.set(error);
+                    }
+                });
+                messages++;
+                bytes += message.payload().length;
+            }
+            producer.flush();
+        }
+        if (firstFailure.get() != null) {
+            System.err.println(failed.get() + " sends failed, the first with: " + firstFailure.get());
+        }
+        return new Replayed(messages, bytes, failed.get());
+    }
+
+    /**
+     * Waits until no consumer group of the pipeline has lag left, twice in a row: the processor commits a poll only
+     * once its output is acked, so the persistor groups see all of it by then. In EXACTLY_ONCE mode the persistor
+     * commits past the last record of a partition but not past the commit marker behind it, so one offset of lag per
+     * output partition is as good as none.
+     */
+    private static boolean awaitDrained(Admin admin, boolean exactlyOnce, long timeoutNanos) throws Exception {
+        long deadline = System.nanoTime() + timeoutNanos;
+        int drainedChecks = 0;
+        while (System.nanoTime() < deadline) {
+            drainedChecks = lag(admin, exactlyOnce) == 0 ? drainedChecks + 1 : 0;
+            if (drainedChecks == 2) {
+                return true;
+            }
+            Thread.sleep(DRAIN_CHECK_MS);
+        }
+        return false;
+    }
+
+    private static long lag(Admin admin, boolean exactlyOnce) throws Exception {
+        long lag = 0;
+        for (Map.Entry<String, List<String>> group : GROUP_TOPICS.entrySet()) {
+            Map<TopicPartition, OffsetAndMetadata> committed =
+                    admin.listConsumerGroupOffsets(group.getKey()).partitionsToOffsetAndMetadata().get();
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            for (TopicDescription topic : admin.describeTopics(group.getValue()).allTopicNames().get().values()) {
+                for (TopicPartitionInfo partition : topic.partitions()) {
+                    latest.put(new TopicPartition(topic.name(), partition.partition()), OffsetSpec.latest());
+                }
+            }
+            long markerSlack = exactlyOnce && !group.getKey().equals(PROCESSOR_GROUP) ? 1 : 0;
+            for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> end : admin.listOffsets(latest).all().get().entrySet()) {
+                OffsetAndMetadata offset = committed.get(end.getKey());
+                long partitionLag = end.getValue().offset() - (offset == null ? 0 : offset.offset());
+                lag += partitionLag > markerSlack ? partitionLag : 0;
+            }
+        }
+        return lag;
+    }
+
+    private static void report(Replayed replayed, long sendNanos, long totalNanos, boolean drained, JdbcTemplate jdbcTemplate,
+                               MeterRegistry processorRegistry, MeterRegistry persistorRegistry) {
+        double seconds = totalNanos / 1e9;
+        System.out.println();
+        System.out.printf("Replayed %d messages (%.1f MiB) in %.1f s%s: %.1f messages/s, %.2f MiB/s; sent in %.1f s, %d sends failed%n",
+                replayed.messages(), replayed.bytes() / 1048576.0, seconds, drained ? "" : " (NOT DRAINED, timed out)",
+                replayed.messages() / seconds, replayed.bytes() / 1048576.0 / seconds, sendNanos / 1e9, replayed.failed());
+        System.out.printf("Rows: %d vehicle, %d daily_rate_and_availability%n",
+                jdbcTemplate.queryForObject("SELECT count(*) FROM vehicle", Long.class),
+                jdbcTemplate.queryForObject("SELECT count(*) FROM daily_rate_and_availability", Long.class));
+        System.out.println();
+        System.out.printf("%-90s %10s %10s %10s %10s %10s%n", "Stage latency (ms)", "count", "mean", "p50", "p99", "max");
+        for (MeterRegistry registry : List.of(processorRegistry, persistorRegistry)) {
+            for (Timer timer : timers(registry)) {
+                HistogramSnapshot snapshot = timer.takeSnapshot();
+                Map<Double, Double> percentiles = new LinkedHashMap<>();
+                for (ValueAtPercentile value : snapshot.percentileValues()) {
+                    percentiles.put(value.percentile(), value.value(TimeUnit.MILLISECONDS));
+                }
+                System.out.printf("%-90s %10d %10.2f %10.2f %10.2f %10.2f%n", name(timer), snapshot.count(),
+                        snapshot.mean(TimeUnit.MILLISECONDS), percentiles.getOrDefault(0.5, Double.NaN),
+                        percentiles.getOrDefault(0.99, Double.NaN), snapshot.max(TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+
+    private static List<Timer> timers(MeterRegistry registry) {
+        List<Timer> timers = new ArrayList<>();
+        for (Meter meter : registry.getMeters()) {
+            if (meter instanceof Timer timer && meter.getId().getName().startsWith("turtrack.") && timer.count() > 0) {
+                timers.add(timer);
+            }
+        }
+        timers.sort(Comparator.comparing(ReplayHarness::name));
+        return timers;
+    }
+
+    private static String name(Meter meter) {
+        List<Tag> tags = meter.getId().getTags();
+        return tags.isEmpty() ? meter.getId().getName() : meter.getId().getName()
+                + tags.stream().map(tag -> tag.getKey() + "=" + tag.getValue()).collect(Collectors.joining(",", "{", "}"));
+    }
+
+    /**
+     * How fast to replay: {@code factor} times the recorded pace, or unthrottled at 0.
+     */
+    record Speed(double factor) {
+
+        static Speed parse(String text) {
+            if (text.equals("max")) {
+                return new Speed(0);
+            }
+            if (text.equals("realtime")) {
+                return new Speed(1);
+            }
+            if (text.endsWith("x")) {
+                double factor = Double.parseDouble(text.substring(0, text.length() - 1));
+                if (factor > 0) {
+                    return new Speed(factor);
+                }
+            }
+            throw new IllegalArgumentException("--speed must be max, realtime or a positive <n>x, not " + text);
+        }
+
+        boolean paced() {
+            return factor > 0;
+        }
+    }
+
+    private static final class Options {
+
+        Path input;
+        int corpusCopies = 200;
+        boolean mapped = true;
+        Speed speed = new Speed(0);
+        long intervalMs = 100;
+        int partitions = 12;
+        long drainTimeoutSeconds = 600;
+        final List<String> processorArgs = new ArrayList<>();
+        final List<String> persistorArgs = new ArrayList<>();
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Options are --<name>=<value>, not " + arg);
+                }
+                String name = arg.substring(2, equals);
+                String value = arg.substring(equals + 1);
+                if (name.startsWith("processor.")) {
+                    options.processorArgs.add("--" + name.substring("processor.".length()) + "=" + value);
+                } else if (name.startsWith("persistor.")) {
+                    options.persistorArgs.add("--" + name.substring("persistor.".length()) + "=" + value);
+                } else {
+                    switch (name) {
+                        case "input" -> options.input = Path.of(value);
+                        case "corpus-copies" -> options.corpusCopies = Integer.parseInt(value);
+                        case "io" -> {
+                            if (!value.equals("mmap") && !value.equals("stream")) {
+                                throw new IllegalArgumentException("--io must be mmap or stream, not " + value);
+                            }
+                            options.mapped = value.equals("mmap");
+                        }
+                        case "speed" -> options.speed = Speed.parse(value);
+                        case "interval-ms" -> options.intervalMs = Long.parseLong(value);
+                        case "partitions" -> options.partitions = Integer.parseInt(value);
+                        case "drain-timeout-s" -> options.drainTimeoutSeconds = Long.parseLong(value);
+                        default -> throw new IllegalArgumentException("Unknown option --" + name);
+                    }
+                }
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.turtrack.benchmarks.replay;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One recorded scraper message.
+ *
+ * @param topic     the source topic it goes to, inferred from the payload
+ * @param scrapedAt epoch millis it was recorded at, or -1 when the recording has no timestamps
+ * @param payload   the raw message bytes, as the processor listeners receive them
+ */
+public record ReplayMessage(String topic, long scrapedAt, byte[] payload) {
+
+    static final String VEHICLE_DETAIL_TOPIC = "vehicle-detail-topic";
+    static final String DAILY_PRICING_TOPIC = "vehicle-daily-rate-and-availability-topic";
+
+    private static final byte[] DAILY_PRICING_FIELD = "\"dailyPricingResponses\"".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * A raw message, sent to the daily pricing topic if it holds a calendar and to the vehicle detail topic otherwise.
+     */
+    public static ReplayMessage of(long scrapedAt, byte[] payload) {
+        return new ReplayMessage(contains(payload, DAILY_PRICING_FIELD) ? DAILY_PRICING_TOPIC : VEHICLE_DETAIL_TOPIC,
+                scrapedAt, payload);
+    }
+
+    private static boolean contains(byte[] bytes, byte[] part) {
+        outer:
+        for (int i = 0; i <= bytes.length - part.length; i++) {
+            for (int j = 0; j < part.length; j++) {
+                if (bytes[i + j] != part[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
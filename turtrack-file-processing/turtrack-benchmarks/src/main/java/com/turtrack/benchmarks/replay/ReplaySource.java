@@ -0,0 +1,207 @@
+package com.turtrack.benchmarks.replay;
+
+import com.turtrack.benchmarks.Corpus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Recorded scraper messages, one per line (NDJSON). A line may start with the epoch millis the message was scraped at
+ * and a tab, which a real-time replay keeps the gaps of. Blank lines are skipped. Plain files are memory-mapped in
+ * windows of 1 GiB, so files larger than the heap replay without copying them in first; {@code .gz} files are
+ * decompressed as a stream.
+ */
+public abstract class ReplaySource implements Closeable {
+
+    /**
+     * @param mapped memory-map a plain file instead of streaming it; ignored for {@code .gz} files
+     */
+    public static ReplaySource open(Path path, boolean mapped) throws IOException {
+        if (path.getFileName().toString().endsWith(".gz")) {
+            return new Stream(new GZIPInputStream(Files.newInputStream(path), Stream.BUFFER_BYTES));
+        }
+        return mapped ? new MappedFile(path) : new Stream(Files.newInputStream(path));
+    }
+
+    /**
+     * The bundled corpus, all of its vehicle details then all of its calendars, {@code copies} times over.
+     */
+    public static ReplaySource corpus(int copies) {
+        List<byte[]> payloads = new ArrayList<>(Corpus.vehicleDetails());
+        payloads.addAll(Corpus.dailyPricing());
+        return new ReplaySource() {
+            private int next;
+
+            @Override
+            public ReplayMessage next() {
+                return next < payloads.size() * copies ? ReplayMessage.of(-1, payloads.get(next++ % payloads.size())) : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * The next message, or null once the source is exhausted.
+     */
+    public abstract ReplayMessage next() throws IOException;
+
+    /**
+     * A source of one message per line.
+     */
+    private abstract static class Lines extends ReplaySource {
+
+        @Override
+        public ReplayMessage next() throws IOException {
+            byte[] line;
+            while ((line = nextLine()) != null) {
+                int end = line.length;
+                if (end > 0 && line[end - 1] == '\r') {
+                    end--;
+                }
+                int start = 0;
+                long scrapedAt = -1;
+                long digits = 0;
+                int i = 0;
+                while (i < end && line[i] >= '0' && line[i] <= '9') {
+                    digits = digits * 10 + line[i++] - '0';
+                }
+                if (i > 0 && i < end && line[i] == '\t') {
+                    scrapedAt = digits;
+                    start = i + 1;
+                }
+                if (start < end) {
+                    return ReplayMessage.of(scrapedAt, start == 0 && end == line.length ? line : Arrays.copyOfRange(line, start, end));
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The bytes of the next line without its newline, or null at the end of the input.
+         */
+        abstract byte[] nextLine() throws IOException;
+    }
+
+    private static final class MappedFile extends Lines {
+
+        private static final long WINDOW_BYTES = 1L << 30;
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedFile(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+        }
+
+        @Override
+        byte[] nextLine() throws IOException {
+            while (true) {
+                int start = window.position();
+                int end = start;
+                while (end < window.limit() && window.get(end) != '\n') {
+                    end++;
+                }
+                if (end < window.limit()) {
+                    byte[] line = new byte[end - start];
+                    window.get(line);
+                    window.get();
+                    return line;
+                }
+                if (windowStart + window.limit() >= size) {
+                    // The last line, without a trailing newline
+                    if (start == end) {
+                        return null;
+                    }
+                    byte[] line = new byte[end - start];
+                    window.get(line);
+                    return line;
+                }
+                if (start == 0) {
+                    throw new IOException("Line at byte " + windowStart + " is longer than " + WINDOW_BYTES + " bytes");
+                }
+                // Move the window up to the start of the line it cut
+                map(windowStart + start);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class Stream extends Lines {
+
+        private static final int BUFFER_BYTES = 1 << 16;
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private int position;
+        private int limit;
+
+        Stream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        byte[] nextLine() throws IOException {
+            ByteArrayOutputStream partial = null;
+            while (true) {
+                if (position == limit) {
+                    position = 0;
+                    limit = Math.max(in.read(buffer), 0);
+                    if (limit == 0) {
+                        return partial == null ? null : partial.toByteArray();
+                    }
+                }
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                if (position < limit) {
+                    byte[] line;
+                    if (partial == null) {
+                        line = Arrays.copyOfRange(buffer, start, position);
+                    } else {
+                        partial.write(buffer, start, position - start);
+                        line = partial.toByteArray();
+                    }
+                    position++;
+                    return line;
+                }
+                if (partial == null) {
+                    partial = new ByteArrayOutputStream();
+                }
+                partial.write(buffer, start, position - start);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.turtrack.datapersistorservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.datapersistorservice.config.JsonObjectMapperConfig;
+import com.turtrack.datapersistorservice.metrics.PipelineMetrics;
+import com.turtrack.datapersistorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.config.PayloadFormat;
+import com.turtrack.dataprocessorservice.service.ProcessedCorpus;
+import com.turtrack.dataprocessorservice.serialization.DailyRateAndAvailabilityWireSerializer;
+import com.turtrack.dataprocessorservice.serialization.DailyRateCalendarBlockWireSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistor-side decoding of processor output, per record, for both wire formats. The payloads are produced
+ * from the corpus by the processor's own encoders, so they are byte-for-byte what arrives on the topics.
+ * Lives in the consumer's package to reach its package-private deserialize methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeserializeBenchmark {
+
+    @Param({"JSON", "BINARY"})
+    public PayloadFormat wireFormat;
+
+    private DailyRateAndAvailabilityConsumer consumer;
+    private byte[][] dailyRatePayloads;
+    private byte[][] calendarBlockPayloads;
+    private int next;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper processorObjectMapper = new JacksonConfig().jsonObjectMapper();
+        ProcessedCorpus processed = ProcessedCorpus.extract(processorObjectMapper);
+        boolean binary = wireFormat == PayloadFormat.BINARY;
+
+        dailyRatePayloads = new byte[processed.dailyRates().size()][];
+        for (int i = 0; i < dailyRatePayloads.length; i++) {
+            dailyRatePayloads[i] = binary
+                    ? DailyRateAndAvailabilityWireSerializer.encode(processed.dailyRates().get(i))
+                    : processorObjectMapper.writeValueAsBytes(processed.dailyRates().get(i));
+        }
+        calendarBlockPayloads = new byte[processed.calendarBlocks().size()][];
+        for (int i = 0; i < calendarBlockPayloads.length; i++) {
+            calendarBlockPayloads[i] = binary
+                    ? DailyRateCalendarBlockWireSerializer.encode(processed.calendarBlocks().get(i))
+                    : processorObjectMapper.writeValueAsBytes(processed.calendarBlocks().get(i));
+        }
+
+        consumer = new DailyRateAndAvailabilityConsumer(null, new JsonObjectMapperConfig().jsonObjectMapper(),
+                new PipelineMetrics(new SimpleMeterRegistry()), null);
+    }
+
+    @Benchmark
+    public DailyRateAndAvailability dailyRate() {
+        next = (next + 1) % dailyRatePayloads.length;
+        return consumer.deserializeDailyRate(dailyRatePayloads[next]);
+    }
+
+    @Benchmark
+    public List<DailyRateAndAvailability> calendarBlock() {
+        next = (next + 1) % calendarBlockPayloads.length;
+        return consumer.deserializeCalendarBlock(calendarBlockPayloads[next]);
+    }
+}
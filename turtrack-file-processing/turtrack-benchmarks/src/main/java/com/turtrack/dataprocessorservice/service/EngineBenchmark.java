@@ -0,0 +1,177 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.turtrack.benchmarks.Corpus;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.config.ProcessingEngine;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily pricing throughput of the two processing engines, per raw calendar, without a broker.
+ * <ul>
+ *     <li>{@code LISTENER} - what the listener path does per calendar before the network: extraction, then
+ *     serialization of every day.</li>
+ *     <li>{@code STREAMS} - the {@link DailyRateTopology} in a {@link TopologyTestDriver}: extraction, the
+ *     repartition round trip, the RocksDB lookup per day and serialization of the changed days.</li>
+ * </ul>
+ * The corpus calendars are copied under {@value #VEHICLES} vehicle ids. {@code UNCHANGED} re-crawls them as they
+ * are; {@code CHANGED} moves every price on each pass. The {@code days} counter is the records per second each
+ * engine sends downstream, which the persistor then has to write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EngineBenchmark {
+
+    private static final int VEHICLES = 200;
+
+    public enum Recrawl {
+        UNCHANGED,
+        CHANGED
+    }
+
+    @Param({"LISTENER", "STREAMS"})
+    public ProcessingEngine engine;
+
+    @Param({"UNCHANGED", "CHANGED"})
+    public Recrawl recrawl;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Output {
+        public long days;
+    }
+
+    private byte[][] payloads;
+    private byte[][] repricedPayloads;
+    private int next;
+    private boolean repriced;
+
+    private DailyRateProcessingService dailyRateProcessingService;
+    private JsonSerializer<DailyRateAndAvailability> serializer;
+
+    private Path stateDir;
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, byte[]> pricing;
+    private TestOutputTopic<String, byte[]> processed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper jsonObjectMapper = new JacksonConfig().jsonObjectMapper();
+        List<byte[]> corpus = Corpus.dailyPricing();
+        payloads = new byte[corpus.size() * VEHICLES][];
+        repricedPayloads = new byte[payloads.length][];
+        for (int copy = 0; copy < VEHICLES; copy++) {
+            for (int i = 0; i < corpus.size(); i++) {
+                payloads[copy * corpus.size() + i] = rewrite(jsonObjectMapper, corpus.get(i), copy, 0);
+                repricedPayloads[copy * corpus.size() + i] = rewrite(jsonObjectMapper, corpus.get(i), copy, 1);
+            }
+        }
+
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        dailyRateProcessingService = new DailyRateProcessingService(null, jsonObjectMapper, null, null, pipelineMetrics, null,
+                ParallelDayMapper.serial());
+        serializer = new JsonSerializer<>(jsonObjectMapper);
+
+        if (engine == ProcessingEngine.STREAMS) {
+            StreamsBuilder builder = new StreamsBuilder();
+            new DailyRateTopology(dailyRateProcessingService, pipelineMetrics, new SimpleMeterRegistry(),
+                    new JsonSerde<>(DailyRateAndAvailability.class, jsonObjectMapper)).build(builder);
+            stateDir = Files.createTempDirectory("engine-benchmark");
+            Properties props = new Properties();
+            props.put(StreamsConfig.APPLICATION_ID_CONFIG, "engine-benchmark");
+            props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+            props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+            driver = new TopologyTestDriver(builder.build(), props);
+            pricing = driver.createInputTopic(DailyRateProcessingService.SOURCE_TOPIC, new StringSerializer(), new ByteArraySerializer());
+            processed = driver.createOutputTopic(DailyRateProcessingService.OUTPUT_TOPIC, new StringDeserializer(), new ByteArrayDeserializer());
+
+            // A first crawl of every calendar, so measurement starts from known state
+            for (byte[] payload : payloads) {
+                pricing.pipeInput(payload);
+            }
+            processed.readRecordsToList();
+        }
+        repriced = recrawl == Recrawl.CHANGED;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (driver != null) {
+            driver.close();
+            FileSystemUtils.deleteRecursively(stateDir);
+        }
+    }
+
+    @Benchmark
+    public void calendar(Output output) {
+        byte[] payload = next();
+        if (engine == ProcessingEngine.LISTENER) {
+            List<DailyRateAndAvailability> calendar = dailyRateProcessingService.extractDailyRates(payload);
+            for (DailyRateAndAvailability day : calendar) {
+                serializer.serialize(DailyRateProcessingService.OUTPUT_TOPIC, day);
+            }
+            output.days += calendar.size();
+        } else {
+            pricing.pipeInput(payload);
+            output.days += processed.readRecordsToList().size();
+        }
+    }
+
+    private byte[] next() {
+        next = (next + 1) % payloads.length;
+        if (next == 0 && recrawl == Recrawl.CHANGED) {
+            repriced = !repriced;
+        }
+        return repriced ? repricedPayloads[next] : payloads[next];
+    }
+
+    private static byte[] rewrite(ObjectMapper jsonObjectMapper, byte[] payload, int copy, double priceOffset) throws IOException {
+        JsonNode root = jsonObjectMapper.readTree(payload);
+        ((ObjectNode) root).put("vehicleId", root.get("vehicleId").asLong() + copy * 10_000_000L);
+        for (JsonNode day : root.get("dailyPricingResponses")) {
+            ((ObjectNode) day).put("price", day.get("price").asDouble() + priceOffset);
+        }
+        return jsonObjectMapper.writeValueAsBytes(root);
+    }
+}
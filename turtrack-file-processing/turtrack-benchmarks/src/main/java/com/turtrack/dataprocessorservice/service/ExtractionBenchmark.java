@@ -0,0 +1,80 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.benchmarks.Corpus;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.model.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload extraction per record, cycling through the corpus. {@code map*} is the default MAP extraction mode of the
+ * processing services, {@code streaming*} is what they delegate to in STREAMING mode.
+ * Lives in the services' package to reach their package-private extraction methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    private byte[][] vehiclePayloads;
+    private byte[][] dailyPricingPayloads;
+    private int next;
+
+    private VehicleProcessingService vehicleProcessingService;
+    private DailyRateProcessingService dailyRateProcessingService;
+    private StreamingPayloadExtractor streamingPayloadExtractor;
+
+    @Setup
+    public void setUp() {
+        vehiclePayloads = Corpus.vehicleDetails().toArray(new byte[0][]);
+        dailyPricingPayloads = Corpus.dailyPricing().toArray(new byte[0][]);
+
+        ObjectMapper jsonObjectMapper = new JacksonConfig().jsonObjectMapper();
+        streamingPayloadExtractor = new StreamingPayloadExtractor(jsonObjectMapper);
+        vehicleProcessingService = new VehicleProcessingService(null, jsonObjectMapper, streamingPayloadExtractor, null, null);
+        dailyRateProcessingService = new DailyRateProcessingService(null, jsonObjectMapper, streamingPayloadExtractor, null, null, null,
+                ParallelDayMapper.serial());
+    }
+
+    @Benchmark
+    public Vehicle mapVehicle() {
+        return vehicleProcessingService.extractVehicle(next(vehiclePayloads));
+    }
+
+    @Benchmark
+    public Vehicle streamingVehicle() throws IOException {
+        return streamingPayloadExtractor.extractVehicle(next(vehiclePayloads));
+    }
+
+    @Benchmark
+    public List<DailyRateAndAvailability> mapDailyRates() {
+        return dailyRateProcessingService.extractDailyRates(next(dailyPricingPayloads));
+    }
+
+    @Benchmark
+    public List<DailyRateAndAvailability> streamingDailyRates() throws IOException {
+        return streamingPayloadExtractor.extractDailyRates(next(dailyPricingPayloads));
+    }
+
+    private byte[] next(byte[][] payloads) {
+        next = (next + 1) % payloads.length;
+        return payloads[next];
+    }
+}
@@ -0,0 +1,92 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.turtrack.benchmarks.Corpus;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MAP extraction of one daily pricing payload of {@code days} days, mapped on the calling thread or fanned out in
+ * chunks of {@value #CHUNK_DAYS} days. The days are copies of the first corpus day with consecutive dates. Where
+ * {@code PARALLEL} overtakes {@code SERIAL} is the threshold to configure as
+ * {@code turtrack.processor.parallel-extraction.threshold-days}; binding the payload to a map stays serial in both.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelExtractionBenchmark {
+
+    private static final int CHUNK_DAYS = 256;
+
+    public enum Mapping {
+        SERIAL,
+        PARALLEL
+    }
+
+    @Param({"SERIAL", "PARALLEL"})
+    public Mapping mapping;
+
+    @Param({"90", "365", "730", "1825", "3650"})
+    public int days;
+
+    private byte[] payload;
+    private ParallelDayMapper parallelDayMapper;
+    private DailyRateProcessingService dailyRateProcessingService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper jsonObjectMapper = new JacksonConfig().jsonObjectMapper();
+        payload = payload(jsonObjectMapper, Corpus.dailyPricing().get(0), days);
+
+        parallelDayMapper = mapping == Mapping.PARALLEL ? new ParallelDayMapper(1, CHUNK_DAYS, 0) : ParallelDayMapper.serial();
+        dailyRateProcessingService = new DailyRateProcessingService(null, jsonObjectMapper, null, null, null, null, parallelDayMapper);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parallelDayMapper.destroy();
+    }
+
+    @Benchmark
+    public List<DailyRateAndAvailability> extractDailyRates() {
+        return dailyRateProcessingService.extractDailyRates(payload);
+    }
+
+    /**
+     * The corpus payload with its days replaced by {@code days} copies of its first day, one per date.
+     */
+    private static byte[] payload(ObjectMapper jsonObjectMapper, byte[] corpusPayload, int days) throws IOException {
+        ObjectNode message = (ObjectNode) jsonObjectMapper.readTree(corpusPayload);
+        ObjectNode template = (ObjectNode) message.withArray("dailyPricingResponses").get(0);
+        LocalDate first = LocalDate.parse(template.get("date").asText());
+        ArrayNode dailyPricingResponses = jsonObjectMapper.createArrayNode();
+        for (int day = 0; day < days; day++) {
+            dailyPricingResponses.add(template.deepCopy().put("date", first.plusDays(day).toString()));
+        }
+        message.set("dailyPricingResponses", dailyPricingResponses);
+        return jsonObjectMapper.writeValueAsBytes(message);
+    }
+}
@@ -0,0 +1,40 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.benchmarks.Corpus;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.model.DailyRateCalendarBlock;
+import com.turtrack.dataprocessorservice.model.Vehicle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the processor produces from the {@link Corpus}: cleaned vehicles, per-day rates and calendar blocks.
+ */
+public record ProcessedCorpus(List<Vehicle> vehicles,
+                              List<DailyRateAndAvailability> dailyRates,
+                              List<DailyRateCalendarBlock> calendarBlocks) {
+
+    public static ProcessedCorpus extract(ObjectMapper jsonObjectMapper) {
+        StreamingPayloadExtractor extractor = new StreamingPayloadExtractor(jsonObjectMapper);
+        try {
+            List<Vehicle> vehicles = new ArrayList<>();
+            for (byte[] payload : Corpus.vehicleDetails()) {
+                vehicles.add(extractor.extractVehicle(payload));
+            }
+            List<DailyRateAndAvailability> dailyRates = new ArrayList<>();
+            List<DailyRateCalendarBlock> calendarBlocks = new ArrayList<>();
+            for (byte[] payload : Corpus.dailyPricing()) {
+                List<DailyRateAndAvailability> calendar = extractor.extractDailyRates(payload);
+                dailyRates.addAll(calendar);
+                calendarBlocks.addAll(DailyRateProcessingService.toCalendarBlocks(calendar));
+            }
+            return new ProcessedCorpus(vehicles, dailyRates, calendarBlocks);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed corpus payload", e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.config.KafkaConfig;
+import com.turtrack.dataprocessorservice.config.PayloadFormat;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
+import com.turtrack.dataprocessorservice.model.DailyRateAndAvailability;
+import com.turtrack.dataprocessorservice.model.DailyRateCalendarBlock;
+import com.turtrack.dataprocessorservice.model.Vehicle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value serialization per output record with the serializer {@link KafkaConfig} configures for each wire format,
+ * including its dispatch on the value type. The producer factory comes from the real configuration class; no broker
+ * is contacted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"JSON", "BINARY"})
+    public PayloadFormat wireFormat;
+
+    private AnnotationConfigApplicationContext context;
+    private Serializer<Object> valueSerializer;
+
+    private Vehicle[] vehicles;
+    private DailyRateAndAvailability[] dailyRates;
+    private DailyRateCalendarBlock[] calendarBlocks;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "spring.kafka.bootstrap-servers", "localhost:9092",
+                "turtrack.processor.producer.wire-format", wireFormat.name())));
+        context.registerBean(SimpleMeterRegistry.class);
+        context.register(JacksonConfig.class, KafkaConfig.class, PipelineMetrics.class);
+        context.refresh();
+
+        valueSerializer = valueSerializer("outputProducerFactory");
+
+        ProcessedCorpus processed = ProcessedCorpus.extract(context.getBean(ObjectMapper.class));
+        vehicles = processed.vehicles().toArray(new Vehicle[0]);
+        dailyRates = processed.dailyRates().toArray(new DailyRateAndAvailability[0]);
+        calendarBlocks = processed.calendarBlocks().toArray(new DailyRateCalendarBlock[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] vehicle() {
+        next = (next + 1) % vehicles.length;
+        return valueSerializer.serialize(VehicleProcessingService.OUTPUT_TOPIC, vehicles[next]);
+    }
+
+    @Benchmark
+    public byte[] dailyRate() {
+        next = (next + 1) % dailyRates.length;
+        return valueSerializer.serialize(DailyRateProcessingService.OUTPUT_TOPIC, dailyRates[next]);
+    }
+
+    @Benchmark
+    public byte[] calendarBlock() {
+        next = (next + 1) % calendarBlocks.length;
+        return valueSerializer.serialize(DailyRateProcessingService.CALENDAR_OUTPUT_TOPIC, calendarBlocks[next]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Serializer<T> valueSerializer(String producerFactory) {
+        return context.getBean(producerFactory, ProducerFactory.class).getValueSerializer();
+    }
+}
@@ -0,0 +1,131 @@
+package com.turtrack.dataprocessorservice.service;
+
+import com.turtrack.benchmarks.Corpus;
+import com.turtrack.dataprocessorservice.config.DeliveryMode;
+import com.turtrack.dataprocessorservice.config.JacksonConfig;
+import com.turtrack.dataprocessorservice.config.KafkaConfig;
+import com.turtrack.dataprocessorservice.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The daily-rate read-process-write loop of one listener against an embedded broker, per delivery mode and poll size.
+ * Each invocation processes {@link #MESSAGES} scraper calendars in polls of {@code pollSize} messages, so results
+ * are per input message and compare directly. In EXACTLY_ONCE mode every poll runs as the listener container runs
+ * it: a transaction holding its output days and its input offset. Larger polls spread the begin/commit round trips
+ * and commit markers over more messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransactionBenchmark {
+
+    private static final int MESSAGES = 500;
+    private static final String GROUP = "transaction-benchmark";
+
+    @Param({"AT_LEAST_ONCE", "EXACTLY_ONCE"})
+    public DeliveryMode delivery;
+
+    @Param({"1", "50", "500"})
+    public int pollSize;
+
+    private EmbeddedKafkaKraftBroker broker;
+    private AnnotationConfigApplicationContext context;
+    private DailyRateProcessingService dailyRateProcessingService;
+    private KafkaTemplate<?, ?> template;
+    private TransactionTemplate transactionTemplate;
+
+    private List<List<ConsumerRecord<String, byte[]>>> polls;
+    private final TopicPartition input = new TopicPartition(DailyRateProcessingService.SOURCE_TOPIC, 0);
+    private final ConsumerGroupMetadata groupMetadata = new ConsumerGroupMetadata(GROUP);
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, DailyRateProcessingService.OUTPUT_TOPIC);
+        broker.brokerProperties(Map.of(
+                "transaction.state.log.replication.factor", "1",
+                "transaction.state.log.min.isr", "1",
+                "offsets.topic.replication.factor", "1"));
+        broker.afterPropertiesSet();
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "spring.kafka.bootstrap-servers", broker.getBrokersAsString(),
+                "turtrack.processor.delivery", delivery.name())));
+        context.registerBean(SimpleMeterRegistry.class);
+        context.register(JacksonConfig.class, KafkaConfig.class, PipelineMetrics.class,
+                StreamingPayloadExtractor.class, DailyRateProcessingService.class);
+        context.refresh();
+
+        dailyRateProcessingService = context.getBean(DailyRateProcessingService.class);
+        template = context.getBean("dailyRateAndAvailabilityKafkaTemplate", KafkaTemplate.class);
+        if (delivery == DeliveryMode.EXACTLY_ONCE) {
+            ProducerFactory<String, Object> producerFactory = context.getBean("outputProducerFactory", ProducerFactory.class);
+            transactionTemplate = new TransactionTemplate(new KafkaTransactionManager<>(producerFactory));
+        }
+
+        List<byte[]> payloads = Corpus.dailyPricing();
+        polls = new ArrayList<>();
+        for (int offset = 0; offset < MESSAGES; offset += pollSize) {
+            List<ConsumerRecord<String, byte[]>> poll = new ArrayList<>(pollSize);
+            for (int i = offset; i < Math.min(offset + pollSize, MESSAGES); i++) {
+                poll.add(new ConsumerRecord<>(input.topic(), input.partition(), i, null, payloads.get(i % payloads.size())));
+            }
+            polls.add(poll);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        broker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void processDailyRates() {
+        for (List<ConsumerRecord<String, byte[]>> poll : polls) {
+            if (transactionTemplate == null) {
+                dailyRateProcessingService.processAndForwardDailyRates(poll).acked().join();
+            } else {
+                transactionTemplate.executeWithoutResult(status -> {
+                    dailyRateProcessingService.processAndForwardDailyRates(poll).acked().join();
+                    long next = poll.get(poll.size() - 1).offset() + 1;
+                    template.sendOffsetsToTransaction(Map.of(input, new OffsetAndMetadata(next)), groupMetadata);
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.turtrack.common.deadletter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Feeds a dead-letter topic back into the topic its records came from, once the cause is fixed:
+ * {@code POST /actuator/deadletters/vehicle-detail-topic.DLT}. A replay covers every record dead-lettered since
+ * the previous replay of that topic, with progress committed under the service's replay group. It stops at the end
+ * offsets seen when it started. Records that fail again are simply dead-lettered again.
+ * <p>
+ * Each service declares it as a bean with a replay group of its own.
+ */
+@Slf4j
+@Endpoint(id = "deadletters")
+@RequiredArgsConstructor
+public class DeadLetterReplayEndpoint {
+
+    private static final String DLT_HEADER_PREFIX = KafkaHeaders.PREFIX + "dlt-";
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final KafkaTemplate<String, byte[]> deadLetterKafkaTemplate;
+    private final String replayGroup;
+
+    @WriteOperation
+    public Map<String, Object> replay(@Selector String topic) {
+        if (!topic.endsWith(DeadLetterRouter.SUFFIX)) {
+            throw new InvalidEndpointRequestException("Not a dead-letter topic: " + topic, "Not a dead-letter topic");
+        }
+        int replayed = 0;
+        try (Consumer<String, byte[]> consumer = consumerFactory.createConsumer(replayGroup, "-replay")) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo partition : consumer.partitionsFor(topic)) {
+                partitions.add(new TopicPartition(topic, partition.partition()));
+            }
+            consumer.assign(partitions);
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+            for (TopicPartition partition : partitions) {
+                OffsetAndMetadata offset = committed.get(partition);
+                if (offset == null) {
+                    consumer.seekToBeginning(List.of(partition));
+                } else {
+                    consumer.seek(partition, offset);
+                }
+            }
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            while (!caughtUp(consumer, endOffsets)) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+                List<CompletableFuture<?>> sends = new ArrayList<>(records.count());
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    sends.add(deadLetterKafkaTemplate.send(toOriginalTopic(record)));
+                }
+                CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).join();
+                consumer.commitSync();
+                replayed += records.count();
+            }
+        }
+        log.info("Replayed {} records from {}", replayed, topic);
+        return Map.of("topic", topic, "replayed", replayed);
+    }
+
+    private static boolean caughtUp(Consumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> end : endOffsets.entrySet()) {
+            if (consumer.position(end.getKey()) < end.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The record as it was on its original topic: same key, value and headers, without the dead-letter headers.
+     */
+    static ProducerRecord<String, byte[]> toOriginalTopic(ConsumerRecord<String, byte[]> record) {
+        Header originalTopic = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        String topic = originalTopic != null
+                ? new String(originalTopic.value(), StandardCharsets.UTF_8)
+                : record.topic().substring(0, record.topic().length() - DeadLetterRouter.SUFFIX.length());
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith(DLT_HEADER_PREFIX)) {
+                headers.add(header);
+            }
+        }
+        return new ProducerRecord<>(topic, null, record.key(), record.value(), headers);
+    }
+}
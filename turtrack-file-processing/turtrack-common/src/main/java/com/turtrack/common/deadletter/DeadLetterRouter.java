@@ -0,0 +1,56 @@
+package com.turtrack.common.deadletter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Sends records that cannot be processed to {@code <topic>.DLT} instead of failing the batch or dropping them.
+ * A poison record therefore neither stalls its partition nor holds back the rest of its poll. The dead-letter
+ * record keeps key, value and headers, and carries the original topic, partition, offset and exception as
+ * {@code kafka_dlt-*} headers. {@link DeadLetterReplayEndpoint} feeds it back once the cause is fixed.
+ * <p>
+ * Each service declares it as a bean, with the meter counting the payloads it fails to decode.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DeadLetterRouter {
+
+    public static final String SUFFIX = ".DLT";
+
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    /** Called with the topic of every record whose payload fails to decode. */
+    private final Consumer<String> decodeFailures;
+
+    public static String deadLetterTopic(String topic) {
+        return topic + SUFFIX;
+    }
+
+    /**
+     * Returns the value decoded from the record's payload. If decoding throws, the record is dead-lettered and null
+     * is returned; retrying is pointless because the same bytes fail the same way every time.
+     */
+    public <T> T decodeOrDeadLetter(ConsumerRecord<String, byte[]> record, Function<byte[], T> decoding) {
+        try {
+            return decoding.apply(record.value());
+        } catch (RuntimeException e) {
+            decodeFailures.accept(record.topic());
+            deadLetter(record, e);
+            return null;
+        }
+    }
+
+    /**
+     * Publishes the record to its dead-letter topic and waits for the broker's ack. If the publish fails it
+     * throws, and the poll is retried instead of losing the record.
+     */
+    public void deadLetter(ConsumerRecord<?, ?> record, Exception cause) {
+        log.warn("Dead-lettering {}-{}@{} to {}: {}", record.topic(), record.partition(), record.offset(),
+                deadLetterTopic(record.topic()), cause.toString());
+        deadLetterPublishingRecoverer.accept(record, cause);
+    }
+}
@@ -0,0 +1,109 @@
+package com.turtrack.common.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.turtrack.common.util.IsoDates;
+import com.turtrack.common.util.StringPool;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Reads the scraper's loosely typed values off a {@link JsonParser} positioned on them: numbers may arrive as
+ * strings, and an object or array where a scalar belongs is skipped as null.
+ */
+public final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    public static void expectStartObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected a JSON object payload but got " + parser.currentToken());
+        }
+    }
+
+    public static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    /**
+     * Reads a string that repeats across payloads (make, city, day name, ...) as its canonical instance, straight
+     * from the parser's buffer without allocating once the value is pooled.
+     */
+    public static String readPooledString(JsonParser parser, StringPool stringPool) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return stringPool.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        return stringPool.intern(readString(parser));
+    }
+
+    /**
+     * Reads a single pooled string field out of the object the parser is positioned on and consumes the rest of it.
+     */
+    public static String readNestedString(JsonParser parser, String name, StringPool stringPool) throws IOException {
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (name.equals(field)) {
+                value = readPooledString(parser, stringPool);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Parses the date straight from the parser's buffer, without materializing the string.
+     */
+    public static LocalDate readDate(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return IsoDates.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        String date = readString(parser);
+        return date != null ? IsoDates.parse(date) : null;
+    }
+
+    public static Integer readInteger(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT -> parser.getIntValue();
+            case VALUE_NUMBER_FLOAT -> (int) parser.getDoubleValue();
+            case VALUE_STRING -> Integer.parseInt(parser.getText());
+            case VALUE_NULL -> null;
+            default -> throw new IllegalArgumentException("Cannot convert " + parser.currentToken() + " to Integer");
+        };
+    }
+
+    public static Long readVehicleId(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT -> parser.getLongValue();
+            case VALUE_STRING -> Long.parseLong(parser.getText());
+            default -> throw new IllegalArgumentException("Vehicle ID not found or has an unexpected type");
+        };
+    }
+
+    public static Double readDouble(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_STRING -> Double.parseDouble(parser.getText());
+            case VALUE_NULL -> null;
+            default -> throw new IllegalArgumentException("Cannot convert " + parser.currentToken() + " to Double");
+        };
+    }
+
+    public static Boolean readBoolean(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            default -> throw new IllegalArgumentException("Cannot convert " + parser.currentToken() + " to Boolean");
+        };
+    }
+}
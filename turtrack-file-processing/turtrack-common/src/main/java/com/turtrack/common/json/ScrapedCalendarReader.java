@@ -0,0 +1,106 @@
+package com.turtrack.common.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.turtrack.common.util.StringPool;
+
+import java.io.IOException;
+
+import static com.turtrack.common.json.JsonValues.expectStartObject;
+import static com.turtrack.common.json.JsonValues.readBoolean;
+import static com.turtrack.common.json.JsonValues.readDate;
+import static com.turtrack.common.json.JsonValues.readDouble;
+import static com.turtrack.common.json.JsonValues.readNestedString;
+import static com.turtrack.common.json.JsonValues.readPooledString;
+import static com.turtrack.common.json.JsonValues.readVehicleId;
+
+/**
+ * Reads the days of a raw scraper calendar payload with a {@link JsonParser}: only the day fields are materialized
+ * and every other subtree is skipped. Used by the processor for the daily pricing topic and by the persistor's
+ * backfill for archived payloads. The scraper appends vehicleId after the pricing array, so days are handed over
+ * before the vehicle is known and callers apply it once {@link #read} returns. Thread-safe if the pool is.
+ */
+public final class ScrapedCalendarReader {
+
+    @FunctionalInterface
+    public interface DayHandler {
+        void accept(ScrapedDay day);
+    }
+
+    private final JsonFactory jsonFactory;
+    private final StringPool stringPool;
+
+    public ScrapedCalendarReader(JsonFactory jsonFactory, StringPool stringPool) {
+        this.jsonFactory = jsonFactory;
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * Hands every day object of the payload's dailyPricingResponses to {@code handler}, in payload order, and returns
+     * the payload's vehicleId; null if the payload has no pricing array (a vehicle detail message).
+     *
+     * @throws IOException              if the payload is not JSON
+     * @throws IllegalArgumentException if a calendar has no vehicleId or a field has an unexpected type
+     */
+    public Long read(byte[] payload, int offset, int length, DayHandler handler) throws IOException {
+        boolean calendar = false;
+        Long vehicleId = null;
+        ScrapedDay day = new ScrapedDay();
+        try (JsonParser parser = jsonFactory.createParser(payload, offset, length)) {
+            expectStartObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("vehicleId".equals(field)) {
+                    vehicleId = readVehicleId(parser);
+                } else if ("dailyPricingResponses".equals(field) && token == JsonToken.START_ARRAY) {
+                    calendar = true;
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (token == JsonToken.START_OBJECT) {
+                            day.clear();
+                            readDay(parser, day);
+                            handler.accept(day);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (!calendar) {
+            return null;
+        }
+        if (vehicleId == null) {
+            throw new IllegalArgumentException("Vehicle ID not found or has an unexpected type");
+        }
+        return vehicleId;
+    }
+
+    private void readDay(JsonParser parser, ScrapedDay day) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "date" -> day.setDate(readDate(parser));
+                case "custom" -> day.setCustom(readBoolean(parser));
+                case "localizedDayOfWeek" -> day.setLocalizedDayOfWeek(readPooledString(parser, stringPool));
+                case "localizedShortDayOfWeek" -> day.setLocalizedShortDayOfWeek(readPooledString(parser, stringPool));
+                case "price" -> day.setPrice(readDouble(parser));
+                case "priceEditable" -> day.setPriceEditable(readBoolean(parser));
+                case "priceWithCurrency" -> {
+                    if (token == JsonToken.START_OBJECT) {
+                        day.setCurrencyCode(readNestedString(parser, "currencyCode", stringPool));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "source" -> day.setSource(readPooledString(parser, stringPool));
+                case "wholeDayUnavailable" -> day.setWholeDayUnavailable(readBoolean(parser));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.turtrack.common.json;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * One entry of a scraper calendar's dailyPricingResponses, as read by {@link ScrapedCalendarReader}. Fields the
+ * payload leaves out are null. The reader reuses one instance for every day of a payload, so a handler copies what
+ * it keeps.
+ */
+@Getter
+@Setter(AccessLevel.PACKAGE)
+public final class ScrapedDay {
+
+    private LocalDate date;
+    private Boolean custom;
+    private String localizedDayOfWeek;
+    private String localizedShortDayOfWeek;
+    private Double price;
+    private Boolean priceEditable;
+    private String currencyCode;
+    private String source;
+    private Boolean wholeDayUnavailable;
+
+    /**
+     * Whether the day has every field the persistor stores: date, price, currency code, custom and
+     * wholeDayUnavailable.
+     */
+    public boolean isComplete() {
+        return date != null && price != null && currencyCode != null && custom != null && wholeDayUnavailable != null;
+    }
+
+    void clear() {
+        date = null;
+        custom = null;
+        localizedDayOfWeek = null;
+        localizedShortDayOfWeek = null;
+        price = null;
+        priceEditable = null;
+        currencyCode = null;
+        source = null;
+        wholeDayUnavailable = null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.turtrack.common.metrics;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Record headers carried along the pipeline. {@link #SCRAPED_AT} holds the scrape time in epoch milliseconds as a
+ * decimal string; the persistor measures end-to-end latency against it.
+ */
+public final class PipelineHeaders {
+
+    public static final String SCRAPED_AT = "turtrack-scraped-at";
+
+    private PipelineHeaders() {
+    }
+
+    /**
+     * The scrape time of a scraper record: its {@link #SCRAPED_AT} header, or else its timestamp, which the
+     * scraper sets when it sends right after scraping.
+     */
+    public static long scrapedAt(ConsumerRecord<?, ?> record) {
+        long scrapedAt = readScrapedAt(record.headers());
+        return scrapedAt > 0 ? scrapedAt : record.timestamp();
+    }
+
+    /**
+     * The {@link #SCRAPED_AT} header, or 0 if absent or unreadable.
+     */
+    public static long readScrapedAt(Headers headers) {
+        Header header = headers.lastHeader(SCRAPED_AT);
+        if (header == null || header.value() == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(header.value(), StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static Headers scrapedAtHeaders(long scrapedAt) {
+        return new RecordHeaders(new Header[]{
+                new RecordHeader(SCRAPED_AT, Long.toString(scrapedAt).getBytes(StandardCharsets.US_ASCII))
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package com.turtrack.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces per-record log lines with one aggregate line per interval: what every {@code turtrack.*} counter and
+ * timer did since the previous summary, read from the meters the pipeline already records. Quiet intervals log
+ * nothing. The interval is read from {@code <propertyPrefix>.logging.summary-interval-ms} (default one minute), so
+ * each service schedules it under its own prefix, e.g. {@code turtrack.processor}.
+ */
+@Slf4j
+public class PipelineSummaryLogger implements SchedulingConfigurer {
+
+    private static final String PREFIX = "turtrack.";
+    private static final long DEFAULT_INTERVAL_MS = 60000;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration interval;
+    private final Map<Meter.Id, Snapshot> previous = new HashMap<>();
+
+    public PipelineSummaryLogger(MeterRegistry meterRegistry, PropertyResolver properties, String propertyPrefix) {
+        this.meterRegistry = meterRegistry;
+        this.interval = Duration.ofMillis(properties.getProperty(
+                propertyPrefix + ".logging.summary-interval-ms", Long.class, DEFAULT_INTERVAL_MS));
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(new FixedDelayTask(this::logSummary, interval, interval));
+    }
+
+    public void logSummary() {
+        String summary = summarize();
+        if (!summary.isEmpty()) {
+            log.info("Pipeline summary: {}", summary);
+        }
+    }
+
+    /**
+     * Counter and timer activity since the last call, or an empty string if nothing moved.
+     */
+    synchronized String summarize() {
+        List<Meter> meters = new ArrayList<>();
+        for (Meter meter : meterRegistry.getMeters()) {
+            if (meter.getId().getName().startsWith(PREFIX) && (meter instanceof Counter || meter instanceof Timer)) {
+                meters.add(meter);
+            }
+        }
+        meters.sort(Comparator.comparing(PipelineSummaryLogger::describe));
+
+        StringJoiner summary = new StringJoiner(", ");
+        for (Meter meter : meters) {
+            Snapshot current = meter instanceof Timer timer
+                    ? new Snapshot(timer.count(), timer.totalTime(TimeUnit.MILLISECONDS))
+                    : new Snapshot((long) ((Counter) meter).count(), 0);
+            Snapshot last = previous.getOrDefault(meter.getId(), Snapshot.ZERO);
+            previous.put(meter.getId(), current);
+
+            long count = current.count - last.count;
+            if (count == 0) {
+                continue;
+            }
+            if (meter instanceof Timer) {
+                summary.add(String.format("%s=%d (avg %.1f ms)", describe(meter), count, (current.totalMillis - last.totalMillis) / count));
+            } else {
+                summary.add(describe(meter) + "=" + count);
+            }
+        }
+        return summary.toString();
+    }
+
+    private static String describe(Meter meter) {
+        StringJoiner tags = new StringJoiner(",", "{", "}").setEmptyValue("");
+        for (Tag tag : meter.getId().getTags()) {
+            if (!"application".equals(tag.getKey())) {
+                tags.add(tag.getKey() + "=" + tag.getValue());
+            }
+        }
+        return meter.getId().getName().substring(PREFIX.length()) + tags;
+    }
+
+    private record Snapshot(long count, double totalMillis) {
+        private static final Snapshot ZERO = new Snapshot(0, 0);
+    }
+}
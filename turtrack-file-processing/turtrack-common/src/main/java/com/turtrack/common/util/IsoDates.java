@@ -0,0 +1,81 @@
+package com.turtrack.common.util;
+
+import java.time.LocalDate;
+
+/**
+ * Parses {@code yyyy-MM-dd} dates without going through {@code DateTimeFormatter}: the digits are read directly and
+ * the date is looked up in a table of shared instances for years {@value #FIRST_YEAR} to {@value #LAST_YEAR}, so a
+ * calendar of a year of days allocates no dates at all. Anything else (other years, other ISO forms) falls back to
+ * {@link LocalDate#parse(CharSequence)}, which also reports malformed input.
+ * <p>
+ * The table is filled lazily and racily; {@code LocalDate} is immutable, so a reader sees null or a complete date.
+ */
+public final class IsoDates {
+
+    static final int FIRST_YEAR = 2000;
+    static final int LAST_YEAR = 2099;
+    private static final int DAYS_PER_MONTH_SLOT = 31;
+    private static final int SLOTS_PER_YEAR = 12 * DAYS_PER_MONTH_SLOT;
+
+    private static final LocalDate[] DATES = new LocalDate[(LAST_YEAR - FIRST_YEAR + 1) * SLOTS_PER_YEAR];
+
+    private IsoDates() {
+    }
+
+    public static LocalDate parse(String text) {
+        if (text.length() != 10) {
+            return LocalDate.parse(text);
+        }
+        int slot = slot(text.charAt(0), text.charAt(1), text.charAt(2), text.charAt(3), text.charAt(4),
+                text.charAt(5), text.charAt(6), text.charAt(7), text.charAt(8), text.charAt(9));
+        return slot < 0 ? LocalDate.parse(text) : date(slot);
+    }
+
+    public static LocalDate parse(char[] chars, int offset, int length) {
+        if (length != 10) {
+            return LocalDate.parse(new String(chars, offset, length));
+        }
+        int slot = slot(chars[offset], chars[offset + 1], chars[offset + 2], chars[offset + 3], chars[offset + 4],
+                chars[offset + 5], chars[offset + 6], chars[offset + 7], chars[offset + 8], chars[offset + 9]);
+        return slot < 0 ? LocalDate.parse(new String(chars, offset, length)) : date(slot);
+    }
+
+    /**
+     * The table slot of a {@code yyyy-MM-dd} date within the table's years, or -1 to take the slow path.
+     * Day 31 of a short month gets a slot too; {@link #date(int)} rejects it.
+     */
+    private static int slot(char y1, char y2, char y3, char y4, char dash1, char m1, char m2, char dash2, char d1, char d2) {
+        if (dash1 != '-' || dash2 != '-') {
+            return -1;
+        }
+        int year = digits(y1, y2) * 100 + digits(y3, y4);
+        int month = digits(m1, m2);
+        int day = digits(d1, d2);
+        if (year < FIRST_YEAR || year > LAST_YEAR || month < 1 || month > 12 || day < 1 || day > DAYS_PER_MONTH_SLOT) {
+            return -1;
+        }
+        return (year - FIRST_YEAR) * SLOTS_PER_YEAR + (month - 1) * DAYS_PER_MONTH_SLOT + day - 1;
+    }
+
+    /**
+     * Two decimal digits, or a negative number if either char is not a digit.
+     */
+    private static int digits(char tens, char ones) {
+        int high = tens - '0';
+        int low = ones - '0';
+        return (high | low | (9 - high) | (9 - low)) < 0 ? -10_000 : high * 10 + low;
+    }
+
+    private static LocalDate date(int slot) {
+        LocalDate date = DATES[slot];
+        if (date == null) {
+            int year = FIRST_YEAR + slot / SLOTS_PER_YEAR;
+            int month = slot % SLOTS_PER_YEAR / DAYS_PER_MONTH_SLOT + 1;
+            int day = slot % DAYS_PER_MONTH_SLOT + 1;
+            // Throws DateTimeException for a day past the end of its month, as LocalDate.parse would
+            date = LocalDate.of(year, month, day);
+            DATES[slot] = date;
+        }
+        return date;
+    }
+}
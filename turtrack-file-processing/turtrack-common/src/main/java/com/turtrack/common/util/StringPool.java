@@ -0,0 +1,96 @@
+package com.turtrack.common.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Canonical instances of the few thousand distinct short strings the scraper repeats: makes, models, trims, cities,
+ * day names, currency codes. {@link #intern(char[], int, int)} looks a value up straight from a parser's buffer, so a
+ * pooled value costs no allocation at all. Holds at most {@code maxEntries} values and never evicts; once full, or
+ * for values longer than {@value #MAX_LENGTH} chars, values are returned unpooled.
+ * <p>
+ * Lock-free: the table is read and written racily. Strings are safely published through their final fields, so a
+ * reader sees either null or a complete value; a lost concurrent insert only costs a duplicate.
+ */
+public final class StringPool {
+
+    static final int MAX_LENGTH = 64;
+    private static final int MAX_PROBES = 8;
+
+    private final String[] table;
+    private final int maxEntries;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public StringPool(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.table = new String[Integer.highestOneBit(Math.max(maxEntries, 8) * 2 - 1) * 2];
+    }
+
+    public String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        int mask = table.length - 1;
+        int hash = value.hashCode();
+        for (int probe = 0, slot = spread(hash) & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+            String candidate = table[slot];
+            if (candidate == null) {
+                add(slot, value);
+                return value;
+            }
+            if (candidate.hashCode() == hash && candidate.equals(value)) {
+                return candidate;
+            }
+        }
+        return value;
+    }
+
+    public String intern(char[] chars, int offset, int length) {
+        if (length > MAX_LENGTH) {
+            return new String(chars, offset, length);
+        }
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = table.length - 1;
+        for (int probe = 0, slot = spread(hash) & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+            String candidate = table[slot];
+            if (candidate == null) {
+                String value = new String(chars, offset, length);
+                add(slot, value);
+                return value;
+            }
+            if (candidate.hashCode() == hash && contentEquals(candidate, chars, offset, length)) {
+                return candidate;
+            }
+        }
+        return new String(chars, offset, length);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void add(int slot, String value) {
+        if (size.get() < maxEntries) {
+            table[slot] = value;
+            size.incrementAndGet();
+        }
+    }
+
+    private static boolean contentEquals(String candidate, char[] chars, int offset, int length) {
+        if (candidate.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (candidate.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,39 @@
+package com.turtrack.common.wire;
+
+/**
+ * Layout of a {@link WireFormat#SCHEMA_DAILY_RATE_CALENDAR_BLOCK} record, a run of consecutive days of one vehicle:
+ * <pre>
+ * header | vehicleId varint | startDate epochDay zig-zag | day count varint
+ *        | per day: price cents zig-zag | flag bits | currencyCode dict
+ * </pre>
+ */
+public final class DailyRateCalendarBlockWire {
+
+    public static final int CUSTOM = 1;
+    public static final int PRICE_EDITABLE = 1 << 1;
+    public static final int WHOLE_DAY_UNAVAILABLE = 1 << 2;
+
+    private DailyRateCalendarBlockWire() {
+    }
+
+    /**
+     * Reads the header, failing unless it is of this schema.
+     */
+    public static void readHeader(WireReader reader) {
+        byte schemaId = reader.readHeader();
+        if (schemaId != WireFormat.SCHEMA_DAILY_RATE_CALENDAR_BLOCK) {
+            throw new IllegalArgumentException("Expected daily rate calendar block schema but got " + schemaId);
+        }
+    }
+
+    /**
+     * Every day takes at least three bytes, which bounds the arrays allocated for a corrupt count.
+     */
+    public static int readDayCount(WireReader reader, int payloadLength) {
+        long days = reader.readVarLong();
+        if (days < 0 || days > payloadLength / 3) {
+            throw new IllegalArgumentException("Invalid day count " + days);
+        }
+        return (int) days;
+    }
+}
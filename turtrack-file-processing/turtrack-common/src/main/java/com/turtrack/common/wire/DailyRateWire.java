@@ -0,0 +1,36 @@
+package com.turtrack.common.wire;
+
+/**
+ * Layout of a {@link WireFormat#SCHEMA_DAILY_RATE} record:
+ * <pre>
+ * header | presence bits | flag bits | vehicleId varint | epochDay zig-zag | price cents zig-zag
+ *        | localizedDayOfWeek dict | localizedShortDayOfWeek dict | currencyCode dict | source string
+ * </pre>
+ * Absent (null) numeric fields are left out and flagged in the presence bits.
+ */
+public final class DailyRateWire {
+
+    public static final int HAS_VEHICLE_ID = 1;
+    public static final int HAS_DATE = 1 << 1;
+    public static final int HAS_PRICE = 1 << 2;
+    public static final int HAS_CUSTOM = 1 << 3;
+    public static final int HAS_PRICE_EDITABLE = 1 << 4;
+    public static final int HAS_WHOLE_DAY_UNAVAILABLE = 1 << 5;
+
+    public static final int CUSTOM = 1;
+    public static final int PRICE_EDITABLE = 1 << 1;
+    public static final int WHOLE_DAY_UNAVAILABLE = 1 << 2;
+
+    private DailyRateWire() {
+    }
+
+    /**
+     * Reads the header, failing unless it is of this schema.
+     */
+    public static void readHeader(WireReader reader) {
+        byte schemaId = reader.readHeader();
+        if (schemaId != WireFormat.SCHEMA_DAILY_RATE) {
+            throw new IllegalArgumentException("Expected daily rate schema but got " + schemaId);
+        }
+    }
+}
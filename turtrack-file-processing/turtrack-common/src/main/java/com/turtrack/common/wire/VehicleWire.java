@@ -0,0 +1,27 @@
+package com.turtrack.common.wire;
+
+/**
+ * Layout of a {@link WireFormat#SCHEMA_VEHICLE} record:
+ * <pre>
+ * header | presence bits | id zig-zag | year zig-zag | averageDailyPrice cents zig-zag
+ *        | make | model | trim | type dict | registrationState | city | state
+ * </pre>
+ */
+public final class VehicleWire {
+
+    public static final int HAS_ID = 1;
+    public static final int HAS_AVERAGE_DAILY_PRICE = 1 << 1;
+
+    private VehicleWire() {
+    }
+
+    /**
+     * Reads the header, failing unless it is of this schema.
+     */
+    public static void readHeader(WireReader reader) {
+        byte schemaId = reader.readHeader();
+        if (schemaId != WireFormat.SCHEMA_VEHICLE) {
+            throw new IllegalArgumentException("Expected vehicle schema but got " + schemaId);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.turtrack.common.wire;
+
+import java.util.List;
+
+/**
+ * Compact binary encoding of the processed topics, written by data-processor-service and read by
+ * data-persistor-service. The layout of each schema is in {@link DailyRateWire}, {@link VehicleWire} and
+ * {@link DailyRateCalendarBlockWire}.
+ * <p>
+ * Every record starts with a three byte header: {@link #MAGIC}, {@link #VERSION} and a schema id.
+ * {@code MAGIC} can never start a JSON document, so readers fall back to JSON when it is absent.
+ * Integers are LEB128 varints (zig-zag for signed values), dates are epoch days, prices are fixed-point
+ * cents, and day-of-week names, currency codes and vehicle types are dictionary-coded.
+ * <p>
+ * The dictionaries are part of the format: entries may only be appended, and only together with a {@link #VERSION} bump.
+ */
+public final class WireFormat {
+
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final byte VERSION = 1;
+    public static final int HEADER_LENGTH = 3;
+
+    public static final byte SCHEMA_DAILY_RATE = 1;
+    public static final byte SCHEMA_VEHICLE = 2;
+    public static final byte SCHEMA_DAILY_RATE_CALENDAR_BLOCK = 3;
+
+    /** Dictionary code of a null value. */
+    public static final int CODE_NULL = 0;
+    /** Dictionary code of a value that is not in the dictionary and follows as a literal string. */
+    public static final int CODE_LITERAL = 0xFF;
+
+    public static final List<String> DAYS_OF_WEEK =
+            List.of("Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday");
+    public static final List<String> SHORT_DAYS_OF_WEEK =
+            List.of("Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun");
+    public static final List<String> CURRENCY_CODES =
+            List.of("USD", "CAD", "GBP", "EUR", "AUD");
+    public static final List<String> VEHICLE_TYPES =
+            List.of("CAR", "SUV", "MINIVAN", "TRUCK", "VAN");
+    public static final List<String> NO_DICTIONARY = List.of();
+
+    private WireFormat() {
+    }
+
+    public static boolean hasHeader(byte[] payload) {
+        return payload != null && payload.length >= HEADER_LENGTH && payload[0] == MAGIC;
+    }
+
+    public static long toCents(double price) {
+        return Math.round(price * 100);
+    }
+
+    public static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.turtrack.common.wire;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads {@link WireFormat} primitives from a byte array. Malformed input raises {@link IllegalArgumentException}.
+ */
+public class WireReader {
+
+    private final byte[] buffer;
+    private int position;
+
+    public WireReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Validates the header and returns the schema id.
+     */
+    public byte readHeader() {
+        require(WireFormat.HEADER_LENGTH);
+        if (buffer[position++] != WireFormat.MAGIC) {
+            throw new IllegalArgumentException("Missing wire format magic byte");
+        }
+        byte version = buffer[position++];
+        if (version != WireFormat.VERSION) {
+            throw new IllegalArgumentException("Unsupported wire format version " + version);
+        }
+        return buffer[position++];
+    }
+
+    public int readByte() {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    public long readZigZagLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() {
+        long length = readVarLong();
+        if (length > buffer.length - position) {
+            throw new IllegalArgumentException("String length " + length + " exceeds remaining payload");
+        }
+        String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+        position += (int) length;
+        return value;
+    }
+
+    public String readDictionaryString(List<String> dictionary) {
+        int code = readByte();
+        if (code == WireFormat.CODE_NULL) {
+            return null;
+        }
+        if (code == WireFormat.CODE_LITERAL) {
+            return readString();
+        }
+        if (code > dictionary.size()) {
+            throw new IllegalArgumentException("Unknown dictionary code " + code);
+        }
+        return dictionary.get(code - 1);
+    }
+
+    private void require(int bytes) {
+        if (position + bytes > buffer.length) {
+            throw new IllegalArgumentException("Truncated wire format payload");
+        }
+    }
+}
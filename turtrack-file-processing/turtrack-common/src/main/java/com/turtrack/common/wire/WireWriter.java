@@ -0,0 +1,79 @@
+package com.turtrack.common.wire;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Appends {@link WireFormat} primitives to a growable byte array.
+ */
+public class WireWriter {
+
+    private byte[] buffer;
+    private int position;
+
+    public WireWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public WireWriter header(byte schemaId) {
+        ensureCapacity(WireFormat.HEADER_LENGTH);
+        buffer[position++] = WireFormat.MAGIC;
+        buffer[position++] = WireFormat.VERSION;
+        buffer[position++] = schemaId;
+        return this;
+    }
+
+    public WireWriter writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public WireWriter writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public WireWriter writeZigZagLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public WireWriter writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    /**
+     * Writes a one byte dictionary code, followed by the string itself when it is not in the dictionary.
+     */
+    public WireWriter writeDictionaryString(List<String> dictionary, String value) {
+        if (value == null) {
+            return writeByte(WireFormat.CODE_NULL);
+        }
+        int index = dictionary.indexOf(value);
+        if (index < 0) {
+            return writeByte(WireFormat.CODE_LITERAL).writeString(value);
+        }
+        return writeByte(index + 1);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int additional) {
+        if (position + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.turtrack.common.deadletter;
+
+import com.turtrack.common.metrics.PipelineHeaders;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadLetterReplayEndpointTest {
+
+    @Test
+    void restoresTheOriginalRecordWithoutDeadLetterHeaders() {
+        RecordHeaders headers = new RecordHeaders(PipelineHeaders.scrapedAtHeaders(1_720_000_000_000L).toArray());
+        headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, "vehicle-detail-topic".getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, "Malformed vehicle payload".getBytes(StandardCharsets.UTF_8));
+        byte[] payload = "{\"vehicle\":".getBytes(StandardCharsets.UTF_8);
+
+        ProducerRecord<String, byte[]> replayed = DeadLetterReplayEndpoint.toOriginalTopic(record("vehicle-detail-topic.DLT", payload, headers));
+
+        assertEquals("vehicle-detail-topic", replayed.topic());
+        assertNull(replayed.partition());
+        assertEquals("1852463", replayed.key());
+        assertArrayEquals(payload, replayed.value());
+        assertEquals(1_720_000_000_000L, PipelineHeaders.readScrapedAt(replayed.headers()));
+        assertNull(replayed.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC));
+        assertNull(replayed.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+    }
+
+    @Test
+    void fallsBackToTheTopicNameWithoutTheOriginalTopicHeader() {
+        ProducerRecord<String, byte[]> replayed = DeadLetterReplayEndpoint.toOriginalTopic(
+                record("vehicle-daily-rate-and-availability-topic.DLT", new byte[0], new RecordHeaders()));
+
+        assertEquals("vehicle-daily-rate-and-availability-topic", replayed.topic());
+    }
+
+    private static ConsumerRecord<String, byte[]> record(String topic, byte[] value, RecordHeaders headers) {
+        return new ConsumerRecord<>(topic, 0, 0L, 0L, TimestampType.CREATE_TIME,
+                0, value.length, "1852463", value, headers, Optional.empty());
+    }
+}
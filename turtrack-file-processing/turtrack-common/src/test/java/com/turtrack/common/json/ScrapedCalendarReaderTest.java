@@ -0,0 +1,77 @@
+package com.turtrack.common.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.turtrack.common.util.StringPool;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScrapedCalendarReaderTest {
+
+    private final ScrapedCalendarReader reader = new ScrapedCalendarReader(new JsonFactory(), new StringPool(64));
+
+    @Test
+    void readsEveryDayBeforeTheTrailingVehicleId() throws IOException {
+        String payload = "{\"dailyPricingResponses\":["
+                + "{\"date\":\"2024-07-01\",\"custom\":false,\"localizedDayOfWeek\":\"Monday\",\"price\":\"61.5\","
+                + "\"priceEditable\":true,\"priceWithCurrency\":{\"amount\":61.5,\"currencyCode\":\"USD\"},"
+                + "\"source\":\"DEFAULT\",\"wholeDayUnavailable\":false,\"extra\":{\"nested\":[1,2]}},"
+                + "{\"date\":\"2024-07-02\",\"custom\":true,\"price\":70,\"wholeDayUnavailable\":true},"
+                + "\"not a day\"],\"vehicleId\":\"1852463\"}";
+        List<String> days = new ArrayList<>();
+        List<Boolean> complete = new ArrayList<>();
+
+        Long vehicleId = read(payload, day -> {
+            days.add(day.getDate() + " " + day.getPrice() + " " + day.getCurrencyCode() + " " + day.getSource());
+            complete.add(day.isComplete());
+        });
+
+        assertEquals(1852463L, vehicleId);
+        assertEquals(List.of("2024-07-01 61.5 USD DEFAULT", "2024-07-02 70.0 null null"), days);
+        assertEquals(List.of(true, false), complete);
+    }
+
+    @Test
+    void poolsRepeatedStrings() throws IOException {
+        String payload = "{\"vehicleId\":1,\"dailyPricingResponses\":[{\"priceWithCurrency\":{\"currencyCode\":\"USD\"}}]}";
+        List<String> currencyCodes = new ArrayList<>();
+
+        read(payload, day -> currencyCodes.add(day.getCurrencyCode()));
+        read(payload, day -> currencyCodes.add(day.getCurrencyCode()));
+
+        assertSame(currencyCodes.get(0), currencyCodes.get(1));
+    }
+
+    @Test
+    void returnsNullForPayloadsWithoutCalendar() throws IOException {
+        assertNull(read("{\"vehicle\":{\"id\":1},\"vehicleId\":1}", day -> fail("no days expected")));
+    }
+
+    @Test
+    void rejectsCalendarsWithoutVehicleIdAndMistypedFields() {
+        assertThrows(IllegalArgumentException.class, () -> read("{\"dailyPricingResponses\":[]}", day -> { }));
+        assertThrows(IllegalArgumentException.class,
+                () -> read("{\"vehicleId\":1,\"dailyPricingResponses\":[{\"custom\":\"yes\"}]}", day -> { }));
+        assertThrows(IllegalArgumentException.class, () -> read("[]", day -> { }));
+    }
+
+    @Test
+    void readsWithinTheGivenRange() throws IOException {
+        byte[] line = "xx{\"vehicleId\":7,\"dailyPricingResponses\":[{\"date\":\"2024-01-31\"}]}yy".getBytes(StandardCharsets.UTF_8);
+        List<LocalDate> dates = new ArrayList<>();
+
+        assertEquals(7L, reader.read(line, 2, line.length - 4, day -> dates.add(day.getDate())));
+        assertEquals(List.of(LocalDate.of(2024, 1, 31)), dates);
+    }
+
+    private Long read(String payload, ScrapedCalendarReader.DayHandler handler) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return reader.read(bytes, 0, bytes.length, handler);
+    }
+}
@@ -0,0 +1,35 @@
+package com.turtrack.common.metrics;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PipelineHeadersTest {
+
+    @Test
+    void readsTheScrapedAtHeaderItWrites() {
+        ConsumerRecord<String, byte[]> record = record(1_000L, new RecordHeaders(PipelineHeaders.scrapedAtHeaders(1_720_000_000_000L).toArray()));
+
+        assertEquals(1_720_000_000_000L, PipelineHeaders.scrapedAt(record));
+    }
+
+    @Test
+    void fallsBackToTheRecordTimestamp() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(PipelineHeaders.SCRAPED_AT, "not a number".getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(1_000L, PipelineHeaders.scrapedAt(record(1_000L, new RecordHeaders())));
+        assertEquals(1_000L, PipelineHeaders.scrapedAt(record(1_000L, headers)));
+    }
+
+    private static ConsumerRecord<String, byte[]> record(long timestamp, RecordHeaders headers) {
+        return new ConsumerRecord<>("vehicle-detail-topic", 0, 0L, timestamp, TimestampType.CREATE_TIME,
+                0, 0, null, new byte[0], headers, Optional.empty());
+    }
+}
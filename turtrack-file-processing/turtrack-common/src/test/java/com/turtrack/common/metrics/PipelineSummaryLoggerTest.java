@@ -0,0 +1,54 @@
+package com.turtrack.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PipelineSummaryLoggerTest {
+
+    @Test
+    void summarizesOnlyWhatMovedSinceTheLastSummary() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Counter recordsIn = Counter.builder("turtrack.processor.records")
+                .tag("topic", "vehicle-detail-topic")
+                .tag("direction", "in")
+                .register(meterRegistry);
+        meterRegistry.counter("other.records").increment();
+        PipelineSummaryLogger summaryLogger = new PipelineSummaryLogger(meterRegistry, new StandardEnvironment(), "turtrack.processor");
+
+        recordsIn.increment(500);
+        recordsIn.increment(200);
+        assertEquals("processor.records{direction=in,topic=vehicle-detail-topic}=700", summaryLogger.summarize());
+
+        recordsIn.increment(100);
+        assertEquals("processor.records{direction=in,topic=vehicle-detail-topic}=100", summaryLogger.summarize());
+
+        assertEquals("", summaryLogger.summarize());
+    }
+
+    @Test
+    void schedulesAtTheIntervalUnderTheGivenPropertyPrefix() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "turtrack.persistor.logging.summary-interval-ms", "5000",
+                "turtrack.processor.logging.summary-interval-ms", "7000")));
+        ScheduledTaskRegistrar taskRegistrar = new ScheduledTaskRegistrar();
+
+        new PipelineSummaryLogger(new SimpleMeterRegistry(), environment, "turtrack.persistor").configureTasks(taskRegistrar);
+
+        assertEquals(1, taskRegistrar.getFixedDelayTaskList().size());
+        FixedDelayTask task = (FixedDelayTask) taskRegistrar.getFixedDelayTaskList().get(0);
+        assertEquals(Duration.ofSeconds(5), task.getIntervalDuration());
+        assertEquals(Duration.ofSeconds(5), task.getInitialDelayDuration());
+    }
+}
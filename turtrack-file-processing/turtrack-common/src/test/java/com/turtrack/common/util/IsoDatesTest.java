@@ -0,0 +1,36 @@
+package com.turtrack.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsoDatesTest {
+
+    @Test
+    void parsesEveryDayOfTheTableLikeLocalDate() {
+        for (LocalDate date = LocalDate.of(IsoDates.FIRST_YEAR, 1, 1); date.getYear() <= IsoDates.LAST_YEAR; date = date.plusDays(1)) {
+            assertEquals(date, IsoDates.parse(date.toString()));
+        }
+        char[] buffer = "{\"date\":\"2024-02-29\"}".toCharArray();
+        assertEquals(LocalDate.of(2024, 2, 29), IsoDates.parse(buffer, 9, 10));
+    }
+
+    @Test
+    void sharesInstancesAndFallsBackOutsideTheTable() {
+        assertSame(IsoDates.parse("2024-07-01"), IsoDates.parse("2024-07-01"));
+        assertEquals(LocalDate.of(1999, 12, 31), IsoDates.parse("1999-12-31"));
+        assertEquals(LocalDate.of(2150, 1, 1), IsoDates.parse("2150-01-01"));
+    }
+
+    @Test
+    void rejectsWhatLocalDateRejects() {
+        assertThrows(DateTimeException.class, () -> IsoDates.parse("2023-02-29"));
+        assertThrows(DateTimeException.class, () -> IsoDates.parse("2024-13-01"));
+        assertThrows(DateTimeException.class, () -> IsoDates.parse("2024-0a-01"));
+        assertThrows(DateTimeException.class, () -> IsoDates.parse("2024/01/01"));
+        assertThrows(DateTimeException.class, () -> IsoDates.parse("20240101"));
+    }
+}